@@ -3,6 +3,7 @@ package mayobot;
 import java.io.IOException;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
@@ -31,6 +32,7 @@ public class Main extends Application {
             stage.setMinWidth(417);
             stage.getIcons().add(new Image(Main.class.getResourceAsStream("/images/icon.png")));
             fxmlLoader.<MainWindow>getController().setMayoBot(mayoBot); // inject the MayoBot instance
+            mayoBot.watchStorage(Platform::runLater); // apply synced edits on the FX thread, like commands
             stage.show();
         } catch (IOException e) {
             e.printStackTrace();
@@ -1,11 +1,15 @@
 package mayobot;
 
 import java.io.IOException;
+import java.util.concurrent.Executor;
 
 import mayobot.commands.Command;
 import mayobot.exceptions.MayoBotException;
+import mayobot.storage.Durability;
+import mayobot.storage.StorageBackend;
 import mayobot.task.TaskList;
 import mayobot.ui.Ui;
+import mayobot.util.StringPool;
 
 /**
  * Main application class that orchestrates the MayoBot task management system.
@@ -14,14 +18,14 @@ import mayobot.ui.Ui;
  * application lifecycle from initialization through termination.
  * <p>
  * The MayoBot maintains three core components: a UI for user interaction,
- * a Storage system for task persistence, and a TaskList for task management.
+ * a {@link StorageBackend} for task persistence, and a TaskList for task management.
  * The application runs in a continuous loop processing user commands until
  * an exit command is received.
  */
 public class MayoBot {
 
     private Ui ui;
-    private Storage storage;
+    private StorageBackend storage;
     private TaskList taskList;
     private Command lastCommand;
 
@@ -37,10 +41,21 @@ public class MayoBot {
      * @param filePath the file path where tasks should be stored and loaded from
      */
     public MayoBot(String filePath) {
-        assert filePath != null : "File path cannot be null";
+        this(createDefaultStorage(filePath));
+    }
+
+    /**
+     * Creates a new MayoBot instance that persists its tasks through the given backend.
+     * Tasks are loaded from the backend immediately, falling back to an empty
+     * task list if they cannot be read.
+     *
+     * @param storage the backend to load tasks from and save changes to
+     */
+    public MayoBot(StorageBackend storage) {
+        assert storage != null : "Storage backend cannot be null";
 
         ui = new Ui();
-        storage = new Storage(filePath);
+        this.storage = storage;
         taskList = loadTaskList();
 
         assert this.ui != null : "UI should be initialized";
@@ -98,11 +113,42 @@ public class MayoBot {
         return lastCommand != null && lastCommand.isExit();
     }
 
+    /**
+     * Starts applying edits that other programs make to the tasks file.
+     * Changes are applied by the given executor, which should be the thread that
+     * runs commands. Only the default text storage can be watched; for other
+     * backends this does nothing.
+     *
+     * @param executor runs each application of an external edit
+     */
+    public void watchStorage(Executor executor) {
+        if (!(storage instanceof Storage)) {
+            return;
+        }
+        try {
+            ((Storage) storage).watch(taskList, executor);
+        } catch (IOException e) {
+            System.out.println("\tCould not watch tasks.txt for external changes.");
+        }
+    }
+
+    private static Storage createDefaultStorage(String filePath) {
+        assert filePath != null : "File path cannot be null";
+
+        Storage storage = new Storage(filePath);
+        // Keep journal writes off the JavaFX thread; bye and JVM shutdown flush them
+        storage.setDurability(Durability.FSYNC_BATCHED);
+        storage.setDescriptionPool(new StringPool());
+        storage.getStats().registerMBean(filePath);
+        return storage;
+    }
+
     /**
      * Returns a TaskList after loading it from storage or a new empty list on failure.
-     * Attempts to load existing tasks from the configured storage location.
-     * If loading fails due to IO issues such as missing files or read errors,
-     * displays an error message and creates a new empty TaskList instead.
+     * Attempts to load existing tasks from the storage backend; the default text
+     * storage decodes each task only when it is first accessed. If loading fails due
+     * to IO issues such as missing files or read errors, displays an error
+     * message and creates a new empty TaskList instead.
      * <p>
      * This method ensures the application can always start successfully, even
      * when the storage file is missing, corrupted, or inaccessible. Error
@@ -112,7 +158,7 @@ public class MayoBot {
      */
     private TaskList loadTaskList() {
         try {
-            return storage.loadTasks();
+            return storage.load();
         } catch (IOException e) {
             System.out.println("\tRan into error when dealing with tasks.txt. Creating new task list...");
             return new TaskList(storage);
@@ -3,14 +3,17 @@ package mayobot;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
+import mayobot.commands.AgendaCommand;
 import mayobot.commands.ByeCommand;
 import mayobot.commands.Command;
 import mayobot.commands.DeadlineCommand;
 import mayobot.commands.DeleteCommand;
+import mayobot.commands.DueCommand;
 import mayobot.commands.EventCommand;
 import mayobot.commands.FindCommand;
 import mayobot.commands.ListCommand;
 import mayobot.commands.MarkCommand;
+import mayobot.commands.StorageCommand;
 import mayobot.commands.TodoCommand;
 import mayobot.commands.UnknownCommand;
 import mayobot.commands.UnmarkCommand;
@@ -54,8 +57,9 @@ public class Parser {
     /**
      * Returns a Task object by parsing a task string from file storage format.
      * Supports parsing TodoTask, DeadlineTask, and EventTask from their stored format.
-     * The expected format is: "TYPE | DONE_STATUS | DESCRIPTION [| DATETIME_FIELDS]"
-     * where TYPE is T/D/E, DONE_STATUS is 0/1, and DATETIME_FIELDS vary by task type.
+     * The expected format is: "TYPE | DONE_STATUS | DESCRIPTION [| DATETIME_FIELDS] [| @ID]"
+     * where TYPE is T/D/E, DONE_STATUS is 0/1, DATETIME_FIELDS vary by task type, and
+     * ID is the stable id of the task. Tasks stored before ids existed have no id field.
      * <p>
      * This method returns null if the input format is invalid or cannot be parsed.
      * Datetime parsing follows ISO format as generated by LocalDateTime.toString().
@@ -87,6 +91,9 @@ public class Parser {
         if (task != null && isDone) {
             task.markAsDone();
         }
+        if (task != null) {
+            task.setId(parseId(parts));
+        }
         return task;
     }
 
@@ -110,6 +117,12 @@ public class Parser {
             return new DeadlineCommand(arguments);
         case "event":
             return new EventCommand(arguments);
+        case "storage":
+            return new StorageCommand(arguments);
+        case "due":
+            return new DueCommand(arguments);
+        case "agenda":
+            return new AgendaCommand(arguments);
         default:
             return new UnknownCommand(command, arguments);
         }
@@ -124,6 +137,24 @@ public class Parser {
         return "1".equals(status);
     }
 
+    /**
+     * Returns the id held by the first field after the description that starts with the id prefix,
+     * or {@link Task#NO_ID} if there is no valid one.
+     */
+    private static long parseId(String[] parts) {
+        for (int i = MIN_TASK_PARTS; i < parts.length; i++) {
+            if (parts[i].startsWith(Task.ID_FIELD_PREFIX)) {
+                try {
+                    long id = Long.parseLong(parts[i].substring(Task.ID_FIELD_PREFIX.length()).trim());
+                    return id > 0 ? id : Task.NO_ID;
+                } catch (NumberFormatException e) {
+                    return Task.NO_ID;
+                }
+            }
+        }
+        return Task.NO_ID;
+    }
+
     private static Task createTaskByType(String type, String description, String[] parts) {
         switch (type) {
         case "T":
@@ -3,12 +3,51 @@ package mayobot;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
-import java.util.Objects;
-import java.util.stream.Stream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import mayobot.storage.BinaryTaskFormat;
+import mayobot.storage.CheckpointChain;
+import mayobot.storage.CompressedTaskFormat;
+import mayobot.storage.DeltaSegment;
+import mayobot.storage.Durability;
+import mayobot.storage.GroupCommitWriter;
+import mayobot.storage.LazyTaskList;
+import mayobot.storage.LineOffsetIndex;
+import mayobot.storage.LoadReport;
+import mayobot.storage.MappedTaskLoader;
+import mayobot.storage.RecordChecksum;
+import mayobot.storage.ShardedTaskFormat;
+import mayobot.storage.SnapshotDiff;
+import mayobot.storage.SnapshotWatcher;
+import mayobot.storage.StorageBackend;
+import mayobot.storage.StorageFormat;
+import mayobot.storage.StorageStats;
+import mayobot.storage.TaskJournal;
+import mayobot.storage.TaskLineEncoder;
+import mayobot.storage.TextSnapshotScan;
+import mayobot.task.CompactTaskList;
 import mayobot.task.Task;
 import mayobot.task.TaskList;
+import mayobot.util.LongArrayList;
+import mayobot.util.RopeList;
+import mayobot.util.StringPool;
 
 /**
  * Handles persistent storage operations for task data.
@@ -19,9 +58,77 @@ import mayobot.task.TaskList;
  * The storage system uses a simple text-based format where each line represents
  * one task separated by | characters. Directory creation is handled automatically
  * to ensure the storage path exists before file operations.
+ * <p>
+ * Individual mutations are not written to the snapshot file directly. They are
+ * appended to a {@link TaskJournal} next to it, which is replayed on load and
+ * checkpointed by a background compaction once it grows past a size limit.
+ * <p>
+ * A checkpoint does not rewrite the snapshot. It writes only the tasks changed
+ * since the previous checkpoint to a {@link DeltaSegment}, forming a
+ * {@link CheckpointChain} on top of the snapshot, which acts as the base. Once
+ * the chain reaches {@link #MAX_DELTA_CHAIN_LENGTH} segments, the next
+ * compaction merges it into a new base instead.
+ * <p>
+ * Snapshots can be written as pipe-delimited text, in the compact
+ * {@link BinaryTaskFormat}, block-compressed with {@link CompressedTaskFormat}
+ * for large, repetitive task files, or split into one shard per task type with
+ * {@link ShardedTaskFormat}, where only the shards whose tasks changed are
+ * rewritten. The format of an existing file is detected on load.
+ * <p>
+ * How journal records reach the disk is controlled by a {@link Durability} level.
+ * By default they are written on the calling thread without fsync. Write-behind
+ * levels hand them to a background {@link GroupCommitWriter} instead, and
+ * {@link #flush()} or {@link #close()} must be called before exiting to make
+ * sure every acknowledged change is on disk.
+ * <p>
+ * Snapshots are never rewritten in place. They are written to a temporary file,
+ * forced to disk when the durability level asks for fsync, and then atomically
+ * renamed over the old snapshot, so a crash leaves either the old or the new
+ * snapshot intact.
+ * <p>
+ * Text snapshots can also carry a {@link RecordChecksum} on every line. Loads verify
+ * each line as they parse it and leave out, count and report the damaged ones, and a
+ * final line torn by a crash is moved to a quarantine file before the load.
+ * <p>
+ * Storage is the default {@link StorageBackend}. The backend operations map
+ * onto the journal: appends and deletes become add and delete records, and
+ * updates become status records, since the completion status is the only
+ * part of a task that can change after it is added.
+ * <p>
+ * Every journal append, checkpoint, full rewrite, directory check and load is
+ * counted and timed in the {@link StorageStats} returned by {@link #getStats()}.
  */
-public class Storage {
+public class Storage implements StorageBackend {
+    /** Journal size after which a background compaction is scheduled. */
+    public static final long DEFAULT_COMPACTION_THRESHOLD_BYTES = 1024 * 1024;
+    /** Snapshot size from which loading switches to the memory-mapped parallel loader. */
+    public static final long PARALLEL_LOAD_THRESHOLD_BYTES = 8 * 1024 * 1024;
+    /** Number of delta segments after which a compaction merges the chain into a new base. */
+    public static final int MAX_DELTA_CHAIN_LENGTH = 8;
+
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String TEMP_SUFFIX = ".tmp";
+
     private final String filePath;
+    private final TaskJournal journal;
+    private final CheckpointChain chain;
+    private final MappedTaskLoader mappedLoader = new MappedTaskLoader();
+    private final long compactionThresholdBytes;
+    private final StorageFormat format;
+    private final Object lock = new Object();
+    private final StorageStats stats = new StorageStats();
+
+    private Durability durability = Durability.FLUSH;
+    private boolean isRecordChecksumEnabled;
+    private GroupCommitWriter writer;
+    private boolean isShutdownHookRegistered;
+    private ExecutorService compactionExecutor;
+    private Future<?> pendingCompaction;
+    private long snapshotGeneration;
+    private LoadReport lastLoadReport;
+    private LazyTaskList lazyTasks;
+    private SnapshotWatcher watcher;
+    private StringPool descriptionPool;
 
     /**
      * Creates a new Storage instance with the specified file path.
@@ -31,7 +138,198 @@ public class Storage {
      * @param filePath the path to the file where tasks should be stored
      */
     public Storage(String filePath) {
+        this(filePath, DEFAULT_COMPACTION_THRESHOLD_BYTES);
+    }
+
+    /**
+     * Creates a new Storage instance with the specified file path and journal size limit.
+     * Once the journal grows past the given number of bytes, it is compacted into
+     * the snapshot file on a background thread.
+     *
+     * @param filePath the path to the file where tasks should be stored
+     * @param compactionThresholdBytes the journal size that triggers a compaction
+     */
+    public Storage(String filePath, long compactionThresholdBytes) {
+        this(filePath, compactionThresholdBytes, StorageFormat.TEXT);
+    }
+
+    /**
+     * Creates a new Storage instance that writes snapshots in the specified format.
+     * Existing files in either format are still loaded, and are converted to
+     * the given format the next time the snapshot is rewritten.
+     *
+     * @param filePath the path to the file where tasks should be stored
+     * @param format the format to write snapshots in
+     */
+    public Storage(String filePath, StorageFormat format) {
+        this(filePath, DEFAULT_COMPACTION_THRESHOLD_BYTES, format);
+    }
+
+    /**
+     * Creates a new Storage instance with the specified file path, journal size limit and format.
+     *
+     * @param filePath the path to the file where tasks should be stored
+     * @param compactionThresholdBytes the journal size that triggers a compaction
+     * @param format the format to write snapshots in
+     */
+    public Storage(String filePath, long compactionThresholdBytes, StorageFormat format) {
+        assert compactionThresholdBytes > 0 : "Compaction threshold must be positive";
+        assert format != null : "Storage format cannot be null";
+
         this.filePath = filePath;
+        this.journal = new TaskJournal(filePath + JOURNAL_SUFFIX, stats);
+        this.chain = new CheckpointChain(Paths.get(filePath), journal);
+        this.compactionThresholdBytes = compactionThresholdBytes;
+        this.format = format;
+    }
+
+    public StorageFormat getFormat() {
+        return format;
+    }
+
+    public String getJournalPath() {
+        return journal.getFile().getPath();
+    }
+
+    @Override
+    public StorageStats getStats() {
+        return stats;
+    }
+
+    public boolean isRecordChecksumEnabled() {
+        return isRecordChecksumEnabled;
+    }
+
+    /**
+     * Sets whether text snapshots are written with a CRC32C checksum at the end of every line.
+     * Loads verify checksummed lines whether or not this is enabled, so it can be turned
+     * off again at any time. Lines edited by hand while the application is not running
+     * must have their checksum field removed, or they are quarantined on the next load.
+     *
+     * @param isEnabled whether to write record checksums from the next snapshot rewrite on
+     */
+    public void setRecordChecksumEnabled(boolean isEnabled) {
+        synchronized (lock) {
+            isRecordChecksumEnabled = isEnabled;
+        }
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Sets how journal records and snapshots are made durable.
+     * Write-behind levels start a background writer thread that coalesces bursts,
+     * so mutations return without waiting for disk I/O. A JVM shutdown hook is
+     * then registered so that queued records are still written when the
+     * application exits. Switching away from a write-behind level flushes and
+     * stops the writer first.
+     *
+     * @param durability the durability level to use from now on
+     */
+    public void setDurability(Durability durability) {
+        assert durability != null : "Durability cannot be null";
+
+        stopWriter();
+        boolean isHookNeeded;
+        synchronized (lock) {
+            this.durability = durability;
+            if (durability.isWriteBehind()) {
+                writer = new GroupCommitWriter(journal, lock, durability.isFsyncEnabled());
+            }
+            isHookNeeded = durability.isWriteBehind() && !isShutdownHookRegistered;
+            isShutdownHookRegistered |= isHookNeeded;
+        }
+        if (isHookNeeded) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::close, "mayobot-storage-shutdown"));
+        }
+    }
+
+    /**
+     * Sets the pool that descriptions are shared through, so that recurring tasks
+     * with the same description keep one string between them. Tasks loaded eagerly
+     * are pooled as they are loaded, and every task list this storage loads pools
+     * the tasks added to it.
+     *
+     * @param descriptionPool the pool, or null to stop pooling
+     */
+    public void setDescriptionPool(StringPool descriptionPool) {
+        this.descriptionPool = descriptionPool;
+    }
+
+    /**
+     * Blocks until every journal record saved so far has been written to disk.
+     * Does nothing when write-behind is not enabled, since writes are then synchronous.
+     */
+    @Override
+    public void flush() {
+        GroupCommitWriter currentWriter = writer;
+        if (currentWriter != null) {
+            currentWriter.flush();
+        }
+    }
+
+    /**
+     * Flushes pending journal records and stops the background threads of this Storage,
+     * waiting for a compaction that is running to finish, so that the files are left
+     * as a complete checkpoint chain for the next Storage to open.
+     * Saving after close falls back to synchronous journal writes. A lazily loaded
+     * TaskList can no longer decode tasks from the snapshot afterwards.
+     */
+    @Override
+    public void close() {
+        LazyTaskList currentLazyTasks;
+        ExecutorService currentCompactionExecutor;
+        synchronized (lock) {
+            currentCompactionExecutor = compactionExecutor;
+            compactionExecutor = null;
+            if (currentCompactionExecutor != null) {
+                currentCompactionExecutor.shutdown();
+            }
+            if (watcher != null) {
+                watcher.close();
+                watcher = null;
+            }
+            currentLazyTasks = lazyTasks;
+            lazyTasks = null;
+        }
+        stopWriter();
+        if (currentCompactionExecutor != null) {
+            // Awaited outside the lock, which the compaction takes to swap in its files
+            try {
+                currentCompactionExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (currentLazyTasks != null) {
+            try {
+                currentLazyTasks.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void stopWriter() {
+        GroupCommitWriter currentWriter;
+        synchronized (lock) {
+            currentWriter = writer;
+            writer = null;
+        }
+        if (currentWriter != null) {
+            currentWriter.close();
+        }
+    }
+
+    /**
+     * Returns the timing breakdown of the most recent {@link #loadTasks()} call.
+     *
+     * @return the last load report, or null if no tasks have been loaded yet
+     */
+    public LoadReport getLastLoadReport() {
+        return lastLoadReport;
     }
 
     /**
@@ -41,9 +339,21 @@ public class Storage {
      * adds valid tasks to the returned TaskList.
      * <p>
      * If the file doesn't exist, creates a new empty file and returns an empty
-     * TaskList. Invalid task lines are silently skipped during loading.
-     * The returned TaskList is configured with this Storage instance for
-     * subsequent save operations.
+     * TaskList. Invalid task lines and lines whose checksum does not match are
+     * skipped during loading; their number is printed and kept in the load report.
+     * A torn final line is first moved to the quarantine file.
+     * The delta segments of the checkpoint chain and then the journal records
+     * written since the last checkpoint are applied on top of the loaded tasks,
+     * so the cost is bounded by the snapshot size plus the number of segments.
+     * The returned TaskList is configured with this
+     * Storage instance for subsequent save operations.
+     * <p>
+     * Files of at least {@link #PARALLEL_LOAD_THRESHOLD_BYTES} are memory-mapped
+     * and parsed in parallel; smaller files are streamed on the calling thread.
+     * The time taken by each phase is available from {@link #getLastLoadReport()}.
+     * <p>
+     * Tasks saved before tasks had stable ids are given ids, and the file is
+     * rewritten once so that the ids stay the same on the next load.
      *
      * @return a TaskList containing all valid tasks loaded from the file
      * @throws IOException if file creation or reading operations fail
@@ -51,39 +361,189 @@ public class Storage {
      * @see TaskList
      */
     public TaskList loadTasks() throws IOException {
-        TaskList taskList = new TaskList(this);
-        assert taskList != null : "TaskList should be created successfully";
+        return loadTasksInto(new RopeList<>());
+    }
 
-        File file = new File(filePath);
-        assert file != null : "File object should be created";
+    /**
+     * Loads tasks as by {@link #loadTasks()}, but holds them in a {@link CompactTaskList},
+     * which keeps their fields in shared primitive arrays rather than one object per task.
+     * Used for lists of millions of tasks, where it takes a fraction of the heap.
+     *
+     * @return a TaskList containing all valid tasks loaded from the file
+     * @throws IOException if file creation or reading operations fail
+     */
+    public TaskList loadTasksCompactly() throws IOException {
+        CompactTaskList tasks = new CompactTaskList();
+        TaskList taskList = loadTasksInto(tasks);
+        tasks.trimToSize();
+        return taskList;
+    }
 
-        File directory = file.getParentFile();
-        if (!directory.exists()) {
-            directory.mkdirs();
+    private TaskList loadTasksInto(List<Task> loadedTasks) throws IOException {
+        File file = createFileIfMissing();
+        flush();
+        List<Task> tasks;
+        synchronized (lock) {
+            Path snapshot = file.toPath();
+            int tornCount = truncateTornTail(snapshot);
+            if (file.length() >= PARALLEL_LOAD_THRESHOLD_BYTES && isText(snapshot)) {
+                tasks = mappedLoader.load(snapshot);
+                lastLoadReport = mappedLoader.getLastReport().withQuarantined(tornCount);
+            } else {
+                long startTime = System.nanoTime();
+                int quarantinedCount = tornCount;
+                if (isText(snapshot)) {
+                    TextSnapshotScan scan = TextSnapshotScan.read(snapshot);
+                    tasks = scan.getTasks();
+                    quarantinedCount += scan.getQuarantinedCount();
+                } else {
+                    tasks = readSnapshot(file);
+                }
+                lastLoadReport = new LoadReport(file.length(), 1, tasks.size(), 0, System.nanoTime() - startTime, 0,
+                        quarantinedCount);
+            }
+            recordLoad(lastLoadReport);
+            journal.truncateTornTail();
+            long journalStart = chain.load(tasks);
+            journal.replay(tasks, journalStart, journal.size());
+        }
+        if (descriptionPool != null && !(loadedTasks instanceof CompactTaskList)) {
+            for (Task task : tasks) {
+                task.internDescription(descriptionPool);
+            }
+        }
+        boolean hasTasksWithoutIds = tasks.stream().anyMatch(task -> task.getId() == Task.NO_ID);
+        // Handed over rather than added one by one, so ids are only assigned once all stored ones are known
+        loadedTasks.addAll(tasks);
+        TaskList taskList = new TaskList(this, loadedTasks);
+        taskList.setDescriptionPool(descriptionPool);
+        if (hasTasksWithoutIds) {
+            // Written before tasks had ids, so the ids given to them now are saved once
+            taskList.indexIds();
+            saveTasks(taskList);
         }
 
-        if (!file.exists()) {
-            file.createNewFile();
-            System.out.println("\tTasks file created.\n");
-            return taskList;
+        compactIfNeeded();
+        return taskList;
+    }
+
+    /**
+     * Returns a new TaskList whose tasks are decoded from the storage file only when accessed.
+     * Startup only reads or builds a {@link LineOffsetIndex} of the file, so it takes
+     * roughly the same time however many tasks there are. Accessed tasks are kept in a
+     * bounded cache of {@link LazyTaskList#DEFAULT_CACHE_CAPACITY} entries, and tasks
+     * that are added or changed are kept in memory.
+     * <p>
+     * Delta segments and journal records are applied in the same way as by
+     * {@link #loadTasks()}, decoding only the tasks they change. Binary and
+     * compressed snapshots have no lines to index and are loaded eagerly instead.
+     * <p>
+     * A torn final line is moved to the quarantine file as by {@link #loadTasks()}.
+     * Checksums of the other lines are verified only when they are decoded, and a
+     * damaged line is then kept as raw text so that later positions do not shift.
+     * <p>
+     * A file saved before tasks had stable ids is loaded with {@link #loadTasks()}
+     * instead, which gives them ids and rewrites it.
+     *
+     * @return a TaskList containing all valid tasks in the file
+     * @throws IOException if file creation or reading operations fail
+     */
+    public TaskList loadTasksLazily() throws IOException {
+        File file = createFileIfMissing();
+        if (!isText(file.toPath())) {
+            return loadTasks();
         }
 
-        assert file.exists() : "File should exist before reading";
-        assert file.canRead() : "File should be readable";
+        flush();
+        LazyTaskList tasks;
+        synchronized (lock) {
+            int tornCount = truncateTornTail(file.toPath());
+            long startTime = System.nanoTime();
+            tasks = LazyTaskList.open(file.toPath(), LazyTaskList.DEFAULT_CACHE_CAPACITY);
+            lastLoadReport = new LoadReport(file.length(), 1, tasks.size(), System.nanoTime() - startTime, 0, 0,
+                    tornCount + tasks.getQuarantinedCount());
+            recordLoad(lastLoadReport);
 
-        // Stream-based file reading
-        try (Stream<String> lines = Files.lines(file.toPath())) {
-            lines.map(Parser::parseTaskFromFile)
-                    .filter(Objects::nonNull)
-                    .forEach(taskList::addTaskToList);
+            journal.truncateTornTail();
+            long journalStart = chain.load(tasks);
+            journal.replay(tasks, journalStart, journal.size());
+            if (lazyTasks != null) {
+                lazyTasks.close();
+            }
+            lazyTasks = tasks;
+        }
+        if (tasks.hasMissingIds()) {
+            synchronized (lock) {
+                lazyTasks.close();
+                lazyTasks = null;
+            }
+            return loadTasks();
         }
+
+        compactIfNeeded();
+        TaskList taskList = new TaskList(this, tasks);
+        taskList.setDescriptionPool(descriptionPool);
         return taskList;
     }
 
     /**
-     * Saves a single task to the storage file by appending to the existing content.
+     * Returns a new TaskList loaded with {@link #loadTasksLazily()}.
+     *
+     * @return a TaskList containing all valid tasks in the file
+     * @throws IOException if file creation or reading operations fail
+     */
+    @Override
+    public TaskList load() throws IOException {
+        return loadTasksLazily();
+    }
+
+    @Override
+    public void append(Task task) {
+        saveTask(task);
+    }
+
+    @Override
+    public void update(int index, Task task) {
+        assert task != null : "Cannot save null task";
+
+        saveTaskStatus(index, task.isDone());
+    }
+
+    @Override
+    public void delete(int index) {
+        saveDeletion(index);
+    }
+
+    /**
+     * Appends the status records of all the changed tasks to the journal with a single write.
+     */
+    @Override
+    public void updateAll(int[] indexes, List<Task> tasks) {
+        assert indexes.length == tasks.size() : "Every index needs a task";
+
+        List<String> records = new ArrayList<>(indexes.length);
+        for (int i = 0; i < indexes.length; i++) {
+            records.add(TaskJournal.statusRecord(indexes[i], tasks.get(i).isDone()));
+        }
+        record(records);
+    }
+
+    /**
+     * Appends the delete records of all the removed tasks to the journal with a single write.
+     */
+    @Override
+    public void deleteAll(int[] descendingIndexes) {
+        List<String> records = new ArrayList<>(descendingIndexes.length);
+        for (int index : descendingIndexes) {
+            records.add(TaskJournal.deleteRecord(index));
+        }
+        record(records);
+    }
+
+    /**
+     * Saves a single newly added task by appending it to the journal.
      * Creates the necessary directory structure if it doesn't exist and appends
-     * the task in file format to the end of the storage file. This method is
+     * an add record for the task to the end of the journal. This method is
      * typically used when adding new tasks during application execution.
      * <p>
      * File operations are performed with automatic resource management to ensure
@@ -97,24 +557,42 @@ public class Storage {
         assert task != null : "Cannot save null task";
         assert task.getDescription() != null : "Task description cannot be null";
 
-        File file = new File(filePath);
-        File directory = file.getParentFile();
+        record(TaskJournal.addRecord(task));
+    }
 
-        if (!directory.exists()) {
-            directory.mkdirs();
-        }
+    /**
+     * Saves a change of completion status by appending it to the journal.
+     * Only the index and the new status are written, so the cost does not
+     * depend on the number of tasks in the list.
+     *
+     * @param index the one-based index of the task whose status changed
+     * @param isDone the new completion status of the task
+     */
+    public void saveTaskStatus(int index, boolean isDone) {
+        assert index >= 1 : "Index should be 1-based positive: " + index;
 
-        try (FileWriter writer = new FileWriter(file, true)) {
-            writer.write(task.changeToFileFormat() + "\n");
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        record(TaskJournal.statusRecord(index, isDone));
+    }
+
+    /**
+     * Saves the removal of a task by appending it to the journal.
+     * Only the index of the removed task is written, so the cost does not
+     * depend on the number of tasks in the list.
+     *
+     * @param index the one-based index of the task that was removed
+     */
+    public void saveDeletion(int index) {
+        assert index >= 1 : "Index should be 1-based positive: " + index;
+
+        record(TaskJournal.deleteRecord(index));
     }
 
     /**
      * Saves all tasks from the TaskList to the storage file by overwriting existing content.
      * Creates the necessary directory structure if it doesn't exist and writes
-     * all tasks in the TaskList to the storage file, replacing any existing content.
+     * all tasks in the TaskList to a temporary file, which then atomically replaces
+     * the storage file. The journal and any delta segments are cleared afterwards
+     * since the snapshot already reflects them.
      * This method is typically used for bulk save operations or when task order changes.
      * <p>
      * File operations are performed with automatic resource management to ensure
@@ -131,17 +609,458 @@ public class Storage {
         File file = new File(filePath);
         File directory = file.getParentFile();
 
+        stats.recordDirectoryCheck();
         if (!directory.exists()) {
             directory.mkdirs();
         }
 
-        try (FileWriter writer = new FileWriter(file)) {
-            for (int i = 0; i < taskList.getSize(); i++) {
-                Task task = taskList.getTask(i);
-                writer.write(task.changeToFileFormat() + "\n");
+        // Queued records are already part of the list being written and must not outlive the rewrite
+        flush();
+        List<Task> tasks = new ArrayList<>(taskList.getSize());
+        for (int i = 0; i < taskList.getSize(); i++) {
+            tasks.add(taskList.getTask(i));
+        }
+
+        File tempSnapshot = new File(filePath + TEMP_SUFFIX);
+        synchronized (lock) {
+            try {
+                long startTime = System.nanoTime();
+                long bytes = writeSnapshot(tempSnapshot, tasks);
+                installBase(tempSnapshot.toPath(), tasks.size(), journal.size());
+                snapshotGeneration++;
+                stats.recordFullRewrite(tasks.size(), bytes, System.nanoTime() - startTime);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Checkpoints the journal on a background thread.
+     * The records are written to a new delta segment, or, once the chain has
+     * reached {@link #MAX_DELTA_CHAIN_LENGTH} segments, the snapshot, the chain
+     * and the journal are merged into a new base. Either way the work is done
+     * from the files alone, so the in-memory TaskList is never read from the
+     * compaction thread. Records appended while the compaction is running are
+     * carried over into the new journal.
+     *
+     * @return a Future that completes when the compaction has finished
+     */
+    public Future<?> compact() {
+        synchronized (lock) {
+            if (pendingCompaction != null && !pendingCompaction.isDone()) {
+                return pendingCompaction;
+            }
+            if (compactionExecutor == null) {
+                compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "mayobot-compaction");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            pendingCompaction = compactionExecutor.submit(this::runCompaction);
+            return pendingCompaction;
+        }
+    }
+
+    /**
+     * Starts watching the snapshot file for edits made by other programs and applies them to the TaskList.
+     * Edits are detected and diffed on a background thread by a {@link SnapshotWatcher},
+     * which parses only the changed lines. The resulting changes are then applied by
+     * the given executor, which should be the thread that runs commands on the list,
+     * so that the list is never changed concurrently and the user interface is not
+     * blocked by a reload.
+     * <p>
+     * Only text snapshots are watched. Tools that sync the file should replace it
+     * rather than rewrite it in place, since a lazily loaded list keeps decoding
+     * unchanged tasks from the file it was loaded from.
+     *
+     * @param taskList the TaskList loaded from this Storage to apply edits to
+     * @param executor runs each application of an edit
+     * @throws IOException if the snapshot cannot be read or its directory cannot be watched
+     * @see #applyExternalEdit(TaskList, SnapshotDiff)
+     */
+    public void watch(TaskList taskList, Executor executor) throws IOException {
+        assert taskList != null : "TaskList cannot be null";
+        assert executor != null : "Executor cannot be null";
+
+        SnapshotWatcher newWatcher = new SnapshotWatcher(Paths.get(filePath),
+                diff -> executor.execute(() -> applyExternalEdit(taskList, diff)));
+        synchronized (lock) {
+            if (chain.isLoaded()) {
+                // Pins the base checksum to the content the watcher starts from
+                chain.getBaseChecksum();
+            }
+            if (watcher != null) {
+                watcher.close();
+            }
+            watcher = newWatcher;
+            newWatcher.start();
+        }
+    }
+
+    /**
+     * Applies an edit made to the snapshot file by another program to the TaskList.
+     * The edit is expressed in positions of the snapshot the list was built on, and
+     * is translated through the checkpoint chain and the journal to positions in the
+     * list, so changes made here since the last snapshot are kept. Tasks whose lines
+     * were changed take the edited version.
+     * <p>
+     * If nothing changed here since the last snapshot, the list now matches the file,
+     * which is adopted as the new base and the journal is cleared. Otherwise the merged
+     * list is saved with {@link #saveTasks(TaskList)}. An edit based on a snapshot
+     * other than the current one, such as one that raced with a compaction, is ignored.
+     *
+     * @param taskList the TaskList loaded from this Storage
+     * @param diff the changes to the snapshot file
+     * @return true if the edit was applied, false if it was ignored
+     */
+    public boolean applyExternalEdit(TaskList taskList, SnapshotDiff diff) {
+        assert taskList != null : "TaskList cannot be null";
+        assert diff != null : "Diff cannot be null";
+
+        flush();
+        boolean hasLocalChanges;
+        synchronized (lock) {
+            try {
+                if (!chain.isLoaded()) {
+                    return false;
+                }
+                CheckpointChain.Checkpoint checkpoint = chain.startCheckpoint();
+                if (checkpoint.getBaseChecksum() != diff.getPreviousChecksum()) {
+                    if (checkpoint.getBaseChecksum() != diff.getChecksum()) {
+                        System.out.println("\tIgnored an edit to tasks.txt made while it was being saved.");
+                    }
+                    return false;
+                }
+                journal.replay(checkpoint, checkpoint.getJournalStart(), journal.size());
+                applyEdits(taskList, diff.getEdits(), checkpoint.getOrdinals());
+
+                // Edited lines keep their old checksum, so a checksummed file is always resealed
+                hasLocalChanges = chain.getLength() > 0 || !checkpoint.isEmpty() || isRecordChecksumEnabled;
+                if (!hasLocalChanges) {
+                    long sequence = chain.nextSequence();
+                    LineOffsetIndex.invalidate(Paths.get(filePath));
+                    Files.deleteIfExists(journal.getFile().toPath());
+                    chain.deleteSegmentsBefore(sequence);
+                    chain.reset(diff.getTaskCount(), diff.getChecksum(), sequence);
+                    snapshotGeneration++;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+        if (hasLocalChanges) {
+            saveTasks(taskList);
+        }
+        return true;
+    }
+
+    /**
+     * Applies edits from last to first, so that earlier positions stay valid. Base
+     * positions map to list positions through the ascending ordinals: base tasks
+     * deleted here have no ordinal and tasks added here sort after every base task.
+     */
+    private static void applyEdits(TaskList taskList, List<SnapshotDiff.Edit> edits, LongArrayList ordinals) {
+        for (int i = edits.size() - 1; i >= 0; i--) {
+            SnapshotDiff.Edit edit = edits.get(i);
+            int start = lowerBound(ordinals, edit.getStart());
+            int end = lowerBound(ordinals, edit.getStart() + edit.getRemovedCount());
+            taskList.replaceTasksInList(start, end - start, edit.getAddedTasks());
+        }
+    }
+
+    private static int lowerBound(LongArrayList values, long key) {
+        int low = 0;
+        int high = values.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values.get(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void record(String record) {
+        record(List.of(record));
+    }
+
+    /**
+     * Appends records to the journal, or queues them for the writer thread, as one write.
+     */
+    private void record(List<String> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        GroupCommitWriter currentWriter = writer;
+        boolean isQueued = false;
+        if (currentWriter != null) {
+            try {
+                // Queued as one entry so that the writer cannot split them across writes
+                currentWriter.submit(String.join("\n", records));
+                isQueued = true;
+            } catch (IllegalStateException e) {
+                // Closed concurrently by the shutdown hook, so write synchronously instead
+            }
+        }
+        if (!isQueued) {
+            try {
+                synchronized (lock) {
+                    journal.appendAll(records, durability.isFsyncEnabled());
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        if (journal.size() >= compactionThresholdBytes) {
+            compact();
+        }
+    }
+
+    private void runCompaction() {
+        try {
+            long replayLimit;
+            long generation;
+            List<Task> tasks = null;
+            CheckpointChain.Checkpoint checkpoint = null;
+            synchronized (lock) {
+                replayLimit = journal.size();
+                generation = snapshotGeneration;
+                if (!chain.isLoaded() || chain.getLength() >= MAX_DELTA_CHAIN_LENGTH) {
+                    tasks = readSnapshotIfExists();
+                    chain.load(tasks);
+                }
+                if (chain.getLength() < MAX_DELTA_CHAIN_LENGTH) {
+                    checkpoint = chain.startCheckpoint();
+                }
+            }
+
+            if (checkpoint != null) {
+                writeDelta(checkpoint, replayLimit, generation);
+            } else {
+                mergeChain(tasks, replayLimit, generation);
             }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    private void writeDelta(CheckpointChain.Checkpoint checkpoint, long replayLimit, long generation)
+            throws IOException {
+        if (replayLimit <= checkpoint.getJournalStart()) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        journal.replay(checkpoint, checkpoint.getJournalStart(), replayLimit);
+
+        Path segment = chain.getSegmentPath(checkpoint.getSequence());
+        Path tempSegment = Paths.get(segment + TEMP_SUFFIX);
+        DeltaSegment delta = checkpoint.toSegment(replayLimit, journal.checksum(replayLimit));
+        delta.write(tempSegment);
+        forceIfRequired(tempSegment);
+        long bytes = Files.size(tempSegment);
+
+        synchronized (lock) {
+            if (generation != snapshotGeneration) {
+                // A full rewrite happened meanwhile and already cleared the journal
+                Files.deleteIfExists(tempSegment);
+                return;
+            }
+            replaceAtomically(tempSegment, segment);
+            bytes += carryJournal(checkpoint.getSequence(), replayLimit);
+            chain.commit(checkpoint);
+            snapshotGeneration++;
+            stats.recordCheckpoint(delta.getChanges().size(), bytes, System.nanoTime() - startTime);
+        }
+    }
+
+    private void mergeChain(List<Task> tasks, long replayLimit, long generation) throws IOException {
+        long startTime = System.nanoTime();
+        File tempSnapshot = new File(filePath + TEMP_SUFFIX);
+        journal.replay(tasks, chain.getJournalStart(), replayLimit);
+        long bytes = writeSnapshot(tempSnapshot, tasks);
+
+        synchronized (lock) {
+            if (generation != snapshotGeneration) {
+                Files.deleteIfExists(tempSnapshot.toPath());
+                return;
+            }
+            installBase(tempSnapshot.toPath(), tasks.size(), replayLimit);
+            snapshotGeneration++;
+            stats.recordFullRewrite(tasks.size(), bytes, System.nanoTime() - startTime);
+        }
+    }
+
+    private void installBase(Path tempBase, int taskCount, long journalLimit) throws IOException {
+        // The empty marker segment goes in first: until the journal is cleared, it tells a load after
+        // a crash that the old segments are stale and which journal records the new base contains
+        long sequence = chain.nextSequence();
+        long baseChecksum = CheckpointChain.checksum(tempBase);
+        Path marker = chain.getSegmentPath(sequence);
+        Path tempMarker = Paths.get(marker + TEMP_SUFFIX);
+        new DeltaSegment(baseChecksum, journalLimit, journal.checksum(journalLimit), taskCount, new TreeMap<>())
+                .write(tempMarker);
+        forceIfRequired(tempMarker);
+        replaceAtomically(tempMarker, marker);
+
+        replaceAtomically(tempBase, Paths.get(filePath));
+        LineOffsetIndex.invalidate(Paths.get(filePath));
+        ShardedTaskFormat.deleteUnreferencedShards(Paths.get(filePath));
+        if (watcher != null) {
+            watcher.acknowledge();
+        }
+        chain.deleteSegmentsBefore(sequence);
+        if (journal.size() > journalLimit) {
+            carryJournal(sequence, journalLimit);
+        } else {
+            Files.deleteIfExists(journal.getFile().toPath());
+        }
+        Files.deleteIfExists(marker);
+        chain.reset(taskCount, baseChecksum, sequence);
+    }
+
+    /**
+     * Rewrites the journal to hold only the records after the replay limit, and returns its new size.
+     */
+    private long carryJournal(long sequence, long replayLimit) throws IOException {
+        File tempJournal = new File(journal.getFile().getPath() + TEMP_SUFFIX);
+        try (FileWriter writer = new FileWriter(tempJournal, StandardCharsets.UTF_8)) {
+            writer.write(TaskJournal.checkpointRecord(sequence) + "\n");
+            writer.write(journal.readFrom(replayLimit));
+        }
+        forceIfRequired(tempJournal.toPath());
+        long bytes = tempJournal.length();
+        replaceAtomically(tempJournal.toPath(), journal.getFile().toPath());
+        return bytes;
+    }
+
+    /**
+     * Writes the tasks as a snapshot in the configured format and returns the number of
+     * bytes written. For a sharded snapshot that includes only the shards that were rewritten.
+     */
+    private long writeSnapshot(File target, List<Task> tasks) throws IOException {
+        long bytes = 0;
+        if (format == StorageFormat.BINARY) {
+            BinaryTaskFormat.write(tasks, target.toPath());
+        } else if (format == StorageFormat.COMPRESSED) {
+            CompressedTaskFormat.write(tasks, target.toPath());
+        } else if (format == StorageFormat.SHARDED) {
+            Path snapshot = Paths.get(filePath);
+            Set<Path> reusableShards = new HashSet<>();
+            if (Files.exists(snapshot) && ShardedTaskFormat.isSharded(snapshot)) {
+                reusableShards.addAll(ShardedTaskFormat.getShardPaths(snapshot));
+            }
+            ShardedTaskFormat.write(tasks, snapshot, target.toPath());
+            for (Path shard : ShardedTaskFormat.getShardPaths(target.toPath())) {
+                forceIfRequired(shard);
+                if (!reusableShards.contains(shard)) {
+                    bytes += Files.size(shard);
+                }
+            }
+        } else {
+            TaskLineEncoder.write(tasks, target.toPath(), isRecordChecksumEnabled);
+        }
+        forceIfRequired(target.toPath());
+        return bytes + target.length();
+    }
+
+    private void forceIfRequired(Path path) throws IOException {
+        if (!durability.isFsyncEnabled()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private void replaceAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (durability.isFsyncEnabled()) {
+            forceDirectory(target.toAbsolutePath().getParent());
+        }
+    }
+
+    private static void forceDirectory(Path directory) {
+        // Makes the rename itself durable; not every platform can open a directory, so this is best effort
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directory sync is unsupported here, the rename is still atomic
+        }
+    }
+
+    private File createFileIfMissing() throws IOException {
+        File file = new File(filePath);
+        assert file != null : "File object should be created";
+
+        File directory = file.getParentFile();
+        stats.recordDirectoryCheck();
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+
+        if (!file.exists()) {
+            file.createNewFile();
+            System.out.println("\tTasks file created.\n");
+        }
+
+        assert file.exists() : "File should exist before reading";
+        assert file.canRead() : "File should be readable";
+        return file;
+    }
+
+    private void recordLoad(LoadReport report) {
+        stats.recordLoad(report.getSplitNanos() + report.getParseNanos() + report.getMergeNanos());
+        if (report.getQuarantinedCount() > 0) {
+            stats.recordQuarantined(report.getQuarantinedCount());
+            System.out.println("\tSkipped " + report.getQuarantinedCount() + " damaged task record(s) in tasks.txt.");
+        }
+    }
+
+    /**
+     * Moves a torn final line of a text snapshot to the quarantine file, returning the number of records moved.
+     */
+    private static int truncateTornTail(Path snapshot) throws IOException {
+        if (!isText(snapshot) || TextSnapshotScan.truncateTornTail(snapshot) == 0) {
+            return 0;
+        }
+        LineOffsetIndex.invalidate(snapshot);
+        return 1;
+    }
+
+    private List<Task> readSnapshotIfExists() throws IOException {
+        File file = new File(filePath);
+        return file.exists() ? readSnapshot(file) : new ArrayList<>();
+    }
+
+    private static boolean isText(Path path) throws IOException {
+        return !BinaryTaskFormat.isBinary(path) && !CompressedTaskFormat.isCompressed(path)
+                && !ShardedTaskFormat.isSharded(path);
+    }
+
+    private static List<Task> readSnapshot(File file) throws IOException {
+        if (BinaryTaskFormat.isBinary(file.toPath())) {
+            return BinaryTaskFormat.read(file.toPath());
+        }
+        if (CompressedTaskFormat.isCompressed(file.toPath())) {
+            return CompressedTaskFormat.read(file.toPath());
+        }
+        if (ShardedTaskFormat.isSharded(file.toPath())) {
+            return ShardedTaskFormat.read(file.toPath());
+        }
+
+        return TextSnapshotScan.read(file.toPath()).getTasks();
+    }
 }
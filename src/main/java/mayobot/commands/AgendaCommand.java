@@ -0,0 +1,62 @@
+package mayobot.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mayobot.exceptions.AgendaException;
+import mayobot.exceptions.MayoBotException;
+import mayobot.task.TaskList;
+import mayobot.ui.Ui;
+
+/**
+ * Command to list the deadlines and events within a range of dates.
+ * <p>
+ * Deadlines due in the range and events overlapping it are read from the time
+ * indexes of the task list, so the answer takes time proportional to the number
+ * of tasks found rather than to the size of the list. They are shown in order of
+ * deadline or event start, with their numbers in the full list. Both ends of the
+ * range are included, and a date without a time covers the whole day.
+ * <p>
+ * Usage: {@code agenda <dd-MM-yyyy> [HH:mm] <dd-MM-yyyy> [HH:mm]}
+ * <p>
+ * Example: {@code agenda 03-03-2025 09-03-2025} - shows the week of 3 March 2025
+ */
+public class AgendaCommand extends Command {
+    private static final String AGENDA_OUTPUT_HEADER = "₊˚⊹ ♡ Here is your agenda:";
+    private static final String EMPTY_AGENDA_MESSAGE = "ᕙ(  •̀ ᗜ •́  )ᕗ Nothing is planned in that range!";
+
+    /**
+     * Constructs a new AgendaCommand with the specified arguments.
+     *
+     * @param arguments the start and end dates of the range, each with an optional time
+     */
+    public AgendaCommand(String arguments) {
+        super("agenda", arguments);
+    }
+
+    /**
+     * Executes the agenda command to show the deadlines and events within the range.
+     *
+     * @param ui the user interface handler for displaying messages
+     * @param taskList the task list to search
+     * @param isGui true if running in GUI mode, false for CLI mode
+     * @return formatted response message listing the tasks found
+     * @throws AgendaException if the range is missing, malformed or ends before it starts
+     */
+    @Override
+    public String execute(Ui ui, TaskList taskList, boolean isGui) throws MayoBotException {
+        List<DateArgument> dates = parseDateArguments(getArguments());
+        if (dates == null || dates.size() != 2 || dates.get(1).atEnd().isBefore(dates.get(0).atStart())) {
+            throw new AgendaException();
+        }
+
+        ArrayList<Object[]> agenda = taskList.findAgenda(dates.get(0).atStart(), dates.get(1).atEnd());
+        if (agenda.isEmpty()) {
+            if (!isGui) {
+                ui.showMessage(EMPTY_AGENDA_MESSAGE);
+            }
+            return buildResponse(EMPTY_AGENDA_MESSAGE);
+        }
+        return showNumberedTasks(ui, AGENDA_OUTPUT_HEADER, agenda, isGui);
+    }
+}
@@ -12,7 +12,8 @@ import mayobot.ui.Ui;
  * loop to terminate.
  * <p>
  * The command does not modify the task list or produce any output messages,
- * as its sole purpose is to initiate application shutdown.
+ * as its sole purpose is to initiate application shutdown. Pending storage
+ * writes are flushed before the exit flag is set.
  */
 public class ByeCommand extends Command {
     public static final String BYE_COMMAND_MESSAGE = "Baiiiヾ( ˃ᴗ˂ )◞ • *✰\nSee you later°❀.ೃ࿔*";
@@ -32,18 +33,19 @@ public class ByeCommand extends Command {
     /**
      * Executes the bye command to terminate the application.
      * <p>
-     * Sets the exit flag to true, indicating that the application should
-     * terminate after this command completes. No task list modifications
-     * or user interface updates are performed.
+     * Flushes any queued storage writes and sets the exit flag to true,
+     * indicating that the application should terminate after this command
+     * completes. No task list modifications or user interface updates are performed.
      *
      * @param ui the user interface handler (not used)
-     * @param taskList the task list (not modified)
+     * @param taskList the task list whose pending writes are flushed (not modified)
      * @param isGui true if running in GUI mode, false for CLI mode
      * @return null as no response message is generated
      * @throws MayoBotException never thrown by this command
      */
     @Override
     public String execute(Ui ui, TaskList taskList, boolean isGui) throws MayoBotException {
+        taskList.flush();
         // Set exit flag to true
         this.isExit = true;
         return BYE_COMMAND_MESSAGE;
@@ -1,5 +1,13 @@
 package mayobot.commands;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
 import mayobot.exceptions.MayoBotException;
 import mayobot.task.Task;
 import mayobot.task.TaskList;
@@ -16,6 +24,12 @@ import mayobot.ui.Ui;
  */
 public abstract class Command {
     protected static final String DATE_FORMAT_ERROR_PREFIX = "Date format error: ";
+    protected static final String TASK_ID_PREFIX = "#";
+    protected static final String SELECTION_SEPARATOR = ",";
+    protected static final char RANGE_SEPARATOR = '-';
+    protected static final String TASK_NOT_FOUND_PREFIX = "Σ(ﾟ口ﾟ;)// ";
+    protected static final DateTimeFormatter DATE_ARGUMENT_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    protected static final DateTimeFormatter TIME_ARGUMENT_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
 
     protected boolean isExit;
     private final String command;
@@ -105,6 +119,173 @@ public abstract class Command {
         return result.toString().trim();
     }
 
+    /**
+     * Returns the one-based position of the task named by an argument, which is either
+     * its position, such as {@code 3}, or its stable id, such as {@code #17}.
+     * An id keeps naming the same task after earlier tasks are deleted.
+     *
+     * @param argument the task number or id given by the user
+     * @param taskList the task list to find the task in
+     * @return the one-based position, or -1 if the argument is an id that no task has
+     * @throws NumberFormatException if the argument is not a number or an id
+     */
+    protected int parseTaskNumber(String argument, TaskList taskList) {
+        if (isTaskId(argument)) {
+            long id = Long.parseLong(argument.trim().substring(TASK_ID_PREFIX.length()));
+            return taskList.getPositionOfId(id);
+        }
+        return Integer.parseInt(argument);
+    }
+
+    protected boolean isTaskId(String argument) {
+        return argument.trim().startsWith(TASK_ID_PREFIX);
+    }
+
+    /**
+     * Returns whether an argument names several tasks, as a list such as {@code 3,7,9}
+     * or a range such as {@code 1-200}, rather than a single one.
+     *
+     * @param argument the argument given by the user
+     * @return true if the argument holds a list or a range
+     */
+    protected boolean isTaskSelection(String argument) {
+        return argument.contains(SELECTION_SEPARATOR) || argument.trim().indexOf(RANGE_SEPARATOR) > 0;
+    }
+
+    /**
+     * Returns the one-based positions named by a selection of tasks, such as {@code 3,7,9-15}.
+     * Each comma-separated part is a task number, a stable id such as {@code #17}, or an
+     * inclusive range of task numbers. A range is only expanded as far as the end of the list.
+     *
+     * @param argument the selection given by the user
+     * @param taskList the task list to find the tasks in
+     * @return the positions in ascending order, without duplicates
+     * @throws IllegalArgumentException if a part is malformed or names a task that does not exist,
+     *                                  with a message for the user
+     */
+    protected int[] parseTaskSelection(String argument, TaskList taskList) {
+        List<Integer> positions = new ArrayList<>();
+        for (String part : argument.split(SELECTION_SEPARATOR)) {
+            String trimmedPart = part.trim();
+            int separator = trimmedPart.indexOf(RANGE_SEPARATOR, 1);
+            try {
+                if (separator > 0 && !isTaskId(trimmedPart)) {
+                    int first = Integer.parseInt(trimmedPart.substring(0, separator).trim());
+                    int last = Integer.parseInt(trimmedPart.substring(separator + 1).trim());
+                    if (last < first) {
+                        throw new IllegalArgumentException(TASK_NOT_FOUND_PREFIX + "The range " + trimmedPart
+                                + " ends before it starts!");
+                    }
+                    if (first < 1 || first > taskList.getSize()) {
+                        // Checked before expanding, so a huge range never fills the list of positions
+                        throw taskNumberNotFound(first, taskList);
+                    }
+                    for (int position = first; position <= Math.min(last, taskList.getSize() + 1); position++) {
+                        positions.add(position);
+                    }
+                } else {
+                    int position = parseTaskNumber(trimmedPart, taskList);
+                    if (position == -1 && isTaskId(trimmedPart)) {
+                        throw new IllegalArgumentException(TASK_NOT_FOUND_PREFIX + "Task " + trimmedPart
+                                + " does not exist!");
+                    }
+                    positions.add(position);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(TASK_NOT_FOUND_PREFIX + "\"" + trimmedPart
+                        + "\" is not a task number, #id or range of task numbers!");
+            }
+        }
+
+        int[] sorted = positions.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+        for (int position : sorted) {
+            if (position < 1 || position > taskList.getSize()) {
+                throw taskNumberNotFound(position, taskList);
+            }
+        }
+        return sorted;
+    }
+
+    private static IllegalArgumentException taskNumberNotFound(int position, TaskList taskList) {
+        return new IllegalArgumentException(TASK_NOT_FOUND_PREFIX + "Task number " + position
+                + " does not exist! You have " + taskList.getSize() + " task(s) in your list.");
+    }
+
+    /**
+     * Returns the dates given in an argument string, each a word in format dd-MM-yyyy
+     * that may be followed by a time in format HH:mm.
+     *
+     * @param text the words holding the dates
+     * @return the dates in order, or null if a word is neither a date nor the time of one
+     */
+    protected static List<DateArgument> parseDateArguments(String text) {
+        List<DateArgument> dates = new ArrayList<>();
+        String[] words = text.trim().split("\\s+");
+        try {
+            for (int i = 0; i < words.length && !words[i].isEmpty(); i++) {
+                LocalDate date = LocalDate.parse(words[i], DATE_ARGUMENT_FORMAT);
+                LocalTime time = null;
+                if (i + 1 < words.length && words[i + 1].contains(":")) {
+                    time = LocalTime.parse(words[++i], TIME_ARGUMENT_FORMAT);
+                }
+                dates.add(new DateArgument(date, time));
+            }
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+        return dates;
+    }
+
+    /**
+     * Returns the response listing tasks with their numbers and ids, also showing it in CLI mode.
+     *
+     * @param ui the UI used in CLI mode
+     * @param header the line shown above the tasks
+     * @param matchingTasks arrays of [originalIndex, matchingTask]
+     * @param isGui true if running in GUI mode
+     * @return the response
+     */
+    protected String showNumberedTasks(Ui ui, String header, List<Object[]> matchingTasks, boolean isGui) {
+        StringBuilder response = new StringBuilder(header).append("\n");
+        if (!isGui) {
+            ui.showMessage(header);
+        }
+        for (Object[] matchingTask : matchingTasks) {
+            Task task = (Task) matchingTask[1];
+            String taskLine = matchingTask[0] + ". " + task + " (#" + task.getId() + ")";
+            if (!isGui) {
+                ui.showMessage(taskLine);
+            }
+            response.append(taskLine).append("\n");
+        }
+        return buildResponse(response.toString());
+    }
+
+    /**
+     * Returns the response listing tasks changed by a bulk command, also showing it in CLI mode.
+     *
+     * @param ui the UI used in CLI mode
+     * @param header the line shown above the tasks
+     * @param changedTasks the tasks that were changed
+     * @param footer the line shown below the tasks, or null for none
+     * @param isGui true if running in GUI mode
+     * @return the response
+     */
+    protected String showChangedTasks(Ui ui, String header, List<Task> changedTasks, String footer,
+            boolean isGui) {
+        StringBuilder response = new StringBuilder(header).append("\n");
+        for (Task task : changedTasks) {
+            response.append("\t").append(task).append("\n");
+        }
+        if (footer != null) {
+            response.append(footer);
+        }
+        if (!isGui) {
+            ui.showMessage(response.toString().trim());
+        }
+        return buildResponse(response.toString());
+    }
+
     protected String handleTaskCreation(Task task, TaskList taskList, Ui ui, boolean isGui) {
         taskList.addTask(task, ui, isGui);
         String response = "٩(^ᗜ^ )و ´- I've added this task:\n"
@@ -115,4 +296,23 @@ public abstract class Command {
         }
         return buildResponse(response);
     }
+
+    /**
+     * A date given as a command argument, with the time if one was given.
+     */
+    protected record DateArgument(LocalDate date, LocalTime time) {
+        /**
+         * Returns the moment the argument starts at: its time, or the start of its day.
+         */
+        LocalDateTime atStart() {
+            return date.atTime(time != null ? time : LocalTime.MIDNIGHT);
+        }
+
+        /**
+         * Returns the last moment the argument covers: its time, or the end of its day.
+         */
+        LocalDateTime atEnd() {
+            return date.atTime(time != null ? time : LocalTime.MAX);
+        }
+    }
 }
@@ -1,5 +1,7 @@
 package mayobot.commands;
 
+import java.util.List;
+
 import mayobot.exceptions.DeleteException;
 import mayobot.exceptions.MayoBotException;
 import mayobot.task.Task;
@@ -11,11 +13,17 @@ import mayobot.ui.Ui;
  * <p>
  * This command removes a task at the specified index from the task list.
  * The index is 1-based to match user expectations, where the first task
- * is referred to as task 1, not task 0.
+ * is referred to as task 1, not task 0. A task can also be named by its
+ * stable id prefixed with {@code #}. Several tasks can be deleted at once with
+ * a list of numbers and ranges; they are removed from the last one up and the
+ * deletions are saved together in one write.
  * <p>
- * Usage: {@code delete <task_number>}
+ * Usage: {@code delete <task_number>}, {@code delete #<task_id>} or
+ * {@code delete <first>-<last>,<task_number>...}
  * <p>
  * Example: {@code delete 3} - deletes the third task from the list
+ * <p>
+ * Example: {@code delete 3,7,9-15} - deletes the third, seventh and ninth to fifteenth tasks
  */
 public class DeleteCommand extends Command {
     /**
@@ -48,9 +56,15 @@ public class DeleteCommand extends Command {
         if (arguments.trim().isEmpty()) {
             throw new DeleteException();
         }
+        if (isTaskSelection(arguments)) {
+            return deleteSelection(arguments, ui, taskList, isGui);
+        }
 
         try {
-            int deleteIndex = Integer.parseInt(arguments);
+            int deleteIndex = parseTaskNumber(arguments, taskList);
+            if (isTaskId(arguments) && deleteIndex == -1) {
+                throw new DeleteException("Σ(ﾟ口ﾟ;)// Task " + arguments.trim() + " does not exist!");
+            }
             validateIndex(deleteIndex, taskList);
             Task deletedTask = null;
 
@@ -73,6 +87,19 @@ public class DeleteCommand extends Command {
         }
     }
 
+    private String deleteSelection(String arguments, Ui ui, TaskList taskList, boolean isGui)
+            throws DeleteException {
+        int[] positions;
+        try {
+            positions = parseTaskSelection(arguments, taskList);
+        } catch (IllegalArgumentException e) {
+            throw new DeleteException(e.getMessage());
+        }
+        List<Task> deletedTasks = taskList.deleteTasks(positions);
+        return showChangedTasks(ui, "(˵ •̀ ᴗ - ˵ ) ✧ I've removed these " + deletedTasks.size() + " tasks:",
+                deletedTasks, "Now you have " + taskList.getSize() + " task(s) in the list ₊˚⊹⋆", isGui);
+    }
+
     private void validateIndex(int deleteIndex, TaskList taskList) throws DeleteException {
         if (deleteIndex <= 0) {
             throw new DeleteException("Task number must be a positive number!");
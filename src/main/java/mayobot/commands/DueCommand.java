@@ -0,0 +1,74 @@
+package mayobot.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mayobot.exceptions.DueException;
+import mayobot.exceptions.MayoBotException;
+import mayobot.task.Task;
+import mayobot.task.TaskList;
+import mayobot.ui.Ui;
+
+/**
+ * Command to list the deadlines that are not done yet and are due before a date.
+ * <p>
+ * The deadlines are read from the sorted deadline index of the task list, so
+ * the answer takes time proportional to the number of deadlines found rather
+ * than to the size of the list. They are shown earliest first, with their numbers
+ * in the full list. A date without a time stands for the start of that day.
+ * <p>
+ * Usage: {@code due --before <dd-MM-yyyy> [HH:mm]}
+ * <p>
+ * Example: {@code due --before 07-03-2025} - shows what is due before 7 March 2025
+ */
+public class DueCommand extends Command {
+    private static final String BEFORE_FLAG = "--before";
+    private static final String DUE_OUTPUT_HEADER = "ᕙ(  •̀ ᗜ •́  )ᕗ Here are the deadlines due before ";
+    private static final String NOTHING_DUE_MESSAGE = "ฅ^>⩊<^ ฅ Nothing is due before ";
+
+    /**
+     * Constructs a new DueCommand with the specified arguments.
+     *
+     * @param arguments the {@code --before} flag followed by a date and optional time
+     */
+    public DueCommand(String arguments) {
+        super("due", arguments);
+    }
+
+    /**
+     * Executes the due command to show the open deadlines due before the given date.
+     *
+     * @param ui the user interface handler for displaying messages
+     * @param taskList the task list to search
+     * @param isGui true if running in GUI mode, false for CLI mode
+     * @return formatted response message listing the deadlines found
+     * @throws DueException if the flag or the date is missing or malformed
+     */
+    @Override
+    public String execute(Ui ui, TaskList taskList, boolean isGui) throws MayoBotException {
+        String arguments = getArguments().trim();
+        if (!arguments.startsWith(BEFORE_FLAG)) {
+            throw new DueException();
+        }
+        List<DateArgument> dates = parseDateArguments(arguments.substring(BEFORE_FLAG.length()));
+        if (dates == null || dates.size() != 1) {
+            throw new DueException();
+        }
+
+        String before = String.join(" ", arguments.substring(BEFORE_FLAG.length()).trim().split("\\s+"));
+        List<Object[]> dueTasks = new ArrayList<>();
+        for (Object[] match : taskList.findDeadlinesBefore(dates.get(0).atStart())) {
+            if (!((Task) match[1]).isDone()) {
+                dueTasks.add(match);
+            }
+        }
+        if (dueTasks.isEmpty()) {
+            String response = NOTHING_DUE_MESSAGE + before + ".";
+            if (!isGui) {
+                ui.showMessage(response);
+            }
+            return buildResponse(response);
+        }
+        return showNumberedTasks(ui, DUE_OUTPUT_HEADER + before + ":", dueTasks, isGui);
+    }
+}
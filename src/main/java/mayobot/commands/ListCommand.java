@@ -1,7 +1,13 @@
 package mayobot.commands;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import mayobot.exceptions.MayoBotException;
+import mayobot.task.Task;
 import mayobot.task.TaskList;
+import mayobot.task.TaskType;
 import mayobot.ui.Ui;
 
 /**
@@ -11,22 +17,43 @@ import mayobot.ui.Ui;
  * including their completion status and details. The display format differs between
  * CLI and GUI modes to accommodate their respective interfaces.
  * <p>
- * Usage: {@code list}
+ * Usage: {@code list [--open | --done] [--type T|D|E]} or {@code list [--page N] [--size K] | --next}
+ * <p>
+ * Without arguments the command displays all tasks regardless of their type
+ * (todo, deadline, or event) or completion status. The flags show only open or
+ * done tasks, or only tasks of one type, keeping their numbers in the full list.
+ * Filtering reads the done status and type indexes of the task list.
+ * <p>
+ * Paging shows one page of the list, and {@code --next} shows the page after the last one shown.
+ * The next page is remembered by the id of its first task rather than its position, so it
+ * neither skips nor repeats tasks when earlier ones are added or deleted in between. Lists
+ * longer than {@value #MAX_UNPAGED_TASKS} tasks show their first page unless a page is asked for.
+ * Only the lines of the page are formatted, streamed from the task list.
  * <p>
- * The command requires no additional arguments and will display all tasks regardless
- * of their type (todo, deadline, or event) or completion status.
+ * Example: {@code list --open --type D} - shows the deadlines that are not done yet
+ * <p>
+ * Example: {@code list --page 2 --size 20} - shows tasks 21 to 40
  */
 public class ListCommand extends Command {
     private static final String LIST_OUTPUT_HEADER = "₊˚⊹ ♡ Here are the tasks in your list:";
+    private static final String FILTERED_OUTPUT_HEADER = "₊˚⊹ ♡ Here are the matching tasks in your list:";
+    private static final String NO_MATCHING_TASKS_MESSAGE = "( – ⌓ – ) No tasks match that filter.";
+    private static final String PAGE_OUTPUT_HEADER = "₊˚⊹ ♡ Here are tasks %d-%d of %d in your list:";
+    private static final String MORE_PAGES_MESSAGE = "Type list --next to see the next %d ✧";
+    private static final String NO_SUCH_PAGE_MESSAGE = "( – ⌓ – ) There are only %d task(s), so that page is empty.";
+    private static final String FILTER_HELP = "Use format: list [--open | --done] [--type T|D|E]"
+            + " or list [--page N] [--size K] | --next";
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_UNPAGED_TASKS = 500;
     private static final String EMPTY_LIST_MESSAGE = "ᕙ(  •̀ ᗜ •́  )ᕗ You have no tasks!\nTime to chill ฅ^>⩊<^ ฅ";
 
     /**
      * Constructs a new ListCommand with the specified arguments.
      * <p>
-     * Note: The arguments parameter is not used by this command but is
-     * required to maintain consistency with the Command interface.
+     * Arguments other than the filter and paging flags are ignored.
      *
-     * @param arguments the command arguments (ignored for list command)
+     * @param arguments the filter or paging flags, if any
      */
     public ListCommand(String arguments) {
         super("list", arguments);
@@ -43,17 +70,149 @@ public class ListCommand extends Command {
      * @param taskList the task list containing all tasks to display
      * @param isGui true if running in GUI mode, false for CLI mode
      * @return formatted string containing all tasks for GUI mode, null for CLI mode
-     * @throws MayoBotException if an error occurs during task list retrieval
+     * @throws MayoBotException if a flag is incomplete, names an unknown type or an invalid page,
+     *         or filtering is combined with paging
      */
     @Override
     public String execute(Ui ui, TaskList taskList, boolean isGui) throws MayoBotException {
         if (taskList.getSize() == 0) {
             return EMPTY_LIST_MESSAGE;
         }
+
+        Boolean isDone = null;
+        TaskType type = null;
+        boolean isFiltered = false;
+        int page = 0;
+        int pageSize = 0;
+        boolean isNext = false;
+        String[] words = getArguments().trim().split("\\s+");
+        for (int i = 0; i < words.length; i++) {
+            switch (words[i]) {
+            case "--open":
+                isDone = false;
+                isFiltered = true;
+                break;
+            case "--done":
+                isDone = true;
+                isFiltered = true;
+                break;
+            case "--type":
+                type = i + 1 < words.length ? TaskType.fromCode(words[++i]) : null;
+                if (type == null) {
+                    throw new MayoBotException("list", FILTER_HELP);
+                }
+                isFiltered = true;
+                break;
+            case "--page":
+                page = parseCount(words, ++i, Integer.MAX_VALUE);
+                break;
+            case "--size":
+                pageSize = parseCount(words, ++i, MAX_PAGE_SIZE);
+                break;
+            case "--next":
+                isNext = true;
+                break;
+            default:
+                break;
+            }
+        }
+        boolean isPaged = page > 0 || pageSize > 0 || isNext;
+        if (isFiltered && isPaged || isNext && page > 0) {
+            throw new MayoBotException("list", FILTER_HELP);
+        }
+        if (isFiltered) {
+            return showFilteredTasks(ui, taskList, taskList.filterTasks(isDone, type), isGui);
+        }
+        if (isNext) {
+            return showNextPage(ui, taskList, pageSize, isGui);
+        }
+        if (isPaged || taskList.getSize() > MAX_UNPAGED_TASKS) {
+            int size = pageSize > 0 ? pageSize : DEFAULT_PAGE_SIZE;
+            long start = (long) (Math.max(page, 1) - 1) * size;
+            return showPage(ui, taskList, (int) Math.min(start, Integer.MAX_VALUE), size, isGui);
+        }
+
         if (!isGui) {
             ui.showMessage(LIST_OUTPUT_HEADER);
             taskList.printTasks(ui);
         }
         return super.buildResponse(LIST_OUTPUT_HEADER + "\n" + taskList.getTasksForGui());
     }
+
+    /**
+     * Returns the positive number after a flag, or throws if it is missing, invalid or above the limit.
+     */
+    private static int parseCount(String[] words, int i, int limit) throws MayoBotException {
+        try {
+            int count = i < words.length ? Integer.parseInt(words[i]) : 0;
+            if (count > 0 && count <= limit) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below as a usage error
+        }
+        throw new MayoBotException("list", FILTER_HELP);
+    }
+
+    /**
+     * Shows the page that starts at the remembered task, or the first page if none is remembered,
+     * using the remembered page size unless another is given.
+     */
+    private String showNextPage(Ui ui, TaskList taskList, int pageSize, boolean isGui) {
+        int size = pageSize;
+        if (size == 0) {
+            size = taskList.getPageCursorSize() > 0 ? taskList.getPageCursorSize() : DEFAULT_PAGE_SIZE;
+        }
+        long cursorId = taskList.getPageCursorId();
+        int start = cursorId == Task.NO_ID ? 0 : taskList.getPositionFromId(cursorId) - 1;
+        return showPage(ui, taskList, start, size, isGui);
+    }
+
+    /**
+     * Shows the tasks from a zero-based position, remembering where the next page starts.
+     */
+    private String showPage(Ui ui, TaskList taskList, int start, int size, boolean isGui) {
+        int total = taskList.getSize();
+        if (start >= total) {
+            taskList.setPageCursor(Task.NO_ID, 0);
+            String message = String.format(NO_SUCH_PAGE_MESSAGE, total);
+            if (!isGui) {
+                ui.showMessage(message);
+            }
+            return buildResponse(message);
+        }
+
+        int end = (int) Math.min((long) start + size, total);
+        List<String> lines = taskList.streamTaskLines(start, end).collect(Collectors.toList());
+        String header = String.format(PAGE_OUTPUT_HEADER, start + 1, start + lines.size(), total);
+        String footer = null;
+        if (end < total) {
+            taskList.setPageCursor(taskList.getTask(end).getId(), size);
+            footer = String.format(MORE_PAGES_MESSAGE, Math.min(size, total - end));
+        } else {
+            taskList.setPageCursor(Task.NO_ID, 0);
+        }
+
+        if (!isGui) {
+            ui.showMessage(header);
+            lines.forEach(ui::showMessage);
+            if (footer != null) {
+                ui.showMessage(footer);
+            }
+        }
+        String body = String.join("\n", lines);
+        return footer == null ? buildResponse(header, body) : buildResponse(header, body, footer);
+    }
+
+    private String showFilteredTasks(Ui ui, TaskList taskList, ArrayList<Object[]> matchingTasks, boolean isGui) {
+        if (matchingTasks.isEmpty()) {
+            if (!isGui) {
+                ui.showMessage(NO_MATCHING_TASKS_MESSAGE);
+            }
+            return buildResponse(NO_MATCHING_TASKS_MESSAGE);
+        }
+
+        taskList.indexIds();
+        return showNumberedTasks(ui, FILTERED_OUTPUT_HEADER, matchingTasks, isGui);
+    }
 }
@@ -1,7 +1,10 @@
 package mayobot.commands;
 
+import java.util.List;
+
 import mayobot.exceptions.MarkException;
 import mayobot.exceptions.MayoBotException;
+import mayobot.task.Task;
 import mayobot.task.TaskList;
 import mayobot.ui.Ui;
 
@@ -9,12 +12,16 @@ import mayobot.ui.Ui;
  * Command to mark a task as completed in the task list.
  * <p>
  * This command changes the completion status of a specified task from not done
- * to done. The task is identified by its 1-based index position in the task list.
+ * to done. The task is identified by its 1-based index position in the task list,
+ * or by its stable id prefixed with {@code #}. Several tasks can be marked at once
+ * with a list of numbers and ranges, which are saved together in one write.
  * Once marked as done, the task will display with a completion indicator.
  * <p>
- * Usage: {@code mark <task_number>}
+ * Usage: {@code mark <task_number>}, {@code mark #<task_id>} or {@code mark <first>-<last>,<task_number>...}
  * <p>
  * Example: {@code mark 2} - marks the second task in the list as completed
+ * <p>
+ * Example: {@code mark 1-200} - marks the first two hundred tasks as completed
  */
 public class MarkCommand extends Command {
     private static final String MARK_SUCCESS_MESSAGE = "ദ്ദി(˵ •̀ ᴗ - ˵ ) ✧ I've marked this task as done:";
@@ -52,9 +59,15 @@ public class MarkCommand extends Command {
         if (arguments.trim().isEmpty()) {
             throw new MarkException();
         }
+        if (isTaskSelection(arguments)) {
+            return markSelection(arguments, ui, taskList, isGui);
+        }
 
         try {
-            int markIndex = Integer.parseInt(arguments);
+            int markIndex = parseTaskNumber(arguments, taskList);
+            if (isTaskId(arguments) && markIndex == -1) {
+                throw new MarkException("Σ(ﾟ口ﾟ;)// Task " + arguments.trim() + " does not exist!");
+            }
             // Validate index bounds
             if (markIndex - 1 < 0 || markIndex - 1 >= taskList.getSize()) {
                 throw new MarkException("Σ(ﾟ口ﾟ;)// Task number " + markIndex + " does not exist! "
@@ -77,4 +90,16 @@ public class MarkCommand extends Command {
             throw new MarkException();
         }
     }
+
+    private String markSelection(String arguments, Ui ui, TaskList taskList, boolean isGui) throws MarkException {
+        int[] positions;
+        try {
+            positions = parseTaskSelection(arguments, taskList);
+        } catch (IllegalArgumentException e) {
+            throw new MarkException(e.getMessage());
+        }
+        List<Task> markedTasks = taskList.markTasks(positions, true);
+        return showChangedTasks(ui, "ദ്ദി(˵ •̀ ᴗ - ˵ ) ✧ I've marked these " + markedTasks.size() + " tasks as done:",
+                markedTasks, null, isGui);
+    }
 }
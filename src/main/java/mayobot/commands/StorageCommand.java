@@ -0,0 +1,70 @@
+package mayobot.commands;
+
+import mayobot.exceptions.MayoBotException;
+import mayobot.exceptions.StorageException;
+import mayobot.storage.StorageStats;
+import mayobot.task.TaskList;
+import mayobot.ui.Ui;
+
+/**
+ * Command to inspect the storage backend that persists the task list.
+ * <p>
+ * {@code storage stats} shows how many appends, checkpoints and full rewrites were
+ * written since startup, with their latencies and the share of bytes spent on full
+ * rewrites, along with directory checks and load parse times. The same numbers are
+ * available over JMX while the application runs. If descriptions are pooled, it also
+ * shows how many were shared and roughly how much memory that saved.
+ * <p>
+ * Usage: {@code storage stats [reset]}
+ * <p>
+ * Example: {@code storage stats reset} - clears the statistics, so that the next
+ * {@code storage stats} shows only what happens from now on
+ */
+public class StorageCommand extends Command {
+    private static final String STATS_OUTPUT_HEADER = "(๑•̀ㅂ•́)و✧ Here is what storage has been up to:";
+    private static final String RESET_MESSAGE = "(ﾉ◕ヮ◕)ﾉ*:･ﾟ✧ Storage statistics have been reset!";
+
+    private final String subcommand;
+
+    /**
+     * Constructs a new StorageCommand with the specified arguments.
+     *
+     * @param arguments the storage subcommand, such as "stats" or "stats reset"
+     */
+    public StorageCommand(String arguments) {
+        super("storage", arguments);
+
+        this.subcommand = arguments.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Executes the storage command by showing or resetting the storage statistics.
+     *
+     * @param ui the user interface handler for displaying messages in CLI mode
+     * @param taskList the task list whose storage is inspected
+     * @param isGui true if running in GUI mode, false for CLI mode
+     * @return formatted response message containing the statistics or confirmation
+     * @throws StorageException if the subcommand is not recognised
+     */
+    @Override
+    public String execute(Ui ui, TaskList taskList, boolean isGui) throws MayoBotException {
+        StorageStats stats = taskList.getStorageStats();
+        String message;
+        if (subcommand.equals("stats")) {
+            message = STATS_OUTPUT_HEADER + "\n" + stats;
+            if (taskList.getDescriptionPool() != null) {
+                message += "\n" + taskList.getDescriptionPool();
+            }
+        } else if (subcommand.equals("stats reset")) {
+            stats.reset();
+            message = RESET_MESSAGE;
+        } else {
+            throw StorageException.unknownSubcommand(subcommand);
+        }
+
+        if (!isGui) {
+            ui.showMessage(message);
+        }
+        return buildResponse(message);
+    }
+}
@@ -1,7 +1,10 @@
 package mayobot.commands;
 
+import java.util.List;
+
 import mayobot.exceptions.MayoBotException;
 import mayobot.exceptions.UnmarkException;
+import mayobot.task.Task;
 import mayobot.task.TaskList;
 import mayobot.ui.Ui;
 
@@ -10,10 +13,13 @@ import mayobot.ui.Ui;
  * <p>
  * This command changes the completion status of a specified task from done
  * back to not done. The task is identified by its 1-based index position
- * in the task list. This is useful for reopening completed tasks that need
- * additional work or were marked as done by mistake.
+ * in the task list, or by its stable id prefixed with {@code #}. This is
+ * useful for reopening completed tasks that need additional work or were
+ * marked as done by mistake. Several tasks can be unmarked at once with a list
+ * of numbers and ranges, which are saved together in one write.
  * <p>
- * Usage: {@code unmark <task_number>}
+ * Usage: {@code unmark <task_number>}, {@code unmark #<task_id>} or
+ * {@code unmark <first>-<last>,<task_number>...}
  * <p>
  * Example: {@code unmark 3} - marks the third task in the list as not completed
  */
@@ -54,9 +60,15 @@ public class UnmarkCommand extends Command {
         if (arguments.trim().isEmpty()) {
             throw new UnmarkException();
         }
+        if (isTaskSelection(arguments)) {
+            return unmarkSelection(arguments, ui, taskList, isGui);
+        }
 
         try {
-            int unmarkIndex = Integer.parseInt(arguments);
+            int unmarkIndex = parseTaskNumber(arguments, taskList);
+            if (isTaskId(arguments) && unmarkIndex == -1) {
+                throw new UnmarkException("Σ(ﾟ口ﾟ;)// Task " + arguments.trim() + " does not exist!");
+            }
             if (unmarkIndex - 1 < 0 || unmarkIndex - 1 >= taskList.getSize()) {
                 throw new UnmarkException("Σ(ﾟ口ﾟ;)// Task number " + unmarkIndex + " does not exist! "
                         + "You have " + taskList.getSize() + " task(s) in your list.");
@@ -79,4 +91,17 @@ public class UnmarkCommand extends Command {
             throw new UnmarkException();
         }
     }
+
+    private String unmarkSelection(String arguments, Ui ui, TaskList taskList, boolean isGui)
+            throws UnmarkException {
+        int[] positions;
+        try {
+            positions = parseTaskSelection(arguments, taskList);
+        } catch (IllegalArgumentException e) {
+            throw new UnmarkException(e.getMessage());
+        }
+        List<Task> unmarkedTasks = taskList.markTasks(positions, false);
+        return showChangedTasks(ui, "ദ്ദി(˵ •̀ ᴗ - ˵ ) ✧ I've marked these " + unmarkedTasks.size()
+                + " tasks as not done yet:", unmarkedTasks, null, isGui);
+    }
 }
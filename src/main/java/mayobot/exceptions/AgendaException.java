@@ -0,0 +1,26 @@
+package mayobot.exceptions;
+
+/**
+ * Exception thrown when the agenda command input format is incorrect.
+ * <p>
+ * The agenda command lists the deadlines and events within a range and expects
+ * two dates, each optionally followed by a time: {@code agenda <from> [time] <to> [time]}
+ * <p>
+ * Common scenarios that trigger this exception:
+ * <ul>
+ *   <li>Fewer or more than two dates</li>
+ *   <li>A date or time in the wrong format</li>
+ *   <li>A range that ends before it starts</li>
+ * </ul>
+ */
+public class AgendaException extends MayoBotException {
+    private static final String COMMAND_TYPE = "agenda";
+    private static final String DEFAULT_HELP = "Use format: agenda <dd-MM-yyyy> [HH:mm] <dd-MM-yyyy> [HH:mm]";
+
+    /**
+     * Constructs a new AgendaException with the default error message.
+     */
+    public AgendaException() {
+        super(COMMAND_TYPE, DEFAULT_HELP);
+    }
+}
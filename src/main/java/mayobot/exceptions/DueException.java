@@ -0,0 +1,26 @@
+package mayobot.exceptions;
+
+/**
+ * Exception thrown when the due command input format is incorrect.
+ * <p>
+ * The due command lists the deadlines due before a given date and expects
+ * the date after a {@code --before} flag: {@code due --before <date> [time]}
+ * <p>
+ * Common scenarios that trigger this exception:
+ * <ul>
+ *   <li>Missing {@code --before} flag</li>
+ *   <li>No date, or more than one date, after the flag</li>
+ *   <li>A date or time in the wrong format</li>
+ * </ul>
+ */
+public class DueException extends MayoBotException {
+    private static final String COMMAND_TYPE = "due";
+    private static final String DEFAULT_HELP = "Use format: due --before <dd-MM-yyyy> [HH:mm]";
+
+    /**
+     * Constructs a new DueException with the default error message.
+     */
+    public DueException() {
+        super(COMMAND_TYPE, DEFAULT_HELP);
+    }
+}
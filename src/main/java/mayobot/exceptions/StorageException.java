@@ -47,4 +47,11 @@ public class StorageException extends MayoBotException {
     public static StorageException writeError(String details) {
         return new StorageException("Unable to write to tasks.txt: " + details);
     }
+
+    public static StorageException unknownSubcommand(String subcommand) {
+        return new StorageException("Unknown storage command \"" + subcommand + "\".\n"
+                + "Usage:\n"
+                + "  storage stats - show write and load statistics\n"
+                + "  storage stats reset - clear the statistics");
+    }
 }
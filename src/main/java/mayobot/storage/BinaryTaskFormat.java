@@ -0,0 +1,319 @@
+package mayobot.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import mayobot.Parser;
+import mayobot.task.DeadlineTask;
+import mayobot.task.EventTask;
+import mayobot.task.Task;
+import mayobot.task.TodoTask;
+
+/**
+ * Compact binary encoding of a task snapshot.
+ * A file starts with the four magic bytes "MAYO" and a version byte, followed
+ * by one record per task:
+ * <ul>
+ *   <li>one type byte ('T', 'D' or 'E')</li>
+ *   <li>one done flag byte (1 for done, 0 for not done)</li>
+ *   <li>the UTF-8 description, prefixed by its length as an unsigned varint</li>
+ *   <li>the deadline as an epoch-second long for deadline tasks, or the start
+ *       and end as two epoch-second longs for event tasks</li>
+ *   <li>the stable id of the task as an unsigned varint, 0 if it has none
+ *       (since version 2)</li>
+ * </ul>
+ * Times are stored as UTC epoch seconds so that the file does not depend on
+ * the time zone of the machine that wrote it. Reading stops quietly at a
+ * truncated or unrecognised record, keeping every task before it.
+ */
+public class BinaryTaskFormat {
+    public static final int VERSION = 2;
+    /** Oldest version that can still be read. Its records have no id. */
+    public static final int FIRST_VERSION = 1;
+
+    private static final byte[] MAGIC = {'M', 'A', 'Y', 'O'};
+    private static final int HEADER_LENGTH = MAGIC.length + 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Returns whether the given file starts with the binary format header.
+     *
+     * @param path the file to inspect
+     * @return true if the file is in the binary format, false otherwise
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isBinary(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_LENGTH) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] header = in.readNBytes(MAGIC.length);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header[i] != MAGIC[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Writes all tasks to the given file in the binary format, replacing its content.
+     *
+     * @param tasks the tasks to write, in list order
+     * @param path the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(List<Task> tasks, Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            for (Task task : tasks) {
+                writeTask(out, task);
+            }
+        }
+    }
+
+    /**
+     * Returns all tasks stored in the given binary file, in file order.
+     *
+     * @param path the file to read from
+     * @return the decoded tasks
+     * @throws IOException if the file cannot be read or has an unsupported header
+     */
+    public static List<Task> read(Path path) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            int version = readHeader(in);
+            while (true) {
+                Task task = readTask(in, version);
+                if (task == null) {
+                    break;
+                }
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Writes a single task record without a file header.
+     *
+     * @param out the output to write to
+     * @param task the task to encode
+     * @throws IOException if the output cannot be written
+     */
+    public static void writeTask(DataOutput out, Task task) throws IOException {
+        assert task != null : "Cannot encode null task";
+
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        out.writeByte(typeOf(task));
+        out.writeByte(task.isDone() ? 1 : 0);
+        writeVarInt(out, description.length);
+        out.write(description);
+
+        if (task instanceof DeadlineTask) {
+            out.writeLong(toEpochSecond(((DeadlineTask) task).getBy()));
+        } else if (task instanceof EventTask) {
+            EventTask event = (EventTask) task;
+            out.writeLong(toEpochSecond(event.getFrom()));
+            out.writeLong(toEpochSecond(event.getTo()));
+        }
+        writeVarLong(out, task.getId());
+    }
+
+    /**
+     * Returns the next task record, or null at the end of the input or at a record
+     * that is truncated or has an unknown type.
+     *
+     * @param in the input to read from
+     * @return the decoded task, or null if no further task can be read
+     * @throws IOException if the input cannot be read
+     */
+    public static Task readTask(DataInput in) throws IOException {
+        return readTask(in, VERSION);
+    }
+
+    /**
+     * Returns the next task record written by the given version of the format, or null
+     * at the end of the input or at a record that is truncated or has an unknown type.
+     *
+     * @param in the input to read from
+     * @param version the format version the record was written with
+     * @return the decoded task, or null if no further task can be read
+     * @throws IOException if the input cannot be read
+     */
+    public static Task readTask(DataInput in, int version) throws IOException {
+        try {
+            byte type = in.readByte();
+            boolean isDone = in.readByte() == 1;
+            int length = readVarInt(in);
+            if (length < 0) {
+                return null;
+            }
+            byte[] description = new byte[length];
+            in.readFully(description);
+            String text = new String(description, StandardCharsets.UTF_8);
+
+            Task task;
+            switch (type) {
+            case 'T':
+                task = new TodoTask(text);
+                break;
+            case 'D':
+                task = new DeadlineTask(text, fromEpochSecond(in.readLong()));
+                break;
+            case 'E':
+                task = new EventTask(text, fromEpochSecond(in.readLong()), fromEpochSecond(in.readLong()));
+                break;
+            default:
+                return null;
+            }
+            if (isDone) {
+                task.markAsDone();
+            }
+            if (version >= 2) {
+                long id = readVarLong(in);
+                if (id < 0) {
+                    return null;
+                }
+                task.setId(id);
+            }
+            return task;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Converts a pipe-delimited text snapshot into a binary snapshot.
+     *
+     * @param textPath the text file to read
+     * @param binaryPath the binary file to write
+     * @return the number of tasks converted
+     * @throws IOException if either file cannot be accessed
+     */
+    public static int convertTextToBinary(Path textPath, Path binaryPath) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        try (Stream<String> lines = Files.lines(textPath)) {
+            lines.filter(line -> !line.isBlank())
+                    .map(Parser::parseTaskFromFile)
+                    .filter(Objects::nonNull)
+                    .forEach(tasks::add);
+        }
+        write(tasks, binaryPath);
+        return tasks.size();
+    }
+
+    /**
+     * Converts a binary snapshot into a pipe-delimited text snapshot.
+     *
+     * @param binaryPath the binary file to read
+     * @param textPath the text file to write
+     * @return the number of tasks converted
+     * @throws IOException if either file cannot be accessed
+     */
+    public static int convertBinaryToText(Path binaryPath, Path textPath) throws IOException {
+        List<Task> tasks = read(binaryPath);
+        List<String> lines = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            lines.add(task.changeToFileFormat());
+        }
+        Files.write(textPath, lines, StandardCharsets.UTF_8);
+        return tasks.size();
+    }
+
+    private static int readHeader(DataInput in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic[i] != MAGIC[i]) {
+                throw new IOException("Not a binary task file");
+            }
+        }
+        int version = in.readUnsignedByte();
+        if (version < FIRST_VERSION || version > VERSION) {
+            throw new IOException("Unsupported binary task file version: " + version);
+        }
+        return version;
+    }
+
+    private static byte typeOf(Task task) {
+        if (task instanceof DeadlineTask) {
+            return 'D';
+        } else if (task instanceof EventTask) {
+            return 'E';
+        } else {
+            return 'T';
+        }
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Returns the unsigned varint that follows, or -1 if it is longer than a long.
+     */
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromEpochSecond(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,431 @@
+package mayobot.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import mayobot.storage.DeltaSegment.Change;
+import mayobot.task.Task;
+import mayobot.util.LongArrayList;
+
+/**
+ * Base snapshot plus a chain of {@link DeltaSegment} files written next to it.
+ * A checkpoint only writes the tasks that changed since the previous checkpoint
+ * to a new segment, so its cost depends on the size of the journal rather than
+ * on the size of the task list. Loading reads the base once and then applies
+ * each segment, so it is bounded by the base size plus the number of segments,
+ * never by the full mutation history.
+ * <p>
+ * Segments are named {@code <base>.delta.<sequence>} and carry the checksum of
+ * the base they were written against. Segments left behind by a base that has
+ * since been replaced no longer match and are deleted on load. Sequence numbers
+ * keep increasing across merges, so a journal's leading checkpoint record
+ * always identifies the segment it was carried past.
+ * <p>
+ * This class tracks the ordinal of every task currently in the list, which is
+ * what a new segment is keyed by. It does no locking of its own; the owning
+ * storage must serialise access.
+ */
+public class CheckpointChain {
+    private static final String DELTA_INFIX = ".delta.";
+    private static final int CHECKSUM_BUFFER_SIZE = 64 * 1024;
+
+    private final Path basePath;
+    private final TaskJournal journal;
+    private final Pattern segmentName;
+
+    private LongArrayList ordinals;
+    private long nextOrdinal;
+    private long baseChecksum;
+    private boolean isBaseChecksumKnown;
+    private long journalStart;
+    private long lastSequence = -1;
+    private int length;
+
+    /**
+     * Creates a new CheckpointChain for the given base snapshot and journal.
+     * Nothing is read until {@link #load(List)} is called.
+     *
+     * @param basePath the path of the base snapshot
+     * @param journal the journal that records changes since the last checkpoint
+     */
+    public CheckpointChain(Path basePath, TaskJournal journal) {
+        this.basePath = basePath;
+        this.journal = journal;
+        this.segmentName = Pattern.compile(Pattern.quote(basePath.getFileName() + DELTA_INFIX) + "(\\d+)");
+    }
+
+    public boolean isLoaded() {
+        return ordinals != null;
+    }
+
+    /**
+     * Returns the number of segments currently applied on top of the base.
+     *
+     * @return the chain length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the journal offset from which records are not yet part of the chain.
+     *
+     * @return the byte offset to replay the journal from
+     */
+    public long getJournalStart() {
+        return journalStart;
+    }
+
+    /**
+     * Returns the sequence number to use for the next segment or merge marker.
+     *
+     * @return the next unused sequence number
+     */
+    public long nextSequence() {
+        return lastSequence + 1;
+    }
+
+    /**
+     * Returns the path of the segment with the given sequence number.
+     *
+     * @param sequence the sequence number of the segment
+     * @return the segment path
+     */
+    public Path getSegmentPath(long sequence) {
+        return basePath.resolveSibling(basePath.getFileName() + DELTA_INFIX + sequence);
+    }
+
+    /**
+     * Applies every valid segment to the tasks read from the base snapshot.
+     * The tasks must be exactly those of the base, in file order. Segments that
+     * do not belong to the current base, or cannot be decoded, are deleted.
+     *
+     * @param tasks the tasks of the base snapshot, modified in place
+     * @return the journal offset from which records still have to be replayed
+     * @throws IOException if a segment or the journal cannot be read
+     */
+    public long load(List<Task> tasks) throws IOException {
+        long journalSequence = journal.readCheckpointSequence();
+        TreeMap<Long, Path> segments = listSegments();
+
+        ordinals = new LongArrayList(tasks.size());
+        nextOrdinal = tasks.size();
+        length = 0;
+        journalStart = 0;
+        isBaseChecksumKnown = false;
+        lastSequence = Math.max(journalSequence, segments.isEmpty() ? -1 : segments.lastKey());
+
+        TreeMap<Long, Change> changes = new TreeMap<>();
+        DeltaSegment last = null;
+        Path lastPath = null;
+        long lastValidSequence = -1;
+        if (!segments.isEmpty()) {
+            baseChecksum = computeBaseChecksum();
+            isBaseChecksumKnown = true;
+        }
+        for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+            DeltaSegment segment = DeltaSegment.read(entry.getValue());
+            if (segment == null || segment.getBaseChecksum() != baseChecksum) {
+                Files.deleteIfExists(entry.getValue());
+                continue;
+            }
+            for (Map.Entry<Long, Change> change : segment.getChanges().entrySet()) {
+                fold(changes, change.getKey(), change.getValue());
+            }
+            nextOrdinal = Math.max(nextOrdinal, segment.getNextOrdinal());
+            last = segment;
+            lastPath = entry.getValue();
+            lastValidSequence = entry.getKey();
+            length++;
+        }
+        apply(tasks, changes);
+
+        if (last != null && journalSequence < lastValidSequence) {
+            if (journal.size() >= last.getJournalLength()
+                    && journal.checksum(last.getJournalLength()) == last.getJournalChecksum()) {
+                // The journal was not carried past the last segment and still holds records it contains
+                journalStart = last.getJournalLength();
+            } else if (last.getChanges().isEmpty()) {
+                // A merge marker whose journal was already cleared; drop it before new records reach that length
+                Files.deleteIfExists(lastPath);
+                length--;
+            }
+        }
+        return journalStart;
+    }
+
+    /**
+     * Returns the checksum of the base the chain is built on.
+     * It is computed from the base file the first time it is needed, so it must
+     * be requested before anything else could have changed that file.
+     *
+     * @return the CRC32C of the base snapshot
+     * @throws IOException if the checksum has to be computed and the base cannot be read
+     */
+    public long getBaseChecksum() throws IOException {
+        if (!isBaseChecksumKnown) {
+            baseChecksum = computeBaseChecksum();
+            isBaseChecksumKnown = true;
+        }
+        return baseChecksum;
+    }
+
+    /**
+     * Starts a checkpoint against the current state of the chain.
+     * The returned checkpoint works on its own copy of the ordinals, so journal
+     * records can be replayed into it without holding the storage lock.
+     *
+     * @return a checkpoint that collects the changes of the next segment
+     * @throws IOException if the base checksum has to be computed and the base cannot be read
+     */
+    public Checkpoint startCheckpoint() throws IOException {
+        assert isLoaded() : "Chain must be loaded before a checkpoint";
+
+        return new Checkpoint(nextSequence(), getBaseChecksum(), journalStart, ordinals.copy(), nextOrdinal);
+    }
+
+    /**
+     * Records that the segment of the given checkpoint has been written and the
+     * journal was carried past it.
+     *
+     * @param checkpoint the checkpoint whose segment is now part of the chain
+     */
+    public void commit(Checkpoint checkpoint) {
+        ordinals = checkpoint.ordinals;
+        nextOrdinal = checkpoint.nextOrdinal;
+        lastSequence = checkpoint.sequence;
+        journalStart = 0;
+        length++;
+    }
+
+    /**
+     * Starts a new, empty chain on top of a freshly written base.
+     *
+     * @param taskCount the number of tasks in the new base
+     * @param newBaseChecksum the checksum of the new base
+     * @param sequence the sequence number used by the merge
+     */
+    public void reset(int taskCount, long newBaseChecksum, long sequence) {
+        ordinals = new LongArrayList(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            ordinals.add(i);
+        }
+        nextOrdinal = taskCount;
+        baseChecksum = newBaseChecksum;
+        isBaseChecksumKnown = true;
+        lastSequence = Math.max(lastSequence, sequence);
+        journalStart = 0;
+        length = 0;
+    }
+
+    /**
+     * Deletes every segment whose sequence number is lower than the given one.
+     *
+     * @param sequence the first sequence number to keep
+     * @throws IOException if a segment cannot be deleted
+     */
+    public void deleteSegmentsBefore(long sequence) throws IOException {
+        for (Map.Entry<Long, Path> entry : listSegments().headMap(sequence).entrySet()) {
+            Files.deleteIfExists(entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the CRC32C checksum of the given file.
+     *
+     * @param path the file to checksum
+     * @return the checksum of its full content
+     * @throws IOException if the file cannot be read
+     */
+    public static long checksum(Path path) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[CHECKSUM_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private long computeBaseChecksum() throws IOException {
+        // A missing base is treated like an empty one, which is what a load creates in its place
+        return Files.exists(basePath) ? checksum(basePath) : new CRC32C().getValue();
+    }
+
+    private TreeMap<Long, Path> listSegments() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        Path directory = basePath.toAbsolutePath().getParent();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.forEach(path -> {
+                Matcher matcher = segmentName.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.put(Long.parseLong(matcher.group(1)), path);
+                }
+            });
+        }
+        return segments;
+    }
+
+    private void apply(List<Task> tasks, TreeMap<Long, Change> changes) {
+        // Works in place and only touches changed tasks, so lazily decoded lists stay undecoded
+        int baseCount = tasks.size();
+        BitSet removed = new BitSet(baseCount);
+        for (Map.Entry<Long, Change> entry : changes.headMap((long) baseCount).entrySet()) {
+            int index = (int) (long) entry.getKey();
+            if (entry.getValue().isRemove()) {
+                removed.set(index);
+            } else {
+                Task task = tasks.get(index);
+                setStatus(task, entry.getValue().isDone());
+                tasks.set(index, task);
+            }
+        }
+        for (int i = removed.nextClearBit(0); i < baseCount; i = removed.nextClearBit(i + 1)) {
+            ordinals.add(i);
+        }
+        removeAll(tasks, removed);
+
+        for (Map.Entry<Long, Change> entry : changes.tailMap((long) baseCount).entrySet()) {
+            if (entry.getValue().isAdd()) {
+                tasks.add(entry.getValue().getTask());
+                ordinals.add(entry.getKey());
+            }
+        }
+    }
+
+    private static void removeAll(List<Task> tasks, BitSet removed) {
+        if (removed.isEmpty()) {
+            return;
+        }
+        if (tasks instanceof LazyTaskList) {
+            ((LazyTaskList) tasks).removeAll(removed);
+            return;
+        }
+        int write = 0;
+        for (int read = 0; read < tasks.size(); read++) {
+            if (!removed.get(read)) {
+                tasks.set(write++, tasks.get(read));
+            }
+        }
+        tasks.subList(write, tasks.size()).clear();
+    }
+
+    private static void fold(TreeMap<Long, Change> changes, long ordinal, Change change) {
+        Change existing = changes.get(ordinal);
+        if (existing != null && existing.isAdd()) {
+            // The task only exists in the chain, so later changes are folded into its ADD entry
+            if (change.isRemove()) {
+                changes.remove(ordinal);
+            } else if (!change.isAdd()) {
+                setStatus(existing.getTask(), change.isDone());
+            }
+            return;
+        }
+        changes.put(ordinal, change);
+    }
+
+    private static void setStatus(Task task, boolean isDone) {
+        if (isDone) {
+            task.markAsDone();
+        } else {
+            task.markAsNotDone();
+        }
+    }
+
+    /**
+     * Collects the net changes of one checkpoint while journal records are replayed into it.
+     * Positions in the records are translated to ordinals using the checkpoint's own
+     * copy of the ordinal list.
+     */
+    public static class Checkpoint implements TaskJournal.RecordHandler {
+        private final long sequence;
+        private final long baseChecksum;
+        private final long journalStart;
+        private final LongArrayList ordinals;
+        private final TreeMap<Long, Change> changes = new TreeMap<>();
+        private long nextOrdinal;
+
+        private Checkpoint(long sequence, long baseChecksum, long journalStart, LongArrayList ordinals,
+                long nextOrdinal) {
+            this.sequence = sequence;
+            this.baseChecksum = baseChecksum;
+            this.journalStart = journalStart;
+            this.ordinals = ordinals;
+            this.nextOrdinal = nextOrdinal;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getJournalStart() {
+            return journalStart;
+        }
+
+        public long getBaseChecksum() {
+            return baseChecksum;
+        }
+
+        /**
+         * Returns the ordinal of every task in list order, as of the records replayed so far.
+         * The ordinals are ascending: surviving base tasks keep their position in the base
+         * and tasks added since come after them.
+         *
+         * @return the ordinals, owned by this checkpoint
+         */
+        public LongArrayList getOrdinals() {
+            return ordinals;
+        }
+
+        public boolean isEmpty() {
+            return changes.isEmpty();
+        }
+
+        @Override
+        public void onAdd(Task task) {
+            long ordinal = nextOrdinal++;
+            ordinals.add(ordinal);
+            changes.put(ordinal, Change.add(task));
+        }
+
+        @Override
+        public void onStatus(int index, boolean isDone) {
+            if (index >= 1 && index <= ordinals.size()) {
+                fold(changes, ordinals.get(index - 1), Change.status(isDone));
+            }
+        }
+
+        @Override
+        public void onDelete(int index) {
+            if (index >= 1 && index <= ordinals.size()) {
+                fold(changes, ordinals.removeAt(index - 1), Change.remove());
+            }
+        }
+
+        /**
+         * Returns the segment holding the collected changes.
+         *
+         * @param journalLength the journal offset up to which records were replayed
+         * @param journalChecksum the checksum of the journal up to that offset
+         * @return the segment to write
+         */
+        public DeltaSegment toSegment(long journalLength, long journalChecksum) {
+            return new DeltaSegment(baseChecksum, journalLength, journalChecksum, nextOrdinal, changes);
+        }
+    }
+}
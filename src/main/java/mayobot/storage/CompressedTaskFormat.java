@@ -0,0 +1,284 @@
+package mayobot.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import mayobot.Parser;
+import mayobot.task.Task;
+
+/**
+ * Block-compressed encoding of a task snapshot for large, repetitive task files.
+ * A file starts with the four magic bytes "MAYZ" and a version byte, followed
+ * by blocks of up to {@link #RECORDS_PER_BLOCK} tasks. Each block is stored as:
+ * <ul>
+ *   <li>the number of tasks in the block, as an int</li>
+ *   <li>the uncompressed and the compressed length in bytes, as two ints</li>
+ *   <li>the task lines in the text file format, compressed with {@link Deflater}</li>
+ * </ul>
+ * Blocks are compressed independently, so loading inflates one block at a time
+ * and never holds more than one block of raw text in memory, and appending only
+ * has to recompress the last block. The zlib stream of every block carries its
+ * own checksum, and reading stops quietly at a truncated or corrupt block,
+ * keeping every task before it.
+ */
+public class CompressedTaskFormat {
+    public static final int VERSION = 1;
+    /** Maximum number of tasks compressed together in one block. */
+    public static final int RECORDS_PER_BLOCK = 4096;
+
+    private static final byte[] MAGIC = {'M', 'A', 'Y', 'Z'};
+    private static final int HEADER_LENGTH = MAGIC.length + 1;
+    private static final int BLOCK_HEADER_LENGTH = 3 * Integer.BYTES;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** Upper bound on either length in a block header, so a corrupt header cannot exhaust memory. */
+    private static final int MAX_BLOCK_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * Returns whether the given file starts with the compressed format header.
+     *
+     * @param path the file to inspect
+     * @return true if the file is in the compressed format, false otherwise
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isCompressed(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_LENGTH) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            return Arrays.equals(in.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    /**
+     * Writes all tasks to the given file in the compressed format, replacing its content.
+     *
+     * @param tasks the tasks to write, in list order
+     * @param path the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(List<Task> tasks, Path path) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            for (int start = 0; start < tasks.size(); start += RECORDS_PER_BLOCK) {
+                int end = Math.min(tasks.size(), start + RECORDS_PER_BLOCK);
+                writeBlock(out, tasks.subList(start, end), deflater);
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Returns all tasks stored in the given compressed file, in file order.
+     *
+     * @param path the file to read from
+     * @return the decoded tasks
+     * @throws IOException if the file cannot be read or has an unsupported header
+     */
+    public static List<Task> read(Path path) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        Inflater inflater = new Inflater();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            readHeader(in);
+            while (readBlock(in, inflater, tasks)) {
+                // Each call appends one block of tasks
+            }
+        } finally {
+            inflater.end();
+        }
+        return tasks;
+    }
+
+    /**
+     * Appends tasks to an existing compressed file.
+     * Only the last block is read and recompressed: the new tasks fill it up to
+     * {@link #RECORDS_PER_BLOCK} and any remainder goes into new blocks. The
+     * earlier blocks are not touched. The last block is rewritten in place, so
+     * this is meant for archive files rather than the live snapshot, which is
+     * only ever replaced atomically.
+     *
+     * @param path the compressed file to append to
+     * @param tasks the tasks to append, in list order
+     * @return the number of bytes the file grew by
+     * @throws IOException if the file cannot be read, has an unsupported header or cannot be written
+     */
+    public static long append(Path path, List<Task> tasks) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        Inflater inflater = new Inflater();
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            long originalLength = file.length();
+            byte[] header = new byte[HEADER_LENGTH];
+            file.readFully(header);
+            if (!Arrays.equals(Arrays.copyOf(header, MAGIC.length), MAGIC) || header[MAGIC.length] != VERSION) {
+                throw new IOException("Unsupported compressed task file header");
+            }
+
+            long[] tail = findLastBlock(file);
+            long tailOffset = tail[0];
+            List<Task> pending = new ArrayList<>();
+            if (tail[1] >= RECORDS_PER_BLOCK) {
+                // A full last block is kept as it is and new blocks start after it
+                tailOffset = tail[2];
+            } else if (tail[1] > 0) {
+                file.seek(tailOffset);
+                byte[] block = new byte[(int) (tail[2] - tailOffset)];
+                file.readFully(block);
+                readBlock(new DataInputStream(new ByteArrayInputStream(block)), inflater, pending);
+            }
+            pending.addAll(tasks);
+
+            ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(blocks)) {
+                for (int start = 0; start < pending.size(); start += RECORDS_PER_BLOCK) {
+                    int end = Math.min(pending.size(), start + RECORDS_PER_BLOCK);
+                    writeBlock(out, pending.subList(start, end), deflater);
+                }
+            }
+            file.seek(tailOffset);
+            file.write(blocks.toByteArray());
+            file.setLength(tailOffset + blocks.size());
+            return file.length() - originalLength;
+        } finally {
+            deflater.end();
+            inflater.end();
+        }
+    }
+
+    /**
+     * Returns the offset, task count and end offset of the last complete block.
+     * Only the block headers are read; the compressed data is skipped. Without a
+     * complete block, the offset and end are where the first block belongs and the
+     * count is 0, so anything after them is overwritten.
+     */
+    private static long[] findLastBlock(RandomAccessFile file) throws IOException {
+        long length = file.length();
+        long[] last = {HEADER_LENGTH, 0, HEADER_LENGTH};
+        long offset = HEADER_LENGTH;
+        while (offset + BLOCK_HEADER_LENGTH <= length) {
+            file.seek(offset);
+            int count = file.readInt();
+            file.readInt();
+            long next = offset + BLOCK_HEADER_LENGTH + file.readInt();
+            if (next > length) {
+                break;
+            }
+            last = new long[]{offset, count, next};
+            offset = next;
+        }
+        return last;
+    }
+
+    private static void writeBlock(DataOutputStream out, List<Task> tasks, Deflater deflater) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Task task : tasks) {
+            lines.append(task.changeToFileFormat()).append('\n');
+        }
+        byte[] raw = lines.toString().getBytes(StandardCharsets.UTF_8);
+
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            compressed.write(buffer, 0, length);
+        }
+
+        out.writeInt(tasks.size());
+        out.writeInt(raw.length);
+        out.writeInt(compressed.size());
+        compressed.writeTo(out);
+    }
+
+    /**
+     * Reads one block and appends its tasks, returning false at the end of the file
+     * or at a block that is truncated or corrupt.
+     */
+    private static boolean readBlock(DataInputStream in, Inflater inflater, List<Task> tasks) throws IOException {
+        byte[] compressed;
+        byte[] raw;
+        try {
+            in.readInt();
+            int rawLength = in.readInt();
+            int compressedLength = in.readInt();
+            if (rawLength < 0 || rawLength > MAX_BLOCK_BYTES
+                    || compressedLength < 0 || compressedLength > MAX_BLOCK_BYTES) {
+                return false;
+            }
+            raw = new byte[rawLength];
+            compressed = new byte[compressedLength];
+            in.readFully(compressed);
+        } catch (EOFException e) {
+            return false;
+        }
+
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    return false;
+                }
+                length += inflated;
+            }
+            if (length != raw.length) {
+                return false;
+            }
+        } catch (DataFormatException e) {
+            return false;
+        }
+
+        String content = new String(raw, StandardCharsets.UTF_8);
+        int lineStart = 0;
+        while (lineStart < content.length()) {
+            int lineEnd = content.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = content.length();
+            }
+            String line = content.substring(lineStart, lineEnd);
+            if (!line.isBlank()) {
+                Task task = Parser.parseTaskFromFile(line);
+                if (task != null) {
+                    tasks.add(task);
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return true;
+    }
+
+    private static void readHeader(DataInputStream in) throws IOException {
+        byte[] header = new byte[HEADER_LENGTH];
+        in.readFully(header);
+        if (!Arrays.equals(Arrays.copyOf(header, MAGIC.length), MAGIC)) {
+            throw new IOException("Not a compressed task file");
+        }
+        if (header[MAGIC.length] != VERSION) {
+            throw new IOException("Unsupported compressed task file version: " + header[MAGIC.length]);
+        }
+    }
+}
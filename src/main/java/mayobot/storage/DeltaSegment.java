@@ -0,0 +1,218 @@
+package mayobot.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+import mayobot.task.Task;
+
+/**
+ * One link in a checkpoint chain: the net changes to the task list since the
+ * previous checkpoint, keyed by task ordinal.
+ * <p>
+ * An ordinal identifies a task for the lifetime of a base snapshot. Tasks in
+ * the base are numbered from 0 in file order, and every task added afterwards
+ * receives the next unused number. Deletions never renumber, so an ordinal
+ * keeps referring to the same task while its visible position shifts.
+ * <p>
+ * Besides the changes, a segment records the checksum of the base snapshot it
+ * applies to and how much of the journal it already contains, so stale
+ * segments and already-applied journal records can be recognised after a crash.
+ */
+public class DeltaSegment {
+    private static final int MAGIC = 0x4D444C54; // "MDLT"
+    private static final int VERSION = 2;
+    /** Oldest version that can still be read. Its added tasks have no id. */
+    private static final int FIRST_VERSION = 1;
+
+    private static final byte ADD = 'A';
+    private static final byte STATUS = 'S';
+    private static final byte REMOVE = 'R';
+
+    private final long baseChecksum;
+    private final long journalLength;
+    private final long journalChecksum;
+    private final long nextOrdinal;
+    private final TreeMap<Long, Change> changes;
+
+    /**
+     * Creates a new DeltaSegment.
+     *
+     * @param baseChecksum the checksum of the base snapshot this segment applies to
+     * @param journalLength the number of journal bytes already contained in the chain
+     * @param journalChecksum the checksum of that journal prefix
+     * @param nextOrdinal the ordinal the next added task will receive
+     * @param changes the net change per ordinal
+     */
+    public DeltaSegment(long baseChecksum, long journalLength, long journalChecksum, long nextOrdinal,
+            TreeMap<Long, Change> changes) {
+        this.baseChecksum = baseChecksum;
+        this.journalLength = journalLength;
+        this.journalChecksum = journalChecksum;
+        this.nextOrdinal = nextOrdinal;
+        this.changes = changes;
+    }
+
+    public long getBaseChecksum() {
+        return baseChecksum;
+    }
+
+    public long getJournalLength() {
+        return journalLength;
+    }
+
+    public long getJournalChecksum() {
+        return journalChecksum;
+    }
+
+    public long getNextOrdinal() {
+        return nextOrdinal;
+    }
+
+    public TreeMap<Long, Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Writes this segment to the given file, replacing its content.
+     *
+     * @param path the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(baseChecksum);
+            out.writeLong(journalLength);
+            out.writeLong(journalChecksum);
+            out.writeLong(nextOrdinal);
+            out.writeInt(changes.size());
+            for (Map.Entry<Long, Change> entry : changes.entrySet()) {
+                Change change = entry.getValue();
+                out.writeByte(change.kind);
+                out.writeLong(entry.getKey());
+                if (change.kind == ADD) {
+                    BinaryTaskFormat.writeTask(out, change.task);
+                } else if (change.kind == STATUS) {
+                    out.writeBoolean(change.isDone);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the segment stored in the given file, or null if the file is truncated or not a segment.
+     *
+     * @param path the file to read from
+     * @return the segment, or null if it cannot be decoded completely
+     * @throws IOException if the file cannot be read
+     */
+    public static DeltaSegment read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            int version = in.readUnsignedByte();
+            if (version < FIRST_VERSION || version > VERSION) {
+                return null;
+            }
+            // Task records follow the binary format, whose versions are numbered the same way
+            int taskVersion = version;
+            long baseChecksum = in.readLong();
+            long journalLength = in.readLong();
+            long journalChecksum = in.readLong();
+            long nextOrdinal = in.readLong();
+            int count = in.readInt();
+
+            TreeMap<Long, Change> changes = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                byte kind = in.readByte();
+                long ordinal = in.readLong();
+                if (kind == ADD) {
+                    Task task = BinaryTaskFormat.readTask(in, taskVersion);
+                    if (task == null) {
+                        return null;
+                    }
+                    changes.put(ordinal, Change.add(task));
+                } else if (kind == STATUS) {
+                    changes.put(ordinal, Change.status(in.readBoolean()));
+                } else if (kind == REMOVE) {
+                    changes.put(ordinal, Change.remove());
+                } else {
+                    return null;
+                }
+            }
+            return new DeltaSegment(baseChecksum, journalLength, journalChecksum, nextOrdinal, changes);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Net change to a single task: added, completion status set, or removed.
+     */
+    public static class Change {
+        private final byte kind;
+        private final Task task;
+        private final boolean isDone;
+
+        private Change(byte kind, Task task, boolean isDone) {
+            this.kind = kind;
+            this.task = task;
+            this.isDone = isDone;
+        }
+
+        /**
+         * Returns a change that adds the given task.
+         *
+         * @param task the added task, whose status may still be updated in place
+         * @return the change
+         */
+        public static Change add(Task task) {
+            return new Change(ADD, task, false);
+        }
+
+        /**
+         * Returns a change that sets the completion status of an existing task.
+         *
+         * @param isDone the new completion status
+         * @return the change
+         */
+        public static Change status(boolean isDone) {
+            return new Change(STATUS, null, isDone);
+        }
+
+        /**
+         * Returns a change that removes an existing task.
+         *
+         * @return the change
+         */
+        public static Change remove() {
+            return new Change(REMOVE, null, false);
+        }
+
+        public boolean isAdd() {
+            return kind == ADD;
+        }
+
+        public boolean isRemove() {
+            return kind == REMOVE;
+        }
+
+        public Task getTask() {
+            return task;
+        }
+
+        public boolean isDone() {
+            return isDone;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package mayobot.storage;
+
+/**
+ * Trade-off between commit latency and how much a crash can lose.
+ * Each level decides whether journal records are written on the calling
+ * thread or by a background writer, and whether they are forced to the
+ * storage device with fsync.
+ */
+public enum Durability {
+    /**
+     * Records are queued for a background writer and never fsynced.
+     * Fastest, but a crash can lose anything that is still queued.
+     */
+    NONE(true, false),
+    /**
+     * Records are written to the operating system before the commit returns.
+     * Survives the application crashing, but not a power failure.
+     */
+    FLUSH(false, false),
+    /**
+     * Records are written and fsynced before the commit returns.
+     * Nothing acknowledged is lost, at the cost of one fsync per change.
+     */
+    FSYNC_PER_COMMIT(false, true),
+    /**
+     * Records are queued for a background writer that fsyncs once per batch.
+     * Bursts share one fsync; a crash can lose at most the batch in flight.
+     */
+    FSYNC_BATCHED(true, true);
+
+    private final boolean isWriteBehind;
+    private final boolean isFsyncEnabled;
+
+    Durability(boolean isWriteBehind, boolean isFsyncEnabled) {
+        this.isWriteBehind = isWriteBehind;
+        this.isFsyncEnabled = isFsyncEnabled;
+    }
+
+    public boolean isWriteBehind() {
+        return isWriteBehind;
+    }
+
+    public boolean isFsyncEnabled() {
+        return isFsyncEnabled;
+    }
+}
@@ -0,0 +1,154 @@
+package mayobot.storage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Write-behind journal writer that runs on a single background thread.
+ * Callers hand records to {@link #submit(String)} and return immediately; the
+ * writer thread drains every record that is waiting at that moment and appends
+ * them to the journal with one write and at most one fsync. A burst of many
+ * mutations therefore costs a single I/O round trip instead of one per record.
+ * <p>
+ * {@link #flush()} blocks until every record submitted before the call is on
+ * disk, and {@link #close()} flushes and stops the writer thread.
+ */
+public class GroupCommitWriter implements AutoCloseable {
+    private static final int MAX_BATCH_SIZE = 4096;
+
+    /** Compared by identity to tell the writer thread to stop. */
+    private static final String CLOSE_MARKER = new String("close");
+
+    private final TaskJournal journal;
+    private final Object journalLock;
+    private final boolean isFsyncEnabled;
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+
+    private long submittedCount;
+    private long writtenCount;
+    private long batchCount;
+    private boolean isClosed;
+
+    /**
+     * Creates a new GroupCommitWriter and starts its writer thread.
+     * The journal lock is held while a batch is appended so that compaction
+     * never observes a half-written batch.
+     *
+     * @param journal the journal to append to
+     * @param journalLock the lock that guards the journal file
+     * @param isFsyncEnabled whether to fsync after each batch
+     */
+    public GroupCommitWriter(TaskJournal journal, Object journalLock, boolean isFsyncEnabled) {
+        assert journal != null : "Journal cannot be null";
+        assert journalLock != null : "Journal lock cannot be null";
+
+        this.journal = journal;
+        this.journalLock = journalLock;
+        this.isFsyncEnabled = isFsyncEnabled;
+        this.writerThread = new Thread(this::runWriter, "mayobot-journal-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues a record to be appended to the journal by the writer thread.
+     *
+     * @param record the journal record, without a trailing newline
+     * @throws IllegalStateException if the writer has been closed
+     */
+    public synchronized void submit(String record) {
+        if (isClosed) {
+            throw new IllegalStateException("Journal writer is closed");
+        }
+        submittedCount++;
+        queue.add(record);
+    }
+
+    /**
+     * Returns the number of batches written so far.
+     * Comparing this with the number of submitted records shows how well bursts are coalesced.
+     *
+     * @return the number of journal writes performed by the writer thread
+     */
+    public synchronized long getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * Blocks until every record submitted before this call has been written.
+     * If the calling thread is interrupted while waiting, the method returns
+     * early with the interrupt flag set.
+     */
+    public synchronized void flush() {
+        long target = submittedCount;
+        while (writtenCount < target && writerThread.isAlive()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Flushes all pending records and stops the writer thread.
+     * Calling this method more than once has no further effect.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            queue.add(CLOSE_MARKER);
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        List<String> batch = new ArrayList<>();
+        boolean isStopping = false;
+        while (!isStopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            isStopping = batch.removeIf(record -> record == CLOSE_MARKER);
+
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+            }
+            batch.clear();
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private void writeBatch(List<String> batch) {
+        try {
+            synchronized (journalLock) {
+                journal.appendAll(batch, isFsyncEnabled);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        synchronized (this) {
+            writtenCount += batch.size();
+            batchCount++;
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package mayobot.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import mayobot.task.Task;
+import mayobot.task.TodoTask;
+import mayobot.util.LongArrayList;
+
+/**
+ * List of tasks that are decoded from a text snapshot only when they are accessed.
+ * Opening the list reads or builds a {@link LineOffsetIndex} and nothing else, so
+ * startup does not depend on how many tasks the snapshot holds. Each element is
+ * either the offset of its line in the snapshot or a task held in memory.
+ * <p>
+ * Tasks decoded from the snapshot are kept in a bounded least-recently-used cache
+ * and may be evicted and decoded again later, so a task returned by {@link #get(int)}
+ * must be written back with {@link #set(int, Task)} after it is modified. Written
+ * back and added tasks no longer match the snapshot and are pinned in memory
+ * instead. Resident memory is therefore proportional to the working set plus
+ * one offset and one id per task.
+ * <p>
+ * The snapshot is read through a channel opened when the list is created, so the
+ * offsets stay valid even if the file is replaced by a later checkpoint or by
+ * another program, as long as it is replaced rather than rewritten in place.
+ * <p>
+ * The id of every line is read from the index and kept beside its slot, so that
+ * tasks can be found by id and new ids handed out without decoding every task.
+ */
+public class LazyTaskList extends AbstractList<Task> implements RandomAccess, AutoCloseable {
+    /** Number of decoded tasks kept by default. */
+    public static final int DEFAULT_CACHE_CAPACITY = 1024;
+
+    private static final int INITIAL_LINE_BYTES = 256;
+
+    private final FileChannel channel;
+    /** Line offset for a task in the snapshot, or -(pin + 1) for a task held in {@link #pinned}. */
+    private final LongArrayList slots;
+    /** Id of the task at each position, kept beside the slots so ids are found without decoding. */
+    private final LongArrayList ids;
+    private final Map<Long, Task> pinned = new HashMap<>();
+    private final Map<Long, Task> cache;
+    private final long storedMaxId;
+    private final int storedMissingIdCount;
+    private final int quarantinedCount;
+
+    /** True while the ids are known to ascend along the list, so a failed binary search is final. */
+    private boolean idsAscend;
+    private long nextPin;
+    private long decodeCount;
+
+    /**
+     * Creates a new LazyTaskList over the given lines of an open snapshot channel.
+     *
+     * @param channel the channel to decode lines from, owned by the list from now on
+     * @param index the index of the task lines, whose offsets are owned by the list from now on
+     * @param cacheCapacity the maximum number of decoded tasks to keep
+     */
+    public LazyTaskList(FileChannel channel, LineOffsetIndex index, int cacheCapacity) {
+        assert channel != null : "Channel cannot be null";
+        assert cacheCapacity > 0 : "Cache capacity must be positive";
+
+        this.channel = channel;
+        this.slots = index.getOffsets();
+        this.ids = index.getIds();
+        this.storedMaxId = index.getMaxId();
+        this.storedMissingIdCount = index.getMissingIdCount();
+        this.quarantinedCount = index.getQuarantinedCount();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Task> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+    }
+
+    /**
+     * Returns a LazyTaskList over the text snapshot at the given path.
+     *
+     * @param snapshot the text snapshot to read tasks from
+     * @param cacheCapacity the maximum number of decoded tasks to keep
+     * @return a list containing one element per task line
+     * @throws IOException if the snapshot or its index cannot be read
+     */
+    public static LazyTaskList open(Path snapshot, int cacheCapacity) throws IOException {
+        FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ);
+        try {
+            return new LazyTaskList(channel, LineOffsetIndex.load(snapshot, channel), cacheCapacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns how many tasks have been decoded from the snapshot so far.
+     * Tasks that were evicted and decoded again are counted each time.
+     *
+     * @return the number of line decodes
+     */
+    public long getDecodeCount() {
+        return decodeCount;
+    }
+
+    /**
+     * Returns the number of snapshot lines left out of the list because they were
+     * damaged or malformed, as counted when the snapshot was indexed.
+     *
+     * @return the number of quarantined lines
+     */
+    public int getQuarantinedCount() {
+        return quarantinedCount;
+    }
+
+    /**
+     * Returns the number of tasks currently held in memory, cached or pinned.
+     *
+     * @return the number of resident tasks
+     */
+    public int getResidentCount() {
+        return cache.size() + pinned.size();
+    }
+
+    /**
+     * Returns the largest id of a task in the list, read from the snapshot index and the
+     * tasks held in memory. Lines removed since the snapshot was indexed still count,
+     * so the result may be larger than every remaining id but never smaller.
+     *
+     * @return the largest id, or {@link Task#NO_ID} if no task has one
+     */
+    public long getMaxId() {
+        long maxId = storedMaxId;
+        for (Task task : pinned.values()) {
+            maxId = Math.max(maxId, task.getId());
+        }
+        return maxId;
+    }
+
+    /**
+     * Returns the position of the task with the given id, searching the ids read from the
+     * snapshot index and those of tasks added since, without decoding any task. Ids usually
+     * ascend along the list, so they are binary searched first. They are only scanned if
+     * that fails while they are not known to ascend, and the scan finds out whether they do.
+     *
+     * @param id the id to find
+     * @return the zero-based position, or -1 if no task has the id
+     */
+    public int indexOfId(long id) {
+        int index = ids.binarySearch(id);
+        if (index >= 0 || idsAscend) {
+            return index >= 0 ? index : -1;
+        }
+        int found = -1;
+        boolean ascend = true;
+        for (int i = 0; i < ids.size(); i++) {
+            if (found < 0 && ids.get(i) == id) {
+                found = i;
+            }
+            ascend &= i == 0 || ids.get(i - 1) < ids.get(i);
+        }
+        idsAscend = ascend;
+        return found;
+    }
+
+    /**
+     * Returns whether any task may lack an id: a snapshot line without an id field,
+     * even if it has been removed since, or a task held in memory without one.
+     *
+     * @return true if a task may have no id
+     */
+    public boolean hasMissingIds() {
+        return storedMissingIdCount > 0 || pinned.values().stream().anyMatch(task -> task.getId() == Task.NO_ID);
+    }
+
+    @Override
+    public int size() {
+        return slots.size();
+    }
+
+    @Override
+    public Task get(int index) {
+        long slot = slots.get(index);
+        if (slot < 0) {
+            return pinned.get(-slot - 1);
+        }
+        Task task = cache.get(slot);
+        if (task == null) {
+            task = decode(slot);
+            cache.put(slot, task);
+        }
+        return task;
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        assert task != null : "Task cannot be null";
+
+        Task previous = get(index);
+        release(slots.get(index));
+        slots.set(index, pin(task));
+        setId(index, task.getId());
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        assert task != null : "Task cannot be null";
+
+        slots.add(index, pin(task));
+        ids.add(index, Task.NO_ID);
+        setId(index, task.getId());
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task removed = get(index);
+        release(slots.removeAt(index));
+        ids.removeAt(index);
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Removes every task whose zero-based index is set, without decoding any of them.
+     *
+     * @param indexes the indexes of the tasks to remove
+     */
+    public void removeAll(BitSet indexes) {
+        for (int i = indexes.nextSetBit(0); i >= 0 && i < slots.size(); i = indexes.nextSetBit(i + 1)) {
+            release(slots.get(i));
+        }
+        slots.removeAll(indexes);
+        ids.removeAll(indexes);
+        modCount++;
+    }
+
+    /**
+     * Closes the snapshot channel. Tasks that are not resident can no longer be read afterwards.
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void setId(int index, long id) {
+        ids.set(index, id);
+        if (index > 0 && ids.get(index - 1) >= id || index + 1 < ids.size() && id >= ids.get(index + 1)) {
+            idsAscend = false;
+        }
+    }
+
+    private long pin(Task task) {
+        long pin = nextPin++;
+        pinned.put(pin, task);
+        return -pin - 1;
+    }
+
+    private void release(long slot) {
+        if (slot < 0) {
+            pinned.remove(-slot - 1);
+        } else {
+            cache.remove(slot);
+        }
+    }
+
+    private Task decode(long offset) {
+        String line;
+        try {
+            line = readLine(offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        decodeCount++;
+
+        Task task = RecordChecksum.decode(line);
+        // The index holds only lines that decode, so this fails only if the snapshot was rewritten in place
+        return task != null ? task : new TodoTask(line);
+    }
+
+    private String readLine(long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(INITIAL_LINE_BYTES);
+        long position = offset;
+        int scanned = 0;
+        while (true) {
+            int read = channel.read(buffer, position);
+            int end = buffer.position();
+            for (int i = scanned; i < end; i++) {
+                if (buffer.get(i) == '\n') {
+                    return decodeLine(buffer, i);
+                }
+            }
+            if (read <= 0) {
+                return decodeLine(buffer, end);
+            }
+            scanned = end;
+            position += read;
+            if (!buffer.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+    }
+
+    private static String decodeLine(ByteBuffer buffer, int end) {
+        int length = end > 0 && buffer.get(end - 1) == '\r' ? end - 1 : end;
+        return new String(buffer.array(), 0, length, StandardCharsets.UTF_8);
+    }
+}
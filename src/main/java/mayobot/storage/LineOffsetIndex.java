@@ -0,0 +1,353 @@
+package mayobot.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import mayobot.task.Task;
+import mayobot.util.LongArrayList;
+
+/**
+ * Byte offset of every task line in a text snapshot file.
+ * Building the index scans the raw bytes for line breaks and keeps none of the
+ * tasks it reads, so it takes one offset per task rather than the tasks themselves.
+ * <p>
+ * For large files the index is also cached in {@code <snapshot>.idx}, together
+ * with the size and modification time of the snapshot it describes, so the next
+ * start can skip the scan entirely. A cache that does not match the snapshot is
+ * ignored and rebuilt.
+ * <p>
+ * Lines are indexed only if {@link RecordChecksum#decode(String)} accepts them, the
+ * same rule the eager loaders use to quarantine damaged and malformed lines, so a
+ * lazily loaded list holds the same tasks at the same positions as an eager load.
+ * Blank lines and lines without a known type letter and enough " | " separators
+ * for that type are skipped without decoding them.
+ * <p>
+ * The scan also keeps the id of every task line, so that a list that decodes its
+ * tasks on demand can find a task by id, hand out new ids and tell whether any
+ * line lacks one without decoding them again.
+ */
+public class LineOffsetIndex {
+    /** Snapshot size from which the index is cached on disk. */
+    public static final long CACHE_THRESHOLD_BYTES = 1024 * 1024;
+
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x4D494458; // "MIDX"
+    private static final int VERSION = 5;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private final LongArrayList offsets;
+    private final LongArrayList ids;
+    private long maxId = Task.NO_ID;
+    private int missingIdCount;
+    private int quarantinedCount;
+
+    private LineOffsetIndex(LongArrayList offsets, LongArrayList ids) {
+        this.offsets = offsets;
+        this.ids = ids;
+    }
+
+    /**
+     * Returns the offsets of the task lines.
+     *
+     * @return the offsets of the task lines in file order
+     */
+    public LongArrayList getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Returns the id of every task line.
+     *
+     * @return the ids of the task lines in file order, with {@link Task#NO_ID} for a line without one
+     */
+    public LongArrayList getIds() {
+        return ids;
+    }
+
+    /**
+     * Returns the largest id held by a task line.
+     *
+     * @return the largest id, or {@link Task#NO_ID} if no line has one
+     */
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public int getMissingIdCount() {
+        return missingIdCount;
+    }
+
+    /**
+     * Returns the number of lines left out of the index because they looked like a task
+     * but failed their checksum or could not be parsed.
+     *
+     * @return the number of quarantined lines
+     */
+    public int getQuarantinedCount() {
+        return quarantinedCount;
+    }
+
+    /**
+     * Returns the path of the cached index for the given snapshot.
+     *
+     * @param snapshot the snapshot file
+     * @return the path of its index cache
+     */
+    public static Path getCachePath(Path snapshot) {
+        return snapshot.resolveSibling(snapshot.getFileName() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Deletes the cached index of the given snapshot, if there is one.
+     * Called whenever the snapshot is replaced.
+     *
+     * @param snapshot the snapshot file
+     * @throws IOException if the cache exists but cannot be deleted
+     */
+    public static void invalidate(Path snapshot) throws IOException {
+        Files.deleteIfExists(getCachePath(snapshot));
+    }
+
+    /**
+     * Returns the index of all task lines in the snapshot read through the given channel.
+     * A matching cached index is used if present; otherwise the channel is scanned,
+     * and the result is cached if the snapshot is large enough.
+     *
+     * @param snapshot the snapshot file
+     * @param channel an open channel on the snapshot, whose content the offsets must match
+     * @return the index of the task lines
+     * @throws IOException if the snapshot cannot be read
+     */
+    public static LineOffsetIndex load(Path snapshot, FileChannel channel) throws IOException {
+        long size = channel.size();
+        long lastModified = Files.getLastModifiedTime(snapshot).toMillis();
+
+        LineOffsetIndex index = readCache(getCachePath(snapshot), size, lastModified);
+        if (index != null) {
+            return index;
+        }
+        index = scan(channel, size);
+        if (size >= CACHE_THRESHOLD_BYTES) {
+            writeCache(getCachePath(snapshot), size, lastModified, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of all task lines read through the given channel.
+     *
+     * @param channel the channel to scan
+     * @param size the number of bytes to scan
+     * @return the index of the task lines
+     * @throws IOException if the channel cannot be read
+     */
+    public static LineOffsetIndex scan(FileChannel channel, long size) throws IOException {
+        LineOffsetIndex index = new LineOffsetIndex(new LongArrayList(), new LongArrayList());
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        LineShape line = new LineShape();
+
+        long position = 0;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    index.addIfTask(line);
+                    line.reset(position + i + 1);
+                } else {
+                    line.accept(b);
+                }
+            }
+            position += read;
+        }
+        index.addIfTask(line);
+        return index;
+    }
+
+    /**
+     * Returns the offsets of the lines in the given file content that may be tasks, judged
+     * by their shape alone. Unlike {@link #scan(FileChannel, long)}, the lines are not decoded,
+     * so a caller must still leave out the ones {@link RecordChecksum#decode(String)} rejects.
+     *
+     * @param content the bytes of a text snapshot
+     * @return the offsets of the lines that may be tasks, in file order
+     */
+    public static LongArrayList scanTaskShapes(byte[] content) {
+        LongArrayList offsets = new LongArrayList();
+        LineShape line = new LineShape();
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == '\n') {
+                if (line.mayBeTask()) {
+                    offsets.add(line.start);
+                }
+                line.reset(i + 1);
+            } else {
+                line.accept(content[i]);
+            }
+        }
+        if (line.mayBeTask()) {
+            offsets.add(line.start);
+        }
+        return offsets;
+    }
+
+    private void addIfTask(LineShape line) {
+        if (!line.mayBeTask()) {
+            return;
+        }
+        Task task = RecordChecksum.decode(line.text());
+        if (task == null) {
+            quarantinedCount++;
+            return;
+        }
+        offsets.add(line.start);
+        ids.add(task.getId());
+        if (task.getId() == Task.NO_ID) {
+            missingIdCount++;
+        } else {
+            maxId = Math.max(maxId, task.getId());
+        }
+    }
+
+    private static LineOffsetIndex readCache(Path cache, long size, long lastModified) {
+        if (!Files.exists(cache)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cache)))) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION
+                    || in.readLong() != size || in.readLong() != lastModified) {
+                return null;
+            }
+            long maxId = in.readLong();
+            int missingIdCount = in.readInt();
+            int quarantinedCount = in.readInt();
+            int count = in.readInt();
+            LineOffsetIndex index = new LineOffsetIndex(new LongArrayList(count), new LongArrayList(count));
+            index.maxId = maxId;
+            index.missingIdCount = missingIdCount;
+            index.quarantinedCount = quarantinedCount;
+            long offset = 0;
+            for (int i = 0; i < count; i++) {
+                // Stored as gaps between line starts, which always fit in an int
+                offset += in.readInt();
+                index.offsets.add(offset);
+            }
+            for (int i = 0; i < count; i++) {
+                index.ids.add(in.readLong());
+            }
+            return index;
+        } catch (IOException e) {
+            // A truncated or unreadable cache is simply rebuilt
+            return null;
+        }
+    }
+
+    private static void writeCache(Path cache, long size, long lastModified, LineOffsetIndex index) {
+        LongArrayList offsets = index.offsets;
+        Path temp = cache.resolveSibling(cache.getFileName() + TEMP_SUFFIX);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeLong(size);
+                out.writeLong(lastModified);
+                out.writeLong(index.maxId);
+                out.writeInt(index.missingIdCount);
+                out.writeInt(index.quarantinedCount);
+                out.writeInt(offsets.size());
+                long previous = 0;
+                for (int i = 0; i < offsets.size(); i++) {
+                    out.writeInt((int) (offsets.get(i) - previous));
+                    previous = offsets.get(i);
+                }
+                for (int i = 0; i < index.ids.size(); i++) {
+                    out.writeLong(index.ids.get(i));
+                }
+            }
+            Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // The cache only saves a scan on the next start, so failing to write it is harmless
+        }
+    }
+
+    /**
+     * Collects the bytes of the current line and tracks just enough of them to tell
+     * whether it can be a task without decoding it.
+     */
+    private static class LineShape {
+        private static final int INITIAL_LINE_BYTES = 256;
+
+        private long start;
+        private byte[] bytes = new byte[INITIAL_LINE_BYTES];
+        private int length;
+        private byte type;
+        private int separators;
+        private boolean hasContent;
+
+        void reset(long start) {
+            this.start = start;
+            length = 0;
+            type = 0;
+            separators = 0;
+            hasContent = false;
+        }
+
+        void accept(byte b) {
+            if (length == 0) {
+                type = b;
+            }
+            if (b == ' ' && length >= 2 && bytes[length - 1] == '|' && bytes[length - 2] == ' ') {
+                separators++;
+                if (separators == 1 && length != 3) {
+                    // The type must be a single letter directly followed by the first separator
+                    type = 0;
+                }
+            }
+            hasContent |= (b & 0xFF) > ' ';
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, length * 2);
+            }
+            bytes[length++] = b;
+        }
+
+        /**
+         * Returns whether the line has the type letter and the number of " | " separators
+         * that every parseable line of its type has.
+         */
+        boolean mayBeTask() {
+            if (!hasContent) {
+                return false;
+            }
+            switch (type) {
+            case 'T':
+                return separators >= 2;
+            case 'D':
+                return separators >= 3;
+            case 'E':
+                return separators >= 4;
+            default:
+                return false;
+            }
+        }
+
+        String text() {
+            int end = length > 0 && bytes[length - 1] == '\r' ? length - 1 : length;
+            return new String(bytes, 0, end, StandardCharsets.UTF_8);
+        }
+    }
+}
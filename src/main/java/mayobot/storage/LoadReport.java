@@ -0,0 +1,100 @@
+package mayobot.storage;
+
+/**
+ * Timing breakdown of a single load of the task snapshot file.
+ * Records how long each loading phase took so that slow cold starts can be
+ * attributed to splitting the file, parsing the lines or merging the results.
+ * It also counts the records that were quarantined because they were damaged.
+ */
+public class LoadReport {
+    private final long bytes;
+    private final int chunkCount;
+    private final int taskCount;
+    private final long splitNanos;
+    private final long parseNanos;
+    private final long mergeNanos;
+    private final int quarantinedCount;
+
+    /**
+     * Creates a new LoadReport with the measured values of one load.
+     *
+     * @param bytes the size of the loaded file in bytes
+     * @param chunkCount the number of chunks the file was split into
+     * @param taskCount the number of tasks that were parsed successfully
+     * @param splitNanos the time spent mapping the file and finding chunk boundaries
+     * @param parseNanos the time spent decoding and parsing all chunks
+     * @param mergeNanos the time spent concatenating the chunk results in order
+     */
+    public LoadReport(long bytes, int chunkCount, int taskCount, long splitNanos, long parseNanos, long mergeNanos) {
+        this(bytes, chunkCount, taskCount, splitNanos, parseNanos, mergeNanos, 0);
+    }
+
+    /**
+     * Creates a new LoadReport with the measured values of one load that skipped damaged records.
+     *
+     * @param bytes the size of the loaded file in bytes
+     * @param chunkCount the number of chunks the file was split into
+     * @param taskCount the number of tasks that were parsed successfully
+     * @param splitNanos the time spent mapping the file and finding chunk boundaries
+     * @param parseNanos the time spent decoding and parsing all chunks
+     * @param mergeNanos the time spent concatenating the chunk results in order
+     * @param quarantinedCount the number of records left out because they were damaged or malformed
+     */
+    public LoadReport(long bytes, int chunkCount, int taskCount, long splitNanos, long parseNanos, long mergeNanos,
+            int quarantinedCount) {
+        this.bytes = bytes;
+        this.chunkCount = chunkCount;
+        this.taskCount = taskCount;
+        this.splitNanos = splitNanos;
+        this.parseNanos = parseNanos;
+        this.mergeNanos = mergeNanos;
+        this.quarantinedCount = quarantinedCount;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public int getTaskCount() {
+        return taskCount;
+    }
+
+    public long getSplitNanos() {
+        return splitNanos;
+    }
+
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    public long getMergeNanos() {
+        return mergeNanos;
+    }
+
+    public int getQuarantinedCount() {
+        return quarantinedCount;
+    }
+
+    /**
+     * Returns a copy of this report with more quarantined records, such as a torn tail removed before the load.
+     *
+     * @param count the number of records to add
+     * @return the new report
+     */
+    public LoadReport withQuarantined(int count) {
+        return new LoadReport(bytes, chunkCount, taskCount, splitNanos, parseNanos, mergeNanos,
+                quarantinedCount + count);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Loaded %d task(s) from %d byte(s) in %d chunk(s): split %.2f ms, "
+                        + "parse %.2f ms, merge %.2f ms",
+                taskCount, bytes, chunkCount, splitNanos / 1e6, parseNanos / 1e6, mergeNanos / 1e6)
+                + (quarantinedCount > 0 ? String.format(", %d record(s) quarantined", quarantinedCount) : "");
+    }
+}
@@ -0,0 +1,743 @@
+package mayobot.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import mayobot.Parser;
+import mayobot.task.Task;
+import mayobot.task.TaskList;
+import mayobot.util.LongArrayList;
+import mayobot.util.RopeList;
+
+/**
+ * Log-structured storage backend for very large task histories.
+ * Every task has a key that never changes, and new tasks get a larger key than
+ * every existing one, so the list order is the key order. A change is appended
+ * to a small log and applied to an in-memory memtable sorted by key; nothing
+ * already on disk is ever modified in place:
+ * <pre>
+ * memtable.log                         changes since the last flush
+ * segment-0000000007-0000000007.sst    the memtable of flush 7
+ * segment-0000000000-0000000006.sst    flushes 0 to 6, merged
+ * </pre>
+ * When the memtable grows past its limit it is written out as an immutable
+ * {@link SortedSegment} and the log is truncated. Deleting a task stores a
+ * tombstone for its key, which hides the task in older segments.
+ * <p>
+ * A background thread merges segments by size-tiered compaction: once
+ * {@value #TIER_MIN_SEGMENTS} or more consecutive segments are in the same size
+ * tier, where each tier holds segments {@value #TIER_RATIO} times larger than the
+ * one below, they are merged into one segment of the next tier. Every record is
+ * therefore rewritten about once per tier, a number that grows only with the
+ * logarithm of the history, and the number of segments a lookup has to consult
+ * stays small. Tombstones are dropped once a merge includes the oldest segment.
+ * <p>
+ * Marking or deleting a task writes one log record however large the history is,
+ * and {@link #lookup(int)} reads at most one block per segment. Memtable flushes
+ * are recorded as checkpoints in the {@link StorageStats}, and merges as full
+ * rewrites, so their byte share shows how much of the writing compaction does.
+ */
+public class LsmStorageBackend implements StorageBackend {
+    /** Memtable size at which it is flushed to a segment, in bytes. */
+    public static final int DEFAULT_MEMTABLE_BYTES = 1024 * 1024;
+    /** Number of consecutive segments of the same tier that are merged. */
+    public static final int TIER_MIN_SEGMENTS = 4;
+    /** Size ratio between one tier and the next. */
+    public static final int TIER_RATIO = 4;
+
+    private static final String LOG_NAME = "memtable.log";
+    /** Estimated memory of a memtable entry besides its value. */
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+    private static final int LOG_HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+    private final Path directory;
+    private final Path logPath;
+    private final Durability durability;
+    private final int memtableLimitBytes;
+    private final Object lock = new Object();
+    private final StorageStats stats = new StorageStats();
+    private final AtomicLong logBytes = new AtomicLong();
+    private final AtomicLong segmentBytes = new AtomicLong();
+
+    private TreeMap<Long, byte[]> memtable = new TreeMap<>();
+    private long memtableBytes;
+    /** Segments from oldest to newest. */
+    private List<SortedSegment> segments = new ArrayList<>();
+    private long nextSequence;
+    private FileChannel logChannel;
+    /** Key of the task at each list position. */
+    private LongArrayList keys = new LongArrayList();
+    private long nextKey;
+    private Thread compactor;
+    private boolean isClosing;
+    /** Set while a batch is stored, so that the log is forced once at its end rather than per record. */
+    private boolean isBatching;
+    private boolean isCompactorRunning;
+    private boolean isCompacting;
+    private long compactionCount;
+
+    /**
+     * Creates a new LsmStorageBackend that keeps its files in the specified directory, without fsync.
+     * The directory is created when the tasks are loaded.
+     *
+     * @param directoryPath the directory holding the log and the segments
+     */
+    public LsmStorageBackend(String directoryPath) {
+        this(directoryPath, Durability.FLUSH, DEFAULT_MEMTABLE_BYTES);
+    }
+
+    /**
+     * Creates a new LsmStorageBackend with the specified durability level and memtable size.
+     *
+     * @param directoryPath the directory holding the log and the segments
+     * @param durability decides whether the log and new segments are fsynced
+     * @param memtableLimitBytes the memtable size at which it is flushed to a segment
+     */
+    public LsmStorageBackend(String directoryPath, Durability durability, int memtableLimitBytes) {
+        assert directoryPath != null : "Directory path cannot be null";
+        assert durability != null : "Durability cannot be null";
+        assert memtableLimitBytes > 0 : "Memtable limit must be positive: " + memtableLimitBytes;
+
+        this.directory = Paths.get(directoryPath);
+        this.logPath = directory.resolve(LOG_NAME);
+        this.durability = durability;
+        this.memtableLimitBytes = memtableLimitBytes;
+    }
+
+    @Override
+    public StorageStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the number of segments a lookup may have to consult.
+     *
+     * @return the number of segments on disk
+     */
+    public int getSegmentCount() {
+        synchronized (lock) {
+            return segments.size();
+        }
+    }
+
+    /**
+     * Returns the number of merges the compactor has completed since the tasks were loaded.
+     *
+     * @return the number of compactions
+     */
+    public long getCompactionCount() {
+        synchronized (lock) {
+            return compactionCount;
+        }
+    }
+
+    /**
+     * Returns the bytes written to disk for every byte of changes logged since the tasks were loaded.
+     * The log itself counts, so a backend that never flushed has an amplification of 1.
+     *
+     * @return the write amplification, or 0 if nothing has been logged
+     */
+    public double getWriteAmplification() {
+        long logged = logBytes.get();
+        return logged == 0 ? 0 : (double) (logged + segmentBytes.get()) / logged;
+    }
+
+    /**
+     * Opens the directory, replays the log into the memtable, and returns a TaskList
+     * holding every stored task in list order. Segments left behind by an interrupted
+     * merge are deleted, and the compaction thread is started.
+     *
+     * @return the loaded TaskList
+     * @throws IOException if the directory cannot be read
+     */
+    @Override
+    public TaskList load() throws IOException {
+        close();
+        List<Task> tasks = new RopeList<>();
+        synchronized (lock) {
+            stats.recordDirectoryCheck();
+            Files.createDirectories(directory);
+            openSegments();
+            replayLog();
+            logChannel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+
+            long startTime = System.nanoTime();
+            keys = new LongArrayList();
+            int quarantined = 0;
+            Iterator<SortedSegment.Record> records = merge(segments, memtable, true);
+            while (records.hasNext()) {
+                SortedSegment.Record record = records.next();
+                Task task = Parser.parseTaskFromFile(new String(record.getValue(), StandardCharsets.UTF_8));
+                if (task == null) {
+                    quarantined++;
+                    continue;
+                }
+                keys.add(record.getKey());
+                tasks.add(task);
+            }
+            // Tombstones count too, so the key of a deleted task is not handed out again
+            nextKey = maxStoredKey() + 1;
+            stats.recordLoad(System.nanoTime() - startTime);
+            stats.recordQuarantined(quarantined);
+
+            isClosing = false;
+            isCompactorRunning = true;
+            compactor = new Thread(this::runCompactor, "mayobot-lsm-compactor");
+            compactor.setDaemon(true);
+            compactor.start();
+            lock.notifyAll();
+        }
+        return storeMissingIds(new TaskList(this, tasks));
+    }
+
+    @Override
+    public void append(Task task) {
+        assert task != null : "Cannot save null task";
+
+        synchronized (lock) {
+            long key = nextKey;
+            if (put(key, encode(task))) {
+                nextKey = key + 1;
+                keys.add(key);
+            }
+        }
+    }
+
+    @Override
+    public void update(int index, Task task) {
+        assert index >= 1 : "Index should be 1-based positive: " + index;
+        assert task != null : "Cannot save null task";
+
+        synchronized (lock) {
+            put(keys.get(index - 1), encode(task));
+        }
+    }
+
+    @Override
+    public void delete(int index) {
+        assert index >= 1 : "Index should be 1-based positive: " + index;
+
+        synchronized (lock) {
+            if (put(keys.get(index - 1), SortedSegment.tombstone())) {
+                keys.removeAt(index - 1);
+            }
+        }
+    }
+
+    /**
+     * Stores all the changed tasks with a single force of the log.
+     */
+    @Override
+    public void updateAll(int[] indexes, List<Task> tasks) {
+        assert indexes.length == tasks.size() : "Every index needs a task";
+
+        synchronized (lock) {
+            isBatching = true;
+            try {
+                for (int i = 0; i < indexes.length; i++) {
+                    put(keys.get(indexes[i] - 1), encode(tasks.get(i)));
+                }
+            } finally {
+                endBatch();
+            }
+        }
+    }
+
+    /**
+     * Stores all the removals with a single force of the log.
+     */
+    @Override
+    public void deleteAll(int[] descendingIndexes) {
+        synchronized (lock) {
+            isBatching = true;
+            try {
+                for (int index : descendingIndexes) {
+                    if (put(keys.get(index - 1), SortedSegment.tombstone())) {
+                        keys.removeAt(index - 1);
+                    }
+                }
+            } finally {
+                endBatch();
+            }
+        }
+    }
+
+    private void endBatch() {
+        isBatching = false;
+        if (durability.isFsyncEnabled()) {
+            try {
+                logChannel.force(false);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Reads the task at the given position from the memtable or the newest segment holding it.
+     * Unlike the loaded TaskList, the result always reflects what is stored.
+     *
+     * @param index the one-based index of the task
+     * @return the stored task, or null if it cannot be read
+     */
+    public Task lookup(int index) {
+        assert index >= 1 : "Index should be 1-based positive: " + index;
+
+        synchronized (lock) {
+            long key = keys.get(index - 1);
+            try {
+                byte[] value = memtable.get(key);
+                for (int i = segments.size() - 1; value == null && i >= 0; i--) {
+                    value = segments.get(i).get(key);
+                }
+                if (value == null || SortedSegment.isTombstone(value)) {
+                    return null;
+                }
+                return Parser.parseTaskFromFile(new String(value, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Blocks until the compactor has merged every tier that has enough segments.
+     * If the calling thread is interrupted while waiting, the method returns
+     * early with the interrupt flag set.
+     */
+    public void awaitCompaction() {
+        synchronized (lock) {
+            while (isCompactorRunning && !isClosing && (isCompacting || pickRun() != null)) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Forces the log to the storage device.
+     * Log records are already written when a change returns, so this only matters without fsync.
+     */
+    @Override
+    public void flush() {
+        synchronized (lock) {
+            if (logChannel == null) {
+                return;
+            }
+            try {
+                logChannel.force(false);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Stops the compactor after its current merge, flushes the memtable to a segment,
+     * and closes every file. Calling this method more than once has no further effect.
+     */
+    @Override
+    public void close() {
+        Thread stopping;
+        synchronized (lock) {
+            if (compactor == null) {
+                return;
+            }
+            isClosing = true;
+            stopping = compactor;
+            lock.notifyAll();
+        }
+        try {
+            stopping.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            try {
+                if (!memtable.isEmpty()) {
+                    flushMemtable();
+                }
+                logChannel.close();
+                for (SortedSegment segment : segments) {
+                    segment.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            logChannel = null;
+            segments = new ArrayList<>();
+            compactor = null;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Logs a change and applies it to the memtable, flushing the memtable if it is full.
+     * Returns false if the change could not be logged, in which case nothing was applied.
+     */
+    private boolean put(long key, byte[] value) {
+        assert Thread.holdsLock(lock) : "Changes must hold the lock";
+        assert logChannel != null : "Tasks must be loaded before they are changed";
+
+        long startTime = System.nanoTime();
+        try {
+            long bytes = appendToLog(key, value);
+            byte[] previous = memtable.put(key, value);
+            memtableBytes += value.length - (previous == null ? -ENTRY_OVERHEAD_BYTES : previous.length);
+            stats.recordAppend(1, bytes, System.nanoTime() - startTime);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        if (memtableBytes >= memtableLimitBytes) {
+            try {
+                flushMemtable();
+            } catch (IOException e) {
+                // The changes are still in the log, so the flush is retried with the next change
+                e.printStackTrace();
+            }
+        }
+        return true;
+    }
+
+    private long appendToLog(long key, byte[] value) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(LOG_HEADER_BYTES + value.length + Integer.BYTES);
+        record.putInt(value.length).putLong(key).put(value);
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        record.flip();
+        while (record.hasRemaining()) {
+            logChannel.write(record);
+        }
+        if (durability.isFsyncEnabled() && !isBatching) {
+            logChannel.force(false);
+        }
+        logBytes.addAndGet(record.limit());
+        return record.limit();
+    }
+
+    /**
+     * Reads the log into a new memtable. A record that is incomplete or fails its checksum
+     * was torn by a crash; it and anything after it are cut off the log.
+     */
+    private void replayLog() throws IOException {
+        memtable = new TreeMap<>();
+        memtableBytes = 0;
+        if (!Files.exists(logPath)) {
+            return;
+        }
+        ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(logPath));
+        int validEnd = 0;
+        while (log.remaining() >= LOG_HEADER_BYTES + Integer.BYTES) {
+            int start = log.position();
+            int length = log.getInt();
+            if (length < 0 || log.remaining() < Long.BYTES + length + Integer.BYTES) {
+                break;
+            }
+            long key = log.getLong();
+            byte[] value = new byte[length];
+            log.get(value);
+            CRC32C crc = new CRC32C();
+            crc.update(log.array(), start, LOG_HEADER_BYTES + length);
+            if (log.getInt() != (int) crc.getValue()) {
+                break;
+            }
+            memtable.put(key, length == 0 ? SortedSegment.tombstone() : value);
+            memtableBytes += length + ENTRY_OVERHEAD_BYTES;
+            validEnd = log.position();
+        }
+        if (validEnd < log.capacity()) {
+            try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.WRITE)) {
+                channel.truncate(validEnd);
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * Opens every segment in the directory, deleting incomplete segments and segments
+     * already covered by a merged one.
+     */
+    private void openSegments() throws IOException {
+        List<SortedSegment> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toArray(Path[]::new)) {
+                if (SortedSegment.isTemporaryFile(file)) {
+                    Files.delete(file);
+                } else if (SortedSegment.isSegmentFile(file)) {
+                    found.add(SortedSegment.open(file));
+                }
+            }
+        }
+        found.sort(Comparator.comparingLong(SortedSegment::getMinSequence)
+                .thenComparing(Comparator.comparingLong(SortedSegment::getMaxSequence).reversed()));
+
+        segments = new ArrayList<>();
+        for (SortedSegment segment : found) {
+            SortedSegment newest = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (newest != null && segment.isCoveredBy(newest)) {
+                segment.delete();
+            } else {
+                segments.add(segment);
+            }
+        }
+        nextSequence = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).getMaxSequence() + 1;
+    }
+
+    private long maxStoredKey() {
+        long max = memtable.isEmpty() ? -1 : memtable.lastKey();
+        for (SortedSegment segment : segments) {
+            if (segment.getRecordCount() > 0) {
+                max = Math.max(max, segment.getMaxKey());
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Writes the memtable as a new segment, truncates the log, and wakes the compactor.
+     */
+    private void flushMemtable() throws IOException {
+        long startTime = System.nanoTime();
+        long sequence = nextSequence;
+        SortedSegment segment = SortedSegment.write(directory, sequence, sequence, records(memtable),
+                durability.isFsyncEnabled());
+        nextSequence = sequence + 1;
+        segments.add(segment);
+        int recordCount = memtable.size();
+        memtable = new TreeMap<>();
+        memtableBytes = 0;
+        logChannel.truncate(0);
+        if (durability.isFsyncEnabled()) {
+            logChannel.force(false);
+        }
+        segmentBytes.addAndGet(segment.getSizeBytes());
+        stats.recordCheckpoint(recordCount, segment.getSizeBytes(), System.nanoTime() - startTime);
+        lock.notifyAll();
+    }
+
+    private void runCompactor() {
+        while (true) {
+            List<SortedSegment> run;
+            boolean isOldestIncluded;
+            synchronized (lock) {
+                run = isClosing ? null : pickRun();
+                while (!isClosing && run == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        stopCompactor();
+                        return;
+                    }
+                    run = isClosing ? null : pickRun();
+                }
+                if (isClosing) {
+                    stopCompactor();
+                    return;
+                }
+                isCompacting = true;
+                isOldestIncluded = run.get(0) == segments.get(0);
+            }
+            try {
+                compact(run, isOldestIncluded);
+            } catch (IOException | UncheckedIOException e) {
+                // Segments keep accumulating until the next load, but nothing is lost
+                e.printStackTrace();
+                synchronized (lock) {
+                    isCompacting = false;
+                    stopCompactor();
+                }
+                return;
+            }
+        }
+    }
+
+    private void stopCompactor() {
+        isCompactorRunning = false;
+        lock.notifyAll();
+    }
+
+    /**
+     * Merges a run of consecutive segments outside the lock, then swaps the merged segment in.
+     * Only the compactor removes segments and new ones are only ever added after the run,
+     * so the run is still in place when the swap happens.
+     */
+    private void compact(List<SortedSegment> run, boolean isOldestIncluded) throws IOException {
+        long startTime = System.nanoTime();
+        SortedSegment first = run.get(0);
+        SortedSegment last = run.get(run.size() - 1);
+        SortedSegment merged = SortedSegment.write(directory, first.getMinSequence(), last.getMaxSequence(),
+                merge(run, new TreeMap<>(), isOldestIncluded), durability.isFsyncEnabled());
+
+        synchronized (lock) {
+            int start = segments.indexOf(first);
+            segments.subList(start, start + run.size()).clear();
+            segments.add(start, merged);
+            for (SortedSegment segment : run) {
+                segment.delete();
+            }
+            compactionCount++;
+            isCompacting = false;
+            segmentBytes.addAndGet(merged.getSizeBytes());
+            stats.recordFullRewrite(merged.getRecordCount(), merged.getSizeBytes(), System.nanoTime() - startTime);
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Returns the oldest run of at least {@value #TIER_MIN_SEGMENTS} consecutive segments
+     * in the same size tier, or null if no tier needs merging.
+     */
+    private List<SortedSegment> pickRun() {
+        int runStart = 0;
+        for (int i = 1; i <= segments.size(); i++) {
+            if (i < segments.size() && tierOf(segments.get(i)) == tierOf(segments.get(runStart))) {
+                continue;
+            }
+            if (i - runStart >= TIER_MIN_SEGMENTS) {
+                return new ArrayList<>(segments.subList(runStart, i));
+            }
+            runStart = i;
+        }
+        return null;
+    }
+
+    private int tierOf(SortedSegment segment) {
+        long units = segment.getSizeBytes() / memtableLimitBytes;
+        int tier = 0;
+        while (units >= TIER_RATIO) {
+            units /= TIER_RATIO;
+            tier++;
+        }
+        return tier;
+    }
+
+    private static byte[] encode(Task task) {
+        return task.changeToFileFormat().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Iterator<SortedSegment.Record> records(TreeMap<Long, byte[]> table) {
+        Iterator<Map.Entry<Long, byte[]>> entries = table.entrySet().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public SortedSegment.Record next() {
+                Map.Entry<Long, byte[]> entry = entries.next();
+                return new SortedSegment.Record(entry.getKey(), entry.getValue());
+            }
+        };
+    }
+
+    /**
+     * Returns the newest record of every key in the segments and the memtable, in key order.
+     */
+    private static Iterator<SortedSegment.Record> merge(List<SortedSegment> sources, TreeMap<Long, byte[]> table,
+            boolean isDroppingTombstones) throws IOException {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator.comparingLong((Cursor cursor) -> cursor.key)
+                .thenComparing(Comparator.comparingInt((Cursor cursor) -> cursor.age)));
+        int age = 0;
+        Cursor memtableCursor = new Cursor(records(table), age++);
+        if (memtableCursor.advance()) {
+            cursors.add(memtableCursor);
+        }
+        for (int i = sources.size() - 1; i >= 0; i--) {
+            Cursor cursor = new Cursor(sources.get(i).iterator(), age++);
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+
+        return new Iterator<>() {
+            private SortedSegment.Record next = findNext();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public SortedSegment.Record next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                SortedSegment.Record result = next;
+                next = findNext();
+                return result;
+            }
+
+            private SortedSegment.Record findNext() {
+                while (!cursors.isEmpty()) {
+                    Cursor newest = cursors.poll();
+                    SortedSegment.Record record = newest.current;
+                    if (newest.advance()) {
+                        cursors.add(newest);
+                    }
+                    // Older records of the same key are superseded
+                    while (!cursors.isEmpty() && cursors.peek().key == record.getKey()) {
+                        Cursor older = cursors.poll();
+                        if (older.advance()) {
+                            cursors.add(older);
+                        }
+                    }
+                    if (!isDroppingTombstones || !SortedSegment.isTombstone(record.getValue())) {
+                        return record;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Position in one sorted source of a merge. A smaller age means a newer source.
+     */
+    private static class Cursor {
+        private final Iterator<SortedSegment.Record> records;
+        private final int age;
+        private SortedSegment.Record current;
+        private long key;
+
+        Cursor(Iterator<SortedSegment.Record> records, int age) {
+            this.records = records;
+            this.age = age;
+        }
+
+        boolean advance() {
+            if (!records.hasNext()) {
+                return false;
+            }
+            current = records.next();
+            key = current.getKey();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package mayobot.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import mayobot.task.Task;
+
+/**
+ * Loads a task snapshot file by memory-mapping it and parsing it in parallel.
+ * The file is split into chunks that always end on a newline, each chunk is
+ * mapped with {@link FileChannel#map} and parsed on a {@link ForkJoinPool},
+ * and the per-chunk results are concatenated in file order so the resulting
+ * task order is identical to a sequential read.
+ * <p>
+ * Malformed lines and lines whose {@link RecordChecksum} does not match are
+ * skipped and counted in the same way as by the sequential {@link TextSnapshotScan}.
+ */
+public class MappedTaskLoader {
+    /** Smallest chunk worth handing to a separate worker. */
+    public static final long DEFAULT_MIN_CHUNK_BYTES = 1024 * 1024;
+
+    private static final int CHUNKS_PER_WORKER = 4;
+    private static final int BOUNDARY_SCAN_BYTES = 8 * 1024;
+
+    private final ForkJoinPool pool;
+    private final long minChunkBytes;
+
+    private LoadReport lastReport;
+
+    /**
+     * Creates a new MappedTaskLoader that parses on the common ForkJoinPool.
+     */
+    public MappedTaskLoader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_MIN_CHUNK_BYTES);
+    }
+
+    /**
+     * Creates a new MappedTaskLoader with the specified pool and minimum chunk size.
+     *
+     * @param pool the pool to run the chunk parsers on
+     * @param minChunkBytes the smallest number of bytes to put in one chunk
+     */
+    public MappedTaskLoader(ForkJoinPool pool, long minChunkBytes) {
+        assert pool != null : "ForkJoinPool cannot be null";
+        assert minChunkBytes > 0 : "Minimum chunk size must be positive";
+
+        this.pool = pool;
+        this.minChunkBytes = minChunkBytes;
+    }
+
+    /**
+     * Returns the timing breakdown of the most recent call to {@link #load(Path)}.
+     *
+     * @return the last load report, or null if nothing has been loaded yet
+     */
+    public LoadReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Returns all tasks in the given file, in file order.
+     *
+     * @param path the snapshot file to load
+     * @return the parsed tasks
+     * @throws IOException if the file cannot be mapped or read
+     */
+    public List<Task> load(Path path) throws IOException {
+        long startTime = System.nanoTime();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<ChunkParser> parsers = new ArrayList<>();
+            long[] boundaries = findChunkBoundaries(channel, size);
+            for (int i = 0; i + 1 < boundaries.length; i++) {
+                long length = boundaries[i + 1] - boundaries[i];
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, boundaries[i], length);
+                parsers.add(new ChunkParser(buffer));
+            }
+            long splitTime = System.nanoTime();
+
+            pool.invoke(new ParseAll(parsers));
+            long parseTime = System.nanoTime();
+
+            int total = 0;
+            int quarantined = 0;
+            for (ChunkParser parser : parsers) {
+                total += parser.getRawResult().size();
+                quarantined += parser.quarantinedCount;
+            }
+            List<Task> tasks = new ArrayList<>(total);
+            for (ChunkParser parser : parsers) {
+                tasks.addAll(parser.getRawResult());
+            }
+            long mergeTime = System.nanoTime();
+
+            lastReport = new LoadReport(size, parsers.size(), tasks.size(),
+                    splitTime - startTime, parseTime - splitTime, mergeTime - parseTime, quarantined);
+            return tasks;
+        }
+    }
+
+    private long[] findChunkBoundaries(FileChannel channel, long size) throws IOException {
+        if (size == 0) {
+            return new long[]{0};
+        }
+
+        int workers = pool.getParallelism() * CHUNKS_PER_WORKER;
+        long chunkCount = Math.max(1, Math.min(workers, size / minChunkBytes));
+        long targetLength = size / chunkCount;
+
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        long previous = 0;
+        for (int i = 1; i < chunkCount; i++) {
+            long boundary = nextLineStart(channel, Math.max(previous, i * targetLength), size);
+            if (boundary > previous && boundary < size) {
+                boundaries.add(boundary);
+                previous = boundary;
+            }
+        }
+        boundaries.add(size);
+
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(BOUNDARY_SCAN_BYTES);
+        long position = from;
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Forks one parser per chunk and waits for all of them.
+     */
+    private static class ParseAll extends RecursiveTask<Void> {
+        private final List<ChunkParser> parsers;
+
+        ParseAll(List<ChunkParser> parsers) {
+            this.parsers = parsers;
+        }
+
+        @Override
+        protected Void compute() {
+            ForkJoinTask.invokeAll(parsers);
+            return null;
+        }
+    }
+
+    /**
+     * Decodes and parses the lines of one newline-aligned chunk.
+     */
+    private static class ChunkParser extends RecursiveTask<List<Task>> {
+        private final MappedByteBuffer buffer;
+        private int quarantinedCount;
+
+        ChunkParser(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        protected List<Task> compute() {
+            String content = StandardCharsets.UTF_8.decode(buffer).toString();
+            List<Task> tasks = new ArrayList<>();
+            int lineStart = 0;
+            while (lineStart < content.length()) {
+                int lineEnd = content.indexOf('\n', lineStart);
+                if (lineEnd < 0) {
+                    lineEnd = content.length();
+                }
+                String line = content.substring(lineStart, lineEnd);
+                if (line.endsWith("\r")) {
+                    line = line.substring(0, line.length() - 1);
+                }
+                if (!line.isBlank()) {
+                    Task task = RecordChecksum.decode(line);
+                    if (task != null) {
+                        tasks.add(task);
+                    } else {
+                        quarantinedCount++;
+                    }
+                }
+                lineStart = lineEnd + 1;
+            }
+            return tasks;
+        }
+    }
+}
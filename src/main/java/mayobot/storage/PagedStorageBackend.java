@@ -0,0 +1,664 @@
+package mayobot.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+import mayobot.Parser;
+import mayobot.task.Task;
+import mayobot.task.TaskList;
+import mayobot.util.LongArrayList;
+import mayobot.util.RopeList;
+
+/**
+ * Embedded storage backend that keeps all tasks in a single file of fixed-size pages.
+ * Page 0 is the file header. Every other page is a slotted data page:
+ * <pre>
+ * slot count | start of record area | slots of (offset, length) ... | free space | records
+ * </pre>
+ * Records grow down from the end of the page and hold a long order key followed
+ * by the task in the text file format. The list order is the order of the keys,
+ * and a new task always gets a larger key than every existing one, so neither an
+ * update nor a delete ever has to move another record.
+ * <p>
+ * Once loaded, an in-memory index maps every list position to the page and slot
+ * of its record. Marking or deleting a task therefore reads and writes a single
+ * page however many tasks there are, and appending usually writes only the page
+ * the task is placed in.
+ * <p>
+ * Every change is a transaction. The new images of the changed pages are first
+ * written to a write-ahead log next to the file, followed by a commit record with
+ * their CRC32C, and only then written in place. A log with a complete commit
+ * record is replayed when the file is opened, so a crash leaves either all or none
+ * of the pages of a change. Changes are written on the calling thread, so of the
+ * {@link Durability} levels only the choice of fsync applies. Since no change
+ * rewrites the whole file, every transaction counts as an append in its {@link StorageStats}.
+ */
+public class PagedStorageBackend implements StorageBackend {
+    /** Size of every page in the file, in bytes. */
+    public static final int PAGE_SIZE = 8192;
+
+    private static final int MAGIC = 0x4D504442; // "MPDB"
+    private static final int VERSION = 1;
+    private static final String LOG_SUFFIX = ".wal";
+    private static final int PAGE_HEADER_BYTES = 2 * Short.BYTES;
+    private static final int SLOT_BYTES = 2 * Short.BYTES;
+    private static final int COMMIT_MARKER = -1;
+    /** Largest record, key included, that fits in an empty page. */
+    private static final int MAX_RECORD_BYTES = PAGE_SIZE - PAGE_HEADER_BYTES - SLOT_BYTES;
+    /** Free space from which a page is reused for new tasks rather than only the last page. */
+    private static final int REUSE_THRESHOLD_BYTES = PAGE_SIZE / 4;
+
+    private final Path path;
+    private final Path logPath;
+    private final Durability durability;
+    private final Object lock = new Object();
+    private final Map<Integer, ByteBuffer> dirtyPages = new TreeMap<>();
+    private final StorageStats stats = new StorageStats();
+
+    private FileChannel channel;
+    private FileChannel logChannel;
+    private int pageCount;
+    private long nextKey;
+    /** Row id of the task at each list position, see {@link #rowId(int, int)}. */
+    private LongArrayList rows = new LongArrayList();
+    private BitSet roomyPages = new BitSet();
+    private int lastCommitPageCount;
+
+    /**
+     * Creates a new PagedStorageBackend for the specified file, without fsync.
+     * The file is created or opened when the tasks are loaded.
+     *
+     * @param filePath the path of the page file
+     */
+    public PagedStorageBackend(String filePath) {
+        this(filePath, Durability.FLUSH);
+    }
+
+    /**
+     * Creates a new PagedStorageBackend for the specified file and durability level.
+     *
+     * @param filePath the path of the page file
+     * @param durability decides whether the log and the pages are fsynced on every commit
+     */
+    public PagedStorageBackend(String filePath, Durability durability) {
+        assert filePath != null : "File path cannot be null";
+        assert durability != null : "Durability cannot be null";
+
+        this.path = Paths.get(filePath);
+        this.logPath = Paths.get(filePath + LOG_SUFFIX);
+        this.durability = durability;
+    }
+
+    @Override
+    public StorageStats getStats() {
+        return stats;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Returns how many pages the most recent transaction wrote, including the header page.
+     *
+     * @return the number of pages written by the last commit
+     */
+    public int getLastCommitPageCount() {
+        return lastCommitPageCount;
+    }
+
+    /**
+     * Opens the page file, replays a committed log left behind by a crash, and
+     * returns a TaskList holding every stored task in list order.
+     * The file and its directory are created if they do not exist yet.
+     *
+     * @return the loaded TaskList
+     * @throws IOException if the file cannot be opened or is not a page file
+     */
+    @Override
+    public TaskList load() throws IOException {
+        List<Task> tasks;
+        synchronized (lock) {
+            closeChannels();
+            Path directory = path.toAbsolutePath().getParent();
+            stats.recordDirectoryCheck();
+            Files.createDirectories(directory);
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            replayLog();
+            logChannel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+
+            if (channel.size() == 0) {
+                pageCount = 1;
+                dirtyPages.put(0, headerPage());
+                commit();
+            } else {
+                readHeader();
+            }
+            long startTime = System.nanoTime();
+            tasks = scan();
+            stats.recordLoad(System.nanoTime() - startTime);
+        }
+        return storeMissingIds(new TaskList(this, tasks));
+    }
+
+    @Override
+    public void append(Task task) {
+        assert task != null : "Cannot save null task";
+
+        transact(1, () -> {
+            long key = nextKey;
+            long rowId = insert(encode(key, task));
+            return () -> {
+                nextKey = key + 1;
+                rows.add(rowId);
+            };
+        });
+    }
+
+    @Override
+    public void update(int index, Task task) {
+        assert index >= 1 : "Index should be 1-based positive: " + index;
+        assert task != null : "Cannot save null task";
+
+        transact(1, () -> replaceRow(index, task));
+    }
+
+    @Override
+    public void delete(int index) {
+        assert index >= 1 : "Index should be 1-based positive: " + index;
+
+        transact(1, () -> removeRow(index));
+    }
+
+    /**
+     * Stores all the changed tasks in a single transaction, so the pages they share are written once.
+     */
+    @Override
+    public void updateAll(int[] indexes, List<Task> tasks) {
+        assert indexes.length == tasks.size() : "Every index needs a task";
+
+        transact(indexes.length, () -> {
+            List<Runnable> onCommits = new ArrayList<>(indexes.length);
+            for (int i = 0; i < indexes.length; i++) {
+                onCommits.add(replaceRow(indexes[i], tasks.get(i)));
+            }
+            return () -> onCommits.forEach(Runnable::run);
+        });
+    }
+
+    /**
+     * Stores all the removals in a single transaction, so the pages they share are written once.
+     * Row ids are only dropped after the commit, which is safe because the removals go from
+     * the largest index down and so never look up a row that an earlier one will drop.
+     */
+    @Override
+    public void deleteAll(int[] descendingIndexes) {
+        transact(descendingIndexes.length, () -> {
+            List<Runnable> onCommits = new ArrayList<>(descendingIndexes.length);
+            for (int index : descendingIndexes) {
+                onCommits.add(removeRow(index));
+            }
+            return () -> onCommits.forEach(Runnable::run);
+        });
+    }
+
+    private Runnable replaceRow(int index, Task task) throws IOException {
+        long rowId = rows.get(index - 1);
+        ByteBuffer page = writablePage(pageOf(rowId));
+        int slot = slotOf(rowId);
+        byte[] record = encode(page.getLong(slotOffset(page, slot)), task);
+        if (replaceInPage(page, slot, record)) {
+            return () -> {};
+        }
+        removeFromPage(page, slot);
+        long movedRowId = insert(record);
+        return () -> rows.set(index - 1, movedRowId);
+    }
+
+    private Runnable removeRow(int index) throws IOException {
+        long rowId = rows.get(index - 1);
+        removeFromPage(writablePage(pageOf(rowId)), slotOf(rowId));
+        return () -> rows.removeAt(index - 1);
+    }
+
+    /**
+     * Forces every committed page to the storage device.
+     * Commits are already written when they return, so this only matters without fsync.
+     */
+    @Override
+    public void flush() {
+        synchronized (lock) {
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Closes the page file and deletes the log, whose pages have all been written in place.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            try {
+                closeChannels();
+                Files.deleteIfExists(logPath);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Runs one change as a transaction. The change only modifies dirty pages and
+     * returns the update to the in-memory index, which is applied after the commit
+     * succeeds, so a failed commit leaves the index matching the file.
+     */
+    private void transact(int recordCount, PageChange change) {
+        synchronized (lock) {
+            assert channel != null : "Tasks must be loaded before they are changed";
+
+            int committedPageCount = pageCount;
+            try {
+                long startTime = System.nanoTime();
+                Runnable onCommit = change.apply();
+                long bytes = commit();
+                onCommit.run();
+                stats.recordAppend(recordCount, bytes, System.nanoTime() - startTime);
+            } catch (IOException e) {
+                dirtyPages.clear();
+                pageCount = committedPageCount;
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Writes the dirty pages through the log and returns the number of bytes written to both files.
+     */
+    private long commit() throws IOException {
+        if (dirtyPages.isEmpty()) {
+            return 0;
+        }
+        ByteBuffer log = ByteBuffer.allocate(dirtyPages.size() * (Integer.BYTES + PAGE_SIZE)
+                + 2 * Integer.BYTES + Long.BYTES);
+        for (Map.Entry<Integer, ByteBuffer> entry : dirtyPages.entrySet()) {
+            log.putInt(entry.getKey());
+            log.put(entry.getValue().array(), 0, PAGE_SIZE);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(log.array(), 0, log.position());
+        log.putInt(COMMIT_MARKER);
+        log.putInt(dirtyPages.size());
+        log.putLong(crc.getValue());
+        log.flip();
+
+        writeFully(logChannel, log, 0);
+        logChannel.truncate(log.limit());
+        if (durability.isFsyncEnabled()) {
+            logChannel.force(false);
+        }
+        for (Map.Entry<Integer, ByteBuffer> entry : dirtyPages.entrySet()) {
+            writeFully(channel, ByteBuffer.wrap(entry.getValue().array(), 0, PAGE_SIZE),
+                    (long) entry.getKey() * PAGE_SIZE);
+        }
+        if (durability.isFsyncEnabled()) {
+            channel.force(false);
+        }
+
+        for (Map.Entry<Integer, ByteBuffer> entry : dirtyPages.entrySet()) {
+            if (entry.getKey() > 0) {
+                roomyPages.set(entry.getKey(), freeSpace(entry.getValue()) >= REUSE_THRESHOLD_BYTES);
+            }
+        }
+        lastCommitPageCount = dirtyPages.size();
+        dirtyPages.clear();
+        return log.limit() + (long) lastCommitPageCount * PAGE_SIZE;
+    }
+
+    /**
+     * Writes the pages of the last transaction in place if the log holds its complete
+     * commit record. A log without one was torn before its commit and is ignored.
+     */
+    private void replayLog() throws IOException {
+        if (!Files.exists(logPath)) {
+            return;
+        }
+        ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(logPath));
+        Map<Integer, ByteBuffer> pages = new TreeMap<>();
+        while (log.remaining() >= Integer.BYTES) {
+            int pageNumber = log.getInt();
+            if (pageNumber == COMMIT_MARKER) {
+                int crcEnd = log.position() - Integer.BYTES;
+                if (log.remaining() < Integer.BYTES + Long.BYTES || log.getInt() != pages.size()) {
+                    return;
+                }
+                CRC32C crc = new CRC32C();
+                crc.update(log.array(), 0, crcEnd);
+                if (log.getLong() != crc.getValue()) {
+                    return;
+                }
+                for (Map.Entry<Integer, ByteBuffer> entry : pages.entrySet()) {
+                    writeFully(channel, entry.getValue(), (long) entry.getKey() * PAGE_SIZE);
+                }
+                channel.force(false);
+                return;
+            }
+            if (pageNumber < 0 || log.remaining() < PAGE_SIZE) {
+                return;
+            }
+            pages.put(pageNumber, ByteBuffer.wrap(log.array(), log.position(), PAGE_SIZE).slice());
+            log.position(log.position() + PAGE_SIZE);
+        }
+    }
+
+    private void readHeader() throws IOException {
+        ByteBuffer header = readPage(0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != PAGE_SIZE) {
+            throw new IOException("Not a paged task file: " + path);
+        }
+        pageCount = header.getInt(12);
+    }
+
+    private ByteBuffer headerPage() {
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, PAGE_SIZE);
+        header.putInt(12, pageCount);
+        return header;
+    }
+
+    /**
+     * Reads every data page, rebuilding the position index and the set of pages with
+     * room to spare, and returns the stored tasks ordered by their keys.
+     */
+    private List<Task> scan() throws IOException {
+        List<Row> found = new ArrayList<>();
+        roomyPages = new BitSet(pageCount);
+        nextKey = 0;
+        for (int pageNumber = 1; pageNumber < pageCount; pageNumber++) {
+            ByteBuffer page = readPage(pageNumber);
+            roomyPages.set(pageNumber, freeSpace(page) >= REUSE_THRESHOLD_BYTES);
+            for (int slot = 0; slot < slotCount(page); slot++) {
+                int length = slotLength(page, slot);
+                if (length == 0) {
+                    continue;
+                }
+                int offset = slotOffset(page, slot);
+                long key = page.getLong(offset);
+                String line = new String(page.array(), offset + Long.BYTES, length - Long.BYTES,
+                        StandardCharsets.UTF_8);
+                nextKey = Math.max(nextKey, key + 1);
+                Task task = Parser.parseTaskFromFile(line);
+                if (task != null) {
+                    found.add(new Row(key, rowId(pageNumber, slot), task));
+                }
+            }
+        }
+        found.sort(Comparator.comparingLong(row -> row.key));
+
+        rows = new LongArrayList(found.size());
+        List<Task> tasks = new RopeList<>();
+        for (Row row : found) {
+            rows.add(row.rowId);
+            tasks.add(row.task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Places a record in the last page, a page with room to spare, or a new page, and returns its row id.
+     */
+    private long insert(byte[] record) throws IOException {
+        if (record.length > MAX_RECORD_BYTES) {
+            throw new IOException("Task is too large for a page: " + record.length + " bytes");
+        }
+        int lastPage = pageCount - 1;
+        if (lastPage > 0) {
+            int slot = insertIntoPage(writablePage(lastPage), record);
+            if (slot >= 0) {
+                return rowId(lastPage, slot);
+            }
+        }
+        int roomyPage = roomyPages.nextSetBit(1);
+        if (roomyPage > 0 && roomyPage < lastPage) {
+            int slot = insertIntoPage(writablePage(roomyPage), record);
+            if (slot >= 0) {
+                return rowId(roomyPage, slot);
+            }
+        }
+
+        int newPage = pageCount++;
+        ByteBuffer page = emptyPage();
+        dirtyPages.put(newPage, page);
+        dirtyPages.put(0, headerPage());
+        return rowId(newPage, insertIntoPage(page, record));
+    }
+
+    private ByteBuffer writablePage(int pageNumber) throws IOException {
+        ByteBuffer page = dirtyPages.get(pageNumber);
+        if (page == null) {
+            page = readPage(pageNumber);
+            dirtyPages.put(pageNumber, page);
+        }
+        return page;
+    }
+
+    private ByteBuffer readPage(int pageNumber) throws IOException {
+        ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+        long position = (long) pageNumber * PAGE_SIZE;
+        while (page.hasRemaining()) {
+            int read = channel.read(page, position + page.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        if (pageNumber > 0 && slotCount(page) == 0 && recordStart(page) == 0) {
+            // Never written, for example past the end of a file extended by a torn commit
+            return emptyPage();
+        }
+        return page;
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            offset += target.write(buffer, offset);
+        }
+    }
+
+    private void closeChannels() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        if (logChannel != null) {
+            logChannel.close();
+            logChannel = null;
+        }
+    }
+
+    private static byte[] encode(long key, Task task) {
+        byte[] line = task.changeToFileFormat().getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Long.BYTES + line.length).putLong(key).put(line).array();
+    }
+
+    private static long rowId(int pageNumber, int slot) {
+        return (long) pageNumber << 16 | slot;
+    }
+
+    private static int pageOf(long rowId) {
+        return (int) (rowId >>> 16);
+    }
+
+    private static int slotOf(long rowId) {
+        return (int) (rowId & 0xFFFF);
+    }
+
+    private static ByteBuffer emptyPage() {
+        ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+        setRecordStart(page, PAGE_SIZE);
+        return page;
+    }
+
+    private static int slotCount(ByteBuffer page) {
+        return page.getShort(0);
+    }
+
+    private static int recordStart(ByteBuffer page) {
+        return page.getShort(2);
+    }
+
+    private static void setRecordStart(ByteBuffer page, int start) {
+        page.putShort(2, (short) start);
+    }
+
+    private static int slotOffset(ByteBuffer page, int slot) {
+        return page.getShort(PAGE_HEADER_BYTES + slot * SLOT_BYTES);
+    }
+
+    private static int slotLength(ByteBuffer page, int slot) {
+        return page.getShort(PAGE_HEADER_BYTES + slot * SLOT_BYTES + Short.BYTES);
+    }
+
+    private static void setSlot(ByteBuffer page, int slot, int offset, int length) {
+        page.putShort(PAGE_HEADER_BYTES + slot * SLOT_BYTES, (short) offset);
+        page.putShort(PAGE_HEADER_BYTES + slot * SLOT_BYTES + Short.BYTES, (short) length);
+    }
+
+    /**
+     * Returns the bytes a page could still hold once compacted, not counting a new slot.
+     */
+    private static int freeSpace(ByteBuffer page) {
+        int used = PAGE_HEADER_BYTES + slotCount(page) * SLOT_BYTES;
+        for (int slot = 0; slot < slotCount(page); slot++) {
+            used += slotLength(page, slot);
+        }
+        return PAGE_SIZE - used;
+    }
+
+    /**
+     * Stores a record in a free or new slot of the page and returns the slot, or -1 if it does not fit.
+     */
+    private static int insertIntoPage(ByteBuffer page, byte[] record) {
+        int count = slotCount(page);
+        int slot = 0;
+        while (slot < count && slotLength(page, slot) != 0) {
+            slot++;
+        }
+        int newSlotBytes = slot == count ? SLOT_BYTES : 0;
+        if (freeSpace(page) < record.length + newSlotBytes) {
+            return -1;
+        }
+        int slotsEnd = PAGE_HEADER_BYTES + count * SLOT_BYTES + newSlotBytes;
+        if (recordStart(page) - slotsEnd < record.length) {
+            compactPage(page);
+        }
+        if (slot == count) {
+            page.putShort(0, (short) (count + 1));
+        }
+        placeRecord(page, slot, record);
+        return slot;
+    }
+
+    /**
+     * Replaces the record in the given slot if the new one fits in the same page.
+     */
+    private static boolean replaceInPage(ByteBuffer page, int slot, byte[] record) {
+        int length = slotLength(page, slot);
+        if (record.length <= length) {
+            System.arraycopy(record, 0, page.array(), slotOffset(page, slot), record.length);
+            setSlot(page, slot, slotOffset(page, slot), record.length);
+            return true;
+        }
+        if (freeSpace(page) + length < record.length) {
+            return false;
+        }
+        setSlot(page, slot, 0, 0);
+        compactPage(page);
+        placeRecord(page, slot, record);
+        return true;
+    }
+
+    private static void removeFromPage(ByteBuffer page, int slot) {
+        setSlot(page, slot, 0, 0);
+        int count = slotCount(page);
+        while (count > 0 && slotLength(page, count - 1) == 0) {
+            count--;
+        }
+        page.putShort(0, (short) count);
+        if (count == 0) {
+            setRecordStart(page, PAGE_SIZE);
+        }
+    }
+
+    private static void placeRecord(ByteBuffer page, int slot, byte[] record) {
+        int start = recordStart(page) - record.length;
+        System.arraycopy(record, 0, page.array(), start, record.length);
+        setRecordStart(page, start);
+        setSlot(page, slot, start, record.length);
+    }
+
+    /**
+     * Moves all records to the end of the page so that its free space is contiguous.
+     * Slot numbers do not change, so row ids stay valid.
+     */
+    private static void compactPage(ByteBuffer page) {
+        byte[] original = page.array().clone();
+        int start = PAGE_SIZE;
+        for (int slot = 0; slot < slotCount(page); slot++) {
+            int length = slotLength(page, slot);
+            if (length == 0) {
+                continue;
+            }
+            start -= length;
+            System.arraycopy(original, slotOffset(page, slot), page.array(), start, length);
+            setSlot(page, slot, start, length);
+        }
+        setRecordStart(page, start);
+    }
+
+    /**
+     * One change to the dirty pages, returning the matching update to the in-memory index.
+     */
+    @FunctionalInterface
+    private interface PageChange {
+        Runnable apply() throws IOException;
+    }
+
+    /**
+     * A stored task found while scanning the data pages.
+     */
+    private static class Row {
+        private final long key;
+        private final long rowId;
+        private final Task task;
+
+        Row(long key, long rowId, Task task) {
+            this.key = key;
+            this.rowId = rowId;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package mayobot.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+import mayobot.Parser;
+import mayobot.task.Task;
+
+/**
+ * Optional CRC32C checksum of a single task line in a text snapshot.
+ * A sealed line is the task in the file format followed by one more field
+ * holding the checksum of everything before it as eight hex digits:
+ * <pre>
+ * T | 0 | read book | #1a2b3c4d
+ * </pre>
+ * The parser ignores fields past the ones a task type needs, so sealed lines
+ * can still be read by code that does not know about checksums. Lines without
+ * a checksum field are accepted as they are, so a file can mix both.
+ */
+public class RecordChecksum {
+    private static final String SEAL_PREFIX = " | #";
+    private static final int HEX_DIGITS = 8;
+    private static final int SEAL_LENGTH = SEAL_PREFIX.length() + HEX_DIGITS;
+
+    /**
+     * Returns the line with the checksum of its content appended.
+     *
+     * @param record a task in the file format, without a line break
+     * @return the sealed line
+     */
+    public static String seal(String record) {
+        assert record != null : "Record cannot be null";
+
+        return record + SEAL_PREFIX + String.format("%08x", checksum(record));
+    }
+
+    /**
+     * Returns whether the line ends with a checksum field.
+     *
+     * @param line a line of a text snapshot, without the line break
+     * @return true if the line is sealed
+     */
+    public static boolean isSealed(String line) {
+        int sealStart = line.length() - SEAL_LENGTH;
+        if (sealStart < 0 || !line.startsWith(SEAL_PREFIX, sealStart)) {
+            return false;
+        }
+        for (int i = line.length() - HEX_DIGITS; i < line.length(); i++) {
+            if (Character.digit(line.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the record held by a line, after verifying its checksum if it has one.
+     *
+     * @param line a line of a text snapshot, without the line break
+     * @return the line without its checksum field, the line itself if it is not sealed,
+     *         or null if the checksum does not match
+     */
+    public static String unseal(String line) {
+        if (!isSealed(line)) {
+            return line;
+        }
+        String record = line.substring(0, line.length() - SEAL_LENGTH);
+        long expected = Long.parseLong(line.substring(line.length() - HEX_DIGITS), 16);
+        return checksum(record) == expected ? record : null;
+    }
+
+    /**
+     * Returns the task held by a line, or null if the line is damaged or malformed.
+     *
+     * @param line a non-blank line of a text snapshot, without the line break
+     * @return the parsed task, or null if its checksum does not match or it cannot be parsed
+     */
+    public static Task decode(String line) {
+        String record = unseal(line);
+        return record == null || record.isBlank() ? null : Parser.parseTaskFromFile(record);
+    }
+
+    private static long checksum(String record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,296 @@
+package mayobot.storage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import mayobot.Parser;
+import mayobot.task.Task;
+
+/**
+ * Task snapshot split into one text shard file per task type, tied together by a small manifest.
+ * The snapshot file itself holds the manifest:
+ * <pre>
+ * MAYSHARD 1 generation
+ * SHARD | type | file name | task count | CRC32C of the shard
+ * ORDER | T3 D1 T2 E1 ...
+ * </pre>
+ * Each shard holds the tasks of one type as pipe-delimited lines, in list order.
+ * The ORDER line records, as runs of type letters, how the shards interleave, so
+ * the original list order is restored without storing any position per task.
+ * <p>
+ * Shards are loaded and parsed in parallel. When a snapshot is written, a shard
+ * whose content is unchanged keeps its existing file, so marking a deadline only
+ * rewrites the deadline shard and the manifest. Changed shards are written under
+ * a new generation name before the manifest that refers to them, so a crash
+ * leaves the previous manifest and its shards intact. Shards no longer named by
+ * the manifest are removed by {@link #deleteUnreferencedShards(Path)}.
+ */
+public class ShardedTaskFormat {
+    public static final int VERSION = 1;
+
+    private static final String MAGIC = "MAYSHARD";
+    private static final String SHARD = "SHARD";
+    private static final String ORDER = "ORDER";
+    private static final String SEPARATOR = " | ";
+    private static final String SHARD_INFIX = ".shard-";
+
+    private ShardedTaskFormat() {
+    }
+
+    /**
+     * Returns whether the given file is a shard manifest.
+     *
+     * @param path the file to inspect
+     * @return true if the file starts with the manifest header, false otherwise
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isSharded(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < MAGIC.length()) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            return Arrays.equals(in.readNBytes(MAGIC.length()), MAGIC.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Writes the tasks as shards next to the snapshot and their manifest to the given file.
+     * Shards whose content matches the manifest currently at {@code snapshot} are reused.
+     * The caller moves the manifest over the snapshot afterwards.
+     *
+     * @param tasks the tasks to write, in list order
+     * @param snapshot the snapshot path the manifest will be installed at
+     * @param manifest the file to write the manifest to
+     * @return the number of shard files that were written
+     * @throws IOException if a shard or the manifest cannot be written
+     */
+    public static int write(List<Task> tasks, Path snapshot, Path manifest) throws IOException {
+        Manifest previous = isSharded(snapshot) ? Manifest.read(snapshot) : null;
+        long generation = previous == null ? 0 : previous.generation + 1;
+
+        Map<String, StringBuilder> contents = new LinkedHashMap<>();
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        StringBuilder order = new StringBuilder();
+        String runType = null;
+        int runLength = 0;
+        for (Task task : tasks) {
+            String line = task.changeToFileFormat();
+            String type = line.substring(0, line.indexOf(' '));
+            contents.computeIfAbsent(type, key -> new StringBuilder()).append(line).append('\n');
+            counts.merge(type, 1, Integer::sum);
+            if (type.equals(runType)) {
+                runLength++;
+            } else {
+                appendRun(order, runType, runLength);
+                runType = type;
+                runLength = 1;
+            }
+        }
+        appendRun(order, runType, runLength);
+
+        int written = 0;
+        StringBuilder out = new StringBuilder();
+        out.append(MAGIC).append(' ').append(VERSION).append(' ').append(generation).append('\n');
+        for (Map.Entry<String, StringBuilder> entry : contents.entrySet()) {
+            String type = entry.getKey();
+            byte[] bytes = entry.getValue().toString().getBytes(StandardCharsets.UTF_8);
+            CRC32C crc = new CRC32C();
+            crc.update(bytes);
+
+            ShardEntry reusable = previous == null ? null : previous.shards.get(type);
+            String fileName;
+            if (reusable != null && reusable.checksum == crc.getValue() && reusable.count == counts.get(type)
+                    && Files.exists(snapshot.resolveSibling(reusable.fileName))) {
+                fileName = reusable.fileName;
+            } else {
+                fileName = snapshot.getFileName() + SHARD_INFIX + type + "." + generation;
+                Files.write(snapshot.resolveSibling(fileName), bytes);
+                written++;
+            }
+            out.append(SHARD).append(SEPARATOR).append(type).append(SEPARATOR).append(fileName)
+                    .append(SEPARATOR).append(counts.get(type)).append(SEPARATOR).append(crc.getValue()).append('\n');
+        }
+        out.append(ORDER).append(SEPARATOR).append(order).append('\n');
+        Files.writeString(manifest, out, StandardCharsets.UTF_8);
+        return written;
+    }
+
+    /**
+     * Returns the paths of the shard files named by the given manifest.
+     * Used to force them to disk before the manifest is installed.
+     *
+     * @param manifest the manifest to read
+     * @return the shard files it refers to
+     * @throws IOException if the manifest cannot be read
+     */
+    public static List<Path> getShardPaths(Path manifest) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        for (ShardEntry shard : Manifest.read(manifest).shards.values()) {
+            paths.add(manifest.resolveSibling(shard.fileName));
+        }
+        return paths;
+    }
+
+    /**
+     * Returns all tasks of the sharded snapshot, in list order.
+     * Every shard is read and parsed on its own thread of the common pool.
+     *
+     * @param snapshot the manifest file
+     * @return the tasks of all shards, interleaved as recorded in the manifest
+     * @throws IOException if the manifest or a shard cannot be read, or they do not match
+     */
+    public static List<Task> read(Path snapshot) throws IOException {
+        Manifest manifest = Manifest.read(snapshot);
+        Map<String, CompletableFuture<List<Task>>> loads = new LinkedHashMap<>();
+        for (ShardEntry shard : manifest.shards.values()) {
+            Path path = snapshot.resolveSibling(shard.fileName);
+            loads.put(shard.type, CompletableFuture.supplyAsync(() -> readShard(path)));
+        }
+
+        Map<String, List<Task>> shards = new LinkedHashMap<>();
+        int total = 0;
+        for (Map.Entry<String, CompletableFuture<List<Task>>> load : loads.entrySet()) {
+            try {
+                shards.put(load.getKey(), load.getValue().join());
+            } catch (RuntimeException e) {
+                throw new IOException("Cannot read shard " + load.getKey(), e.getCause());
+            }
+            total += shards.get(load.getKey()).size();
+        }
+
+        List<Task> tasks = new ArrayList<>(total);
+        Map<String, Integer> positions = new LinkedHashMap<>();
+        Matcher run = Pattern.compile("(\\S+?)(\\d+)").matcher(manifest.order);
+        while (run.find()) {
+            String type = run.group(1);
+            List<Task> shard = shards.get(type);
+            int start = positions.getOrDefault(type, 0);
+            int end = start + Integer.parseInt(run.group(2));
+            if (shard == null || end > shard.size()) {
+                throw new IOException("Shard " + type + " does not match the manifest order");
+            }
+            tasks.addAll(shard.subList(start, end));
+            positions.put(type, end);
+        }
+        return tasks;
+    }
+
+    /**
+     * Deletes shard files next to the snapshot that its current manifest does not name.
+     * If the snapshot is no longer sharded, every shard file is deleted.
+     *
+     * @param snapshot the snapshot file
+     * @throws IOException if a shard cannot be deleted
+     */
+    public static void deleteUnreferencedShards(Path snapshot) throws IOException {
+        List<String> referenced = new ArrayList<>();
+        if (isSharded(snapshot)) {
+            for (ShardEntry shard : Manifest.read(snapshot).shards.values()) {
+                referenced.add(shard.fileName);
+            }
+        }
+        Path directory = snapshot.toAbsolutePath().getParent();
+        String prefix = snapshot.getFileName() + SHARD_INFIX;
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : paths.toArray(Path[]::new)) {
+                String name = path.getFileName().toString();
+                if (name.startsWith(prefix) && !referenced.contains(name)) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private static void appendRun(StringBuilder order, String type, int length) {
+        if (type == null) {
+            return;
+        }
+        if (order.length() > 0) {
+            order.append(' ');
+        }
+        order.append(type).append(length);
+    }
+
+    private static List<Task> readShard(Path path) {
+        List<Task> tasks = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    Task task = Parser.parseTaskFromFile(line);
+                    if (task != null) {
+                        tasks.add(task);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tasks;
+    }
+
+    /**
+     * Parsed content of a manifest file.
+     */
+    private static class Manifest {
+        private long generation;
+        private final Map<String, ShardEntry> shards = new LinkedHashMap<>();
+        private String order = "";
+
+        static Manifest read(Path path) throws IOException {
+            Manifest manifest = new Manifest();
+            List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            String[] header = lines.isEmpty() ? new String[0] : lines.get(0).split(" ");
+            if (header.length < 3 || !MAGIC.equals(header[0]) || !String.valueOf(VERSION).equals(header[1])) {
+                throw new IOException("Unsupported shard manifest: " + path);
+            }
+            try {
+                manifest.generation = Long.parseLong(header[2]);
+                for (String line : lines.subList(1, lines.size())) {
+                    String[] parts = line.split(" \\| ");
+                    if (parts.length == 5 && SHARD.equals(parts[0])) {
+                        manifest.shards.put(parts[1], new ShardEntry(parts[1], parts[2],
+                                Integer.parseInt(parts[3]), Long.parseLong(parts[4])));
+                    } else if (parts.length == 2 && ORDER.equals(parts[0])) {
+                        manifest.order = parts[1];
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt shard manifest: " + path, e);
+            }
+            return manifest;
+        }
+    }
+
+    /**
+     * One SHARD line of a manifest.
+     */
+    private static class ShardEntry {
+        private final String type;
+        private final String fileName;
+        private final int count;
+        private final long checksum;
+
+        ShardEntry(String type, String fileName, int count, long checksum) {
+            this.type = type;
+            this.fileName = fileName;
+            this.count = count;
+            this.checksum = checksum;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package mayobot.storage;
+
+import java.util.List;
+
+import mayobot.task.Task;
+
+/**
+ * Changes between two versions of a text snapshot, as found by a {@link SnapshotWatcher}.
+ * Each {@link Edit} replaces a range of task lines of the previous version with
+ * the tasks that took their place. Positions count task lines only, so they match
+ * the positions of the tasks loaded from that version. Edits do not overlap and
+ * are ordered by position, so applying them from last to first keeps the positions
+ * of the remaining edits valid.
+ */
+public class SnapshotDiff {
+    private final long previousChecksum;
+    private final long checksum;
+    private final int taskCount;
+    private final List<Edit> edits;
+
+    /**
+     * Creates a new SnapshotDiff.
+     *
+     * @param previousChecksum the CRC32C of the previous version of the file
+     * @param checksum the CRC32C of the new version of the file
+     * @param taskCount the number of task lines in the new version
+     * @param edits the edits turning the previous task lines into the new ones, ordered by position
+     */
+    public SnapshotDiff(long previousChecksum, long checksum, int taskCount, List<Edit> edits) {
+        assert edits != null : "Edits cannot be null";
+
+        this.previousChecksum = previousChecksum;
+        this.checksum = checksum;
+        this.taskCount = taskCount;
+        this.edits = edits;
+    }
+
+    public long getPreviousChecksum() {
+        return previousChecksum;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    public int getTaskCount() {
+        return taskCount;
+    }
+
+    public List<Edit> getEdits() {
+        return edits;
+    }
+
+    /**
+     * Replacement of a range of task lines by new tasks.
+     */
+    public static class Edit {
+        private final int start;
+        private final int removedCount;
+        private final List<Task> addedTasks;
+
+        /**
+         * Creates a new Edit.
+         *
+         * @param start the zero-based position of the first replaced task in the previous version
+         * @param removedCount the number of tasks of the previous version that are replaced
+         * @param addedTasks the tasks that take their place, in list order
+         */
+        public Edit(int start, int removedCount, List<Task> addedTasks) {
+            assert start >= 0 : "Start cannot be negative: " + start;
+            assert removedCount >= 0 : "Removed count cannot be negative: " + removedCount;
+
+            this.start = start;
+            this.removedCount = removedCount;
+            this.addedTasks = addedTasks;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getRemovedCount() {
+            return removedCount;
+        }
+
+        public List<Task> getAddedTasks() {
+            return addedTasks;
+        }
+    }
+}
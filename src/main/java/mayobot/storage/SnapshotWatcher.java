@@ -0,0 +1,357 @@
+package mayobot.storage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import mayobot.task.Task;
+import mayobot.util.LongArrayList;
+import mayobot.util.LongObjectMap;
+
+/**
+ * Watches a text snapshot for modifications made by other programs and reports what changed.
+ * A daemon thread waits on a {@link WatchService} for the directory of the snapshot.
+ * When the snapshot is modified or replaced, its new content is split into task
+ * lines, each identified by its byte range and a 64-bit hash, and compared with
+ * the lines seen last time. Only lines whose hash is new are parsed, so picking
+ * up an edit costs one read and hash of the file plus parsing the changed tasks.
+ * A new line that {@link RecordChecksum#decode(String)} rejects is left out, as the
+ * loaders leave it out, so line numbers stay equal to positions in the list.
+ * <p>
+ * The trailing id field of a line is not part of its hash, so a program unaware of
+ * ids can rewrite the file without its tasks being replaced. An edit that only
+ * adds, removes or changes such an id is therefore not reported: the list keeps
+ * the ids it has and writes them back at the next checkpoint.
+ * <p>
+ * Unchanged lines at the start and end are skipped first. The remaining region is
+ * compared line by line for the longest common subsequence of hashes, so separate
+ * edits are reported separately, unless the region is too large for that, in which
+ * case it is reported as one replacement.
+ * <p>
+ * Writes made by the application itself are passed to {@link #acknowledge()} so
+ * that they are not mistaken for external edits. Binary, compressed and sharded
+ * snapshots are not watched.
+ */
+public class SnapshotWatcher implements AutoCloseable {
+    /** Time to wait after a modification for further writes, so a burst is read once. */
+    public static final long SETTLE_MILLIS = 100;
+
+    /** Largest changed region, as old lines times new lines, that is compared line by line. */
+    private static final long MAX_COMPARED_CELLS = 1024 * 1024;
+    private static final byte[] ID_FIELD_START = (" | " + Task.ID_FIELD_PREFIX).getBytes(StandardCharsets.UTF_8);
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Path snapshot;
+    private final Consumer<SnapshotDiff> listener;
+
+    private WatchService watchService;
+    private LineTable lines;
+
+    /**
+     * Creates a new SnapshotWatcher. Nothing is watched until {@link #start()} is called.
+     *
+     * @param snapshot the snapshot file to watch
+     * @param listener receives the changes of every external edit, on the watcher thread
+     */
+    public SnapshotWatcher(Path snapshot, Consumer<SnapshotDiff> listener) {
+        assert snapshot != null : "Snapshot path cannot be null";
+        assert listener != null : "Listener cannot be null";
+
+        this.snapshot = snapshot.toAbsolutePath();
+        this.listener = listener;
+    }
+
+    /**
+     * Records the current content of the snapshot and starts watching it on a daemon thread.
+     *
+     * @throws IOException if the snapshot cannot be read or its directory cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        assert watchService == null : "Watcher is already started";
+
+        acknowledge();
+        watchService = FileSystems.getDefault().newWatchService();
+        snapshot.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(() -> watch(watchService), "mayobot-snapshot-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Records the current content of the snapshot as known, without reporting it.
+     * Called after the application has written the snapshot itself.
+     *
+     * @throws IOException if the snapshot cannot be read
+     */
+    public synchronized void acknowledge() throws IOException {
+        lines = LineTable.read(snapshot, lines);
+    }
+
+    /**
+     * Compares the snapshot with the content seen last time and records it as known.
+     *
+     * @return the changes, or null if the content is unchanged, or the snapshot is missing or not text
+     * @throws IOException if the snapshot cannot be read
+     */
+    public synchronized SnapshotDiff poll() throws IOException {
+        LineTable latest = LineTable.read(snapshot, lines);
+        if (latest == null) {
+            // Deleted or converted; keep the last known content until a text snapshot is back
+            return null;
+        }
+        LineTable previous = lines;
+        lines = latest;
+        if (previous == null || previous.checksum == latest.checksum) {
+            return null;
+        }
+        return new SnapshotDiff(previous.checksum, latest.checksum, latest.size(), diff(previous, latest));
+    }
+
+    /**
+     * Stops watching. The listener is not called again afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        watchService = null;
+    }
+
+    private void watch(WatchService service) {
+        while (true) {
+            try {
+                if (!isSnapshotEvent(service.take())) {
+                    continue;
+                }
+                Thread.sleep(SETTLE_MILLIS);
+                for (WatchKey key = service.poll(); key != null; key = service.poll()) {
+                    // Later events of the same burst are covered by the read below
+                    key.pollEvents();
+                    key.reset();
+                }
+                SnapshotDiff diff = poll();
+                if (diff != null) {
+                    listener.accept(diff);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private boolean isSnapshotEvent(WatchKey key) {
+        boolean isSnapshotEvent = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            isSnapshotEvent |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || snapshot.getFileName().equals(event.context());
+        }
+        key.reset();
+        return isSnapshotEvent;
+    }
+
+    private static List<SnapshotDiff.Edit> diff(LineTable previous, LineTable latest) {
+        int shared = Math.min(previous.size(), latest.size());
+        int prefix = 0;
+        while (prefix < shared && previous.hashes[prefix] == latest.hashes[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < shared - prefix
+                && previous.hashes[previous.size() - 1 - suffix] == latest.hashes[latest.size() - 1 - suffix]) {
+            suffix++;
+        }
+        int previousEnd = previous.size() - suffix;
+        int latestEnd = latest.size() - suffix;
+
+        List<SnapshotDiff.Edit> edits = new ArrayList<>();
+        if (prefix == previousEnd && prefix == latestEnd) {
+            return edits;
+        }
+        if ((long) (previousEnd - prefix) * (latestEnd - prefix) > MAX_COMPARED_CELLS) {
+            edits.add(new SnapshotDiff.Edit(prefix, previousEnd - prefix, latest.parse(prefix, latestEnd)));
+            return edits;
+        }
+
+        int[][] common = longestCommonSuffixes(previous, prefix, previousEnd, latest, prefix, latestEnd);
+        int i = prefix;
+        int j = prefix;
+        int editStart = -1;
+        int addedStart = -1;
+        while (i < previousEnd || j < latestEnd) {
+            if (i < previousEnd && j < latestEnd && previous.hashes[i] == latest.hashes[j]) {
+                if (editStart >= 0) {
+                    edits.add(new SnapshotDiff.Edit(editStart, i - editStart, latest.parse(addedStart, j)));
+                    editStart = -1;
+                }
+                i++;
+                j++;
+                continue;
+            }
+            if (editStart < 0) {
+                editStart = i;
+                addedStart = j;
+            }
+            if (j < latestEnd && (i == previousEnd
+                    || common[i - prefix][j + 1 - prefix] >= common[i + 1 - prefix][j - prefix])) {
+                j++;
+            } else {
+                i++;
+            }
+        }
+        if (editStart >= 0) {
+            edits.add(new SnapshotDiff.Edit(editStart, i - editStart, latest.parse(addedStart, j)));
+        }
+        return edits;
+    }
+
+    /**
+     * Returns the length of the longest common subsequence of every pair of suffixes of the two ranges.
+     */
+    private static int[][] longestCommonSuffixes(LineTable previous, int previousStart, int previousEnd,
+            LineTable latest, int latestStart, int latestEnd) {
+        int rows = previousEnd - previousStart;
+        int columns = latestEnd - latestStart;
+        int[][] common = new int[rows + 1][columns + 1];
+        for (int i = rows - 1; i >= 0; i--) {
+            for (int j = columns - 1; j >= 0; j--) {
+                if (previous.hashes[previousStart + i] == latest.hashes[latestStart + j]) {
+                    common[i][j] = common[i + 1][j + 1] + 1;
+                } else {
+                    common[i][j] = Math.max(common[i + 1][j], common[i][j + 1]);
+                }
+            }
+        }
+        return common;
+    }
+
+    /**
+     * Task lines of one version of the snapshot, with their byte ranges and hashes.
+     */
+    private static class LineTable {
+        private final byte[] content;
+        private final LongArrayList offsets;
+        private final int[] lengths;
+        private final long[] hashes;
+        private final long checksum;
+
+        private LineTable(byte[] content, LineTable previous) {
+            this.content = content;
+            LongArrayList candidates = LineOffsetIndex.scanTaskShapes(content);
+            LongObjectMap<Boolean> knownHashes = previous != null ? previous.hashSet() : new LongObjectMap<>();
+            this.offsets = new LongArrayList(candidates.size());
+            int[] lengths = new int[candidates.size()];
+            long[] hashes = new long[candidates.size()];
+            for (int i = 0; i < candidates.size(); i++) {
+                int start = (int) candidates.get(i);
+                int end = start;
+                while (end < content.length && content[end] != '\n') {
+                    end++;
+                }
+                if (end > start && content[end - 1] == '\r') {
+                    end--;
+                }
+                long hash = hash(content, start, withoutIdField(content, start, end));
+                // A line seen last time was kept then, and the id left out of its hash cannot make it fail
+                if (!knownHashes.containsKey(hash) && decode(content, start, end - start) == null) {
+                    continue;
+                }
+                lengths[offsets.size()] = end - start;
+                hashes[offsets.size()] = hash;
+                offsets.add(start);
+            }
+            this.lengths = Arrays.copyOf(lengths, offsets.size());
+            this.hashes = Arrays.copyOf(hashes, offsets.size());
+            CRC32C crc = new CRC32C();
+            crc.update(content);
+            this.checksum = crc.getValue();
+        }
+
+        static LineTable read(Path path, LineTable previous) throws IOException {
+            if (!Files.exists(path) || BinaryTaskFormat.isBinary(path) || CompressedTaskFormat.isCompressed(path)
+                    || ShardedTaskFormat.isSharded(path)) {
+                return null;
+            }
+            return new LineTable(Files.readAllBytes(path), previous);
+        }
+
+        int size() {
+            return hashes.length;
+        }
+
+        List<Task> parse(int from, int to) {
+            List<Task> tasks = new ArrayList<>(to - from);
+            for (int line = from; line < to; line++) {
+                Task task = decode(content, (int) offsets.get(line), lengths[line]);
+                assert task != null : "Only lines that decode are kept";
+                tasks.add(task);
+            }
+            return tasks;
+        }
+
+        private LongObjectMap<Boolean> hashSet() {
+            LongObjectMap<Boolean> hashSet = new LongObjectMap<>(hashes.length);
+            for (long hash : hashes) {
+                hashSet.put(hash, Boolean.TRUE);
+            }
+            return hashSet;
+        }
+
+        private static Task decode(byte[] content, int start, int length) {
+            String text = new String(content, start, length, StandardCharsets.UTF_8);
+            return text.isBlank() ? null : RecordChecksum.decode(text);
+        }
+
+        /**
+         * Returns where a trailing task id field starts, or the end of the line if it has none.
+         * A line that only gained, lost or changed its id still holds the same task, so the id
+         * is left out of its hash.
+         */
+        private static int withoutIdField(byte[] content, int start, int end) {
+            int digitsStart = end;
+            while (digitsStart > start && content[digitsStart - 1] >= '0' && content[digitsStart - 1] <= '9') {
+                digitsStart--;
+            }
+            int fieldStart = digitsStart - ID_FIELD_START.length;
+            if (digitsStart == end || fieldStart < start) {
+                return end;
+            }
+            for (int i = 0; i < ID_FIELD_START.length; i++) {
+                if (content[fieldStart + i] != ID_FIELD_START[i]) {
+                    return end;
+                }
+            }
+            return fieldStart;
+        }
+
+        private static long hash(byte[] content, int start, int end) {
+            long hash = FNV_OFFSET_BASIS;
+            for (int i = start; i < end; i++) {
+                hash ^= content[i] & 0xFF;
+                hash *= FNV_PRIME;
+            }
+            return hash;
+        }
+    }
+}
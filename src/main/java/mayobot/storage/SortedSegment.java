@@ -0,0 +1,387 @@
+package mayobot.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable file of task records sorted by key, as written by {@link LsmStorageBackend}.
+ * <pre>
+ * records: key (long) | length (int) | task in the text file format
+ * index:   (key, offset) of every {@value #INDEX_INTERVAL}th record
+ * footer:  index offset | index count | record count | lowest key | highest key | magic
+ * </pre>
+ * A record of length 0 is a tombstone: the task with that key was deleted after
+ * an older segment stored it.
+ * <p>
+ * Every segment covers a range of flush sequence numbers, which is part of its
+ * file name. A flushed memtable covers one number and a merged segment covers the
+ * range of its inputs, so a segment whose range lies inside another's is left over
+ * from a merge that was interrupted and can be deleted. Segments are written to a
+ * temporary file and renamed when complete, so a crash never leaves half a segment.
+ * <p>
+ * The sparse index is kept in memory, so a point lookup reads one block of at most
+ * {@value #INDEX_INTERVAL} records.
+ */
+public class SortedSegment {
+    /** Number of records between two entries of the sparse index. */
+    public static final int INDEX_INTERVAL = 64;
+
+    private static final int MAGIC = 0x4D535354; // "MSST"
+    private static final int FOOTER_BYTES = 3 * Long.BYTES + 3 * Integer.BYTES;
+    private static final Pattern FILE_NAME = Pattern.compile("segment-(\\d+)-(\\d+)\\.sst");
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final byte[] TOMBSTONE = new byte[0];
+
+    private final Path path;
+    private final long minSequence;
+    private final long maxSequence;
+    private final FileChannel channel;
+    private final long[] indexKeys;
+    private final long[] indexOffsets;
+    private final long dataEnd;
+    private final int recordCount;
+    private final long minKey;
+    private final long maxKey;
+    private final long sizeBytes;
+
+    private SortedSegment(Path path, long minSequence, long maxSequence, FileChannel channel) throws IOException {
+        this.path = path;
+        this.minSequence = minSequence;
+        this.maxSequence = maxSequence;
+        this.channel = channel;
+        this.sizeBytes = channel.size();
+        if (sizeBytes < FOOTER_BYTES) {
+            throw new IOException("Segment is too short: " + path);
+        }
+
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES);
+        readFully(channel, footer, sizeBytes - FOOTER_BYTES);
+        footer.flip();
+        long indexOffset = footer.getLong();
+        int indexCount = footer.getInt();
+        this.recordCount = footer.getInt();
+        this.minKey = footer.getLong();
+        this.maxKey = footer.getLong();
+        long indexBytes = (long) indexCount * 2 * Long.BYTES;
+        if (footer.getInt() != MAGIC || indexOffset < 0 || indexOffset + indexBytes != sizeBytes - FOOTER_BYTES) {
+            throw new IOException("Not a task segment: " + path);
+        }
+
+        ByteBuffer index = ByteBuffer.allocate((int) indexBytes);
+        readFully(channel, index, indexOffset);
+        index.flip();
+        this.indexKeys = new long[indexCount];
+        this.indexOffsets = new long[indexCount];
+        for (int i = 0; i < indexCount; i++) {
+            indexKeys[i] = index.getLong();
+            indexOffsets[i] = index.getLong();
+        }
+        this.dataEnd = indexOffset;
+    }
+
+    /**
+     * Returns whether the value stands for a deleted task.
+     *
+     * @param value a value read from a segment or a memtable
+     * @return true if the value is a tombstone
+     */
+    public static boolean isTombstone(byte[] value) {
+        return value.length == 0;
+    }
+
+    /**
+     * Returns the value that marks a deleted task.
+     *
+     * @return an empty value
+     */
+    public static byte[] tombstone() {
+        return TOMBSTONE;
+    }
+
+    /**
+     * Returns whether the file name is that of a complete segment.
+     *
+     * @param path a file in the segment directory
+     * @return true if the file is a segment
+     */
+    public static boolean isSegmentFile(Path path) {
+        return FILE_NAME.matcher(path.getFileName().toString()).matches();
+    }
+
+    /**
+     * Returns whether the file is a segment that was still being written when the process stopped.
+     *
+     * @param path a file in the segment directory
+     * @return true if the file is an incomplete segment
+     */
+    public static boolean isTemporaryFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(TEMPORARY_SUFFIX)
+                && FILE_NAME.matcher(name.substring(0, name.length() - TEMPORARY_SUFFIX.length())).matches();
+    }
+
+    /**
+     * Opens a complete segment and reads its index.
+     *
+     * @param path the segment file
+     * @return the opened segment
+     * @throws IOException if the file cannot be read or is not a segment
+     */
+    public static SortedSegment open(Path path) throws IOException {
+        Matcher matcher = FILE_NAME.matcher(path.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IOException("Not a segment file name: " + path);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new SortedSegment(path, Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)),
+                    channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes records in ascending key order as a new segment and opens it.
+     *
+     * @param directory the directory to write the segment to
+     * @param minSequence the first flush sequence number the segment covers
+     * @param maxSequence the last flush sequence number the segment covers
+     * @param records the records, with strictly ascending keys
+     * @param isFsyncEnabled whether to fsync the segment before it is renamed into place
+     * @return the written segment
+     * @throws IOException if the segment cannot be written
+     */
+    public static SortedSegment write(Path directory, long minSequence, long maxSequence, Iterator<Record> records,
+            boolean isFsyncEnabled) throws IOException {
+        assert minSequence <= maxSequence : "Sequence range is empty: " + minSequence + "-" + maxSequence;
+
+        Path target = directory.resolve(String.format("segment-%010d-%010d.sst", minSequence, maxSequence));
+        Path temporary = directory.resolve(target.getFileName() + TEMPORARY_SUFFIX);
+        long[] keys = new long[16];
+        long[] offsets = new long[16];
+        int indexCount = 0;
+        int recordCount = 0;
+        long minKey = Long.MAX_VALUE;
+        long maxKey = Long.MIN_VALUE;
+        long offset = 0;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)))) {
+            while (records.hasNext()) {
+                Record record = records.next();
+                assert recordCount == 0 || record.key > maxKey : "Keys must ascend: " + record.key;
+
+                if (recordCount % INDEX_INTERVAL == 0) {
+                    if (indexCount == keys.length) {
+                        keys = Arrays.copyOf(keys, indexCount * 2);
+                        offsets = Arrays.copyOf(offsets, indexCount * 2);
+                    }
+                    keys[indexCount] = record.key;
+                    offsets[indexCount] = offset;
+                    indexCount++;
+                }
+                out.writeLong(record.key);
+                out.writeInt(record.value.length);
+                out.write(record.value);
+                offset += Long.BYTES + Integer.BYTES + record.value.length;
+                minKey = Math.min(minKey, record.key);
+                maxKey = Math.max(maxKey, record.key);
+                recordCount++;
+            }
+            for (int i = 0; i < indexCount; i++) {
+                out.writeLong(keys[i]);
+                out.writeLong(offsets[i]);
+            }
+            out.writeLong(offset);
+            out.writeInt(indexCount);
+            out.writeInt(recordCount);
+            out.writeLong(minKey);
+            out.writeLong(maxKey);
+            out.writeInt(MAGIC);
+        }
+        if (isFsyncEnabled) {
+            try (FileChannel written = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                written.force(true);
+            }
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(target);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getMinSequence() {
+        return minSequence;
+    }
+
+    public long getMaxSequence() {
+        return maxSequence;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public long getMaxKey() {
+        return maxKey;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * Returns whether every flush this segment covers is also covered by the other one.
+     *
+     * @param other another segment
+     * @return true if this segment is superseded by the other one
+     */
+    public boolean isCoveredBy(SortedSegment other) {
+        return this != other && other.minSequence <= minSequence && maxSequence <= other.maxSequence;
+    }
+
+    /**
+     * Looks up the value stored for a key, reading a single block.
+     *
+     * @param key the key of the task
+     * @return the stored value, a tombstone if the task was deleted, or null if this segment does not hold the key
+     * @throws IOException if the segment cannot be read
+     */
+    public byte[] get(long key) throws IOException {
+        if (recordCount == 0 || key < minKey || key > maxKey) {
+            return null;
+        }
+        int block = Arrays.binarySearch(indexKeys, key);
+        if (block < 0) {
+            block = -block - 2;
+        }
+        long blockEnd = block + 1 < indexKeys.length ? indexOffsets[block + 1] : dataEnd;
+        ByteBuffer buffer = ByteBuffer.allocate((int) (blockEnd - indexOffsets[block]));
+        readFully(channel, buffer, indexOffsets[block]);
+        buffer.flip();
+        while (buffer.remaining() >= Long.BYTES + Integer.BYTES) {
+            long recordKey = buffer.getLong();
+            int length = buffer.getInt();
+            if (recordKey == key) {
+                byte[] value = new byte[length];
+                buffer.get(value);
+                return length == 0 ? TOMBSTONE : value;
+            }
+            if (recordKey > key) {
+                return null;
+            }
+            buffer.position(buffer.position() + length);
+        }
+        return null;
+    }
+
+    /**
+     * Returns an iterator over all records in key order, reading the file sequentially.
+     * The iterator has its own stream, which is closed once the last record has been read.
+     *
+     * @return an iterator over the records
+     * @throws IOException if the segment cannot be opened for reading
+     */
+    public Iterator<Record> iterator() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        return new Iterator<>() {
+            private int remaining = recordCount;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public Record next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    long key = in.readLong();
+                    byte[] value = new byte[in.readInt()];
+                    in.readFully(value);
+                    if (--remaining == 0) {
+                        in.close();
+                    }
+                    return new Record(key, value.length == 0 ? TOMBSTONE : value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Closes the segment file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Closes and deletes the segment file.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+    }
+
+    /**
+     * A key with its stored value, which is a task in the text file format or a tombstone.
+     */
+    public static class Record {
+        private final long key;
+        private final byte[] value;
+
+        /**
+         * Creates a new Record.
+         *
+         * @param key the key of the task
+         * @param value the task in the text file format as UTF-8, or a tombstone
+         */
+        public Record(long key, byte[] value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+    }
+}
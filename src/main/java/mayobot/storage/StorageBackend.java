@@ -0,0 +1,128 @@
+package mayobot.storage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import mayobot.task.Task;
+import mayobot.task.TaskList;
+
+/**
+ * Persistence operations that a {@link TaskList} relies on.
+ * A TaskList reports every change to its backend as it happens: tasks are
+ * appended to the end of the list, updated in place, or deleted by position.
+ * How the changes reach the disk is up to the implementation.
+ * <p>
+ * {@link mayobot.Storage} is the default backend, keeping the tasks in a text
+ * file with an append-only journal. {@link PagedStorageBackend} keeps them in
+ * a single page-based file instead and applies every change as a transactional
+ * page update.
+ * <p>
+ * Mutations do not throw. Like the rest of the storage code, a backend reports
+ * failed writes on stderr and keeps the in-memory list usable.
+ */
+public interface StorageBackend {
+    /**
+     * Returns a new TaskList holding all stored tasks, which reports its changes to this backend.
+     *
+     * @return the loaded TaskList
+     * @throws IOException if the stored tasks cannot be read
+     */
+    TaskList load() throws IOException;
+
+    /**
+     * Stores a task that was appended to the end of the list.
+     *
+     * @param task the appended task
+     */
+    void append(Task task);
+
+    /**
+     * Stores the new content of the task at the given position.
+     *
+     * @param index the one-based index of the changed task
+     * @param task the task with its new content
+     */
+    void update(int index, Task task);
+
+    /**
+     * Stores the removal of the task at the given position.
+     * Later tasks move up by one position.
+     *
+     * @param index the one-based index of the removed task
+     */
+    void delete(int index);
+
+    /**
+     * Stores the new content of several tasks changed together, such as by a bulk mark.
+     * Backends override this to persist the whole batch at once; by default each task is
+     * stored with {@link #update(int, Task)}.
+     *
+     * @param indexes the one-based indexes of the changed tasks
+     * @param tasks the tasks with their new content, in the same order as the indexes
+     */
+    default void updateAll(int[] indexes, List<Task> tasks) {
+        assert indexes.length == tasks.size() : "Every index needs a task";
+
+        for (int i = 0; i < indexes.length; i++) {
+            update(indexes[i], tasks.get(i));
+        }
+    }
+
+    /**
+     * Stores the removal of several tasks deleted together, such as by a bulk delete.
+     * The indexes are in descending order, so that each one still refers to the same
+     * task after the removals before it. Backends override this to persist the whole
+     * batch at once; by default each removal is stored with {@link #delete(int)}.
+     *
+     * @param descendingIndexes the one-based indexes of the removed tasks, largest first
+     */
+    default void deleteAll(int[] descendingIndexes) {
+        for (int index : descendingIndexes) {
+            delete(index);
+        }
+    }
+
+    /**
+     * Returns the write and load statistics of this backend.
+     *
+     * @return the statistics, updated as changes are stored
+     */
+    StorageStats getStats();
+
+    /**
+     * Blocks until every change stored so far has been written to disk.
+     */
+    void flush();
+
+    /**
+     * Flushes pending changes and releases the files and threads held by this backend.
+     */
+    void close();
+
+    /**
+     * Gives ids to loaded tasks that were stored before tasks had stable ids, and
+     * stores each of them again so that their ids stay the same on the next load.
+     * Meant for backends whose {@link #update(int, Task)} writes the whole task.
+     *
+     * @param taskList the TaskList just loaded by this backend
+     * @return the same TaskList
+     */
+    default TaskList storeMissingIds(TaskList taskList) {
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < taskList.getSize(); i++) {
+            if (taskList.getTask(i).getId() == Task.NO_ID) {
+                positions.add(i);
+            }
+        }
+        if (positions.isEmpty()) {
+            return taskList;
+        }
+
+        taskList.indexIds();
+        for (int position : positions) {
+            update(position + 1, taskList.getTask(position));
+        }
+        return taskList;
+    }
+}
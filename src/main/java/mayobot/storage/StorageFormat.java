@@ -0,0 +1,17 @@
+package mayobot.storage;
+
+/**
+ * On-disk formats that the task snapshot file can be written in.
+ * Loading always detects the format from the file content, so switching the
+ * format only affects how the next snapshot is written.
+ */
+public enum StorageFormat {
+    /** Human-readable pipe-delimited lines, one task per line. */
+    TEXT,
+    /** Compact versioned binary records, see {@link BinaryTaskFormat}. */
+    BINARY,
+    /** Text lines compressed in independent blocks, see {@link CompressedTaskFormat}. */
+    COMPRESSED,
+    /** One text shard per task type behind a manifest, see {@link ShardedTaskFormat}. */
+    SHARDED
+}
@@ -0,0 +1,257 @@
+package mayobot.storage;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import mayobot.util.LatencyHistogram;
+
+/**
+ * Counters and latency histograms of the writes and loads of one storage backend.
+ * Writes fall into three kinds, which differ greatly in cost:
+ * <ul>
+ *   <li>appends, which add a few records to the end of a journal or log</li>
+ *   <li>checkpoints, which write only the tasks changed since the last one</li>
+ *   <li>full rewrites, which write every task to a new snapshot</li>
+ * </ul>
+ * Comparing their counts, bytes and latencies shows whether full rewrites dominate,
+ * in which case the compaction threshold or the snapshot format can be tuned.
+ * <p>
+ * Recording is lock-free and cheap enough to leave on in production. The same
+ * numbers are shown by the {@code storage stats} command and, once registered
+ * with {@link #registerMBean(String)}, exposed as a platform MBean.
+ */
+public class StorageStats implements StorageStatsMXBean {
+    private static final String OBJECT_NAME_PREFIX = "mayobot:type=StorageStats,name=";
+    private static final double NANOS_PER_MICRO = 1e3;
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder recordsWritten = new LongAdder();
+    private final LongAdder fullRewriteBytes = new LongAdder();
+    private final LongAdder directoryChecks = new LongAdder();
+    private final LongAdder quarantinedRecords = new LongAdder();
+    private final LatencyHistogram appendLatency = new LatencyHistogram();
+    private final LatencyHistogram fullRewriteLatency = new LatencyHistogram();
+    private final LatencyHistogram checkpointLatency = new LatencyHistogram();
+    private final LatencyHistogram loadParseLatency = new LatencyHistogram();
+
+    /**
+     * Records one append of records to a journal or log.
+     *
+     * @param records the number of records appended
+     * @param bytes the number of bytes written
+     * @param nanos the time the write took
+     */
+    public void recordAppend(int records, long bytes, long nanos) {
+        recordsWritten.add(records);
+        bytesWritten.add(bytes);
+        appendLatency.record(nanos);
+    }
+
+    /**
+     * Records one rewrite of the whole snapshot.
+     *
+     * @param tasks the number of tasks written
+     * @param bytes the number of bytes written
+     * @param nanos the time the rewrite took
+     */
+    public void recordFullRewrite(int tasks, long bytes, long nanos) {
+        recordsWritten.add(tasks);
+        bytesWritten.add(bytes);
+        fullRewriteBytes.add(bytes);
+        fullRewriteLatency.record(nanos);
+    }
+
+    /**
+     * Records one checkpoint that wrote only changed tasks.
+     *
+     * @param tasks the number of changed tasks written
+     * @param bytes the number of bytes written
+     * @param nanos the time the checkpoint took
+     */
+    public void recordCheckpoint(int tasks, long bytes, long nanos) {
+        recordsWritten.add(tasks);
+        bytesWritten.add(bytes);
+        checkpointLatency.record(nanos);
+    }
+
+    /**
+     * Records one check for the existence of the storage directory.
+     */
+    public void recordDirectoryCheck() {
+        directoryChecks.increment();
+    }
+
+    /**
+     * Records the time one load spent reading and parsing stored tasks.
+     *
+     * @param nanos the parse time of the load
+     */
+    public void recordLoad(long nanos) {
+        loadParseLatency.record(nanos);
+    }
+
+    /**
+     * Records stored records that a load left out because they were damaged or malformed.
+     *
+     * @param count the number of quarantined records
+     */
+    public void recordQuarantined(int count) {
+        quarantinedRecords.add(count);
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public long getRecordsWritten() {
+        return recordsWritten.sum();
+    }
+
+    @Override
+    public long getAppendCount() {
+        return appendLatency.getCount();
+    }
+
+    @Override
+    public long getFullRewriteCount() {
+        return fullRewriteLatency.getCount();
+    }
+
+    @Override
+    public long getFullRewriteBytes() {
+        return fullRewriteBytes.sum();
+    }
+
+    @Override
+    public long getCheckpointCount() {
+        return checkpointLatency.getCount();
+    }
+
+    @Override
+    public long getDirectoryCheckCount() {
+        return directoryChecks.sum();
+    }
+
+    @Override
+    public long getLoadCount() {
+        return loadParseLatency.getCount();
+    }
+
+    @Override
+    public long getQuarantinedCount() {
+        return quarantinedRecords.sum();
+    }
+
+    @Override
+    public long getAppendP50Micros() {
+        return toMicros(appendLatency.getPercentileNanos(50));
+    }
+
+    @Override
+    public long getAppendP99Micros() {
+        return toMicros(appendLatency.getPercentileNanos(99));
+    }
+
+    @Override
+    public long getFullRewriteP50Micros() {
+        return toMicros(fullRewriteLatency.getPercentileNanos(50));
+    }
+
+    @Override
+    public long getFullRewriteP99Micros() {
+        return toMicros(fullRewriteLatency.getPercentileNanos(99));
+    }
+
+    @Override
+    public long getCheckpointP99Micros() {
+        return toMicros(checkpointLatency.getPercentileNanos(99));
+    }
+
+    @Override
+    public long getLoadParseP50Micros() {
+        return toMicros(loadParseLatency.getPercentileNanos(50));
+    }
+
+    @Override
+    public long getLoadParseMaxMicros() {
+        return toMicros(loadParseLatency.getMaxNanos());
+    }
+
+    @Override
+    public double getFullRewriteByteShare() {
+        long total = bytesWritten.sum();
+        return total == 0 ? 0 : (double) fullRewriteBytes.sum() / total;
+    }
+
+    @Override
+    public void reset() {
+        bytesWritten.reset();
+        recordsWritten.reset();
+        fullRewriteBytes.reset();
+        directoryChecks.reset();
+        quarantinedRecords.reset();
+        appendLatency.reset();
+        fullRewriteLatency.reset();
+        checkpointLatency.reset();
+        loadParseLatency.reset();
+    }
+
+    /**
+     * Registers these statistics with the platform MBean server under the given name.
+     * Statistics already registered under the same name, such as those of a backend
+     * that was replaced, are unregistered first. Failures are printed to stderr, since
+     * monitoring is never a reason to stop the application.
+     *
+     * @param name the name that tells the backends of this JVM apart, usually the file path
+     */
+    public void registerMBean(String name) {
+        assert name != null : "MBean name cannot be null";
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Appends: %d, p50 %s, p99 %s\n"
+                        + "Checkpoints: %d, p99 %s\n"
+                        + "Full rewrites: %d, p50 %s, p99 %s\n"
+                        + "Written: %d record(s), %d byte(s), %.0f%% of bytes by full rewrites\n"
+                        + "Directory checks: %d\n"
+                        + "Loads: %d, parse p50 %s, max %s, %d record(s) quarantined",
+                getAppendCount(), formatNanos(appendLatency.getPercentileNanos(50)),
+                formatNanos(appendLatency.getPercentileNanos(99)),
+                getCheckpointCount(), formatNanos(checkpointLatency.getPercentileNanos(99)),
+                getFullRewriteCount(), formatNanos(fullRewriteLatency.getPercentileNanos(50)),
+                formatNanos(fullRewriteLatency.getPercentileNanos(99)),
+                getRecordsWritten(), getBytesWritten(), getFullRewriteByteShare() * 100,
+                getDirectoryCheckCount(),
+                getLoadCount(), formatNanos(loadParseLatency.getPercentileNanos(50)),
+                formatNanos(loadParseLatency.getMaxNanos()), getQuarantinedCount());
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.round(nanos / NANOS_PER_MICRO);
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos >= NANOS_PER_MILLI) {
+            return String.format("%.2f ms", nanos / NANOS_PER_MILLI);
+        }
+        return String.format("%.1f µs", nanos / NANOS_PER_MICRO);
+    }
+}
@@ -0,0 +1,51 @@
+package mayobot.storage;
+
+/**
+ * Management interface of {@link StorageStats}, readable from any JMX console.
+ * Latencies are reported in microseconds and are accurate to within a factor of two.
+ */
+public interface StorageStatsMXBean {
+    long getBytesWritten();
+
+    long getRecordsWritten();
+
+    long getAppendCount();
+
+    long getFullRewriteCount();
+
+    long getFullRewriteBytes();
+
+    long getCheckpointCount();
+
+    long getDirectoryCheckCount();
+
+    long getLoadCount();
+
+    long getQuarantinedCount();
+
+    long getAppendP50Micros();
+
+    long getAppendP99Micros();
+
+    long getFullRewriteP50Micros();
+
+    long getFullRewriteP99Micros();
+
+    long getCheckpointP99Micros();
+
+    long getLoadParseP50Micros();
+
+    long getLoadParseMaxMicros();
+
+    /**
+     * Returns the share of all written bytes that full rewrites account for.
+     *
+     * @return a fraction from 0 to 1, or 0 if nothing has been written
+     */
+    double getFullRewriteByteShare();
+
+    /**
+     * Clears every counter and histogram.
+     */
+    void reset();
+}
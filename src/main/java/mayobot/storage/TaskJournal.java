@@ -0,0 +1,425 @@
+package mayobot.storage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import mayobot.Parser;
+import mayobot.task.Task;
+
+/**
+ * Append-only log of task list mutations stored next to the task snapshot file.
+ * Each mutation is written as a single short line so that marking, unmarking,
+ * deleting or adding a task costs a constant number of bytes instead of a full
+ * rewrite of the snapshot.
+ * <p>
+ * Records use the same pipe-delimited style as the snapshot file:
+ * "ADD | task_in_file_format", "MARK | index", "UNMARK | index" and
+ * "DELETE | index", where index is the one-based position of the task at the
+ * time the mutation happened. Replaying the records in order on top of the
+ * snapshot reproduces the latest task list.
+ * <p>
+ * Consumers that track something other than Task objects, such as checkpoint
+ * deltas, can replay the records through a {@link RecordHandler}.
+ * <p>
+ * A journal carried over by a checkpoint starts with a "CHECKPOINT | sequence"
+ * record naming the delta segment it was carried past. It changes nothing on
+ * replay and only tells a reader that the records before that checkpoint are gone.
+ * <p>
+ * A record is complete only once its line break is written. A torn final record, cut
+ * off by a crash before its line break, is never replayed or carried over, since a cut
+ * index or task could still parse. {@link #truncateTornTail()} removes it when the
+ * journal is loaded, so that the next record starts on a line of its own.
+ */
+public class TaskJournal {
+    private static final String SEPARATOR = " | ";
+    private static final String ADD = "ADD";
+    private static final String MARK = "MARK";
+    private static final String UNMARK = "UNMARK";
+    private static final String DELETE = "DELETE";
+    private static final String CHECKPOINT = "CHECKPOINT";
+
+    private final File file;
+    private final StorageStats stats;
+
+    /**
+     * Receives the records of a journal in the order they were written.
+     * Indexes are one-based positions at the time of the mutation and have not
+     * been bounds-checked.
+     */
+    public interface RecordHandler {
+        /**
+         * Handles a task appended to the end of the list.
+         *
+         * @param task the added task
+         */
+        void onAdd(Task task);
+
+        /**
+         * Handles a change of completion status.
+         *
+         * @param index the one-based index of the task
+         * @param isDone the new completion status
+         */
+        void onStatus(int index, boolean isDone);
+
+        /**
+         * Handles a removed task.
+         *
+         * @param index the one-based index of the removed task
+         */
+        void onDelete(int index);
+    }
+
+    /**
+     * Creates a new TaskJournal backed by the specified file.
+     * The file is created lazily on the first appended record.
+     *
+     * @param filePath the path to the journal file
+     */
+    public TaskJournal(String filePath) {
+        this(filePath, new StorageStats());
+    }
+
+    /**
+     * Creates a new TaskJournal backed by the specified file that records its appends in the given statistics.
+     *
+     * @param filePath the path to the journal file
+     * @param stats the statistics to record appends and directory checks in
+     */
+    public TaskJournal(String filePath, StorageStats stats) {
+        assert stats != null : "Storage stats cannot be null";
+
+        this.file = new File(filePath);
+        this.stats = stats;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the current size of the journal file in bytes, or 0 if it does not exist yet.
+     *
+     * @return the journal size in bytes
+     */
+    public long size() {
+        return file.length();
+    }
+
+    /**
+     * Returns the record for a newly added task.
+     *
+     * @param task the task that was appended to the end of the list
+     * @return the journal record without a trailing newline
+     */
+    public static String addRecord(Task task) {
+        return ADD + SEPARATOR + task.changeToFileFormat();
+    }
+
+    /**
+     * Returns the record for a change of completion status.
+     *
+     * @param index the one-based index of the task whose status changed
+     * @param isDone the new completion status of the task
+     * @return the journal record without a trailing newline
+     */
+    public static String statusRecord(int index, boolean isDone) {
+        return (isDone ? MARK : UNMARK) + SEPARATOR + index;
+    }
+
+    /**
+     * Returns the record for a deleted task.
+     *
+     * @param index the one-based index of the task that was removed
+     * @return the journal record without a trailing newline
+     */
+    public static String deleteRecord(int index) {
+        return DELETE + SEPARATOR + index;
+    }
+
+    /**
+     * Returns the record that starts a journal carried over by a checkpoint.
+     *
+     * @param sequence the sequence number of the checkpoint's delta segment
+     * @return the journal record without a trailing newline
+     */
+    public static String checkpointRecord(long sequence) {
+        return CHECKPOINT + SEPARATOR + sequence;
+    }
+
+    /**
+     * Returns the sequence number of the checkpoint this journal was carried past.
+     *
+     * @return the sequence from the leading checkpoint record, or -1 if the journal has none
+     * @throws IOException if the journal cannot be read
+     */
+    public long readCheckpointSequence() throws IOException {
+        if (!file.exists()) {
+            return -1;
+        }
+        String head = readLines(0, CHECKPOINT.length() + SEPARATOR.length() + 20);
+        int lineEnd = head.indexOf('\n');
+        String[] parts = (lineEnd < 0 ? head : head.substring(0, lineEnd)).split(" \\| ", 2);
+        if (parts.length < 2 || !CHECKPOINT.equals(parts[0])) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(parts[1].trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Appends a single record to the journal and returns the number of bytes written.
+     *
+     * @param record the record to append, without a trailing newline
+     * @return the number of bytes appended to the journal
+     * @throws IOException if the journal cannot be written
+     */
+    public long append(String record) throws IOException {
+        return appendAll(List.of(record), false);
+    }
+
+    /**
+     * Appends several records to the journal with a single write.
+     * When {@code isForced} is true, the data is also forced to the storage
+     * device before returning, so the records survive a power failure.
+     *
+     * @param records the records to append, without trailing newlines
+     * @param isForced whether to fsync the journal after writing
+     * @return the number of bytes appended to the journal
+     * @throws IOException if the journal cannot be written
+     */
+    public long appendAll(List<String> records, boolean isForced) throws IOException {
+        long startTime = System.nanoTime();
+        File directory = file.getAbsoluteFile().getParentFile();
+        stats.recordDirectoryCheck();
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+
+        StringBuilder batch = new StringBuilder();
+        for (String record : records) {
+            batch.append(record).append('\n');
+        }
+        byte[] bytes = batch.toString().getBytes(StandardCharsets.UTF_8);
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(bytes);
+            if (isForced) {
+                out.getChannel().force(false);
+            }
+        }
+        stats.recordAppend(records.size(), bytes.length, System.nanoTime() - startTime);
+        return bytes.length;
+    }
+
+    /**
+     * Replays the first {@code limit} bytes of the journal onto the given tasks.
+     * Records that are malformed, such as a torn final line, or that refer to a
+     * position outside the list are skipped.
+     *
+     * @param tasks the tasks loaded from the snapshot, modified in place
+     * @param limit the number of journal bytes to replay
+     * @return the number of records applied
+     * @throws IOException if the journal cannot be read
+     */
+    public int replay(List<Task> tasks, long limit) throws IOException {
+        return replay(tasks, 0, limit);
+    }
+
+    /**
+     * Replays the journal bytes between {@code from} and {@code limit} onto the given tasks.
+     * The start offset must be the beginning of a record.
+     *
+     * @param tasks the tasks to modify in place
+     * @param from the byte offset of the first record to replay
+     * @param limit the byte offset to stop replaying at
+     * @return the number of records applied
+     * @throws IOException if the journal cannot be read
+     */
+    public int replay(List<Task> tasks, long from, long limit) throws IOException {
+        int[] applied = new int[1];
+        replay(new RecordHandler() {
+            @Override
+            public void onAdd(Task task) {
+                tasks.add(task);
+                applied[0]++;
+            }
+
+            @Override
+            public void onStatus(int index, boolean isDone) {
+                if (index >= 1 && index <= tasks.size()) {
+                    Task task = tasks.get(index - 1);
+                    if (isDone) {
+                        task.markAsDone();
+                    } else {
+                        task.markAsNotDone();
+                    }
+                    // Written back so that lists decoding tasks on demand keep the change
+                    tasks.set(index - 1, task);
+                    applied[0]++;
+                }
+            }
+
+            @Override
+            public void onDelete(int index) {
+                if (index >= 1 && index <= tasks.size()) {
+                    tasks.remove(index - 1);
+                    applied[0]++;
+                }
+            }
+        }, from, limit);
+        return applied[0];
+    }
+
+    /**
+     * Passes every well-formed record between {@code from} and {@code limit} to the handler.
+     *
+     * @param handler the handler to receive the records
+     * @param from the byte offset of the first record to replay
+     * @param limit the byte offset to stop replaying at
+     * @throws IOException if the journal cannot be read
+     */
+    public void replay(RecordHandler handler, long from, long limit) throws IOException {
+        if (!file.exists() || limit <= from) {
+            return;
+        }
+
+        for (String line : completeRecords(readLines(from, limit)).split("\n")) {
+            if (!line.isBlank()) {
+                dispatch(handler, line);
+            }
+        }
+    }
+
+    /**
+     * Returns the CRC32C checksum of the first {@code length} bytes of the journal.
+     * Checkpoints store it to recognise whether a journal prefix was already applied.
+     *
+     * @param length the number of bytes to checksum
+     * @return the checksum of the journal prefix
+     * @throws IOException if the journal cannot be read
+     */
+    public long checksum(long length) throws IOException {
+        CRC32C crc = new CRC32C();
+        if (file.exists() && length > 0) {
+            crc.update(readBytes(0, length));
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Returns the journal content from the given byte offset to the end of the file.
+     * Used by compaction to carry over records appended after a snapshot was taken.
+     *
+     * @param offset the byte offset to start reading from
+     * @return the remaining journal content
+     * @throws IOException if the journal cannot be read
+     */
+    public String readFrom(long offset) throws IOException {
+        if (!file.exists()) {
+            return "";
+        }
+        return completeRecords(readLines(offset, file.length()));
+    }
+
+    /**
+     * Removes a torn final record, one without its line break, from the end of the journal.
+     *
+     * @return the number of bytes removed, or 0 if the journal was not torn
+     * @throws IOException if the journal cannot be read or truncated
+     */
+    public long truncateTornTail() throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long size = raf.length();
+            long end = size;
+            while (end > 0) {
+                raf.seek(end - 1);
+                if (raf.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end == size) {
+                return 0;
+            }
+            FileChannel channel = raf.getChannel();
+            channel.truncate(end);
+            channel.force(true);
+            return size - end;
+        }
+    }
+
+    /**
+     * Returns the records in the given journal content that end in a line break, dropping a torn last one.
+     */
+    private static String completeRecords(String content) {
+        return content.substring(0, content.lastIndexOf('\n') + 1);
+    }
+
+    private String readLines(long from, long to) throws IOException {
+        return new String(readBytes(from, to), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes(long from, long to) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long end = Math.min(to, raf.length());
+            if (from >= end) {
+                return new byte[0];
+            }
+            byte[] bytes = new byte[(int) (end - from)];
+            raf.seek(from);
+            raf.readFully(bytes);
+            return bytes;
+        }
+    }
+
+    private static void dispatch(RecordHandler handler, String line) {
+        String[] parts = line.split(" \\| ", 2);
+        if (parts.length < 2) {
+            return;
+        }
+
+        if (ADD.equals(parts[0])) {
+            Task task = parts[1].isBlank() ? null : Parser.parseTaskFromFile(parts[1]);
+            if (task != null) {
+                handler.onAdd(task);
+            }
+            return;
+        }
+
+        int index;
+        try {
+            index = Integer.parseInt(parts[1].trim());
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        switch (parts[0]) {
+        case MARK:
+            handler.onStatus(index, true);
+            break;
+        case UNMARK:
+            handler.onStatus(index, false);
+            break;
+        case DELETE:
+            handler.onDelete(index);
+            break;
+        case CHECKPOINT:
+            // Only marks where the journal was carried over, there is nothing to apply
+            break;
+        default:
+            break;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package mayobot.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import mayobot.task.DeadlineTask;
+import mayobot.task.EventTask;
+import mayobot.task.Task;
+
+/**
+ * Writes tasks as lines of the text snapshot format straight into reusable buffers.
+ * The output is byte for byte what {@link Task#changeToFileFormat()} produces, but
+ * no string is built per task: the fields are put into a {@link CharBuffer}, dates
+ * are formatted digit by digit, and the characters are encoded as UTF-8 into a
+ * direct {@link ByteBuffer} that is written to a {@link FileChannel} whenever a
+ * block fills up. Writing a task therefore allocates nothing, whatever its size.
+ * <p>
+ * With sealing enabled, every line also gets the {@link RecordChecksum} of its
+ * encoded bytes, computed as they are encoded rather than from a second copy.
+ * <p>
+ * An encoder is not thread-safe and holds on to its channel until {@link #flush()}
+ * has been called; it does not close the channel.
+ */
+public class TaskLineEncoder {
+    /** Size of the blocks written to the channel. */
+    public static final int DEFAULT_BLOCK_BYTES = 64 * 1024;
+
+    private static final int LINE_CHARS = 1024;
+    private static final String SEPARATOR = " | ";
+    private static final String SEAL_PREFIX = " | #";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int CHECKSUM_HEX_DIGITS = 8;
+    private static final int MAX_PLAIN_YEAR = 9999;
+    private static final int MAX_LONG_DIGITS = 19;
+
+    private final FileChannel channel;
+    private final boolean isSealing;
+    private final CharBuffer chars = CharBuffer.allocate(LINE_CHARS);
+    private final ByteBuffer bytes;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CRC32C lineChecksum = new CRC32C();
+    private final char[] numberDigits = new char[MAX_LONG_DIGITS];
+
+    private int lineStart;
+    private long bytesWritten;
+
+    /**
+     * Creates a new TaskLineEncoder that writes to the current position of the given channel.
+     *
+     * @param channel the channel to write the lines to
+     * @param isSealing whether to append a record checksum to every line
+     */
+    public TaskLineEncoder(FileChannel channel, boolean isSealing) {
+        this(channel, isSealing, DEFAULT_BLOCK_BYTES);
+    }
+
+    /**
+     * Creates a new TaskLineEncoder with the specified block size.
+     *
+     * @param channel the channel to write the lines to
+     * @param isSealing whether to append a record checksum to every line
+     * @param blockBytes the number of bytes to gather before writing them to the channel
+     */
+    public TaskLineEncoder(FileChannel channel, boolean isSealing, int blockBytes) {
+        assert channel != null : "Channel cannot be null";
+        assert blockBytes >= 16 : "Block must hold at least a few encoded characters: " + blockBytes;
+
+        this.channel = channel;
+        this.isSealing = isSealing;
+        this.bytes = ByteBuffer.allocateDirect(blockBytes);
+    }
+
+    /**
+     * Writes all tasks to the given file as a text snapshot, replacing its content.
+     *
+     * @param tasks the tasks to write, in list order
+     * @param path the file to write to
+     * @param isSealing whether to append a record checksum to every line
+     * @return the number of bytes written
+     * @throws IOException if the file cannot be written
+     */
+    public static long write(List<Task> tasks, Path path, boolean isSealing) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            TaskLineEncoder lineEncoder = new TaskLineEncoder(channel, isSealing);
+            for (Task task : tasks) {
+                lineEncoder.encode(task);
+            }
+            lineEncoder.flush();
+            return lineEncoder.getBytesWritten();
+        }
+    }
+
+    /**
+     * Returns the number of bytes written to the channel so far, not counting buffered bytes.
+     *
+     * @return the number of bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Encodes one task as a line, including its line break.
+     *
+     * @param task the task to encode
+     * @throws IOException if a full block cannot be written to the channel
+     */
+    public void encode(Task task) throws IOException {
+        assert task != null : "Cannot encode null task";
+
+        if (isSealing) {
+            // The end of the previous line must be encoded before the checksum of this one starts
+            drainChars();
+            lineStart = bytes.position();
+            lineChecksum.reset();
+        }
+
+        put(typeOf(task));
+        put(SEPARATOR);
+        put(task.isDone() ? '1' : '0');
+        put(SEPARATOR);
+        put(task.getDescription());
+        if (task instanceof DeadlineTask) {
+            put(SEPARATOR);
+            putDateTime(((DeadlineTask) task).getBy());
+        } else if (task instanceof EventTask) {
+            EventTask event = (EventTask) task;
+            put(SEPARATOR);
+            putDateTime(event.getFrom());
+            put(SEPARATOR);
+            putDateTime(event.getTo());
+        }
+        if (task.getId() != Task.NO_ID) {
+            put(SEPARATOR);
+            put(Task.ID_FIELD_PREFIX);
+            putNumber(task.getId());
+        }
+
+        if (isSealing) {
+            drainChars();
+            updateChecksum();
+            put(SEAL_PREFIX);
+            long checksum = lineChecksum.getValue();
+            for (int shift = (CHECKSUM_HEX_DIGITS - 1) * 4; shift >= 0; shift -= 4) {
+                put(HEX_DIGITS[(int) (checksum >>> shift) & 0xF]);
+            }
+        }
+        put('\n');
+    }
+
+    /**
+     * Writes every buffered byte to the channel.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    public void flush() throws IOException {
+        drainChars();
+        writeBlock();
+    }
+
+    private static char typeOf(Task task) {
+        if (task instanceof DeadlineTask) {
+            return 'D';
+        }
+        if (task instanceof EventTask) {
+            return 'E';
+        }
+        return 'T';
+    }
+
+    private void put(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            drainChars();
+        }
+        chars.put(c);
+    }
+
+    private void put(String text) throws IOException {
+        int offset = 0;
+        while (offset < text.length()) {
+            if (!chars.hasRemaining()) {
+                drainChars();
+            }
+            int end = Math.min(text.length(), offset + chars.remaining());
+            chars.put(text, offset, end);
+            offset = end;
+        }
+    }
+
+    /**
+     * Puts the date and time in the same format as {@link LocalDateTime#toString()}.
+     */
+    private void putDateTime(LocalDateTime dateTime) throws IOException {
+        if (dateTime.getYear() < 0 || dateTime.getYear() > MAX_PLAIN_YEAR) {
+            // Signed and five-digit years are rare enough to take the allocating path
+            put(dateTime.toString());
+            return;
+        }
+        putDigits(dateTime.getYear(), 4);
+        put('-');
+        putDigits(dateTime.getMonthValue(), 2);
+        put('-');
+        putDigits(dateTime.getDayOfMonth(), 2);
+        put('T');
+        putDigits(dateTime.getHour(), 2);
+        put(':');
+        putDigits(dateTime.getMinute(), 2);
+
+        int second = dateTime.getSecond();
+        int nano = dateTime.getNano();
+        if (second == 0 && nano == 0) {
+            return;
+        }
+        put(':');
+        putDigits(second, 2);
+        if (nano == 0) {
+            return;
+        }
+        put('.');
+        if (nano % 1_000_000 == 0) {
+            putDigits(nano / 1_000_000, 3);
+        } else if (nano % 1000 == 0) {
+            putDigits(nano / 1000, 6);
+        } else {
+            putDigits(nano, 9);
+        }
+    }
+
+    private void putNumber(long value) throws IOException {
+        assert value >= 0 : "Only non-negative numbers are written: " + value;
+
+        int start = numberDigits.length;
+        long remaining = value;
+        do {
+            numberDigits[--start] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        for (int i = start; i < numberDigits.length; i++) {
+            put(numberDigits[i]);
+        }
+    }
+
+    private void putDigits(int value, int width) throws IOException {
+        int divisor = 1;
+        for (int i = 1; i < width; i++) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            put((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    /**
+     * Encodes the buffered characters into the byte block, writing the block out whenever it fills up.
+     */
+    private void drainChars() throws IOException {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, false);
+            if (!result.isOverflow()) {
+                break;
+            }
+            updateChecksum();
+            writeBlock();
+        }
+        // A high surrogate whose pair has not been put yet stays for the next round
+        chars.compact();
+    }
+
+    private void updateChecksum() {
+        if (!isSealing || bytes.position() == lineStart) {
+            return;
+        }
+        // Narrows the block to the new bytes of the line in place, so no view buffer is allocated
+        int end = bytes.position();
+        bytes.limit(end).position(lineStart);
+        lineChecksum.update(bytes);
+        bytes.limit(bytes.capacity());
+        lineStart = end;
+    }
+
+    private void writeBlock() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            bytesWritten += channel.write(bytes);
+        }
+        bytes.clear();
+        lineStart = 0;
+    }
+}
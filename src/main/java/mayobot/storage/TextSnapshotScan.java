@@ -0,0 +1,165 @@
+package mayobot.storage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import mayobot.task.Task;
+
+/**
+ * Result of reading a text snapshot in one streaming pass while verifying every line.
+ * Lines that fail their {@link RecordChecksum} or cannot be parsed are quarantined:
+ * they are left out of the tasks and counted, so a damaged file is reported instead
+ * of silently shrinking. Blank lines are not counted.
+ * <p>
+ * A write torn by a crash leaves a final line without its line break. Such a line
+ * is removed from the snapshot by {@link #truncateTornTail(Path)}, which reads only
+ * that line, and is kept in {@code <snapshot>.quarantine} for inspection.
+ */
+public class TextSnapshotScan {
+    private static final String QUARANTINE_SUFFIX = ".quarantine";
+    private static final int TAIL_SCAN_BYTES = 8 * 1024;
+
+    private final List<Task> tasks;
+    private final int quarantinedCount;
+
+    private TextSnapshotScan(List<Task> tasks, int quarantinedCount) {
+        this.tasks = tasks;
+        this.quarantinedCount = quarantinedCount;
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    public int getQuarantinedCount() {
+        return quarantinedCount;
+    }
+
+    /**
+     * Returns the path of the file that torn tails of the given snapshot are moved to.
+     *
+     * @param snapshot the snapshot file
+     * @return the quarantine file next to it
+     */
+    public static Path getQuarantinePath(Path snapshot) {
+        return Paths.get(snapshot + QUARANTINE_SUFFIX);
+    }
+
+    /**
+     * Reads and verifies every line of the text snapshot. The file is not modified.
+     *
+     * @param snapshot the text snapshot to read
+     * @return the valid tasks in file order and the number of quarantined lines
+     * @throws IOException if the snapshot cannot be read
+     */
+    public static TextSnapshotScan read(Path snapshot) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        int quarantined = 0;
+        try (BufferedReader reader = Files.newBufferedReader(snapshot, StandardCharsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Task task = RecordChecksum.decode(line);
+                if (task != null) {
+                    tasks.add(task);
+                } else {
+                    quarantined++;
+                }
+            }
+        }
+        return new TextSnapshotScan(tasks, quarantined);
+    }
+
+    /**
+     * Removes a torn final line from the text snapshot and appends it to the quarantine file.
+     * Only the last two lines are read. A final line without a line break that still
+     * holds a valid task, as left by some editors, is kept, unless it lacks the checksum
+     * that the line before it has, since a tear can cut off the checksum field itself.
+     *
+     * @param snapshot the text snapshot to repair
+     * @return the number of bytes removed, or 0 if the snapshot was not torn
+     * @throws IOException if the snapshot cannot be read or truncated
+     */
+    public static long truncateTornTail(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size == 0 || readByte(channel, size - 1) == '\n') {
+                return 0;
+            }
+            long tailStart = findLineStart(channel, size);
+            String line = readLine(channel, tailStart, size);
+            if (line.isBlank() || !isTorn(channel, tailStart, line)) {
+                return 0;
+            }
+
+            Files.write(getQuarantinePath(snapshot), (line + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            channel.truncate(tailStart);
+            channel.force(true);
+            return size - tailStart;
+        }
+    }
+
+    private static boolean isTorn(FileChannel channel, long tailStart, String line) throws IOException {
+        if (RecordChecksum.decode(line) == null) {
+            return true;
+        }
+        if (RecordChecksum.isSealed(line) || tailStart == 0) {
+            return false;
+        }
+        long previousEnd = tailStart - 1;
+        String previous = readLine(channel, findLineStart(channel, previousEnd), previousEnd);
+        return RecordChecksum.isSealed(previous.stripTrailing());
+    }
+
+    private static String readLine(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        readFully(channel, buffer, start);
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    private static byte readByte(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer, position);
+        return buffer.get(0);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the offset just after the last line break before {@code end}, or 0 if there is none.
+     */
+    private static long findLineStart(FileChannel channel, long end) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(TAIL_SCAN_BYTES);
+        long windowEnd = end;
+        while (windowEnd > 0) {
+            long windowStart = Math.max(0, windowEnd - TAIL_SCAN_BYTES);
+            window.clear();
+            window.limit((int) (windowEnd - windowStart));
+            readFully(channel, window, windowStart);
+            for (int i = window.position() - 1; i >= 0; i--) {
+                if (window.get(i) == '\n') {
+                    return windowStart + i + 1;
+                }
+            }
+            windowEnd = windowStart;
+        }
+        return 0;
+    }
+}
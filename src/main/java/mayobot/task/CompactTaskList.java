@@ -0,0 +1,419 @@
+package mayobot.task;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+import mayobot.util.PositionalBitSet;
+
+/**
+ * List of tasks stored as parallel primitive arrays instead of one object per task,
+ * for lists of millions of tasks that would otherwise spend most of their heap on headers.
+ * <p>
+ * Each position has a type byte, a done bit, an id and the start of its record in one
+ * shared byte arena. A record holds the length of the description as a varint, the
+ * description in UTF-8, then the times of the task as epoch seconds: none for a todo,
+ * the deadline of a deadline, and the start and end of an event. Keeping the times in
+ * the record rather than in arrays of their own means todos take no space for them.
+ * Like the binary format, times are kept to the second.
+ * <p>
+ * {@link #get(int)} decodes a new task each time, so a task changed in place must be
+ * written back with {@link #set(int, Task)}, which {@link TaskList} always does.
+ * Inserting or removing shifts the later positions of every array, which is a copy of
+ * a few bytes per task. Space freed in the arena by removed or replaced records is
+ * reclaimed once it makes up half of the arena.
+ */
+public class CompactTaskList extends AbstractList<Task> implements RandomAccess {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int BYTES_PER_RECORD = 24;
+    private static final int TIME_BYTES = Long.BYTES;
+    private static final TaskType[] TYPES = TaskType.values();
+
+    private byte[] types;
+    private PositionalBitSet doneTasks;
+    private long[] ids;
+    private int[] recordStarts;
+    private byte[] arena;
+    private int arenaSize;
+    private int unusedArenaBytes;
+    private long maxId = Task.NO_ID;
+    /** True while the ids are known to ascend along the list, so a failed binary search is final. */
+    private boolean idsAscend = true;
+    private int size;
+
+    /**
+     * Creates a new empty CompactTaskList.
+     */
+    public CompactTaskList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty CompactTaskList with room for the given number of tasks.
+     *
+     * @param capacity the number of tasks expected
+     */
+    public CompactTaskList(int capacity) {
+        capacity = Math.max(1, capacity);
+        types = new byte[capacity];
+        doneTasks = new PositionalBitSet(capacity);
+        ids = new long[capacity];
+        recordStarts = new int[capacity];
+        arena = new byte[capacity * BYTES_PER_RECORD];
+    }
+
+    /**
+     * Creates a new CompactTaskList holding the given tasks, in order, with no room to spare.
+     *
+     * @param tasks the tasks to copy
+     */
+    public CompactTaskList(Collection<? extends Task> tasks) {
+        this(tasks.size());
+        addAll(tasks);
+        trimToSize();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a new task decoded from the given position.
+     *
+     * @param index the zero-based position
+     * @return the task at the position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public Task get(int index) {
+        checkIndex(index, size);
+        int start = recordStarts[index];
+        int length = readLength(start);
+        int descriptionStart = start + lengthSize(length);
+        String description = new String(arena, descriptionStart, length, StandardCharsets.UTF_8);
+        int timesStart = descriptionStart + length;
+        Task task;
+        switch (TYPES[types[index]]) {
+        case DEADLINE:
+            task = new DeadlineTask(description, readTime(timesStart));
+            break;
+        case EVENT:
+            task = new EventTask(description, readTime(timesStart), readTime(timesStart + TIME_BYTES));
+            break;
+        default:
+            task = new TodoTask(description);
+            break;
+        }
+        if (doneTasks.get(index)) {
+            task.markAsDone();
+        }
+        task.setId(ids[index]);
+        return task;
+    }
+
+    /**
+     * Stores the task at the given position, replacing the task there. The record is
+     * only rewritten if the description or times changed, so marking a task takes no arena space.
+     *
+     * @param index the zero-based position
+     * @param task the task to store
+     * @return the task previously at the position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public Task set(int index, Task task) {
+        checkIndex(index, size);
+        Task previous = get(index);
+        byte[] record = encodeRecord(task);
+        int start = recordStarts[index];
+        int recordSize = recordSize(index);
+        if (TaskType.of(task).ordinal() != types[index]
+                || !Arrays.equals(record, 0, record.length, arena, start, start + recordSize)) {
+            unusedArenaBytes += recordSize;
+            append(index, record);
+        }
+        types[index] = (byte) TaskType.of(task).ordinal();
+        setId(index, task.getId());
+        doneTasks.set(index, task.isDone());
+        compactArenaIfSparse();
+        return previous;
+    }
+
+    /**
+     * Inserts the task at the given position, moving later tasks up by one.
+     *
+     * @param index the zero-based position
+     * @param task the task to insert
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public void add(int index, Task task) {
+        checkIndex(index, size + 1);
+        assert task != null : "Task cannot be null";
+
+        if (size == types.length) {
+            grow(size + 1);
+        }
+        shift(index, index + 1, size - index);
+        size++;
+        types[index] = (byte) TaskType.of(task).ordinal();
+        setId(index, task.getId());
+        doneTasks.insert(index, task.isDone());
+        append(index, encodeRecord(task));
+        modCount++;
+    }
+
+    /**
+     * Removes the task at the given position, moving later tasks down by one.
+     *
+     * @param index the zero-based position
+     * @return the removed task
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public Task remove(int index) {
+        Task removed = get(index);
+        removeRange(index, index + 1);
+        return removed;
+    }
+
+    /**
+     * Removes every task.
+     */
+    @Override
+    public void clear() {
+        size = 0;
+        doneTasks = new PositionalBitSet(types.length);
+        arenaSize = 0;
+        unusedArenaBytes = 0;
+        idsAscend = true;
+        modCount++;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        checkIndex(fromIndex, toIndex + 1);
+        checkIndex(toIndex, size + 1);
+
+        for (int i = fromIndex; i < toIndex; i++) {
+            unusedArenaBytes += recordSize(i);
+            doneTasks.remove(fromIndex);
+        }
+        shift(toIndex, fromIndex, size - toIndex);
+        size -= toIndex - fromIndex;
+        compactArenaIfSparse();
+        modCount++;
+    }
+
+    /**
+     * Shrinks every array to the number of tasks and the arena to the records it holds.
+     * Used once a large list has been filled, since growing leaves room to spare.
+     */
+    public void trimToSize() {
+        compactArena(0);
+        int capacity = Math.max(1, size);
+        types = Arrays.copyOf(types, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        recordStarts = Arrays.copyOf(recordStarts, capacity);
+    }
+
+    /**
+     * Returns the id of the task at the given position without decoding the task.
+     *
+     * @param index the zero-based position
+     * @return the id of the task
+     */
+    public long getId(int index) {
+        checkIndex(index, size);
+        return ids[index];
+    }
+
+    /**
+     * Returns the largest id stored in the list so far, including ids of removed tasks.
+     *
+     * @return the largest id, or {@link Task#NO_ID} if no task had an id
+     */
+    public long getMaxId() {
+        return maxId;
+    }
+
+    /**
+     * Returns the position of the task with the given id, searching the ids without
+     * decoding any task. Ids usually ascend along the list, so they are binary searched
+     * first. They are only scanned if that fails while they are not known to ascend,
+     * as after the list was reordered, and the scan finds out whether they do again.
+     *
+     * @param id the id to find
+     * @return the zero-based position, or -1 if no task has the id
+     */
+    public int indexOfId(long id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position >= 0 || idsAscend) {
+            return position >= 0 ? position : -1;
+        }
+        int found = -1;
+        boolean ascend = true;
+        for (int i = 0; i < size; i++) {
+            if (found < 0 && ids[i] == id) {
+                found = i;
+            }
+            ascend &= i == 0 || ids[i - 1] < ids[i];
+        }
+        idsAscend = ascend;
+        return found;
+    }
+
+    /**
+     * Gives every task without an id the next one, in list order.
+     *
+     * @param nextId the first id to hand out
+     * @return the id after the last one handed out
+     */
+    public long assignMissingIds(long nextId) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == Task.NO_ID) {
+                ids[i] = nextId++;
+                maxId = Math.max(maxId, ids[i]);
+                idsAscend = false;
+            }
+        }
+        return nextId;
+    }
+
+    private void setId(int index, long id) {
+        ids[index] = id;
+        maxId = Math.max(maxId, id);
+        if (index > 0 && ids[index - 1] >= id || index + 1 < size && id >= ids[index + 1]) {
+            idsAscend = false;
+        }
+    }
+
+    /**
+     * Copies the record to the end of the arena and points the given position at it.
+     */
+    private void append(int index, byte[] record) {
+        if (arenaSize + record.length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arenaSize + record.length, arena.length + (arena.length >> 1)));
+        }
+        System.arraycopy(record, 0, arena, arenaSize, record.length);
+        recordStarts[index] = arenaSize;
+        arenaSize += record.length;
+    }
+
+    private static byte[] encodeRecord(Task task) {
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        TaskType type = TaskType.of(task);
+        int lengthSize = lengthSize(description.length);
+        byte[] record = new byte[lengthSize + description.length + timeCount(type) * TIME_BYTES];
+        int next = 0;
+        for (int length = description.length; length >= 0x80; length >>>= 7) {
+            record[next++] = (byte) (length & 0x7F | 0x80);
+        }
+        record[next++] = (byte) (description.length >>> (7 * (lengthSize - 1)));
+        System.arraycopy(description, 0, record, next, description.length);
+        next += description.length;
+        if (type == TaskType.DEADLINE) {
+            writeTime(record, next, ((DeadlineTask) task).getBy());
+        } else if (type == TaskType.EVENT) {
+            EventTask event = (EventTask) task;
+            writeTime(record, next, event.getFrom());
+            writeTime(record, next + TIME_BYTES, event.getTo());
+        }
+        return record;
+    }
+
+    /**
+     * Copies a run of positions within every array except the done bits.
+     */
+    private void shift(int from, int to, int count) {
+        System.arraycopy(types, from, types, to, count);
+        System.arraycopy(ids, from, ids, to, count);
+        System.arraycopy(recordStarts, from, recordStarts, to, count);
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, types.length + (types.length >> 1));
+        types = Arrays.copyOf(types, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        recordStarts = Arrays.copyOf(recordStarts, capacity);
+    }
+
+    /**
+     * Copies the live records into a new arena once half of the current one is unused.
+     */
+    private void compactArenaIfSparse() {
+        if (unusedArenaBytes * 2 > arenaSize && arenaSize >= DEFAULT_CAPACITY * BYTES_PER_RECORD) {
+            compactArena(size * BYTES_PER_RECORD);
+        }
+    }
+
+    private void compactArena(int minCapacity) {
+        byte[] compacted = new byte[Math.max(arenaSize - unusedArenaBytes, minCapacity)];
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            int recordSize = recordSize(i);
+            System.arraycopy(arena, recordStarts[i], compacted, next, recordSize);
+            recordStarts[i] = next;
+            next += recordSize;
+        }
+        arena = compacted;
+        arenaSize = next;
+        unusedArenaBytes = 0;
+    }
+
+    private int recordSize(int index) {
+        int length = readLength(recordStarts[index]);
+        return lengthSize(length) + length + timeCount(TYPES[types[index]]) * TIME_BYTES;
+    }
+
+    private int readLength(int start) {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = arena[start++];
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return length;
+            }
+        }
+    }
+
+    private static int lengthSize(int length) {
+        int bytes = 1;
+        while (length >= 0x80) {
+            length >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    private static int timeCount(TaskType type) {
+        return type == TaskType.EVENT ? 2 : type == TaskType.DEADLINE ? 1 : 0;
+    }
+
+    private LocalDateTime readTime(int start) {
+        long epochSecond = 0;
+        for (int i = 0; i < TIME_BYTES; i++) {
+            epochSecond = (epochSecond << 8) | (arena[start + i] & 0xFF);
+        }
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    private static void writeTime(byte[] record, int start, LocalDateTime time) {
+        long epochSecond = time.toEpochSecond(ZoneOffset.UTC);
+        for (int i = TIME_BYTES - 1; i >= 0; i--) {
+            record[start + i] = (byte) epochSecond;
+            epochSecond >>>= 8;
+        }
+    }
+
+    private static void checkIndex(int index, int limit) {
+        if (index < 0 || index >= limit) {
+            throw new IndexOutOfBoundsException("Index out of range: " + index);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package mayobot.task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import mayobot.storage.StorageBackend;
+import mayobot.ui.Ui;
+import mayobot.util.ChunkedList;
+import mayobot.util.RopeList;
+
+/**
+ * TaskList that can be read from any number of threads while one thread at a time changes it.
+ * <p>
+ * Changes take the write lock of a {@link StampedLock}. Counts are read optimistically
+ * without locking, and retried under the read lock only if a change overlapped them.
+ * Lookups by position, id, status or time take the read lock, since they are short.
+ * <p>
+ * Rendering and searching walk an immutable snapshot of the list instead, so they never
+ * hold a lock while they run and never block a change. The snapshot is a {@link ChunkedList}
+ * that follows the list through its {@link TaskListListener} events: each change publishes
+ * a new version, made under the write lock the change already holds, which copies only the
+ * chunk it changed and the table of chunks, and a bulk change publishes once at its end.
+ * Reading the snapshot never copies the list or takes a lock. Marking a task changes it in
+ * place and keeps the snapshot, since done status is read from the task itself and is
+ * safe to read while it changes.
+ * <p>
+ * Every index is built when the list is created, because building one on first use would
+ * turn a read into a change.
+ */
+public class ConcurrentTaskList extends TaskList {
+
+    private final StampedLock lock = new StampedLock();
+    private volatile ChunkedList<Task> snapshot;
+
+    /**
+     * Applies every change of the list to the next version of the snapshot, and publishes
+     * it once the change, or the batch it is part of, is complete. Called under the write lock.
+     */
+    private class SnapshotUpdater implements TaskListListener {
+        private ChunkedList.Editor<Task> editor;
+        private boolean isInBatch;
+
+        @Override
+        public void onAdd(int index, Task task) {
+            edit().add(index - 1, task);
+            publishUnlessInBatch();
+        }
+
+        @Override
+        public void onRemove(int index, Task task) {
+            edit().remove(index - 1);
+            publishUnlessInBatch();
+        }
+
+        @Override
+        public void onStatusChange(int index, Task task) {}
+
+        @Override
+        public void onBatchStart() {
+            isInBatch = true;
+        }
+
+        @Override
+        public void onBatchEnd() {
+            isInBatch = false;
+            publishUnlessInBatch();
+        }
+
+        private ChunkedList.Editor<Task> edit() {
+            if (editor == null) {
+                editor = snapshot.edit();
+            }
+            return editor;
+        }
+
+        private void publishUnlessInBatch() {
+            if (!isInBatch && editor != null) {
+                snapshot = editor.build();
+                editor = null;
+            }
+        }
+    }
+
+    /**
+     * Creates a new empty ConcurrentTaskList with the specified storage system.
+     *
+     * @param storage the backend to use for task persistence
+     */
+    public ConcurrentTaskList(StorageBackend storage) {
+        super(storage);
+        buildIndexes();
+        followWithSnapshot();
+    }
+
+    /**
+     * Creates a new ConcurrentTaskList holding the given tasks.
+     * The tasks are copied into a list of its own, since a list that loads
+     * its tasks on demand changes as it is read.
+     *
+     * @param storage the backend to use for task persistence
+     * @param tasks the tasks, in list order
+     */
+    public ConcurrentTaskList(StorageBackend storage, List<Task> tasks) {
+        super(storage, new RopeList<>(tasks));
+        buildIndexes();
+        followWithSnapshot();
+    }
+
+    @Override
+    public int getSize() {
+        return readOptimistically(super::getSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addTask(Task task, Ui ui, boolean isGui) {
+        write(() -> super.addTask(task, ui, isGui));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addTaskToList(Task task) {
+        write(() -> super.addTaskToList(task));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Task getTaskById(long id) {
+        return read(() -> super.getTaskById(id));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPositionOfId(long id) {
+        return read(() -> super.getPositionOfId(id));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPositionFromId(long id) {
+        return read(() -> super.getPositionFromId(id));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Task getTask(int index) {
+        return read(() -> super.getTask(index));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replaceTasksInList(int start, int removeCount, List<Task> replacement) {
+        write(() -> super.replaceTasksInList(start, removeCount, replacement));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Task deleteTask(int index) {
+        return write(() -> super.deleteTask(index));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Task> deleteTasks(int[] indexes) {
+        return write(() -> super.deleteTasks(indexes));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void printTask(int index, Ui ui) {
+        ui.showMessage(getTaskForGui(index));
+    }
+
+    @Override
+    public String getTaskForGui(int index) {
+        return read(() -> super.getTaskForGui(index));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean markTaskAsDone(int index) {
+        return write(() -> super.markTaskAsDone(index));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean markTaskAsNotDone(int index) {
+        return write(() -> super.markTaskAsNotDone(index));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Task> markTasks(int[] indexes, boolean isDone) {
+        return write(() -> super.markTasks(indexes, isDone));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int countDoneTasks() {
+        return readOptimistically(super::countDoneTasks);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int countTasks(TaskType type) {
+        return readOptimistically(() -> super.countTasks(type));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArrayList<Object[]> filterTasks(Boolean isDone, TaskType type) {
+        return read(() -> super.filterTasks(isDone, type));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArrayList<Object[]> findDeadlinesBefore(LocalDateTime before) {
+        return read(() -> super.findDeadlinesBefore(before));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArrayList<Object[]> findAgenda(LocalDateTime from, LocalDateTime to) {
+        return read(() -> super.findAgenda(from, to));
+    }
+
+    /**
+     * Returns the current snapshot, which the last change published, without locking.
+     *
+     * @return an immutable snapshot of the tasks, in list order
+     */
+    @Override
+    protected List<Task> tasksForReading() {
+        return snapshot;
+    }
+
+    private void followWithSnapshot() {
+        snapshot = ChunkedList.of(super.tasksForReading());
+        addListener(new SnapshotUpdater());
+    }
+
+    private int readOptimistically(IntSupplier reader) {
+        long stamp = lock.tryOptimisticRead();
+        int value = reader.getAsInt();
+        if (lock.validate(stamp)) {
+            return value;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return reader.getAsInt();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <T> T write(Supplier<T> writer) {
+        long stamp = lock.writeLock();
+        try {
+            return writer.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void write(Runnable writer) {
+        write(() -> {
+            writer.run();
+            return null;
+        });
+    }
+}
@@ -62,11 +62,15 @@ public class DeadlineTask extends Task {
         this.by = by;
     }
 
+    public LocalDateTime getBy() {
+        return by;
+    }
+
     /**
      * Returns the file storage representation of this deadline task.
      * Extends the base task file format by prefixing with "D" and appending
      * the deadline in ISO format. The format follows the pattern:
-     * "D | completion_status | description | iso_datetime"
+     * "D | completion_status | description | iso_datetime [| @id]"
      * <p>
      * The ISO datetime format ensures consistent and unambiguous date
      * representation in storage files, facilitating reliable task reconstruction
@@ -76,7 +80,7 @@ public class DeadlineTask extends Task {
      */
     @Override
     public String changeToFileFormat() {
-        return "D | " + super.changeToFileFormat() + " | " + by;
+        return "D | " + super.changeToFileFormat() + " | " + by + formatIdField();
     }
 
     /**
@@ -67,11 +67,19 @@ public class EventTask extends Task {
         this.to = to;
     }
 
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
     /**
      * Returns the file storage representation of this event task.
      * Extends the base task file format by prefixing with "E" and appending
      * both start and end times in ISO format. The format follows the pattern:
-     * "E | completion_status | description | iso_start_datetime | iso_end_datetime"
+     * "E | completion_status | description | iso_start_datetime | iso_end_datetime [| @id]"
      * <p>
      * The ISO datetime format ensures consistent and unambiguous date
      * representation in storage files, facilitating reliable task reconstruction
@@ -83,7 +91,8 @@ public class EventTask extends Task {
     public String changeToFileFormat() {
         return "E | " + super.changeToFileFormat()
                 + " | " + from
-                + " | " + to;
+                + " | " + to
+                + formatIdField();
     }
 
     /**
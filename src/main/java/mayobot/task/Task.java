@@ -1,5 +1,7 @@
 package mayobot.task;
 
+import mayobot.util.StringPool;
+
 /**
  * Abstract base class representing a task in the MayoBot system.
  * Provides common functionality for all task types including description management,
@@ -9,11 +11,21 @@ package mayobot.task;
  * Tasks maintain a description and completion status, and provide methods for
  * status manipulation and display formatting. The class defines the contract
  * for file serialization that all task types must implement.
+ * <p>
+ * A task also gets a stable id when it is first added to a {@link TaskList}.
+ * Unlike its position, the id never changes while the task exists, and it is
+ * stored as the last field of the file format.
  */
 public abstract class Task {
+    /** Id of a task that has not been added to a task list yet. */
+    public static final long NO_ID = 0;
+    /** Prefix of the id field in the file format. */
+    public static final String ID_FIELD_PREFIX = "@";
 
     protected String description;
-    protected boolean isDone;
+    /** Volatile so that a task marked by one thread is seen done by readers on others. */
+    protected volatile boolean isDone;
+    protected long id = NO_ID;
 
     /**
      * Creates a new Task with the specified description.
@@ -52,6 +64,32 @@ public abstract class Task {
         return description;
     }
 
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Replaces the description of this task with the equal one held by the pool,
+     * so that tasks with the same description share a single string.
+     *
+     * @param pool the pool of canonical descriptions
+     */
+    public void internDescription(StringPool pool) {
+        description = pool.intern(description);
+    }
+
+    /**
+     * Sets the stable id of this task. Called by the task list that owns the task
+     * and by storage when it restores a task.
+     *
+     * @param id a positive id, or {@link #NO_ID}
+     */
+    public void setId(long id) {
+        assert id >= NO_ID : "Id cannot be negative: " + id;
+
+        this.id = id;
+    }
+
     /**
      * Returns whether this task has been marked as completed.
      * Indicates the current completion status of the task, which can be
@@ -99,6 +137,15 @@ public abstract class Task {
         return (isDone ? "1" : "0") + " | " + description;
     }
 
+    /**
+     * Returns the id field that ends the file format, or an empty string if the task has no id yet.
+     *
+     * @return the id field including its separator
+     */
+    protected String formatIdField() {
+        return id == NO_ID ? "" : " | " + ID_FIELD_PREFIX + id;
+    }
+
     /**
      * Returns the display string representation of this task.
      * Provides a human-readable format suitable for console display.
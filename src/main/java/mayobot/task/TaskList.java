@@ -1,13 +1,32 @@
 package mayobot.task;
 
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import mayobot.Storage;
+import mayobot.storage.LazyTaskList;
+import mayobot.storage.StorageBackend;
+import mayobot.storage.StorageStats;
 import mayobot.ui.Ui;
+import mayobot.util.IntervalTree;
+import mayobot.util.LongObjectMap;
+import mayobot.util.PositionalBitSet;
+import mayobot.util.RopeList;
 import mayobot.util.SearchMatcher;
+import mayobot.util.StringPool;
 
 /**
  * Manages a collection of tasks and provides operations for task manipulation.
@@ -18,11 +37,67 @@ import mayobot.util.SearchMatcher;
  * The TaskList automatically handles storage operations for task modifications
  * and provides console output for user feedback. All task operations include
  * appropriate status messages to keep the user informed of changes.
+ * <p>
+ * The tasks can be held in any list, including one that decodes them from the
+ * storage file on demand. Modified tasks are therefore always written back to
+ * the list rather than only changed in place. By default they are held in a
+ * {@link RopeList}, so deleting a task does not shift every later one. Very
+ * large lists can be held in a {@link CompactTaskList} instead, which stores the
+ * fields of every task in shared arrays.
+ * <p>
+ * Every task also has a stable id that does not change when earlier tasks are
+ * deleted. The list keeps a hash index from id to task, built the first time it
+ * is needed so that a list handed over by storage is not scanned at startup. Ids are handed
+ * out in increasing order, so they usually ascend along the list and the position of
+ * an id is found by binary search. They do not always: tasks given ids when they were
+ * loaded from an old file, or inserted in the middle by an edit to the file, sit among
+ * smaller ids. Every search by id therefore falls back to a scan when the binary search misses.
+ * <p>
+ * A compact list searches its own array of ids instead, and a lazy list searches its
+ * tasks by decoding only those the search visits, so that no task has to be decoded to
+ * build the index. Both take the next id from the largest id they have stored.
+ * <p>
+ * Done status and task type are indexed by bit sets with one bit per position,
+ * built on first use like the id index and then kept up to date by every change,
+ * so counting open tasks or listing only deadlines does not look at every task.
+ * <p>
+ * Deadlines are also kept sorted by time, and events in an interval tree, so that
+ * finding what is due or happening in a range takes O(log n + k) time for k results.
+ * These follow the tasks by id rather than by position, and are built on first use too.
+ * They only read the times and ids of the tasks they hold; each match is read from the
+ * list again, since a compact or lazy list decodes a new task object whenever it is read.
+ * <p>
+ * With a description pool set, every task added shares its description with equal
+ * ones already pooled, so recurring tasks do not each keep a copy of the same text.
+ * <p>
+ * Every change is also published to the registered {@link TaskListListener}s as it is
+ * made, with bulk operations marked as batches, so that views and caches derived from
+ * the list can update in proportion to what changed.
  */
 public class TaskList {
 
-    private ArrayList<Task> tasks;
-    private Storage storage;
+    private List<Task> tasks;
+    private StorageBackend storage;
+    private LongObjectMap<Task> tasksById;
+    /** The tasks if they are held in a compact list, which looks ids up itself instead of the id index. */
+    private CompactTaskList compactTasks;
+    /** The tasks if they are decoded lazily from a snapshot, which also looks ids up itself. */
+    private LazyTaskList lazyTasks;
+    /** True once ids are found by searching the list itself, which is done instead of building the id index. */
+    private boolean isSearchingIds;
+    private long nextId = 1;
+    private PositionalBitSet doneTasks;
+    private PositionalBitSet[] tasksByType;
+    private TreeSet<DeadlineTask> deadlinesByTime;
+    private IntervalTree<EventTask> eventsByTime;
+    private StringPool descriptionPool;
+    /** Id of the task the next page of the list starts from, or no id if no list is being paged. */
+    private long pageCursorId = Task.NO_ID;
+    private int pageCursorSize;
+    private final List<TaskListListener> listeners = new CopyOnWriteArrayList<>();
+
+    private static final Comparator<DeadlineTask> BY_DEADLINE = Comparator.comparing(DeadlineTask::getBy)
+            .thenComparingLong(Task::getId);
 
     /**
      * Creates a new TaskList with the specified storage system.
@@ -30,11 +105,31 @@ public class TaskList {
      * storage system for persistence operations. The storage system will be
      * used automatically for all task modification operations.
      *
-     * @param storage the Storage instance to use for task persistence
+     * @param storage the backend to use for task persistence
      */
-    public TaskList(Storage storage) {
-        tasks = new ArrayList<>();
+    public TaskList(StorageBackend storage) {
+        this(storage, new RopeList<>());
+    }
+
+    /**
+     * Creates a new TaskList backed by the given list of tasks.
+     * Used by storage to hand over tasks it has already loaded, or a list that
+     * loads them lazily. The list is used directly rather than copied.
+     *
+     * @param storage the backend to use for task persistence
+     * @param tasks the list holding the tasks
+     */
+    public TaskList(StorageBackend storage, List<Task> tasks) {
+        assert tasks != null : "Task list cannot be null";
+
+        this.tasks = tasks;
         this.storage = storage;
+        if (tasks instanceof CompactTaskList) {
+            compactTasks = (CompactTaskList) tasks;
+        }
+        if (tasks instanceof LazyTaskList) {
+            lazyTasks = (LazyTaskList) tasks;
+        }
     }
 
     /**
@@ -48,6 +143,77 @@ public class TaskList {
         return tasks.size();
     }
 
+    /**
+     * Returns the write and load statistics of the storage backing this list.
+     *
+     * @return the storage statistics
+     */
+    public StorageStats getStorageStats() {
+        return storage.getStats();
+    }
+
+    /**
+     * Sets the pool that the descriptions of tasks added from now on are shared through.
+     * Tasks already in the list are left as they are; storage pools them as it loads them.
+     *
+     * @param descriptionPool the pool, or null to stop pooling
+     */
+    public void setDescriptionPool(StringPool descriptionPool) {
+        this.descriptionPool = descriptionPool;
+    }
+
+    public StringPool getDescriptionPool() {
+        return descriptionPool;
+    }
+
+    /**
+     * Registers a listener to receive every later change to the list.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(TaskListListener listener) {
+        assert listener != null : "Listener cannot be null";
+
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops a listener from receiving changes to the list.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(TaskListListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Remembers where the next page of the list starts, by the id of its first task,
+     * so that the page stays in place when earlier tasks are added or deleted.
+     *
+     * @param nextId the id of the first task of the next page, or {@link Task#NO_ID} if there is none
+     * @param pageSize the number of tasks per page
+     */
+    public void setPageCursor(long nextId, int pageSize) {
+        this.pageCursorId = nextId;
+        this.pageCursorSize = pageSize;
+    }
+
+    public long getPageCursorId() {
+        return pageCursorId;
+    }
+
+    public int getPageCursorSize() {
+        return pageCursorSize;
+    }
+
+    /**
+     * Blocks until every change made to this list has been written by its storage.
+     * Used before exiting so that queued writes are not lost.
+     */
+    public void flush() {
+        storage.flush();
+    }
+
     /**
      * Adds a new task to the list and saves it to storage.
      * Appends the task to the end of the task list and immediately saves
@@ -57,6 +223,7 @@ public class TaskList {
      * This method is used for adding new tasks during interactive use and
      * provides immediate feedback and persistence. The task is added to
      * storage incrementally without affecting existing tasks.
+     * A task without a stable id is given the next one before it is saved.
      *
      * @param task the task to add to the list and save to storage
      * @param ui
@@ -67,8 +234,13 @@ public class TaskList {
         assert task.getDescription() != null && !task.getDescription().trim().isEmpty()
                 : "Task description cannot be null or empty";
 
+        internDescription(task);
+        indexId(task);
         tasks.add(task);
-        storage.saveTask(task);
+        insertIntoStatusIndex(tasks.size() - 1, task);
+        insertIntoTimeIndex(task);
+        fireAdd(tasks.size(), task);
+        storage.append(task);
     }
 
     /**
@@ -86,7 +258,220 @@ public class TaskList {
         assert task != null : "Cannot add null task to list";
         assert task.getDescription() != null : "Task description cannot be null";
 
+        internDescription(task);
+        indexId(task);
         tasks.add(task);
+        insertIntoStatusIndex(tasks.size() - 1, task);
+        insertIntoTimeIndex(task);
+        fireAdd(tasks.size(), task);
+    }
+
+    /**
+     * Returns the task with the given stable id.
+     * A list held in memory looks the id up in a hash index, in constant time however many
+     * tasks there are. A compact or lazy list keeps the id of every task beside it instead,
+     * and binary searches those ids without decoding any task, in O(log n) time while ids
+     * ascend along the list; they are scanned only while they do not.
+     *
+     * @param id the id of the task
+     * @return the task, or null if no task in the list has the id
+     */
+    public Task getTaskById(long id) {
+        return lookUpId(id);
+    }
+
+    /**
+     * Returns the one-based position of the task with the given stable id.
+     * The position is found by binary search, falling back to a scan if ids do not
+     * ascend along the list.
+     *
+     * @param id the id of the task
+     * @return the one-based position of the task, or -1 if no task in the list has the id
+     */
+    public int getPositionOfId(long id) {
+        return positionOfId(id);
+    }
+
+    /**
+     * Returns the one-based position of the task with the given id, or of the task that
+     * took its place if it has been deleted since. Used to resume from a remembered task.
+     * <p>
+     * A task that is still in the list is always found. Otherwise the position is that of
+     * the first task whose id is at least the given one, which is exact only while ids
+     * ascend along the list.
+     *
+     * @param id the id to resume from
+     * @return the one-based position, or one past the last task if every id is smaller
+     */
+    public int getPositionFromId(long id) {
+        int position = positionOfId(id);
+        if (position > 0) {
+            return position;
+        }
+
+        int low = 0;
+        int high = tasks.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (tasks.get(middle).getId() < id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low + 1;
+    }
+
+    /**
+     * Public lookups and queries go through these private versions, so that a
+     * subclass guarding the public methods is not entered again from inside them.
+     */
+    private Task lookUpId(long id) {
+        if (id <= Task.NO_ID) {
+            return null;
+        }
+        ensureIdIndex();
+        if (isSearchingIds) {
+            int position = indexOfId(id);
+            return position < 0 ? null : tasks.get(position);
+        }
+        return tasksById.get(id);
+    }
+
+    private int positionOfId(long id) {
+        if (id <= Task.NO_ID) {
+            return -1;
+        }
+        ensureIdIndex();
+        if (!isSearchingIds && !tasksById.containsKey(id)) {
+            return -1;
+        }
+        int index = indexOfId(id);
+        return index < 0 ? -1 : index + 1;
+    }
+
+    /**
+     * Returns the zero-based position of the task with the given id, searching the list
+     * itself: by binary search while ids ascend, then by a scan.
+     */
+    private int indexOfId(long id) {
+        if (compactTasks != null) {
+            return compactTasks.indexOfId(id);
+        }
+        if (lazyTasks != null) {
+            return lazyTasks.indexOfId(id);
+        }
+        int low = 0;
+        int high = tasks.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long candidate = tasks.get(middle).getId();
+            if (candidate == id) {
+                return middle;
+            } else if (candidate < id) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the id index now, giving an id to every task that has none.
+     * Used by storage after loading tasks written before ids existed, so that it can persist them.
+     * A lazy list is only loaded if every stored task has an id, so nothing is decoded for it.
+     */
+    public void indexIds() {
+        ensureIdIndex();
+    }
+
+    /**
+     * Builds every index now rather than on first use. Used by subclasses whose
+     * reads must not change the list, since building an index on first use does.
+     */
+    protected void buildIndexes() {
+        ensureIdIndex();
+        ensureStatusIndex();
+        ensureTimeIndex();
+    }
+
+    /**
+     * Returns the list that long reads, such as rendering and searching, walk over.
+     * By default this is the list itself; a subclass may return a snapshot of it instead.
+     *
+     * @return the tasks, in list order
+     */
+    protected List<Task> tasksForReading() {
+        return tasks;
+    }
+
+    /**
+     * Shares the description of the task through the pool, if there is one. A compact
+     * list keeps descriptions as bytes rather than strings, so its tasks are not pooled.
+     */
+    private void internDescription(Task task) {
+        if (descriptionPool != null && compactTasks == null) {
+            task.internDescription(descriptionPool);
+        }
+    }
+
+    /**
+     * Gives the task an id if it has none and adds it to the id index.
+     */
+    private void indexId(Task task) {
+        ensureIdIndex();
+        if (isSearchingIds) {
+            // Every id in the list is below the next one, so only a smaller id can be taken
+            if (task.getId() == Task.NO_ID || task.getId() < nextId && indexOfId(task.getId()) >= 0) {
+                task.setId(nextId);
+            }
+            nextId = Math.max(nextId, task.getId() + 1);
+            return;
+        }
+        if (task.getId() == Task.NO_ID || tasksById.containsKey(task.getId())) {
+            task.setId(nextId);
+        }
+        nextId = Math.max(nextId, task.getId() + 1);
+        tasksById.put(task.getId(), task);
+    }
+
+    /**
+     * Builds the id index on first use. Ids are kept where they are unique, and
+     * tasks without one or with a duplicate are given fresh ids in list order.
+     */
+    private void ensureIdIndex() {
+        if (tasksById != null || isSearchingIds) {
+            return;
+        }
+        if (compactTasks != null) {
+            // Ids are searched in the compact list itself, so no task is decoded to build an index
+            nextId = compactTasks.assignMissingIds(Math.max(nextId, compactTasks.getMaxId() + 1));
+            isSearchingIds = true;
+            return;
+        }
+        if (lazyTasks != null) {
+            // Decoding every task to index it would undo loading lazily, so ids are searched instead
+            nextId = Math.max(nextId, lazyTasks.getMaxId() + 1);
+            isSearchingIds = true;
+            return;
+        }
+
+        tasksById = new LongObjectMap<>(tasks.size());
+        for (Task task : tasks) {
+            nextId = Math.max(nextId, task.getId() + 1);
+        }
+        for (Task task : tasks) {
+            if (task.getId() == Task.NO_ID || tasksById.containsKey(task.getId())) {
+                task.setId(nextId++);
+            }
+            tasksById.put(task.getId(), task);
+        }
     }
 
     /**
@@ -108,15 +493,66 @@ public class TaskList {
         return tasks.get(index);
     }
 
+    /**
+     * Replaces a range of tasks without saving to storage or displaying messages.
+     * Used to apply changes that are already in the storage file, such as edits
+     * made to it by another program.
+     *
+     * @param start the zero-based index of the first task to replace
+     * @param removeCount the number of tasks to remove from that index
+     * @param replacement the tasks to insert at that index, in list order
+     */
+    public void replaceTasksInList(int start, int removeCount, List<Task> replacement) {
+        assert start >= 0 && start + removeCount <= tasks.size() : "Range out of bounds: " + start;
+        assert replacement != null : "Replacement cannot be null";
+
+        fireBatchStart();
+        List<Task> removed = tasks.subList(start, start + removeCount);
+        List<Task> removedTasks = listeners.isEmpty() ? List.of() : new ArrayList<>(removed);
+        for (Task task : removed) {
+            removeFromTimeIndex(task);
+        }
+        if (tasksById != null) {
+            for (Task task : removed) {
+                tasksById.remove(task.getId());
+            }
+        }
+        removed.clear();
+        for (int i = 0; i < removeCount; i++) {
+            removeFromStatusIndex(start);
+        }
+        // Each removal is reported at the start of the range, since the tasks after it move up
+        for (Task task : removedTasks) {
+            fireRemove(start + 1, task);
+        }
+        for (Task task : replacement) {
+            internDescription(task);
+        }
+        if (tasksById != null || isSearchingIds) {
+            for (Task task : replacement) {
+                indexId(task);
+            }
+        }
+        tasks.addAll(start, replacement);
+        for (int i = 0; i < replacement.size(); i++) {
+            insertIntoStatusIndex(start + i, replacement.get(i));
+            insertIntoTimeIndex(replacement.get(i));
+        }
+        for (int i = 0; i < replacement.size(); i++) {
+            fireAdd(start + i + 1, replacement.get(i));
+        }
+        fireBatchEnd();
+    }
+
     /**
      * Removes the task at the specified position and updates storage.
-     * Deletes the task from the list using one-based indexing and saves
-     * the updated task list to storage. Displays confirmation messages
+     * Deletes the task from the list using one-based indexing and records
+     * the deletion in storage. Displays confirmation messages
      * showing the removed task and updated task count.
      * <p>
      * The method uses one-based indexing to match user expectations, where
-     * task 1 corresponds to index 0 internally. After removal, the entire
-     * task list is saved to maintain consistency in storage.
+     * task 1 corresponds to index 0 internally. After removal, only the
+     * deletion is recorded in the storage journal.
      *
      * @param index the one-based index of the task to remove
      * @throws IndexOutOfBoundsException if the index is out of range
@@ -125,12 +561,79 @@ public class TaskList {
         assert index >= 1 : "Index should be 1-based positive: " + index;
         assert index <= tasks.size() : "Index out of bounds: " + index + ", size: " + tasks.size();
 
-        Task deletedTask = tasks.remove(index - 1);
-        storage.saveTasks(this);
+        Task deletedTask = removeTask(index);
+        storage.delete(index);
 
         return deletedTask;
     }
 
+    /**
+     * Removes the tasks at the specified positions and records all the deletions in storage at once.
+     * The tasks are removed from the largest position down, so every position still refers
+     * to the task it named, and the backend persists the whole batch with one write.
+     *
+     * @param indexes the one-based indexes of the tasks to remove, distinct and in ascending order
+     * @return the removed tasks, in list order
+     * @throws IndexOutOfBoundsException if an index is out of range
+     */
+    public List<Task> deleteTasks(int[] indexes) {
+        int[] descendingIndexes = new int[indexes.length];
+        Task[] deletedTasks = new Task[indexes.length];
+        fireBatchStart();
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            assert i == 0 || indexes[i - 1] < indexes[i] : "Indexes should be distinct and ascending";
+            assert indexes[i] >= 1 : "Index should be 1-based positive: " + indexes[i];
+
+            descendingIndexes[indexes.length - 1 - i] = indexes[i];
+            deletedTasks[i] = removeTask(indexes[i]);
+        }
+        fireBatchEnd();
+        storage.deleteAll(descendingIndexes);
+
+        return List.of(deletedTasks);
+    }
+
+    private Task removeTask(int index) {
+        Task deletedTask = tasks.remove(index - 1);
+        if (tasksById != null) {
+            tasksById.remove(deletedTask.getId());
+        }
+        removeFromStatusIndex(index - 1);
+        removeFromTimeIndex(deletedTask);
+        fireRemove(index, deletedTask);
+        return deletedTask;
+    }
+
+    private void fireAdd(int index, Task task) {
+        for (TaskListListener listener : listeners) {
+            listener.onAdd(index, task);
+        }
+    }
+
+    private void fireRemove(int index, Task task) {
+        for (TaskListListener listener : listeners) {
+            listener.onRemove(index, task);
+        }
+    }
+
+    private void fireStatusChange(int index, Task task) {
+        for (TaskListListener listener : listeners) {
+            listener.onStatusChange(index, task);
+        }
+    }
+
+    private void fireBatchStart() {
+        for (TaskListListener listener : listeners) {
+            listener.onBatchStart();
+        }
+    }
+
+    private void fireBatchEnd() {
+        for (TaskListListener listener : listeners) {
+            listener.onBatchEnd();
+        }
+    }
+
     /**
      * Displays a single task at the specified position.
      * Prints the task at the given one-based index to the console with
@@ -158,28 +661,65 @@ public class TaskList {
      * appropriate indentation for visual consistency.
      * <p>
      * If the list is empty, no output is produced. The display format
-     * includes the task number, followed by the task's string representation.
+     * includes the task number, followed by the task's string representation
+     * and its stable id.
      */
     public void printTasks(Ui ui) {
-        for (int i = 0; i < tasks.size(); i++) {
-            Task task = tasks.get(i);
-            ui.showMessage((i + 1) + ". " + task);
-        }
+        streamTaskLines(0, Integer.MAX_VALUE).forEach(ui::showMessage);
     }
 
     public String getTasksForGui() {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < tasks.size(); i++) {
-            Task task = tasks.get(i);
-            sb.append((i + 1) + ". " + task.toString() + "\n");
-        }
-        return sb.toString();
+        return streamTaskLines(0, Integer.MAX_VALUE).map(line -> line + "\n").collect(Collectors.joining());
+    }
+
+    /**
+     * Returns a spliterator over the tasks in list order. Tasks are read one at a time
+     * as it advances rather than copied up front; a concurrent list gives a snapshot.
+     *
+     * @return a spliterator over the tasks
+     */
+    public Spliterator<Task> spliterator() {
+        return tasksForReading().spliterator();
+    }
+
+    /**
+     * Returns the numbered display lines of the tasks in a range, each formatted only when
+     * the stream reaches it, so that long lists can be shown a line or a page at a time.
+     * The range is clamped to the list, whose size may have changed since the caller read it.
+     *
+     * @param start the zero-based position of the first task
+     * @param end the zero-based position after the last task
+     * @return a sequential stream of lines such as {@code 3. [T][ ] read book (#7)}
+     */
+    public Stream<String> streamTaskLines(int start, int end) {
+        assert start >= 0 && start <= end : "Invalid range: " + start + " to " + end;
+
+        ensureIdIndex();
+        List<Task> view = tasksForReading();
+        int from = Math.min(start, view.size());
+        int to = Math.min(end, view.size());
+        Iterator<Task> iterator = view.subList(from, to).iterator();
+        Spliterator<String> lines = new Spliterators.AbstractSpliterator<>(to - from,
+                Spliterator.ORDERED | Spliterator.SIZED | Spliterator.NONNULL) {
+            private int number = from;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super String> action) {
+                if (!iterator.hasNext()) {
+                    return false;
+                }
+                Task task = iterator.next();
+                action.accept(++number + ". " + task + " (#" + task.getId() + ")");
+                return true;
+            }
+        };
+        return StreamSupport.stream(lines, false);
     }
 
     /**
      * Marks the specified task as completed and updates storage.
      * Changes the completion status of the task at the given one-based index
-     * to done and saves the entire task list to storage. Performs bounds
+     * to done and records the change in the storage journal. Performs bounds
      * checking to ensure the index is valid.
      * <p>
      * Returns a boolean indicating success or failure, allowing callers to
@@ -193,8 +733,20 @@ public class TaskList {
         assert index >= 1 : "Index should be 1-based positive: " + index;
 
         if (index <= tasks.size()) {
-            tasks.get(index - 1).markAsDone();
-            storage.saveTasks(this);
+            Task task = tasks.get(index - 1);
+            boolean wasDone = task.isDone();
+            task.markAsDone();
+            tasks.set(index - 1, task);
+            if (tasksById != null) {
+                tasksById.put(task.getId(), task);
+            }
+            if (doneTasks != null) {
+                doneTasks.set(index - 1, task.isDone());
+            }
+            if (task.isDone() != wasDone) {
+                fireStatusChange(index, task);
+            }
+            storage.update(index, task);
             return true;
         } else {
             return false;
@@ -205,7 +757,7 @@ public class TaskList {
     /**
      * Marks the specified task as not completed and updates storage.
      * Changes the completion status of the task at the given one-based index
-     * to not done and saves the entire task list to storage. Performs bounds
+     * to not done and records the change in the storage journal. Performs bounds
      * checking to ensure the index is valid.
      * <p>
      * Returns a boolean indicating success or failure, allowing callers to
@@ -219,14 +771,288 @@ public class TaskList {
         assert index >= 1 : "Index should be 1-based positive: " + index;
 
         if (index <= tasks.size()) {
-            tasks.get(index - 1).markAsNotDone();
-            storage.saveTasks(this);
+            Task task = tasks.get(index - 1);
+            boolean wasDone = task.isDone();
+            task.markAsNotDone();
+            tasks.set(index - 1, task);
+            if (tasksById != null) {
+                tasksById.put(task.getId(), task);
+            }
+            if (doneTasks != null) {
+                doneTasks.set(index - 1, task.isDone());
+            }
+            if (task.isDone() != wasDone) {
+                fireStatusChange(index, task);
+            }
+            storage.update(index, task);
             return true;
         } else {
             return false;
         }
     }
 
+    /**
+     * Sets the completion status of the tasks at the specified positions and records
+     * all the changes in storage at once, so the backend persists the whole batch with one write.
+     *
+     * @param indexes the one-based indexes of the tasks to change
+     * @param isDone true to mark the tasks as done, false to mark them as not done
+     * @return the changed tasks, in the order of the indexes
+     * @throws IndexOutOfBoundsException if an index is out of range
+     */
+    public List<Task> markTasks(int[] indexes, boolean isDone) {
+        List<Task> changedTasks = new ArrayList<>(indexes.length);
+        fireBatchStart();
+        for (int index : indexes) {
+            assert index >= 1 : "Index should be 1-based positive: " + index;
+
+            Task task = tasks.get(index - 1);
+            boolean wasDone = task.isDone();
+            if (isDone) {
+                task.markAsDone();
+            } else {
+                task.markAsNotDone();
+            }
+            tasks.set(index - 1, task);
+            if (tasksById != null) {
+                tasksById.put(task.getId(), task);
+            }
+            if (doneTasks != null) {
+                doneTasks.set(index - 1, isDone);
+            }
+            if (isDone != wasDone) {
+                fireStatusChange(index, task);
+            }
+            changedTasks.add(task);
+        }
+        fireBatchEnd();
+        storage.updateAll(indexes, changedTasks);
+
+        return changedTasks;
+    }
+
+    /**
+     * Returns the number of tasks marked as done, read from the done status index.
+     *
+     * @return the number of done tasks
+     */
+    public int countDoneTasks() {
+        ensureStatusIndex();
+        return doneTasks.cardinality();
+    }
+
+    /**
+     * Returns the number of tasks of the given type, read from the type index.
+     *
+     * @param type the type of task to count
+     * @return the number of tasks of that type
+     */
+    public int countTasks(TaskType type) {
+        assert type != null : "Type cannot be null";
+
+        ensureStatusIndex();
+        return tasksByType[type.ordinal()].cardinality();
+    }
+
+    /**
+     * Returns the tasks with the given done status and type, with their original numbering.
+     * Walks the set bits of the type or done status index, so only matching tasks
+     * are read from the list.
+     *
+     * @param isDone the done status to match, or null to match either
+     * @param type the type to match, or null to match any
+     * @return an ArrayList containing arrays of [originalIndex, matchingTask]
+     */
+    public ArrayList<Object[]> filterTasks(Boolean isDone, TaskType type) {
+        ensureStatusIndex();
+        ArrayList<Object[]> matches = new ArrayList<>();
+        if (type != null) {
+            PositionalBitSet ofType = tasksByType[type.ordinal()];
+            for (int i = ofType.nextSetBit(0); i >= 0; i = ofType.nextSetBit(i + 1)) {
+                if (isDone == null || doneTasks.get(i) == isDone) {
+                    matches.add(new Object[]{i + 1, tasks.get(i)});
+                }
+            }
+        } else if (isDone != null) {
+            for (int i = nextWithStatus(isDone, 0); i >= 0; i = nextWithStatus(isDone, i + 1)) {
+                matches.add(new Object[]{i + 1, tasks.get(i)});
+            }
+        } else {
+            for (int i = 0; i < tasks.size(); i++) {
+                matches.add(new Object[]{i + 1, tasks.get(i)});
+            }
+        }
+        return matches;
+    }
+
+    private int nextWithStatus(boolean isDone, int from) {
+        return isDone ? doneTasks.nextSetBit(from) : doneTasks.nextClearBit(from);
+    }
+
+    /**
+     * Builds the done status and type indexes on first use.
+     */
+    private void ensureStatusIndex() {
+        if (doneTasks != null) {
+            return;
+        }
+
+        doneTasks = new PositionalBitSet(tasks.size());
+        tasksByType = new PositionalBitSet[TaskType.values().length];
+        for (int i = 0; i < tasksByType.length; i++) {
+            tasksByType[i] = new PositionalBitSet(tasks.size());
+        }
+        for (Task task : tasks) {
+            insertIntoStatusIndex(doneTasks.size(), task);
+        }
+    }
+
+    private void insertIntoStatusIndex(int position, Task task) {
+        if (doneTasks == null) {
+            return;
+        }
+        doneTasks.insert(position, task.isDone());
+        TaskType type = TaskType.of(task);
+        for (TaskType each : TaskType.values()) {
+            tasksByType[each.ordinal()].insert(position, each == type);
+        }
+    }
+
+    private void removeFromStatusIndex(int position) {
+        if (doneTasks == null) {
+            return;
+        }
+        doneTasks.remove(position);
+        for (PositionalBitSet ofType : tasksByType) {
+            ofType.remove(position);
+        }
+    }
+
+    /**
+     * Returns the deadlines due strictly before the given time, earliest first,
+     * with their original numbering. Reads the sorted deadline index.
+     *
+     * @param before the time the deadlines must be due before
+     * @return an ArrayList containing arrays of [originalIndex, matchingTask]
+     */
+    public ArrayList<Object[]> findDeadlinesBefore(LocalDateTime before) {
+        assert before != null : "Time cannot be null";
+
+        ensureTimeIndex();
+        ArrayList<Object[]> matches = new ArrayList<>();
+        for (DeadlineTask deadline : deadlinesByTime.headSet(deadlineProbe(before, Task.NO_ID), false)) {
+            matches.add(currentMatch(deadline));
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the deadlines due and the events taking place within the given range,
+     * both ends included, ordered by deadline or event start, with their original numbering.
+     * Reads the sorted deadline index and the event interval tree.
+     *
+     * @param from the start of the range
+     * @param to the end of the range
+     * @return an ArrayList containing arrays of [originalIndex, matchingTask]
+     */
+    public ArrayList<Object[]> findAgenda(LocalDateTime from, LocalDateTime to) {
+        assert from != null && to != null : "Range cannot be null";
+        assert !from.isAfter(to) : "Range ends before it starts";
+
+        ensureTimeIndex();
+        List<EventTask> events = new ArrayList<>();
+        // The tree holds whole seconds that cover each event, so candidates are checked exactly
+        eventsByTime.findOverlapping(toSecond(from), toCeilingSecond(to), event -> {
+            if (!event.getFrom().isAfter(to) && !event.getTo().isBefore(from)) {
+                events.add(event);
+            }
+        });
+        List<DeadlineTask> deadlines = new ArrayList<>(deadlinesByTime.subSet(deadlineProbe(from, Task.NO_ID), true,
+                deadlineProbe(to, Long.MAX_VALUE), true));
+
+        ArrayList<Object[]> matches = new ArrayList<>(events.size() + deadlines.size());
+        int nextEvent = 0;
+        int nextDeadline = 0;
+        while (nextEvent < events.size() || nextDeadline < deadlines.size()) {
+            Task task;
+            if (nextDeadline == deadlines.size() || (nextEvent < events.size()
+                    && events.get(nextEvent).getFrom().isBefore(deadlines.get(nextDeadline).getBy()))) {
+                task = events.get(nextEvent++);
+            } else {
+                task = deadlines.get(nextDeadline++);
+            }
+            matches.add(currentMatch(task));
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the position of a task held by a time index together with the task as the
+     * list holds it now, whose done status may have changed since it was indexed.
+     */
+    private Object[] currentMatch(Task indexedTask) {
+        int position = positionOfId(indexedTask.getId());
+        return new Object[]{position, tasks.get(position - 1)};
+    }
+
+    /**
+     * Builds the deadline and event time indexes on first use. They need ids, so the id index is built too.
+     */
+    private void ensureTimeIndex() {
+        if (deadlinesByTime != null) {
+            return;
+        }
+
+        ensureIdIndex();
+        deadlinesByTime = new TreeSet<>(BY_DEADLINE);
+        eventsByTime = new IntervalTree<>();
+        for (Task task : tasks) {
+            insertIntoTimeIndex(task);
+        }
+    }
+
+    private void insertIntoTimeIndex(Task task) {
+        if (deadlinesByTime == null) {
+            return;
+        }
+        if (task instanceof DeadlineTask) {
+            deadlinesByTime.add((DeadlineTask) task);
+        } else if (task instanceof EventTask) {
+            EventTask event = (EventTask) task;
+            eventsByTime.insert(toSecond(event.getFrom()), toCeilingSecond(event.getTo()), event.getId(), event);
+        }
+    }
+
+    private void removeFromTimeIndex(Task task) {
+        if (deadlinesByTime == null) {
+            return;
+        }
+        if (task instanceof DeadlineTask) {
+            deadlinesByTime.remove((DeadlineTask) task);
+        } else if (task instanceof EventTask) {
+            EventTask event = (EventTask) task;
+            eventsByTime.remove(toSecond(event.getFrom()), event.getId());
+        }
+    }
+
+    /**
+     * Returns a deadline that sorts with the deadlines due at the given time, before or after them
+     * depending on the id, for bounding views of the sorted deadline index.
+     */
+    private static DeadlineTask deadlineProbe(LocalDateTime time, long id) {
+        DeadlineTask probe = new DeadlineTask("probe", time);
+        probe.setId(id);
+        return probe;
+    }
+
+    private static long toSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static long toCeilingSecond(LocalDateTime time) {
+        return toSecond(time) + (time.getNano() > 0 ? 1 : 0);
+    }
+
     /**
      * Finds and returns all tasks that contain the specified search term.
      * Searches through all task descriptions for the given keyword and returns
@@ -243,9 +1069,10 @@ public class TaskList {
         assert searchTerm != null : "Search term cannot be null";
         assert !searchTerm.trim().isEmpty() : "Search term cannot be empty";
 
-        return IntStream.range(0, tasks.size())
-                .filter(i -> tasks.get(i).getDescription().toLowerCase().contains(searchTerm.toLowerCase()))
-                .mapToObj(i -> new Object[]{i + 1, tasks.get(i)})
+        List<Task> view = tasksForReading();
+        return IntStream.range(0, view.size())
+                .filter(i -> view.get(i).getDescription().toLowerCase().contains(searchTerm.toLowerCase()))
+                .mapToObj(i -> new Object[]{i + 1, view.get(i)})
                 .collect(Collectors.toCollection(ArrayList::new));
     }
 
@@ -263,9 +1090,10 @@ public class TaskList {
         assert !keyword.trim().isEmpty() : "Search keyword cannot be empty";
         assert threshold >= 0.0 && threshold <= 1.0 : "Threshold must be between 0.0 and 1.0";
 
-        return IntStream.range(0, tasks.size())
-                .filter(i -> SearchMatcher.fuzzyMatch(keyword, tasks.get(i).getDescription(), threshold))
-                .mapToObj(i -> new Object[]{i + 1, tasks.get(i)})
+        List<Task> view = tasksForReading();
+        return IntStream.range(0, view.size())
+                .filter(i -> SearchMatcher.fuzzyMatch(keyword, view.get(i).getDescription(), threshold))
+                .mapToObj(i -> new Object[]{i + 1, view.get(i)})
                 .collect(Collectors.toCollection(ArrayList::new));
     }
 
@@ -282,9 +1110,10 @@ public class TaskList {
 
         String searchPattern = "\\b" + Pattern.quote(keyword.toLowerCase()) + "\\b";
 
-        return IntStream.range(0, tasks.size())
-                .filter(i -> tasks.get(i).getDescription().toLowerCase().matches(".*" + searchPattern + ".*"))
-                .mapToObj(i -> new Object[]{i + 1, tasks.get(i)})
+        List<Task> view = tasksForReading();
+        return IntStream.range(0, view.size())
+                .filter(i -> view.get(i).getDescription().toLowerCase().matches(".*" + searchPattern + ".*"))
+                .mapToObj(i -> new Object[]{i + 1, view.get(i)})
                 .collect(Collectors.toCollection(ArrayList::new));
     }
 }
@@ -0,0 +1,51 @@
+package mayobot.task;
+
+/**
+ * Receives the changes made to a {@link TaskList}, so that anything derived from the list
+ * can follow it by applying each change instead of scanning the whole list again.
+ * <p>
+ * Indexes are one-based positions at the time of the change, so applying the events
+ * in the order they arrive to a copy of the list keeps it equal to the list. Changes
+ * made by one bulk operation arrive between {@link #onBatchStart()} and
+ * {@link #onBatchEnd()}, so a listener can defer its own work until the batch ends.
+ * <p>
+ * Events are delivered on the thread that made the change, after the list and its
+ * indexes have been updated; a {@link ConcurrentTaskList} delivers them under its write lock,
+ * so listeners must not wait for other threads that use the list.
+ */
+public interface TaskListListener {
+    /**
+     * Handles a task inserted into the list.
+     *
+     * @param index the one-based index of the task
+     * @param task the added task
+     */
+    void onAdd(int index, Task task);
+
+    /**
+     * Handles a task removed from the list.
+     *
+     * @param index the one-based index the task had
+     * @param task the removed task
+     */
+    void onRemove(int index, Task task);
+
+    /**
+     * Handles a change of completion status, read from {@link Task#isDone()}.
+     * Marking a task with the status it already has is not reported.
+     *
+     * @param index the one-based index of the task
+     * @param task the changed task
+     */
+    void onStatusChange(int index, Task task);
+
+    /**
+     * Handles the start of a bulk operation, whose changes follow until {@link #onBatchEnd()}.
+     */
+    default void onBatchStart() {}
+
+    /**
+     * Handles the end of a bulk operation.
+     */
+    default void onBatchEnd() {}
+}
@@ -0,0 +1,54 @@
+package mayobot.task;
+
+/**
+ * The kinds of task, each with the one-letter code used for it in the storage file
+ * and in the task display.
+ */
+public enum TaskType {
+    TODO("T"),
+    DEADLINE("D"),
+    EVENT("E");
+
+    private final String code;
+
+    TaskType(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the type of the given task.
+     *
+     * @param task the task
+     * @return the type of the task
+     */
+    public static TaskType of(Task task) {
+        assert task != null : "Task cannot be null";
+
+        if (task instanceof DeadlineTask) {
+            return DEADLINE;
+        } else if (task instanceof EventTask) {
+            return EVENT;
+        } else {
+            return TODO;
+        }
+    }
+
+    /**
+     * Returns the type with the given one-letter code, ignoring case.
+     *
+     * @param code the code, such as {@code D}
+     * @return the type, or null if no type has the code
+     */
+    public static TaskType fromCode(String code) {
+        for (TaskType type : values()) {
+            if (type.code.equalsIgnoreCase(code)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
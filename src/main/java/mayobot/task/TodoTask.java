@@ -28,7 +28,7 @@ public class TodoTask extends Task {
      * Returns the file storage representation of this todo task.
      * Extends the base task file format by prefixing with "T" to identify
      * this as a todo task type. The format follows the pattern:
-     * "T | completion_status | description"
+     * "T | completion_status | description [| @id]"
      * <p>
      * This format is used by the storage system to save and later reconstruct
      * TodoTask instances when loading from persistent storage.
@@ -37,7 +37,7 @@ public class TodoTask extends Task {
      */
     @Override
     public String changeToFileFormat() {
-        return "T | " + super.changeToFileFormat();
+        return "T | " + super.changeToFileFormat() + formatIdField();
     }
 
     /**
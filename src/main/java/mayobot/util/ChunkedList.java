@@ -0,0 +1,319 @@
+package mayobot.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list stored as a table of chunks of up to {@value #CHUNK_CAPACITY} elements,
+ * which shares every chunk with the version it was made from unless it changed it.
+ * <p>
+ * A new version is made by an {@link Editor}, which copies the table of chunks once and
+ * each chunk the first time it changes it. A version that differs by one insertion or
+ * removal therefore costs one chunk and the table, which for n elements is far less than
+ * copying the list. No version ever changes after it is built, so versions can be
+ * handed to other threads and read without locking.
+ * <p>
+ * An element is found by binary search over the end positions of the chunks.
+ *
+ * @param <E> the type of the elements
+ */
+public final class ChunkedList<E> extends AbstractList<E> implements RandomAccess {
+    /** Largest number of elements in one chunk. */
+    public static final int CHUNK_CAPACITY = 256;
+
+    private final Object[][] chunks;
+    /** Position after the last element of each chunk. */
+    private final int[] ends;
+    private final int chunkCount;
+
+    private ChunkedList(Object[][] chunks, int[] ends, int chunkCount) {
+        this.chunks = chunks;
+        this.ends = ends;
+        this.chunkCount = chunkCount;
+    }
+
+    /**
+     * Returns a ChunkedList holding the elements of the collection in iteration order.
+     *
+     * @param elements the elements to hold
+     * @param <E> the type of the elements
+     * @return the new list
+     */
+    public static <E> ChunkedList<E> of(Collection<? extends E> elements) {
+        Object[] all = elements.toArray();
+        int chunkCount = (all.length + CHUNK_CAPACITY - 1) / CHUNK_CAPACITY;
+        Object[][] chunks = new Object[chunkCount][];
+        int[] ends = new int[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            int from = i * CHUNK_CAPACITY;
+            ends[i] = Math.min(all.length, from + CHUNK_CAPACITY);
+            chunks[i] = Arrays.copyOfRange(all, from, ends[i]);
+        }
+        return new ChunkedList<>(chunks, ends, chunkCount);
+    }
+
+    @Override
+    public int size() {
+        return chunkCount == 0 ? 0 : ends[chunkCount - 1];
+    }
+
+    /**
+     * Returns the element at the specified zero-based index.
+     *
+     * @param index the index of the element
+     * @return the element at the index
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index, size());
+        int chunk = chunkOf(ends, chunkCount, index);
+        return (E) chunks[chunk][index - startOf(ends, chunk)];
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int chunk;
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < size();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                while (ends[chunk] <= position) {
+                    chunk++;
+                }
+                return (E) chunks[chunk][position++ - startOf(ends, chunk)];
+            }
+        };
+    }
+
+    /**
+     * Returns an editor that starts from this version. This version itself is never changed.
+     *
+     * @return a new editor
+     */
+    public Editor<E> edit() {
+        return new Editor<>(this);
+    }
+
+    /**
+     * Returns the index of the chunk holding the element at the given position.
+     */
+    private static int chunkOf(int[] ends, int chunkCount, int position) {
+        int low = 0;
+        int high = chunkCount - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] <= position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int startOf(int[] ends, int chunk) {
+        return chunk == 0 ? 0 : ends[chunk - 1];
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", bound: " + bound);
+        }
+    }
+
+    /**
+     * Makes a new version of a ChunkedList by a series of insertions and removals.
+     * Chunks copied by the editor are changed in place by its later edits, so a series
+     * of edits to the same chunk copies it once. The editor is not thread-safe and
+     * cannot be used after {@link #build()}.
+     *
+     * @param <E> the type of the elements
+     */
+    public static final class Editor<E> {
+        private Object[][] chunks;
+        private int[] ends;
+        /** Whether each chunk was copied by this editor, so that it may be changed in place. */
+        private boolean[] isOwned;
+        private int chunkCount;
+
+        private Editor(ChunkedList<E> base) {
+            chunkCount = base.chunkCount;
+            chunks = Arrays.copyOf(base.chunks, chunkCount + 1);
+            ends = Arrays.copyOf(base.ends, chunkCount + 1);
+            isOwned = new boolean[chunkCount + 1];
+        }
+
+        /**
+         * Returns the number of elements the new version holds so far.
+         *
+         * @return the number of elements
+         */
+        public int size() {
+            assert chunks != null : "Editor was already built";
+
+            return chunkCount == 0 ? 0 : ends[chunkCount - 1];
+        }
+
+        /**
+         * Inserts an element at the given position, moving later elements up by one.
+         *
+         * @param index the zero-based position, up to and including the size
+         * @param element the element to insert
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        public void add(int index, E element) {
+            checkIndex(index, size() + 1);
+            if (chunkCount == 0) {
+                insertChunk(0, new Object[CHUNK_CAPACITY], 0);
+            }
+            int chunk = index == size() ? chunkCount - 1 : chunkOf(ends, chunkCount, index);
+            if (ends[chunk] - startOf(ends, chunk) == CHUNK_CAPACITY) {
+                split(chunk);
+                if (index >= ends[chunk] && index != size()) {
+                    chunk++;
+                } else if (index == size()) {
+                    chunk = chunkCount - 1;
+                }
+            }
+            Object[] elements = own(chunk);
+            int offset = index - startOf(ends, chunk);
+            int length = ends[chunk] - startOf(ends, chunk);
+            System.arraycopy(elements, offset, elements, offset + 1, length - offset);
+            elements[offset] = element;
+            for (int i = chunk; i < chunkCount; i++) {
+                ends[i]++;
+            }
+        }
+
+        /**
+         * Removes the element at the given position, moving later elements down by one.
+         *
+         * @param index the zero-based position
+         * @return the removed element
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        @SuppressWarnings("unchecked")
+        public E remove(int index) {
+            checkIndex(index, size());
+            int chunk = chunkOf(ends, chunkCount, index);
+            Object[] elements = own(chunk);
+            int offset = index - startOf(ends, chunk);
+            int length = ends[chunk] - startOf(ends, chunk);
+            E removed = (E) elements[offset];
+            System.arraycopy(elements, offset + 1, elements, offset, length - offset - 1);
+            elements[length - 1] = null;
+            for (int i = chunk; i < chunkCount; i++) {
+                ends[i]--;
+            }
+
+            if (length == 1) {
+                removeChunk(chunk);
+            } else if (length - 1 < CHUNK_CAPACITY / 4) {
+                mergeWithNeighbour(chunk);
+            }
+            return removed;
+        }
+
+        /**
+         * Returns the new version. The editor cannot be used afterwards.
+         *
+         * @return the list holding the edited elements
+         */
+        public ChunkedList<E> build() {
+            assert chunks != null : "Editor was already built";
+
+            ChunkedList<E> list = new ChunkedList<>(chunks, ends, chunkCount);
+            chunks = null;
+            ends = null;
+            isOwned = null;
+            return list;
+        }
+
+        /**
+         * Copies the chunk if it is still shared with an earlier version, leaving room for a full chunk.
+         */
+        private Object[] own(int chunk) {
+            if (!isOwned[chunk]) {
+                chunks[chunk] = Arrays.copyOf(chunks[chunk], CHUNK_CAPACITY);
+                isOwned[chunk] = true;
+            }
+            return chunks[chunk];
+        }
+
+        /**
+         * Moves the upper half of a full chunk into a new chunk after it.
+         */
+        private void split(int chunk) {
+            Object[] elements = own(chunk);
+            int half = CHUNK_CAPACITY / 2;
+            Object[] upper = Arrays.copyOf(Arrays.copyOfRange(elements, half, CHUNK_CAPACITY), CHUNK_CAPACITY);
+            Arrays.fill(elements, half, CHUNK_CAPACITY, null);
+            insertChunk(chunk + 1, upper, ends[chunk]);
+            ends[chunk] = startOf(ends, chunk) + half;
+        }
+
+        /**
+         * Merges a small chunk into a neighbour if they fit in one chunk together.
+         */
+        private void mergeWithNeighbour(int chunk) {
+            int length = ends[chunk] - startOf(ends, chunk);
+            if (chunk + 1 < chunkCount && length + ends[chunk + 1] - ends[chunk] <= CHUNK_CAPACITY) {
+                merge(chunk);
+            } else if (chunk > 0 && length + ends[chunk - 1] - startOf(ends, chunk - 1) <= CHUNK_CAPACITY) {
+                merge(chunk - 1);
+            }
+        }
+
+        /**
+         * Appends the elements of the chunk after the given one to it and removes that chunk.
+         */
+        private void merge(int chunk) {
+            Object[] elements = own(chunk);
+            int length = ends[chunk] - startOf(ends, chunk);
+            int nextLength = ends[chunk + 1] - ends[chunk];
+            System.arraycopy(chunks[chunk + 1], 0, elements, length, nextLength);
+            ends[chunk] = ends[chunk + 1];
+            removeChunk(chunk + 1);
+        }
+
+        private void insertChunk(int chunk, Object[] elements, int end) {
+            if (chunkCount == chunks.length) {
+                int capacity = chunks.length * 2;
+                chunks = Arrays.copyOf(chunks, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                isOwned = Arrays.copyOf(isOwned, capacity);
+            }
+            System.arraycopy(chunks, chunk, chunks, chunk + 1, chunkCount - chunk);
+            System.arraycopy(ends, chunk, ends, chunk + 1, chunkCount - chunk);
+            System.arraycopy(isOwned, chunk, isOwned, chunk + 1, chunkCount - chunk);
+            chunks[chunk] = elements;
+            ends[chunk] = end;
+            isOwned[chunk] = true;
+            chunkCount++;
+        }
+
+        private void removeChunk(int chunk) {
+            System.arraycopy(chunks, chunk + 1, chunks, chunk, chunkCount - chunk - 1);
+            System.arraycopy(ends, chunk + 1, ends, chunk, chunkCount - chunk - 1);
+            System.arraycopy(isOwned, chunk + 1, isOwned, chunk, chunkCount - chunk - 1);
+            chunkCount--;
+            chunks[chunkCount] = null;
+        }
+    }
+}
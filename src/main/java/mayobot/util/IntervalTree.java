@@ -0,0 +1,185 @@
+package mayobot.util;
+
+import java.util.function.Consumer;
+
+/**
+ * Set of closed intervals over long endpoints that finds every interval
+ * overlapping a query range in O(log n + k) time, where k is the number found.
+ * <p>
+ * The intervals are kept in a treap ordered by start, with ties broken by a
+ * caller-supplied key, and each node also records the largest end in its
+ * subtree. A query skips every subtree whose largest end is before the range,
+ * and every right subtree of a node that starts after it. Priorities are derived
+ * from the keys, so the shape of the tree does not depend on a random source.
+ *
+ * @param <V> the type of the values stored with the intervals
+ */
+public class IntervalTree<V> {
+    private Node<V> root;
+    private int size;
+
+    private static class Node<V> {
+        private final long start;
+        private final long end;
+        private final long key;
+        private final long priority;
+        private final V value;
+        private long maxEnd;
+        private Node<V> left;
+        private Node<V> right;
+
+        private Node(long start, long end, long key, V value) {
+            this.start = start;
+            this.end = end;
+            this.key = key;
+            this.value = value;
+            this.maxEnd = end;
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            this.priority = mixed ^ (mixed >>> 29);
+        }
+
+        private int compareTo(long otherStart, long otherKey) {
+            int byStart = Long.compare(start, otherStart);
+            return byStart != 0 ? byStart : Long.compare(key, otherKey);
+        }
+
+        private void update() {
+            long max = end;
+            if (left != null) {
+                max = Math.max(max, left.maxEnd);
+            }
+            if (right != null) {
+                max = Math.max(max, right.maxEnd);
+            }
+            maxEnd = max;
+        }
+    }
+
+    /**
+     * The two subtrees a split produces: the nodes ordered before a start and key, and the rest.
+     */
+    private static class Halves<V> {
+        private Node<V> before;
+        private Node<V> after;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds an interval. The pair of start and key must not already be in the tree.
+     *
+     * @param start the start of the interval
+     * @param end the end of the interval, not before its start
+     * @param key the key distinguishing intervals with the same start, such as a task id
+     * @param value the value to report for the interval
+     */
+    public void insert(long start, long end, long key, V value) {
+        assert start <= end : "Interval ends before it starts: " + start + " > " + end;
+
+        Node<V> node = new Node<>(start, end, key, value);
+        Halves<V> halves = split(root, start, key);
+        root = merge(merge(halves.before, node), halves.after);
+        size++;
+    }
+
+    /**
+     * Removes the interval with the given start and key.
+     *
+     * @param start the start of the interval
+     * @param key the key it was inserted with
+     * @return true if the interval was in the tree
+     */
+    public boolean remove(long start, long key) {
+        int sizeBefore = size;
+        root = remove(root, start, key);
+        return size < sizeBefore;
+    }
+
+    /**
+     * Reports the value of every interval that overlaps the closed range, in order of start.
+     *
+     * @param from the start of the range
+     * @param to the end of the range
+     * @param action the action to run for the value of each overlapping interval
+     */
+    public void findOverlapping(long from, long to, Consumer<? super V> action) {
+        findOverlapping(root, from, to, action);
+    }
+
+    private void findOverlapping(Node<V> node, long from, long to, Consumer<? super V> action) {
+        if (node == null || node.maxEnd < from) {
+            return;
+        }
+        findOverlapping(node.left, from, to, action);
+        if (node.start > to) {
+            return;
+        }
+        if (node.end >= from) {
+            action.accept(node.value);
+        }
+        findOverlapping(node.right, from, to, action);
+    }
+
+    private Node<V> remove(Node<V> node, long start, long key) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = node.compareTo(start, key);
+        if (comparison == 0) {
+            size--;
+            return merge(node.left, node.right);
+        }
+        if (comparison > 0) {
+            node.left = remove(node.left, start, key);
+        } else {
+            node.right = remove(node.right, start, key);
+        }
+        node.update();
+        return node;
+    }
+
+    /**
+     * Splits a subtree into the nodes ordered before the given start and key, and the rest.
+     */
+    private Halves<V> split(Node<V> node, long start, long key) {
+        if (node == null) {
+            return new Halves<>();
+        }
+        if (node.compareTo(start, key) < 0) {
+            Halves<V> halves = split(node.right, start, key);
+            node.right = halves.before;
+            node.update();
+            halves.before = node;
+            return halves;
+        } else {
+            Halves<V> halves = split(node.left, start, key);
+            node.left = halves.after;
+            node.update();
+            halves.after = node;
+            return halves;
+        }
+    }
+
+    /**
+     * Joins two subtrees where every node of the first is ordered before every node of the second.
+     */
+    private Node<V> merge(Node<V> first, Node<V> second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            first.update();
+            return first;
+        } else {
+            second.left = merge(first, second.left);
+            second.update();
+            return second;
+        }
+    }
+}
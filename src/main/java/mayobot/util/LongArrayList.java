@@ -0,0 +1,156 @@
+package mayobot.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Growable list of primitive longs.
+ * Avoids boxing every element when large numbers of identifiers have to be
+ * tracked in list order, such as one entry per task.
+ */
+public class LongArrayList {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] values;
+    private int size;
+
+    /**
+     * Creates a new empty LongArrayList.
+     */
+    public LongArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty LongArrayList with room for the given number of elements.
+     *
+     * @param capacity the initial capacity
+     */
+    public LongArrayList(int capacity) {
+        values = new long[Math.max(1, capacity)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the element at the specified zero-based index.
+     *
+     * @param index the index of the element
+     * @return the element at the index
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public long get(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * Replaces the element at the specified zero-based index.
+     *
+     * @param index the index of the element to replace
+     * @param value the new value
+     * @return the previous element at the index
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public long set(int index, long value) {
+        checkIndex(index);
+        long previous = values[index];
+        values[index] = value;
+        return previous;
+    }
+
+    /**
+     * Appends a value to the end of the list.
+     *
+     * @param value the value to append
+     */
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Inserts a value at the specified zero-based index.
+     * The element at that index and all later ones are shifted one position to the right.
+     *
+     * @param index the index to insert at, up to and including the size
+     * @param value the value to insert
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public void add(int index, long value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+    }
+
+    /**
+     * Removes and returns the element at the specified zero-based index.
+     * Later elements are shifted one position to the left.
+     *
+     * @param index the index of the element to remove
+     * @return the removed element
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public long removeAt(int index) {
+        checkIndex(index);
+        long removed = values[index];
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return removed;
+    }
+
+    /**
+     * Removes every element whose index is set in the given bit set, in a single pass.
+     * The remaining elements keep their relative order.
+     *
+     * @param indexes the zero-based indexes of the elements to remove
+     */
+    public void removeAll(BitSet indexes) {
+        int write = 0;
+        for (int read = 0; read < size; read++) {
+            if (!indexes.get(read)) {
+                values[write++] = values[read];
+            }
+        }
+        size = write;
+    }
+
+    /**
+     * Searches the list for a value by binary search, as {@link Arrays#binarySearch(long[], long)}.
+     * The result is only meaningful if the list is sorted in ascending order.
+     *
+     * @param value the value to find
+     * @return the index of the value, or (-(insertion point) - 1) if it is not found
+     */
+    public int binarySearch(long value) {
+        return Arrays.binarySearch(values, 0, size, value);
+    }
+
+    /**
+     * Returns an independent copy of this list.
+     *
+     * @return a new list with the same elements
+     */
+    public LongArrayList copy() {
+        LongArrayList copy = new LongArrayList(size);
+        System.arraycopy(values, 0, copy.values, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+}
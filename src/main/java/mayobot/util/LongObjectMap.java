@@ -0,0 +1,180 @@
+package mayobot.util;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from primitive long keys to objects, using open addressing with linear probing.
+ * Avoids boxing every key and allocating an entry per mapping, so a lookup reads
+ * one or two adjacent array slots however many mappings there are.
+ * <p>
+ * The key 0 marks an empty slot and cannot be stored. Removal shifts later
+ * entries of the same probe sequence back, so no tombstones accumulate.
+ *
+ * @param <V> the type of the values
+ */
+public class LongObjectMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    /** Load factor as a fraction of 4, so a table is grown once it is three quarters full. */
+    private static final int MAX_LOAD_QUARTERS = 3;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    /**
+     * Creates a new empty LongObjectMap.
+     */
+    public LongObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty LongObjectMap with room for the given number of mappings before it grows.
+     *
+     * @param expectedSize the number of mappings expected
+     */
+    public LongObjectMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * MAX_LOAD_QUARTERS / 4 < expectedSize) {
+            capacity *= 2;
+        }
+        keys = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value mapped to the key.
+     *
+     * @param key a non-zero key
+     * @return the value, or null if the key is not mapped
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        assert key != 0 : "Key 0 is reserved for empty slots";
+
+        int mask = keys.length - 1;
+        for (int slot = slotOf(key, mask); keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the key is mapped.
+     *
+     * @param key a non-zero key
+     * @return true if the map holds a value for the key
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous value.
+     *
+     * @param key a non-zero key
+     * @param value the value, which cannot be null
+     * @return the previous value, or null if the key was not mapped
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        assert key != 0 : "Key 0 is reserved for empty slots";
+        assert value != null : "Value cannot be null";
+
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size * 4 > keys.length * MAX_LOAD_QUARTERS) {
+            resize(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping of the key.
+     *
+     * @param key a non-zero key
+     * @return the removed value, or null if the key was not mapped
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        assert key != 0 : "Key 0 is reserved for empty slots";
+
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (keys[slot] != key) {
+            if (keys[slot] == 0) {
+                return null;
+            }
+            slot = (slot + 1) & mask;
+        }
+        V removed = (V) values[slot];
+        size--;
+
+        // Shift back every later entry whose probe sequence passes through the freed slot
+        int free = slot;
+        for (int next = (free + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = slotOf(keys[next], mask);
+            boolean isReachable = free <= next ? free < home && home <= next : free < home || home <= next;
+            if (!isReachable) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+        keys[free] = 0;
+        values[free] = null;
+        return removed;
+    }
+
+    /**
+     * Removes every mapping.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slotOf(oldKeys[i], mask);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of the key, since ids are often consecutive.
+     */
+    private static int slotOf(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,198 @@
+package mayobot.util;
+
+import java.util.Arrays;
+
+/**
+ * Bit set whose bits follow the positions of a list, so inserting or removing
+ * a position moves every later bit along with it, unlike {@link java.util.BitSet}.
+ * Used as a secondary index over a list of tasks: one bit per task, set when
+ * the task has some property, with the number of set bits kept up to date.
+ * <p>
+ * Inserting or removing shifts the later words by one bit, which touches one
+ * long per 64 positions, so it stays cheap next to decoding even a single task.
+ */
+public class PositionalBitSet {
+    private static final int BITS_PER_WORD = 64;
+
+    private long[] words;
+    private int size;
+    private int cardinality;
+
+    /**
+     * Creates a new empty PositionalBitSet.
+     */
+    public PositionalBitSet() {
+        this(BITS_PER_WORD);
+    }
+
+    /**
+     * Creates a new empty PositionalBitSet with room for the given number of positions.
+     *
+     * @param capacity the number of positions expected
+     */
+    public PositionalBitSet(int capacity) {
+        words = new long[Math.max(1, wordCount(capacity))];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of set bits, without scanning.
+     *
+     * @return the number of positions whose bit is set
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Returns whether the bit at the given position is set.
+     *
+     * @param position the zero-based position
+     * @return true if the bit is set
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public boolean get(int position) {
+        checkPosition(position, size);
+        return (words[position >>> 6] & (1L << position)) != 0;
+    }
+
+    /**
+     * Sets or clears the bit at the given position.
+     *
+     * @param position the zero-based position
+     * @param value true to set the bit, false to clear it
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public void set(int position, boolean value) {
+        checkPosition(position, size);
+        long mask = 1L << position;
+        boolean wasSet = (words[position >>> 6] & mask) != 0;
+        if (value && !wasSet) {
+            words[position >>> 6] |= mask;
+            cardinality++;
+        } else if (!value && wasSet) {
+            words[position >>> 6] &= ~mask;
+            cardinality--;
+        }
+    }
+
+    /**
+     * Appends a position at the end.
+     *
+     * @param value the bit of the new position
+     */
+    public void add(boolean value) {
+        insert(size, value);
+    }
+
+    /**
+     * Inserts a position, moving the bits at and after it up by one.
+     *
+     * @param position the zero-based position of the new bit
+     * @param value the bit of the new position
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public void insert(int position, boolean value) {
+        checkPosition(position, size + 1);
+        int lastWord = wordCount(size + 1) - 1;
+        if (lastWord >= words.length) {
+            words = Arrays.copyOf(words, Math.max(words.length * 2, lastWord + 1));
+        }
+
+        int wordIndex = position >>> 6;
+        for (int w = lastWord; w > wordIndex; w--) {
+            words[w] = (words[w] << 1) | (words[w - 1] >>> 63);
+        }
+        long word = words[wordIndex];
+        long lowMask = (1L << position) - 1;
+        words[wordIndex] = (word & lowMask) | ((word & ~lowMask) << 1) | (value ? 1L << position : 0);
+        size++;
+        if (value) {
+            cardinality++;
+        }
+    }
+
+    /**
+     * Removes a position, moving the bits after it down by one.
+     *
+     * @param position the zero-based position to remove
+     * @return the bit the position had
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public boolean remove(int position) {
+        checkPosition(position, size);
+        int lastWord = wordCount(size) - 1;
+        int wordIndex = position >>> 6;
+        long word = words[wordIndex];
+        boolean wasSet = (word & (1L << position)) != 0;
+
+        long lowMask = (1L << position) - 1;
+        long carry = wordIndex < lastWord ? words[wordIndex + 1] << 63 : 0;
+        words[wordIndex] = (word & lowMask) | ((word >>> 1) & ~lowMask) | carry;
+        for (int w = wordIndex + 1; w <= lastWord; w++) {
+            carry = w < lastWord ? words[w + 1] << 63 : 0;
+            words[w] = (words[w] >>> 1) | carry;
+        }
+        size--;
+        if (wasSet) {
+            cardinality--;
+        }
+        return wasSet;
+    }
+
+    /**
+     * Returns the first position at or after the given one whose bit is set.
+     *
+     * @param from the zero-based position to start from
+     * @return the position of the next set bit, or -1 if there is none
+     */
+    public int nextSetBit(int from) {
+        if (from >= size) {
+            return -1;
+        }
+        int wordIndex = from >>> 6;
+        long word = words[wordIndex] & (-1L << from);
+        while (word == 0) {
+            if (++wordIndex >= wordCount(size)) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+        return wordIndex * BITS_PER_WORD + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Returns the first position at or after the given one whose bit is clear.
+     *
+     * @param from the zero-based position to start from
+     * @return the position of the next clear bit, or -1 if there is none
+     */
+    public int nextClearBit(int from) {
+        if (from >= size) {
+            return -1;
+        }
+        int wordIndex = from >>> 6;
+        long word = ~words[wordIndex] & (-1L << from);
+        while (word == 0) {
+            if (++wordIndex >= wordCount(size)) {
+                return -1;
+            }
+            word = ~words[wordIndex];
+        }
+        int position = wordIndex * BITS_PER_WORD + Long.numberOfTrailingZeros(word);
+        return position < size ? position : -1;
+    }
+
+    private static int wordCount(int bits) {
+        return (bits + BITS_PER_WORD - 1) / BITS_PER_WORD;
+    }
+
+    private static void checkPosition(int position, int limit) {
+        if (position < 0 || position >= limit) {
+            throw new IndexOutOfBoundsException("Position out of range: " + position);
+        }
+    }
+}
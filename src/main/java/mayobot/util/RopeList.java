@@ -0,0 +1,490 @@
+package mayobot.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * List stored as a rope: a balanced tree whose leaves are chunks of up to
+ * {@value #LEAF_CAPACITY} elements, and whose inner nodes hold up to
+ * {@value #BRANCH_CAPACITY} children and know how many elements are below them.
+ * <p>
+ * An element is found by its position by walking down the tree, subtracting
+ * the sizes of the children it skips, so getting, inserting and removing at any
+ * position take time proportional to the height of the tree, which grows with
+ * the logarithm of the size. Only the elements of one leaf are ever shifted.
+ * Leaves are linked in list order, so iterating reads them one chunk after the
+ * other like an array. Appending fills every leaf before starting a new one.
+ * <p>
+ * A chunk that falls below a quarter of its capacity is merged with a neighbour
+ * if they fit together, so the tree stays compact as elements are removed.
+ * The list is not thread-safe.
+ *
+ * @param <E> the type of the elements
+ */
+public class RopeList<E> extends AbstractList<E> {
+    /** Largest number of elements in one leaf. */
+    public static final int LEAF_CAPACITY = 128;
+    /** Largest number of children of one inner node. */
+    public static final int BRANCH_CAPACITY = 32;
+
+    private Node root;
+    private Leaf firstLeaf;
+
+    /**
+     * Creates a new empty RopeList.
+     */
+    public RopeList() {
+        clear();
+    }
+
+    /**
+     * Creates a new RopeList holding the elements of the collection in iteration order.
+     *
+     * @param elements the elements to add
+     */
+    public RopeList(Collection<? extends E> elements) {
+        this();
+        addAll(elements);
+    }
+
+    @Override
+    public int size() {
+        return root.size;
+    }
+
+    /**
+     * Returns the element at the specified zero-based index.
+     *
+     * @param index the index of the element
+     * @return the element at the index
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public E get(int index) {
+        checkIndex(index, size());
+        Node node = root;
+        int offset = index;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int i = 0;
+            while (offset >= branch.children[i].size) {
+                offset -= branch.children[i].size;
+                i++;
+            }
+            node = branch.children[i];
+        }
+        return elementAt((Leaf) node, offset);
+    }
+
+    /**
+     * Replaces the element at the specified zero-based index.
+     *
+     * @param index the index of the element to replace
+     * @param element the new element
+     * @return the previous element at the index
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public E set(int index, E element) {
+        checkIndex(index, size());
+        Node node = root;
+        int offset = index;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int i = 0;
+            while (offset >= branch.children[i].size) {
+                offset -= branch.children[i].size;
+                i++;
+            }
+            node = branch.children[i];
+        }
+        Leaf leaf = (Leaf) node;
+        E previous = elementAt(leaf, offset);
+        leaf.items[offset] = element;
+        return previous;
+    }
+
+    /**
+     * Inserts an element at the specified zero-based index.
+     * The element at that index and all later ones move one position to the right.
+     *
+     * @param index the index to insert at, up to and including the size
+     * @param element the element to insert
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public void add(int index, E element) {
+        checkIndex(index, size() + 1);
+        Node sibling = insert(root, index, element);
+        if (sibling != null) {
+            Branch newRoot = new Branch();
+            newRoot.append(root);
+            newRoot.append(sibling);
+            root = newRoot;
+        }
+        modCount++;
+    }
+
+    /**
+     * Removes the element at the specified zero-based index.
+     * All later elements move one position to the left.
+     *
+     * @param index the index of the element to remove
+     * @return the removed element
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Override
+    public E remove(int index) {
+        checkIndex(index, size());
+        E removed = delete(root, index);
+        while (root instanceof Branch && ((Branch) root).childCount <= 1) {
+            Branch branch = (Branch) root;
+            if (branch.childCount == 0) {
+                clear();
+                return removed;
+            }
+            root = branch.children[0];
+        }
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        Leaf leaf = new Leaf();
+        root = leaf;
+        firstLeaf = leaf;
+        modCount++;
+    }
+
+    /**
+     * Returns an iterator that walks the linked leaves, reading each chunk in turn.
+     *
+     * @return an iterator over the elements in list order
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new LeafIterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        int expectedModCount = modCount;
+        for (Leaf leaf = firstLeaf; leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.size; i++) {
+                action.accept(elementAt(leaf, i));
+            }
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Inserts the element below the node and returns a new right sibling of the node if it had to be split.
+     */
+    private Node insert(Node node, int index, E element) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            if (leaf.size < LEAF_CAPACITY) {
+                leaf.insert(index, element);
+                return null;
+            }
+            Leaf right = leaf.split(index == LEAF_CAPACITY ? LEAF_CAPACITY : LEAF_CAPACITY / 2);
+            if (index <= leaf.size && leaf.size < LEAF_CAPACITY) {
+                leaf.insert(index, element);
+            } else {
+                right.insert(index - leaf.size, element);
+            }
+            return right;
+        }
+
+        Branch branch = (Branch) node;
+        branch.size++;
+        int i = 0;
+        int offset = index;
+        while (i < branch.childCount - 1 && offset > branch.children[i].size) {
+            offset -= branch.children[i].size;
+            i++;
+        }
+        Node sibling = insert(branch.children[i], offset, element);
+        if (sibling == null) {
+            return null;
+        }
+        branch.insertChild(i + 1, sibling);
+        if (branch.childCount <= BRANCH_CAPACITY) {
+            return null;
+        }
+        boolean isAppending = i + 1 == branch.childCount - 1;
+        return branch.split(isAppending ? BRANCH_CAPACITY : branch.childCount / 2);
+    }
+
+    private E delete(Node node, int index) {
+        node.size--;
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            E removed = elementAt(leaf, index);
+            System.arraycopy(leaf.items, index + 1, leaf.items, index, leaf.size - index);
+            leaf.items[leaf.size] = null;
+            return removed;
+        }
+
+        Branch branch = (Branch) node;
+        int i = 0;
+        int offset = index;
+        while (offset >= branch.children[i].size) {
+            offset -= branch.children[i].size;
+            i++;
+        }
+        E removed = delete(branch.children[i], offset);
+        rebalance(branch, i);
+        return removed;
+    }
+
+    /**
+     * Removes the child if it became empty, or merges it with a neighbour if it is
+     * below a quarter of its capacity and they fit in one node.
+     */
+    private void rebalance(Branch branch, int i) {
+        Node child = branch.children[i];
+        if (child.isEmpty()) {
+            if (child instanceof Leaf) {
+                unlink((Leaf) child);
+            }
+            branch.removeChild(i);
+            return;
+        }
+        if (!child.isUnderfull()) {
+            return;
+        }
+        if (i + 1 < branch.childCount && child.canAbsorb(branch.children[i + 1])) {
+            absorb(child, branch.children[i + 1]);
+            branch.removeChild(i + 1);
+        } else if (i > 0 && branch.children[i - 1].canAbsorb(child)) {
+            absorb(branch.children[i - 1], child);
+            branch.removeChild(i);
+        }
+    }
+
+    private void absorb(Node left, Node right) {
+        if (left instanceof Leaf) {
+            Leaf rightLeaf = (Leaf) right;
+            ((Leaf) left).appendAll(rightLeaf);
+            unlink(rightLeaf);
+        } else {
+            Branch rightBranch = (Branch) right;
+            for (int i = 0; i < rightBranch.childCount; i++) {
+                ((Branch) left).append(rightBranch.children[i]);
+            }
+        }
+    }
+
+    private void unlink(Leaf leaf) {
+        if (leaf.prev != null) {
+            leaf.prev.next = leaf.next;
+        }
+        if (leaf.next != null) {
+            leaf.next.prev = leaf.prev;
+        }
+        if (firstLeaf == leaf) {
+            firstLeaf = leaf.next;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private E elementAt(Leaf leaf, int offset) {
+        return (E) leaf.items[offset];
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + bound);
+        }
+    }
+
+    /**
+     * A node of the tree, which knows the number of elements below it.
+     */
+    private abstract static class Node {
+        int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        abstract boolean isUnderfull();
+
+        abstract boolean canAbsorb(Node right);
+    }
+
+    /**
+     * A chunk of consecutive elements, linked to the chunks before and after it.
+     */
+    private static final class Leaf extends Node {
+        private final Object[] items = new Object[LEAF_CAPACITY];
+        private Leaf prev;
+        private Leaf next;
+
+        void insert(int index, Object element) {
+            System.arraycopy(items, index, items, index + 1, size - index);
+            items[index] = element;
+            size++;
+        }
+
+        /**
+         * Moves the elements from the given offset to a new leaf linked after this one.
+         */
+        Leaf split(int from) {
+            Leaf right = new Leaf();
+            right.size = size - from;
+            System.arraycopy(items, from, right.items, 0, right.size);
+            Arrays.fill(items, from, size, null);
+            size = from;
+
+            right.prev = this;
+            right.next = next;
+            if (next != null) {
+                next.prev = right;
+            }
+            next = right;
+            return right;
+        }
+
+        void appendAll(Leaf right) {
+            System.arraycopy(right.items, 0, items, size, right.size);
+            size += right.size;
+        }
+
+        @Override
+        boolean isUnderfull() {
+            return size < LEAF_CAPACITY / 4;
+        }
+
+        @Override
+        boolean canAbsorb(Node right) {
+            return size + right.size <= LEAF_CAPACITY;
+        }
+    }
+
+    /**
+     * An inner node. Its children array has room for one extra child, which is split off right away.
+     */
+    private static final class Branch extends Node {
+        private final Node[] children = new Node[BRANCH_CAPACITY + 1];
+        private int childCount;
+
+        void append(Node child) {
+            children[childCount++] = child;
+            size += child.size;
+        }
+
+        /**
+         * Inserts a child split off from its left neighbour, whose elements are already counted.
+         */
+        void insertChild(int index, Node child) {
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            children[index] = child;
+            childCount++;
+        }
+
+        /**
+         * Removes a child whose elements have been removed or moved to a sibling.
+         */
+        void removeChild(int index) {
+            System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+            children[--childCount] = null;
+        }
+
+        /**
+         * Moves the children from the given index to a new branch.
+         */
+        Branch split(int from) {
+            Branch right = new Branch();
+            for (int i = from; i < childCount; i++) {
+                right.append(children[i]);
+                children[i] = null;
+            }
+            childCount = from;
+            size -= right.size;
+            return right;
+        }
+
+        @Override
+        boolean isUnderfull() {
+            return childCount < BRANCH_CAPACITY / 4;
+        }
+
+        @Override
+        boolean canAbsorb(Node right) {
+            return childCount + ((Branch) right).childCount <= BRANCH_CAPACITY;
+        }
+    }
+
+    /**
+     * Iterator that reads the leaves one after the other.
+     * Removing an element goes through the list and finds the leaf of the next element again.
+     */
+    private class LeafIterator implements Iterator<E> {
+        private Leaf leaf = firstLeaf;
+        private int offset;
+        private int index;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return index < size();
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (index >= size()) {
+                throw new NoSuchElementException();
+            }
+            while (offset >= leaf.size) {
+                leaf = leaf.next;
+                offset = 0;
+            }
+            lastReturned = index++;
+            return elementAt(leaf, offset++);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            RopeList.this.remove(lastReturned);
+            index = lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+            seek(index);
+        }
+
+        private void seek(int target) {
+            offset = target;
+            Node node = root;
+            while (node instanceof Branch) {
+                Branch branch = (Branch) node;
+                int i = 0;
+                while (i < branch.childCount - 1 && offset >= branch.children[i].size) {
+                    offset -= branch.children[i].size;
+                    i++;
+                }
+                node = branch.children[i];
+            }
+            leaf = (Leaf) node;
+        }
+    }
+}
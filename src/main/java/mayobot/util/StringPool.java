@@ -0,0 +1,129 @@
+package mayobot.util;
+
+/**
+ * Bounded table of canonical strings, so that equal strings read or created
+ * separately can share one instance and the duplicates can be collected.
+ * <p>
+ * Unlike {@link String#intern()}, the table has a fixed number of slots and never
+ * grows: each string hashes to a pair of slots, and a string that matches neither
+ * replaces the older of the two. Frequent strings therefore stay pooled while rare
+ * ones are evicted, and the pool holds at most its capacity in strings however many
+ * are looked up. It also counts how many lookups found a shared instance and
+ * estimates the heap that the duplicates would otherwise have kept alive.
+ * <p>
+ * The pool is not thread-safe; callers share it under their own lock.
+ */
+public class StringPool {
+    /** Default number of slots, enough for the distinct descriptions of a large recurring workload. */
+    public static final int DEFAULT_CAPACITY = 4096;
+    /** Bytes of a String object with compressed references, not counting its array. */
+    private static final int STRING_BYTES = 24;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int OBJECT_ALIGNMENT = 8;
+
+    private final String[] slots;
+    private long lookupCount;
+    private long sharedCount;
+    private long bytesSaved;
+
+    /**
+     * Creates a new StringPool with {@link #DEFAULT_CAPACITY} slots.
+     */
+    public StringPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new StringPool with room for the given number of strings, rounded up to a power of two.
+     *
+     * @param capacity the largest number of strings to hold
+     */
+    public StringPool(int capacity) {
+        assert capacity > 0 : "Capacity must be positive: " + capacity;
+
+        slots = new String[Integer.highestOneBit(Math.max(2, capacity - 1)) << 1];
+    }
+
+    /**
+     * Returns the pooled string equal to the given one, pooling the given one if there is none.
+     *
+     * @param value the string to look up
+     * @return an equal string, which is the same instance for every lookup while it stays pooled
+     */
+    public String intern(String value) {
+        assert value != null : "Value cannot be null";
+
+        lookupCount++;
+        int hash = value.hashCode() * 0x9E3779B9;
+        int first = (hash >>> 16 ^ hash) & (slots.length - 2);
+        for (int slot = first; slot <= first + 1; slot++) {
+            String pooled = slots[slot];
+            if (pooled != null && pooled.equals(value)) {
+                if (pooled != value) {
+                    sharedCount++;
+                    bytesSaved += estimateBytes(value);
+                }
+                // Keep the pair in most recently used order, so eviction takes the older one
+                slots[slot] = slots[first];
+                slots[first] = pooled;
+                return pooled;
+            }
+        }
+        slots[first + 1] = slots[first];
+        slots[first] = value;
+        return value;
+    }
+
+    /**
+     * Returns the number of strings currently pooled.
+     *
+     * @return the number of occupied slots
+     */
+    public int size() {
+        int size = 0;
+        for (String slot : slots) {
+            if (slot != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    public long getLookupCount() {
+        return lookupCount;
+    }
+
+    public long getSharedCount() {
+        return sharedCount;
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    /**
+     * Returns the heap taken by a string that is not shared: its object plus its byte array,
+     * which uses one byte per character if every character fits in one and two otherwise.
+     */
+    private static long estimateBytes(String value) {
+        int bytesPerChar = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        long arrayBytes = ARRAY_HEADER_BYTES + (long) value.length() * bytesPerChar;
+        return STRING_BYTES + (arrayBytes + OBJECT_ALIGNMENT - 1) / OBJECT_ALIGNMENT * OBJECT_ALIGNMENT;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Description pool: %d of %d lookup(s) shared, about %d KB saved, %d of %d slot(s) used",
+                sharedCount, lookupCount, bytesSaved / 1024, size(), slots.length);
+    }
+}
@@ -17,6 +17,7 @@ import mayobot.commands.EventCommand;
 import mayobot.commands.FindCommand;
 import mayobot.commands.ListCommand;
 import mayobot.commands.MarkCommand;
+import mayobot.commands.StorageCommand;
 import mayobot.commands.TodoCommand;
 import mayobot.commands.UnknownCommand;
 import mayobot.commands.UnmarkCommand;
@@ -117,6 +118,13 @@ public class ParserTest {
         assertEquals("party /from 2024-12-31 18:00 /to 2024-12-31 23:00", result.getArguments());
     }
 
+    @Test
+    public void parser_parseStorageCommand_returnsStorageCommand() {
+        Command result = Parser.parse("storage stats");
+        assertInstanceOf(StorageCommand.class, result);
+        assertEquals("stats", result.getArguments());
+    }
+
     // ========== Task File Parsing Tests ==========
 
     @Test
@@ -1,7 +1,9 @@
 package mayobot;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
@@ -9,13 +11,32 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import mayobot.storage.BinaryTaskFormat;
+import mayobot.storage.CompressedTaskFormat;
+import mayobot.storage.Durability;
+import mayobot.storage.ShardedTaskFormat;
+import mayobot.storage.StorageFormat;
+import mayobot.storage.StorageStats;
+import mayobot.task.DeadlineTask;
+import mayobot.task.EventTask;
 import mayobot.task.TaskList;
 import mayobot.task.TodoTask;
+import mayobot.ui.Ui;
+import mayobot.util.StringPool;
 
 public class StorageTest {
     private static final String TEST_DIR = "./test_data";
@@ -35,7 +56,13 @@ public class StorageTest {
         if (Files.exists(testFile)) {
             Files.delete(testFile);
         }
+        Files.deleteIfExists(Paths.get(storage.getJournalPath()));
         if (Files.exists(testDir)) {
+            try (Stream<Path> deltas = Files.list(testDir)) {
+                for (Path delta : deltas.toArray(Path[]::new)) {
+                    Files.delete(delta);
+                }
+            }
             Files.delete(testDir);
         }
     }
@@ -53,10 +80,498 @@ public class StorageTest {
         TodoTask task = new TodoTask("test task");
         storage.saveTask(task);
 
-        File file = new File(TEST_FILE);
+        File file = new File(storage.getJournalPath());
         assertTrue(file.exists());
 
-        String content = Files.readString(Paths.get(TEST_FILE));
+        String content = Files.readString(file.toPath());
         assertTrue(content.contains("T | 0 | test task"));
     }
+
+    @Test
+    public void storage_loadTasks_keepsTaskIds() throws IOException {
+        TaskList taskList = storage.loadTasks();
+        Ui ui = new Ui();
+        taskList.addTask(new TodoTask("first"), ui, true);
+        taskList.addTask(new TodoTask("second"), ui, true);
+        taskList.addTask(new TodoTask("third"), ui, true);
+        long thirdId = taskList.getTask(2).getId();
+        taskList.deleteTask(1);
+        storage.flush();
+        ui.close();
+
+        TaskList reloaded = new Storage(TEST_FILE).loadTasks();
+        assertEquals(2, reloaded.getPositionOfId(thirdId));
+        assertEquals("third", reloaded.getTaskById(thirdId).getDescription());
+        reloaded.addTaskToList(new TodoTask("fourth"));
+        assertTrue(reloaded.getTask(2).getId() > thirdId);
+    }
+
+    @Test
+    public void storage_loadTasksCompactly_keepsTasksAndIds() throws IOException {
+        Files.createDirectories(Paths.get(TEST_DIR));
+        Files.writeString(Paths.get(TEST_FILE), "T | 1 | a | @3\nD | 0 | b | 2025-01-01T10:00 | @4\n"
+                + "E | 0 | c | 2025-01-02T10:00 | 2025-01-02T12:00 | @9\n");
+
+        TaskList taskList = storage.loadTasksCompactly();
+        taskList.deleteTask(2);
+        taskList.addTaskToList(new TodoTask("d"));
+
+        assertEquals(3, taskList.getSize());
+        assertTrue(taskList.getTask(0).isDone());
+        assertEquals(2, taskList.getPositionOfId(9));
+        assertEquals(10, taskList.getTask(2).getId());
+        assertEquals(LocalDateTime.of(2025, 1, 2, 12, 0), ((EventTask) taskList.getTaskById(9)).getTo());
+    }
+
+    @Test
+    public void storage_timeIndexes_seeMarksInCompactAndLazyLists() throws IOException {
+        Files.createDirectories(Paths.get(TEST_DIR));
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 2000; i++) {
+            content.append("D | 0 | dl").append(i).append(" | 2025-01-01T10:00 | @").append(i).append("\n");
+        }
+        Files.writeString(Paths.get(TEST_FILE), content.toString());
+        LocalDateTime day = LocalDateTime.of(2025, 1, 1, 0, 0);
+        storage.close();
+
+        for (boolean isCompact : new boolean[] {true, false}) {
+            Storage modeStorage = new Storage(TEST_FILE);
+            TaskList taskList = isCompact ? modeStorage.loadTasksCompactly() : modeStorage.loadTasksLazily();
+            taskList.findDeadlinesBefore(day.plusDays(1));
+            boolean isDone = !taskList.getTask(0).isDone();
+            if (isDone) {
+                taskList.markTaskAsDone(1);
+            } else {
+                taskList.markTaskAsNotDone(1);
+            }
+
+            Object[] due = taskList.findDeadlinesBefore(day.plusDays(1)).get(0);
+            Object[] agenda = taskList.findAgenda(day, day.plusDays(1)).get(0);
+            assertEquals(1, due[0]);
+            assertEquals(isDone, ((DeadlineTask) due[1]).isDone());
+            assertEquals(isDone, ((DeadlineTask) agenda[1]).isDone());
+            modeStorage.close();
+        }
+        storage = new Storage(TEST_FILE);
+    }
+
+    @Test
+    public void storage_descriptionPool_sharesRepeatedDescriptionsOnLoad() throws IOException {
+        Files.createDirectories(Paths.get(TEST_DIR));
+        Files.writeString(Paths.get(TEST_FILE), "T | 0 | daily standup | @1\nT | 1 | review PR | @2\n"
+                + "T | 0 | daily standup | @3\nT | 0 | review PR | @4\n");
+        StringPool pool = new StringPool();
+        storage.setDescriptionPool(pool);
+
+        TaskList taskList = storage.loadTasks();
+        taskList.addTaskToList(new TodoTask(new String("daily standup")));
+
+        assertSame(taskList.getTask(0).getDescription(), taskList.getTask(2).getDescription());
+        assertSame(taskList.getTask(1).getDescription(), taskList.getTask(3).getDescription());
+        assertSame(taskList.getTask(0).getDescription(), taskList.getTask(4).getDescription());
+        assertEquals(3, pool.getSharedCount());
+        assertTrue(pool.getBytesSaved() > 0);
+    }
+
+    @Test
+    public void storage_loadTasks_givesLegacyTasksIdsOnce() throws IOException {
+        Files.createDirectories(Paths.get(TEST_DIR));
+        Files.writeString(Paths.get(TEST_FILE), "T | 0 | a\nT | 0 | b | @5\nT | 0 | c\n");
+
+        TaskList taskList = storage.loadTasksLazily();
+        long firstId = taskList.getTask(0).getId();
+        TaskList reloaded = new Storage(TEST_FILE).loadTasksLazily();
+
+        assertEquals(5, reloaded.getTask(1).getId());
+        assertEquals(firstId, reloaded.getTask(0).getId());
+        assertEquals(taskList.getTask(2).getId(), reloaded.getTask(2).getId());
+        assertEquals(3, reloaded.getPositionOfId(reloaded.getTask(2).getId()));
+    }
+
+    @Test
+    public void storage_loadTasks_replaysJournal() throws IOException {
+        TaskList taskList = storage.loadTasks();
+        taskList.addTaskToList(new TodoTask("first"));
+        taskList.addTaskToList(new TodoTask("second"));
+        storage.saveTasks(taskList);
+
+        taskList.markTaskAsDone(2);
+        taskList.deleteTask(1);
+
+        TaskList reloaded = new Storage(TEST_FILE).loadTasks();
+        assertEquals(1, reloaded.getSize());
+        assertEquals("second", reloaded.getTask(0).getDescription());
+        assertTrue(reloaded.getTask(0).isDone());
+    }
+
+    @Test
+    public void storage_loadTasks_skipsTornJournalRecord()
+            throws IOException, InterruptedException, ExecutionException {
+        TaskList taskList = storage.loadTasks();
+        for (int i = 1; i <= 12; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+        }
+        storage.saveTasks(taskList);
+        Path journalPath = Paths.get(storage.getJournalPath());
+        Files.writeString(journalPath, "MARK | 12\nMARK | 1", StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        TaskList reloaded = new Storage(TEST_FILE).loadTasks();
+        assertTrue(reloaded.getTask(11).isDone());
+        assertFalse(reloaded.getTask(0).isDone());
+
+        Files.writeString(journalPath, "ADD | T | 0 | submit the quar", StandardOpenOption.APPEND);
+        Storage tornStorage = new Storage(TEST_FILE);
+        TaskList torn = tornStorage.loadTasksLazily();
+        assertEquals(12, torn.getSize());
+        torn.addTask(new TodoTask("later"), new Ui(), true);
+        tornStorage.compact().get();
+        tornStorage.close();
+
+        TaskList repaired = new Storage(TEST_FILE).loadTasks();
+        assertEquals(13, repaired.getSize());
+        assertEquals("later", repaired.getTask(12).getDescription());
+        assertFalse(repaired.getTask(0).isDone());
+    }
+
+    @Test
+    public void storage_compact_writesDeltaWithoutRewritingSnapshot()
+            throws IOException, InterruptedException, ExecutionException {
+        TaskList taskList = storage.loadTasks();
+        taskList.addTaskToList(new TodoTask("first"));
+        taskList.addTaskToList(new TodoTask("second"));
+        storage.saveTasks(taskList);
+        String snapshot = Files.readString(Paths.get(TEST_FILE));
+
+        taskList.markTaskAsDone(2);
+        taskList.deleteTask(1);
+        TodoTask third = new TodoTask("third");
+        taskList.addTaskToList(third);
+        storage.saveTask(third);
+        storage.compact().get();
+
+        assertEquals(snapshot, Files.readString(Paths.get(TEST_FILE)));
+        assertTrue(new File(TEST_FILE + ".delta.1").exists());
+        assertFalse(Files.readString(Paths.get(storage.getJournalPath())).contains("ADD"));
+
+        taskList.markTaskAsDone(2);
+        TaskList reloaded = new Storage(TEST_FILE).loadTasks();
+        assertEquals(2, reloaded.getSize());
+        assertEquals("second", reloaded.getTask(0).getDescription());
+        assertTrue(reloaded.getTask(0).isDone());
+        assertEquals("third", reloaded.getTask(1).getDescription());
+        assertTrue(reloaded.getTask(1).isDone());
+    }
+
+    @Test
+    public void storage_loadTasks_skipsJournalRecordsAlreadyInDelta()
+            throws IOException, InterruptedException, ExecutionException {
+        TaskList taskList = storage.loadTasks();
+        taskList.addTaskToList(new TodoTask("first"));
+        taskList.addTaskToList(new TodoTask("second"));
+        storage.saveTasks(taskList);
+        taskList.deleteTask(1);
+        Path journalPath = Paths.get(storage.getJournalPath());
+        String journalBeforeCheckpoint = Files.readString(journalPath);
+
+        storage.compact().get();
+        // Simulates a crash after the delta was written but before the journal was carried over
+        Files.writeString(journalPath, journalBeforeCheckpoint);
+
+        TaskList reloaded = new Storage(TEST_FILE).loadTasks();
+        assertEquals(1, reloaded.getSize());
+        assertEquals("second", reloaded.getTask(0).getDescription());
+    }
+
+    @Test
+    public void storage_loadTasksLazily_appliesDeltaAndJournal()
+            throws IOException, InterruptedException, ExecutionException {
+        TaskList taskList = storage.loadTasks();
+        for (int i = 0; i < 5; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+        }
+        storage.saveTasks(taskList);
+        taskList.deleteTask(1);
+        storage.compact().get();
+        taskList.markTaskAsDone(4);
+
+        Storage lazyStorage = new Storage(TEST_FILE);
+        TaskList reloaded = lazyStorage.loadTasksLazily();
+        assertEquals(4, reloaded.getSize());
+        assertEquals("task 1", reloaded.getTask(0).getDescription());
+        assertTrue(reloaded.getTask(3).isDone());
+
+        reloaded.markTaskAsDone(1);
+        lazyStorage.close();
+        assertTrue(new Storage(TEST_FILE).loadTasks().getTask(0).isDone());
+    }
+
+    @Test
+    public void storage_compact_mergesLongChainIntoSnapshot()
+            throws IOException, InterruptedException, ExecutionException {
+        storage.saveTask(new TodoTask("first"));
+        storage.saveTask(new TodoTask("second"));
+        storage.saveTaskStatus(1, true);
+        for (int i = 0; i < Storage.MAX_DELTA_CHAIN_LENGTH; i++) {
+            storage.compact().get();
+            storage.saveTaskStatus(1, true);
+        }
+
+        storage.compact().get();
+
+        String content = Files.readString(Paths.get(TEST_FILE));
+        assertTrue(content.contains("T | 1 | first"));
+        assertTrue(content.contains("T | 0 | second"));
+        assertFalse(new File(storage.getJournalPath()).exists());
+        assertFalse(new File(TEST_FILE + ".delta.0").exists());
+        assertEquals(2, new Storage(TEST_FILE).loadTasks().getSize());
+    }
+
+    @Test
+    public void storage_close_waitsForRunningCompaction() throws IOException {
+        TaskList taskList = storage.loadTasks();
+        for (int i = 0; i < 5_000; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+        }
+        storage.saveTasks(taskList);
+        for (int i = 1; i <= 5_000; i += 2) {
+            taskList.markTaskAsDone(i);
+        }
+
+        Future<?> compaction = storage.compact();
+        storage.close();
+
+        assertTrue(compaction.isDone());
+        assertFalse(new File(TEST_FILE + ".tmp").exists());
+        Storage reopened = new Storage(TEST_FILE);
+        TaskList reloaded = reopened.loadTasksLazily();
+        assertEquals(5_000, reloaded.getSize());
+        assertEquals(2_500, reloaded.countDoneTasks());
+        reopened.close();
+    }
+
+    @Test
+    public void storage_binaryFormat_savesAndDetectsOnLoad() throws IOException {
+        Storage binaryStorage = new Storage(TEST_FILE, StorageFormat.BINARY);
+        TaskList taskList = binaryStorage.loadTasks();
+        taskList.addTaskToList(new TodoTask("binary task"));
+        binaryStorage.saveTasks(taskList);
+        taskList.markTaskAsDone(1);
+
+        assertTrue(BinaryTaskFormat.isBinary(Paths.get(TEST_FILE)));
+        TaskList reloaded = new Storage(TEST_FILE).loadTasks();
+        assertEquals("binary task", reloaded.getTask(0).getDescription());
+        assertTrue(reloaded.getTask(0).isDone());
+    }
+
+    @Test
+    public void storage_compressedFormat_savesAndDetectsOnLoad() throws IOException {
+        Storage compressedStorage = new Storage(TEST_FILE, StorageFormat.COMPRESSED);
+        TaskList taskList = compressedStorage.loadTasks();
+        taskList.addTaskToList(new TodoTask("compressed task"));
+        compressedStorage.saveTasks(taskList);
+        taskList.markTaskAsDone(1);
+
+        assertTrue(CompressedTaskFormat.isCompressed(Paths.get(TEST_FILE)));
+        TaskList reloaded = new Storage(TEST_FILE).loadTasksLazily();
+        assertEquals("compressed task", reloaded.getTask(0).getDescription());
+        assertTrue(reloaded.getTask(0).isDone());
+    }
+
+    @Test
+    public void storage_shardedFormat_savesAndDetectsOnLoad() throws IOException {
+        Storage shardedStorage = new Storage(TEST_FILE, StorageFormat.SHARDED);
+        TaskList taskList = shardedStorage.loadTasks();
+        taskList.addTaskToList(new TodoTask("sharded task"));
+        taskList.addTaskToList(new DeadlineTask("sharded deadline", LocalDateTime.of(2025, 3, 1, 23, 59)));
+        shardedStorage.saveTasks(taskList);
+        taskList.markTaskAsDone(2);
+
+        assertTrue(ShardedTaskFormat.isSharded(Paths.get(TEST_FILE)));
+        TaskList reloaded = new Storage(TEST_FILE).loadTasksLazily();
+        assertEquals("sharded task", reloaded.getTask(0).getDescription());
+        assertEquals("sharded deadline", reloaded.getTask(1).getDescription());
+        assertTrue(reloaded.getTask(1).isDone());
+    }
+
+    @Test
+    public void storage_stats_countsAppendsAndFullRewrites() throws IOException {
+        TaskList taskList = storage.loadTasks();
+        taskList.addTask(new TodoTask("first"), new Ui(), true);
+        taskList.markTaskAsDone(1);
+        storage.saveTasks(taskList);
+
+        StorageStats stats = storage.getStats();
+        assertEquals(1, stats.getLoadCount());
+        assertEquals(2, stats.getAppendCount());
+        assertEquals(1, stats.getFullRewriteCount());
+        assertEquals(Files.size(Paths.get(TEST_FILE)), stats.getFullRewriteBytes());
+        assertEquals(3, stats.getRecordsWritten());
+        // One check on load, one per journal append and one for the rewrite
+        assertEquals(4, stats.getDirectoryCheckCount());
+    }
+
+    @Test
+    public void storage_bulkMarkAndDelete_appendOnceEachAndSurviveReload() throws IOException {
+        TaskList taskList = storage.loadTasks();
+        for (int i = 1; i <= 6; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+        }
+        storage.saveTasks(taskList);
+
+        taskList.markTasks(new int[] {1, 2, 3, 4}, true);
+        taskList.deleteTasks(new int[] {2, 5});
+
+        StorageStats stats = storage.getStats();
+        assertEquals(2, stats.getAppendCount());
+        assertEquals(6 + 4 + 2, stats.getRecordsWritten());
+
+        TaskList reloaded = new Storage(TEST_FILE).loadTasks();
+        assertEquals(4, reloaded.getSize());
+        assertEquals("task 1", reloaded.getTask(0).getDescription());
+        assertEquals("task 3", reloaded.getTask(1).getDescription());
+        assertEquals("task 4", reloaded.getTask(2).getDescription());
+        assertEquals("task 6", reloaded.getTask(3).getDescription());
+        assertTrue(reloaded.getTask(2).isDone());
+        assertFalse(reloaded.getTask(3).isDone());
+    }
+
+    @Test
+    public void storage_loadTasks_quarantinesDamagedRecordsAndTornTail() throws IOException {
+        storage.setRecordChecksumEnabled(true);
+        TaskList taskList = storage.loadTasks();
+        taskList.addTaskToList(new TodoTask("first"));
+        taskList.addTaskToList(new TodoTask("second"));
+        taskList.addTaskToList(new TodoTask("third"));
+        storage.saveTasks(taskList);
+
+        Path file = Paths.get(TEST_FILE);
+        String content = Files.readString(file);
+        Files.writeString(file, content.replace("second", "secnod") + "T | 0 | fourth | #0a");
+
+        Storage reloadedStorage = new Storage(TEST_FILE);
+        TaskList reloaded = reloadedStorage.loadTasks();
+        assertEquals(2, reloaded.getSize());
+        assertEquals("third", reloaded.getTask(1).getDescription());
+        assertEquals(2, reloadedStorage.getLastLoadReport().getQuarantinedCount());
+        assertEquals(2, reloadedStorage.getStats().getQuarantinedCount());
+        assertEquals(content.replace("second", "secnod"), Files.readString(file));
+    }
+
+    @Test
+    public void storage_loadTasksLazily_skipsSameLinesAsEagerLoad()
+            throws IOException, InterruptedException, ExecutionException {
+        storage.setRecordChecksumEnabled(true);
+        TaskList taskList = storage.loadTasks();
+        for (String description : new String[] {"alpha", "beta", "gamma", "delta"}) {
+            taskList.addTaskToList(new TodoTask(description));
+        }
+        storage.saveTasks(taskList);
+        Path file = Paths.get(TEST_FILE);
+        String content = Files.readString(file);
+        Files.writeString(file, content.replace("beta", "betx").replaceFirst("\n", "\nD | 0 | bad | someday | @99\n"));
+
+        Storage lazyStorage = new Storage(TEST_FILE);
+        TaskList lazy = lazyStorage.loadTasksLazily();
+        assertEquals(3, lazy.getSize());
+        assertEquals(2, lazyStorage.getLastLoadReport().getQuarantinedCount());
+        lazy.markTaskAsDone(2);
+        assertEquals("gamma", lazy.getTask(1).getDescription());
+        for (int i = 0; i <= Storage.MAX_DELTA_CHAIN_LENGTH; i++) {
+            lazyStorage.compact().get();
+            lazyStorage.saveTaskStatus(2, true);
+        }
+        lazyStorage.close();
+
+        TaskList reloaded = new Storage(TEST_FILE).loadTasks();
+        assertEquals(3, reloaded.getSize());
+        assertEquals("gamma", reloaded.getTask(1).getDescription());
+        assertTrue(reloaded.getTask(1).isDone());
+        assertFalse(reloaded.getTask(2).isDone());
+        assertTrue(Files.readString(file).contains("T | 1 | gamma"));
+    }
+
+    @Test
+    public void storage_watch_adoptsExternalEditWithoutLocalChanges() throws IOException, InterruptedException {
+        Files.createDirectories(Paths.get(TEST_DIR));
+        Files.writeString(Paths.get(TEST_FILE), "T | 0 | a\nT | 0 | b\nT | 0 | c\n");
+        TaskList taskList = storage.loadTasks();
+        BlockingQueue<Runnable> applications = new LinkedBlockingQueue<>();
+        storage.watch(taskList, applications::add);
+
+        replaceExternally("T | 0 | a\nT | 1 | b\nT | 0 | c\nT | 0 | d\n");
+        applications.poll(10, TimeUnit.SECONDS).run();
+        storage.close();
+
+        assertEquals(4, taskList.getSize());
+        assertTrue(taskList.getTask(1).isDone());
+        assertEquals("d", taskList.getTask(3).getDescription());
+        assertFalse(Files.exists(Paths.get(storage.getJournalPath())));
+        assertEquals(4, new Storage(TEST_FILE).loadTasks().getSize());
+    }
+
+    @Test
+    public void storage_watch_mergesExternalEditWithLocalChanges() throws IOException, InterruptedException {
+        Files.createDirectories(Paths.get(TEST_DIR));
+        Files.writeString(Paths.get(TEST_FILE), "T | 0 | a\nT | 0 | b\nT | 0 | c\n");
+        TaskList taskList = storage.loadTasks();
+        BlockingQueue<Runnable> applications = new LinkedBlockingQueue<>();
+        storage.watch(taskList, applications::add);
+        taskList.deleteTask(1);
+        TodoTask local = new TodoTask("local");
+        taskList.addTaskToList(local);
+        storage.saveTask(local);
+
+        replaceExternally("T | 0 | a\nT | 0 | b\nT | 0 | x\nT | 1 | c\n");
+        applications.poll(10, TimeUnit.SECONDS).run();
+        storage.close();
+
+        TaskList reloaded = new Storage(TEST_FILE).loadTasks();
+        for (TaskList list : new TaskList[] {taskList, reloaded}) {
+            assertEquals(4, list.getSize());
+            assertEquals("b", list.getTask(0).getDescription());
+            assertEquals("x", list.getTask(1).getDescription());
+            assertTrue(list.getTask(2).isDone());
+            assertEquals("local", list.getTask(3).getDescription());
+        }
+    }
+
+    @Test
+    public void storage_writeBehind_coalescesBurstAndFlushes() throws IOException {
+        TaskList taskList = storage.loadTasks();
+        taskList.addTaskToList(new TodoTask("burst task"));
+        storage.saveTasks(taskList);
+
+        storage.setDurability(Durability.NONE);
+        for (int i = 0; i < 1000; i++) {
+            if (i % 2 == 0) {
+                taskList.markTaskAsDone(1);
+            } else {
+                taskList.markTaskAsNotDone(1);
+            }
+        }
+        taskList.markTaskAsDone(1);
+        storage.close();
+
+        assertEquals(1001, Files.readAllLines(Paths.get(storage.getJournalPath())).size());
+        assertTrue(new Storage(TEST_FILE).loadTasks().getTask(0).isDone());
+    }
+
+    @Test
+    public void storage_saveTasks_replacesSnapshotAtomically() throws IOException {
+        storage.setDurability(Durability.FSYNC_PER_COMMIT);
+        TaskList taskList = storage.loadTasks();
+        taskList.addTaskToList(new TodoTask("durable task"));
+        storage.saveTasks(taskList);
+        taskList.markTaskAsDone(1);
+
+        assertFalse(new File(TEST_FILE + ".tmp").exists());
+        assertTrue(Files.readString(Paths.get(TEST_FILE)).contains("T | 0 | durable task"));
+        assertTrue(new Storage(TEST_FILE).loadTasks().getTask(0).isDone());
+    }
+
+    private static void replaceExternally(String content) throws IOException {
+        Path temp = Paths.get(TEST_FILE + ".sync");
+        Files.writeString(temp, content);
+        Files.move(temp, Paths.get(TEST_FILE), StandardCopyOption.REPLACE_EXISTING);
+    }
 }
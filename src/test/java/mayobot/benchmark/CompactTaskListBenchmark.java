@@ -0,0 +1,83 @@
+package mayobot.benchmark;
+
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import mayobot.task.CompactTaskList;
+import mayobot.task.DeadlineTask;
+import mayobot.task.EventTask;
+import mayobot.task.Task;
+import mayobot.task.TodoTask;
+import mayobot.util.RopeList;
+
+/**
+ * Compares the heap taken by a {@link RopeList} of task objects with a {@link CompactTaskList}
+ * holding the same tasks, an even mix of todos, deadlines and events with short descriptions.
+ * Heap use is read after garbage collection, before and after filling each list and
+ * trimming the compact list, as {@link mayobot.Storage#loadTasksCompactly()} does.
+ * <p>
+ * Run with {@code gradlew benchmark -Pbench=CompactTaskListBenchmark [-Pargs="tasks"]},
+ * where the tasks default to 1M; 5M tasks need a heap of about 2 GB for the rope.
+ */
+public class CompactTaskListBenchmark {
+    private static final int DEFAULT_TASKS = 1_000_000;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 9, 0);
+
+    public static void main(String[] args) {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TASKS;
+
+        PrintStream out = System.out;
+        out.printf("%d task(s)%n", taskCount);
+        out.printf("%-16s %12s %14s%n", "list", "heap MB", "bytes/task");
+        long ropeBytes = measure(out, "RopeList", RopeList::new, taskCount);
+        long compactBytes = measure(out, "CompactTaskList", CompactTaskList::new, taskCount);
+        out.printf("compact list is %.1fx smaller%n", (double) ropeBytes / compactBytes);
+    }
+
+    private static long measure(PrintStream out, String name, Supplier<List<Task>> factory, int taskCount) {
+        long before = usedHeap();
+        List<Task> tasks = factory.get();
+        for (int i = 0; i < taskCount; i++) {
+            tasks.add(createTask(i));
+        }
+        if (tasks instanceof CompactTaskList) {
+            ((CompactTaskList) tasks).trimToSize();
+        }
+        long bytes = usedHeap() - before;
+        out.printf("%-16s %12.1f %14.1f%n", name, bytes / 1e6, (double) bytes / taskCount);
+        if (tasks.size() != taskCount) {
+            throw new IllegalStateException("Lost tasks");
+        }
+        return bytes;
+    }
+
+    private static Task createTask(int i) {
+        Task task;
+        switch (i % 3) {
+        case 0:
+            task = new TodoTask("read chapter " + i);
+            break;
+        case 1:
+            task = new DeadlineTask("submit report " + i, START.plusMinutes(i));
+            break;
+        default:
+            task = new EventTask("team meeting " + i, START.plusHours(i), START.plusHours(i + 1));
+            break;
+        }
+        if (i % 4 == 0) {
+            task.markAsDone();
+        }
+        task.setId(i + 1);
+        return task;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
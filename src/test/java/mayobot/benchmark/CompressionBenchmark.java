@@ -0,0 +1,129 @@
+package mayobot.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import mayobot.Storage;
+import mayobot.storage.CompressedTaskFormat;
+import mayobot.storage.StorageFormat;
+import mayobot.task.DeadlineTask;
+import mayobot.task.Task;
+import mayobot.task.TaskList;
+import mayobot.task.TodoTask;
+
+/**
+ * Compares file size and load and save throughput of every {@link StorageFormat}
+ * on a repetitive task list, plus the cost of appending to a compressed file.
+ * Throughput is measured against the size of the plain text file, so the
+ * numbers show how fast the same tasks move through each format.
+ * <p>
+ * Run with {@code gradlew benchmark -Pbench=CompressionBenchmark [-Pargs="tasks rounds"]}.
+ */
+public class CompressionBenchmark {
+    private static final int DEFAULT_TASKS = 200_000;
+    private static final int DEFAULT_ROUNDS = 5;
+    private static final int APPEND_BATCH = 100;
+    private static final String[] DESCRIPTIONS = {
+        "submit report", "standup", "review pull requests", "water the plants", "weekly planning"
+    };
+
+    public static void main(String[] args) throws IOException {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TASKS;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+        PrintStream out = System.out;
+        Path directory = Files.createTempDirectory("mayobot-compression");
+        try {
+            List<Task> tasks = repetitiveTasks(taskCount);
+            long textBytes = 0;
+            out.printf("%d task(s), best of %d round(s)%n", taskCount, rounds);
+            out.printf("%-12s %12s %8s %12s %12s%n", "format", "bytes", "ratio", "save MB/s", "load MB/s");
+            for (StorageFormat format : StorageFormat.values()) {
+                Result result = run(directory.resolve(format.name().toLowerCase() + ".txt"), format, tasks, rounds);
+                if (format == StorageFormat.TEXT) {
+                    textBytes = result.bytes;
+                }
+                out.printf("%-12s %12d %8.2f %12.1f %12.1f%n", format, result.bytes,
+                        (double) textBytes / result.bytes, megabytesPerSecond(textBytes, result.saveNanos),
+                        megabytesPerSecond(textBytes, result.loadNanos));
+            }
+
+            Path archive = directory.resolve("append.mayz");
+            CompressedTaskFormat.write(tasks, archive);
+            long appendStart = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                CompressedTaskFormat.append(archive, tasks.subList(0, APPEND_BATCH));
+            }
+            double appendMicros = (System.nanoTime() - appendStart) / 1e3 / rounds;
+            out.printf("compressed append of %d task(s): %.1f us per call%n", APPEND_BATCH, appendMicros);
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static Result run(Path path, StorageFormat format, List<Task> tasks, int rounds) throws IOException {
+        Storage storage = new Storage(path.toString(), format);
+        TaskList taskList = new TaskList(storage, tasks);
+        long bestSave = Long.MAX_VALUE;
+        long bestLoad = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            storage.saveTasks(taskList);
+            bestSave = Math.min(bestSave, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            int loaded = new Storage(path.toString(), format).loadTasks().getSize();
+            bestLoad = Math.min(bestLoad, System.nanoTime() - start);
+            assert loaded == tasks.size() : "Loaded " + loaded + " of " + tasks.size() + " tasks";
+        }
+        return new Result(Files.size(path), bestSave, bestLoad);
+    }
+
+    private static List<Task> repetitiveTasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 9, 0);
+        for (int i = 0; i < count; i++) {
+            String description = DESCRIPTIONS[i % DESCRIPTIONS.length];
+            Task task = i % 4 == 0 ? new DeadlineTask(description, start.plusDays(i % 365)) : new TodoTask(description);
+            if (i % 3 == 0) {
+                task.markAsDone();
+            }
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private static double megabytesPerSecond(long bytes, long nanos) {
+        return bytes / 1e6 / (nanos / 1e9);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toArray(Path[]::new)) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Size and best timings of one format.
+     */
+    private static class Result {
+        private final long bytes;
+        private final long saveNanos;
+        private final long loadNanos;
+
+        Result(long bytes, long saveNanos, long loadNanos) {
+            this.bytes = bytes;
+            this.saveNanos = saveNanos;
+            this.loadNanos = loadNanos;
+        }
+    }
+}
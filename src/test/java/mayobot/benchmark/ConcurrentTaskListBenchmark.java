@@ -0,0 +1,181 @@
+package mayobot.benchmark;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import mayobot.storage.StorageBackend;
+import mayobot.storage.StorageStats;
+import mayobot.task.ConcurrentTaskList;
+import mayobot.task.Task;
+import mayobot.task.TaskList;
+import mayobot.task.TodoTask;
+
+/**
+ * Measures the throughput of one writer and several readers sharing a task list, comparing
+ * a plain {@link TaskList} behind one coarse lock with a {@link ConcurrentTaskList}.
+ * The writer adds and deletes tasks and marks them; each reader alternates a search over every
+ * task with a batch of lookups by id and counts. Storage does nothing, so only the list is measured.
+ * <p>
+ * Run with {@code gradlew benchmark -Pbench=ConcurrentTaskListBenchmark [-Pargs="tasks seconds readers..."]},
+ * where the readers default to 1, 2 and 4 threads.
+ */
+public class ConcurrentTaskListBenchmark {
+    private static final int DEFAULT_TASKS = 100_000;
+    private static final int DEFAULT_SECONDS = 3;
+    private static final int[] DEFAULT_READERS = {1, 2, 4};
+    private static final int LOOKUPS_PER_SEARCH = 1_000;
+
+    /** Keeps results alive so that the loops cannot be optimised away. */
+    private static final LongAdder sink = new LongAdder();
+
+    /**
+     * Task list that takes one lock for every call, as callers of a plain TaskList would have to.
+     */
+    private static class LockedTaskList extends TaskList {
+        private LockedTaskList(StorageBackend storage) {
+            super(storage);
+        }
+
+        @Override
+        public synchronized int getSize() {
+            return super.getSize();
+        }
+
+        @Override
+        public synchronized void addTaskToList(Task task) {
+            super.addTaskToList(task);
+        }
+
+        @Override
+        public synchronized Task getTaskById(long id) {
+            return super.getTaskById(id);
+        }
+
+        @Override
+        public synchronized Task deleteTask(int index) {
+            return super.deleteTask(index);
+        }
+
+        @Override
+        public synchronized boolean markTaskAsDone(int index) {
+            return super.markTaskAsDone(index);
+        }
+
+        @Override
+        public synchronized int countDoneTasks() {
+            return super.countDoneTasks();
+        }
+
+        @Override
+        public synchronized ArrayList<Object[]> findTasks(String searchTerm) {
+            return super.findTasks(searchTerm);
+        }
+    }
+
+    /**
+     * Backend that stores nothing.
+     */
+    private static class NoStorage implements StorageBackend {
+        private final StorageStats stats = new StorageStats();
+
+        @Override
+        public TaskList load() {
+            return new TaskList(this);
+        }
+
+        @Override
+        public void append(Task task) {}
+
+        @Override
+        public void update(int index, Task task) {}
+
+        @Override
+        public void delete(int index) {}
+
+        @Override
+        public StorageStats getStats() {
+            return stats;
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TASKS;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+        int[] readerCounts = DEFAULT_READERS;
+        if (args.length > 2) {
+            readerCounts = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) {
+                readerCounts[i - 2] = Integer.parseInt(args[i]);
+            }
+        }
+
+        PrintStream out = System.out;
+        out.printf("%d task(s), %d second(s) per run%n", taskCount, seconds);
+        out.printf("%-12s %8s %16s %16s%n", "list", "readers", "searches/s", "writes/s");
+        for (int readers : readerCounts) {
+            run(out, "locked", new LockedTaskList(new NoStorage()), taskCount, seconds, readers);
+            run(out, "concurrent", new ConcurrentTaskList(new NoStorage()), taskCount, seconds, readers);
+        }
+        if (sink.sum() == 42) {
+            out.println();
+        }
+    }
+
+    private static void run(PrintStream out, String name, TaskList taskList, int taskCount, int seconds,
+            int readerCount) throws InterruptedException {
+        for (int i = 0; i < taskCount; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+        }
+
+        AtomicBoolean isRunning = new AtomicBoolean(true);
+        LongAdder searches = new LongAdder();
+        LongAdder writes = new LongAdder();
+        Thread writer = new Thread(() -> {
+            Random random = new Random(42);
+            int next = taskCount;
+            while (isRunning.get()) {
+                taskList.addTaskToList(new TodoTask("task " + next++));
+                taskList.deleteTask(1 + random.nextInt(taskList.getSize()));
+                taskList.markTaskAsDone(1 + random.nextInt(taskList.getSize()));
+                writes.add(3);
+            }
+        });
+        Thread[] readers = new Thread[readerCount];
+        for (int r = 0; r < readerCount; r++) {
+            long seed = r;
+            readers[r] = new Thread(() -> {
+                Random random = new Random(seed);
+                while (isRunning.get()) {
+                    sink.add(taskList.findTasks("task 4242").size());
+                    for (int i = 0; i < LOOKUPS_PER_SEARCH; i++) {
+                        Task task = taskList.getTaskById(1 + random.nextInt(taskCount));
+                        sink.add(task == null ? taskList.countDoneTasks() : 1);
+                    }
+                    searches.increment();
+                }
+            });
+        }
+
+        writer.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        isRunning.set(false);
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        out.printf("%-12s %8d %16.1f %16.1f%n", name, readerCount, (double) searches.sum() / seconds,
+                (double) writes.sum() / seconds);
+    }
+}
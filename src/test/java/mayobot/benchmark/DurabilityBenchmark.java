@@ -0,0 +1,104 @@
+package mayobot.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import mayobot.Storage;
+import mayobot.storage.Durability;
+import mayobot.task.TaskList;
+import mayobot.task.TodoTask;
+
+/**
+ * Measures commit latency of a mark or unmark for every {@link Durability} level,
+ * plus the time of one atomic snapshot rewrite.
+ * <p>
+ * Run with {@code gradlew benchmark -Pbench=DurabilityBenchmark [-Pargs="tasks commits"]}.
+ */
+public class DurabilityBenchmark {
+    private static final int DEFAULT_TASKS = 10_000;
+    private static final int DEFAULT_COMMITS = 2_000;
+
+    public static void main(String[] args) throws IOException {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TASKS;
+        int commitCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_COMMITS;
+
+        PrintStream out = System.out;
+        out.printf("%d task(s), %d commit(s) per level%n", taskCount, commitCount);
+        out.printf("%-18s %10s %10s %10s %12s %14s%n",
+                "durability", "mean us", "p50 us", "p99 us", "flush ms", "snapshot ms");
+
+        for (Durability durability : Durability.values()) {
+            Path directory = Files.createTempDirectory("mayobot-durability");
+            try {
+                run(out, directory, durability, taskCount, commitCount);
+            } finally {
+                deleteRecursively(directory);
+            }
+        }
+    }
+
+    private static void run(PrintStream out, Path directory, Durability durability, int taskCount,
+            int commitCount) throws IOException {
+        Storage storage = new Storage(directory.resolve("tasks.txt").toString(), Long.MAX_VALUE);
+        PrintStream originalOut = System.out;
+        TaskList taskList;
+        try {
+            // Silences the "Tasks file created" message
+            System.setOut(new PrintStream(PrintStream.nullOutputStream()));
+            taskList = storage.loadTasks();
+        } finally {
+            System.setOut(originalOut);
+        }
+        for (int i = 0; i < taskCount; i++) {
+            taskList.addTaskToList(new TodoTask("benchmark task " + i));
+        }
+        storage.setDurability(durability);
+
+        long snapshotStart = System.nanoTime();
+        storage.saveTasks(taskList);
+        long snapshotNanos = System.nanoTime() - snapshotStart;
+
+        long[] latencies = new long[commitCount];
+        for (int i = 0; i < commitCount; i++) {
+            int index = 1 + i % taskCount;
+            long start = System.nanoTime();
+            if (i % 2 == 0) {
+                taskList.markTaskAsDone(index);
+            } else {
+                taskList.markTaskAsNotDone(index);
+            }
+            latencies[i] = System.nanoTime() - start;
+        }
+
+        long flushStart = System.nanoTime();
+        storage.flush();
+        long flushNanos = System.nanoTime() - flushStart;
+        storage.close();
+
+        Arrays.sort(latencies);
+        double mean = Arrays.stream(latencies).average().orElse(0);
+        out.printf("%-18s %10.1f %10.1f %10.1f %12.2f %14.2f%n", durability,
+                mean / 1e3, percentile(latencies, 0.50) / 1e3, percentile(latencies, 0.99) / 1e3,
+                flushNanos / 1e6, snapshotNanos / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toArray(Path[]::new)) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
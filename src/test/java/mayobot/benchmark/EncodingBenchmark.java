@@ -0,0 +1,125 @@
+package mayobot.benchmark;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import mayobot.storage.TaskLineEncoder;
+import mayobot.task.DeadlineTask;
+import mayobot.task.EventTask;
+import mayobot.task.Task;
+import mayobot.task.TodoTask;
+
+/**
+ * Compares the bytes allocated and the time taken per task when writing a text
+ * snapshot through {@link Task#changeToFileFormat()} and a {@link FileWriter}, as
+ * snapshots used to be written, and through a {@link TaskLineEncoder}.
+ * Allocation is read from the thread allocation counter of the JVM, so the numbers
+ * include every temporary string and encoder buffer, but not the task list itself.
+ * <p>
+ * Run with {@code gradlew benchmark -Pbench=EncodingBenchmark [-Pargs="tasks rounds"]}.
+ */
+public class EncodingBenchmark {
+    private static final int DEFAULT_TASKS = 200_000;
+    private static final int DEFAULT_ROUNDS = 5;
+    private static final String[] DESCRIPTIONS = {
+        "submit report", "standup", "review pull requests", "water the plants", "weekly planning"
+    };
+
+    public static void main(String[] args) throws IOException {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TASKS;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+        PrintStream out = System.out;
+        Path file = Files.createTempFile("mayobot-encoding", ".txt");
+        try {
+            List<Task> tasks = mixedTasks(taskCount);
+            out.printf("%d task(s), best of %d round(s)%n", taskCount, rounds);
+            out.printf("%-18s %16s %12s%n", "writer", "bytes alloc/task", "ns/task");
+            for (Writer writer : Writer.values()) {
+                long bestAllocated = Long.MAX_VALUE;
+                long bestNanos = Long.MAX_VALUE;
+                for (int i = 0; i < rounds; i++) {
+                    long allocatedBefore = allocatedBytes();
+                    long start = System.nanoTime();
+                    writer.write(tasks, file);
+                    bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+                    bestAllocated = Math.min(bestAllocated, allocatedBytes() - allocatedBefore);
+                }
+                out.printf("%-18s %16.1f %12.1f%n", writer.label, (double) bestAllocated / taskCount,
+                        (double) bestNanos / taskCount);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static List<Task> mixedTasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 9, 0);
+        for (int i = 0; i < count; i++) {
+            String description = DESCRIPTIONS[i % DESCRIPTIONS.length];
+            Task task;
+            if (i % 4 == 0) {
+                task = new DeadlineTask(description, start.plusDays(i % 365));
+            } else if (i % 4 == 1) {
+                task = new EventTask(description, start.plusHours(i % 1000), start.plusHours(i % 1000 + 2));
+            } else {
+                task = new TodoTask(description);
+            }
+            if (i % 3 == 0) {
+                task.markAsDone();
+            }
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * The ways of writing a snapshot that are compared.
+     */
+    private enum Writer {
+        STRINGS("changeToFileFormat") {
+            @Override
+            void write(List<Task> tasks, Path file) throws IOException {
+                try (FileWriter writer = new FileWriter(file.toFile(), StandardCharsets.UTF_8)) {
+                    for (Task task : tasks) {
+                        writer.write(task.changeToFileFormat() + "\n");
+                    }
+                }
+            }
+        },
+        ENCODER("TaskLineEncoder") {
+            @Override
+            void write(List<Task> tasks, Path file) throws IOException {
+                TaskLineEncoder.write(tasks, file, false);
+            }
+        },
+        SEALED_ENCODER("sealed encoder") {
+            @Override
+            void write(List<Task> tasks, Path file) throws IOException {
+                TaskLineEncoder.write(tasks, file, true);
+            }
+        };
+
+        private final String label;
+
+        Writer(String label) {
+            this.label = label;
+        }
+
+        abstract void write(List<Task> tasks, Path file) throws IOException;
+    }
+}
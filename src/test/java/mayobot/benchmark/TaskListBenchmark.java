@@ -0,0 +1,96 @@
+package mayobot.benchmark;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import mayobot.task.Task;
+import mayobot.task.TodoTask;
+import mayobot.util.RopeList;
+
+/**
+ * Compares an {@link ArrayList} with a {@link RopeList} as the list behind a task list,
+ * for getting, inserting and deleting at random positions and for iterating in order.
+ * Every list holds the same task many times, so only the list itself is measured.
+ * Each operation is run a fixed number of times per round, and the best round is reported.
+ * <p>
+ * Run with {@code gradlew benchmark -Pbench=TaskListBenchmark [-Pargs="rounds sizes..."]},
+ * where the sizes default to 10k, 1M and 10M tasks.
+ */
+public class TaskListBenchmark {
+    private static final int DEFAULT_ROUNDS = 5;
+    private static final int[] DEFAULT_SIZES = {10_000, 1_000_000, 10_000_000};
+    private static final int GET_OPERATIONS = 1_000_000;
+    private static final int EDIT_OPERATIONS = 1_000;
+    private static final long SEED = 42;
+
+    /** Keeps results alive so that the loops cannot be optimised away. */
+    private static long sink;
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROUNDS;
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 1) {
+            sizes = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                sizes[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+
+        PrintStream out = System.out;
+        Task task = new TodoTask("review pull requests");
+        out.printf("best of %d round(s)%n", rounds);
+        out.printf("%-10s %-10s %12s %14s %14s %14s%n", "list", "tasks", "get ns", "insert ns", "delete ns",
+                "iterate ns/task");
+        for (int size : sizes) {
+            run(out, "ArrayList", ArrayList::new, task, size, rounds);
+            run(out, "RopeList", RopeList::new, task, size, rounds);
+        }
+        if (sink == 42) {
+            out.println();
+        }
+    }
+
+    private static void run(PrintStream out, String name, Supplier<List<Task>> factory, Task task, int size,
+            int rounds) {
+        List<Task> tasks = factory.get();
+        for (int i = 0; i < size; i++) {
+            tasks.add(task);
+        }
+        Random random = new Random(SEED);
+        long bestGet = Long.MAX_VALUE;
+        long bestInsert = Long.MAX_VALUE;
+        long bestDelete = Long.MAX_VALUE;
+        long bestIterate = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < GET_OPERATIONS; i++) {
+                sink += tasks.get(random.nextInt(size)).hashCode();
+            }
+            bestGet = Math.min(bestGet, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < EDIT_OPERATIONS; i++) {
+                tasks.add(random.nextInt(tasks.size() + 1), task);
+            }
+            bestInsert = Math.min(bestInsert, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < EDIT_OPERATIONS; i++) {
+                tasks.remove(random.nextInt(tasks.size()));
+            }
+            bestDelete = Math.min(bestDelete, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (Task each : tasks) {
+                sink += each.isDone() ? 1 : 0;
+            }
+            bestIterate = Math.min(bestIterate, System.nanoTime() - start);
+        }
+        out.printf("%-10s %-10d %12.1f %14.1f %14.1f %14.2f%n", name, size, (double) bestGet / GET_OPERATIONS,
+                (double) bestInsert / EDIT_OPERATIONS, (double) bestDelete / EDIT_OPERATIONS,
+                (double) bestIterate / size);
+    }
+}
@@ -0,0 +1,61 @@
+package mayobot.commands;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+import mayobot.exceptions.AgendaException;
+import mayobot.exceptions.MayoBotException;
+import mayobot.task.DeadlineTask;
+import mayobot.task.EventTask;
+import mayobot.task.TodoTask;
+
+public class AgendaCommandTest extends BaseCommandTest {
+
+    @Override
+    protected String getTestFileName() {
+        return "agenda_command_test.txt";
+    }
+
+    @Test
+    public void agendaCommand_range_showsDeadlinesAndOverlappingEventsInOrder() throws MayoBotException {
+        taskList.addTaskToList(new TodoTask("no date"));
+        taskList.addTaskToList(new EventTask("retreat", LocalDateTime.of(2025, 2, 28, 9, 0),
+                LocalDateTime.of(2025, 3, 3, 17, 0)));
+        taskList.addTaskToList(new DeadlineTask("report", LocalDateTime.of(2025, 3, 5, 23, 59)));
+        taskList.addTaskToList(new EventTask("later", LocalDateTime.of(2025, 3, 10, 9, 0),
+                LocalDateTime.of(2025, 3, 10, 10, 0)));
+        taskList.addTaskToList(new DeadlineTask("taxes", LocalDateTime.of(2025, 3, 9, 23, 59)));
+        taskList.deleteTask(1);
+
+        String result = new AgendaCommand("03-03-2025 09-03-2025").execute(ui, taskList, true);
+
+        assertTrue(result.indexOf("1. [E]") < result.indexOf("2. [D]"), result);
+        assertTrue(result.indexOf("2. [D]") < result.indexOf("4. [D]"), result);
+        assertFalse(result.contains("later") || result.contains("no date"), result);
+    }
+
+    @Test
+    public void agendaCommand_times_narrowTheRange() throws MayoBotException {
+        taskList.addTaskToList(new EventTask("standup", LocalDateTime.of(2025, 3, 3, 9, 0),
+                LocalDateTime.of(2025, 3, 3, 9, 15)));
+
+        String before = new AgendaCommand("03-03-2025 08:00 03-03-2025 08:59").execute(ui, taskList, true);
+        String during = new AgendaCommand("03-03-2025 09:15 03-03-2025 12:00").execute(ui, taskList, true);
+
+        assertFalse(before.contains("standup"));
+        assertTrue(during.contains("standup"));
+    }
+
+    @Test
+    public void agendaCommand_invalidRange_throwsAgendaException() {
+        assertThrows(AgendaException.class, () -> new AgendaCommand("").execute(ui, taskList, true));
+        assertThrows(AgendaException.class, () -> new AgendaCommand("2025-03-03").execute(ui, taskList, true));
+        assertThrows(AgendaException.class,
+                () -> new AgendaCommand("09-03-2025 03-03-2025").execute(ui, taskList, true));
+    }
+}
@@ -45,6 +45,7 @@ public abstract class BaseCommandTest {
         if (Files.exists(testFilePath)) {
             Files.delete(testFilePath);
         }
+        Files.deleteIfExists(Paths.get(testFile + ".journal"));
         if (Files.exists(testDir) && Files.list(testDir).findAny().isEmpty()) {
             Files.delete(testDir);
         }
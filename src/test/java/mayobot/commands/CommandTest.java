@@ -41,11 +41,13 @@ public class CommandTest {
     public void tearDown() throws IOException {
         System.setOut(System.out);
         Path testFile = Paths.get(TEST_FILE);
+        Path journalFile = Paths.get(TEST_FILE + ".journal");
         Path testDir = Paths.get("./test_data");
 
         if (Files.exists(testFile)) {
             Files.delete(testFile);
         }
+        Files.deleteIfExists(journalFile);
         if (Files.exists(testDir)) {
             Files.delete(testDir);
         }
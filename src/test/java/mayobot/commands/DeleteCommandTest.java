@@ -57,6 +57,39 @@ public class DeleteCommandTest extends BaseCommandTest {
         assertThrows(DeleteException.class, () -> command.execute(ui, taskList, false));
     }
 
+    @Test
+    public void deleteCommand_taskId_deletesSameTaskAfterEarlierDeletion() throws MayoBotException {
+        taskList.addTaskToList(new TodoTask("first"));
+        taskList.addTaskToList(new TodoTask("second"));
+        taskList.addTaskToList(new TodoTask("third"));
+        long thirdId = taskList.getTask(2).getId();
+
+        new DeleteCommand("1").execute(ui, taskList, false);
+        new DeleteCommand("#" + thirdId).execute(ui, taskList, false);
+
+        assertEquals(1, taskList.getSize());
+        assertEquals("second", taskList.getTask(0).getDescription());
+        assertThrows(DeleteException.class, () -> new DeleteCommand("#" + thirdId).execute(ui, taskList, false));
+    }
+
+    @Test
+    public void deleteCommand_rangeAndList_deletesSelectedTasks() throws MayoBotException {
+        for (int i = 1; i <= 16; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+        }
+
+        String result = new DeleteCommand("3,7,9-15").execute(ui, taskList, false);
+
+        assertEquals(7, taskList.getSize());
+        String[] remaining = {"task 1", "task 2", "task 4", "task 5", "task 6", "task 8", "task 16"};
+        for (int i = 0; i < remaining.length; i++) {
+            assertEquals(remaining[i], taskList.getTask(i).getDescription());
+        }
+        assertTrue(result.contains("9 tasks"));
+        assertThrows(DeleteException.class, () -> new DeleteCommand("1,9").execute(ui, taskList, false));
+        assertEquals(7, taskList.getSize());
+    }
+
     @Test
     public void deleteCommand_lastTask_deletesSuccessfully() throws MayoBotException {
         taskList.addTaskToList(new TodoTask("only task"));
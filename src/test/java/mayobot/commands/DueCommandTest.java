@@ -0,0 +1,50 @@
+package mayobot.commands;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+import mayobot.exceptions.DueException;
+import mayobot.exceptions.MayoBotException;
+import mayobot.task.DeadlineTask;
+
+public class DueCommandTest extends BaseCommandTest {
+
+    @Override
+    protected String getTestFileName() {
+        return "due_command_test.txt";
+    }
+
+    @Test
+    public void dueCommand_before_showsOpenDeadlinesEarliestFirst() throws MayoBotException {
+        taskList.addTaskToList(new DeadlineTask("second", LocalDateTime.of(2025, 3, 6, 12, 0)));
+        taskList.addTaskToList(new DeadlineTask("first", LocalDateTime.of(2025, 3, 2, 12, 0)));
+        taskList.addTaskToList(new DeadlineTask("finished", LocalDateTime.of(2025, 3, 1, 12, 0)));
+        taskList.addTaskToList(new DeadlineTask("on the day", LocalDateTime.of(2025, 3, 7, 0, 0)));
+        taskList.markTaskAsDone(3);
+
+        String result = new DueCommand("--before 07-03-2025").execute(ui, taskList, true);
+
+        assertTrue(result.indexOf("2. [D]") < result.indexOf("1. [D]"), result);
+        assertFalse(result.contains("finished") || result.contains("on the day"), result);
+    }
+
+    @Test
+    public void dueCommand_nothingDue_saysSo() throws MayoBotException {
+        taskList.addTaskToList(new DeadlineTask("later", LocalDateTime.of(2025, 3, 6, 12, 0)));
+
+        String result = new DueCommand("--before 06-03-2025 12:00").execute(ui, taskList, true);
+
+        assertTrue(result.contains("Nothing is due"));
+    }
+
+    @Test
+    public void dueCommand_missingDate_throwsDueException() {
+        assertThrows(DueException.class, () -> new DueCommand("--before").execute(ui, taskList, true));
+        assertThrows(DueException.class, () -> new DueCommand("07-03-2025").execute(ui, taskList, true));
+    }
+}
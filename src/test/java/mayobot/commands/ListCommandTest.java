@@ -1,10 +1,24 @@
 package mayobot.commands;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
+import mayobot.Storage;
 import mayobot.exceptions.MayoBotException;
+import mayobot.task.DeadlineTask;
+import mayobot.task.TaskList;
+import mayobot.task.TaskType;
 import mayobot.task.TodoTask;
 
 public class ListCommandTest extends BaseCommandTest {
@@ -55,4 +69,137 @@ public class ListCommandTest extends BaseCommandTest {
 
         assertTrue(result.contains("test task"));
     }
+
+    @Test
+    public void listCommand_filters_showMatchingTasksWithTheirNumbers() throws MayoBotException {
+        taskList.addTaskToList(new TodoTask("plain todo"));
+        taskList.addTaskToList(new DeadlineTask("open deadline", LocalDateTime.of(2025, 3, 1, 23, 59)));
+        taskList.addTaskToList(new DeadlineTask("done deadline", LocalDateTime.of(2025, 3, 2, 23, 59)));
+        taskList.markTaskAsDone(3);
+
+        String open = new ListCommand("--open").execute(ui, taskList, true);
+        String openDeadlines = new ListCommand("--open --type d").execute(ui, taskList, true);
+        String done = new ListCommand("--done").execute(ui, taskList, true);
+
+        assertTrue(open.contains("1. [T]") && open.contains("2. [D]"));
+        assertFalse(open.contains("done deadline"));
+        assertTrue(openDeadlines.contains("2. [D]"));
+        assertFalse(openDeadlines.contains("plain todo") || openDeadlines.contains("done deadline"));
+        assertTrue(done.contains("3. [D]"));
+        assertFalse(done.contains("open deadline"));
+        assertThrows(MayoBotException.class, () -> new ListCommand("--type X").execute(ui, taskList, true));
+    }
+
+    @Test
+    public void listCommand_filterIndexes_followDeletesAndMarks() throws MayoBotException {
+        for (int i = 0; i < 100; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+        }
+        taskList.markTaskAsDone(70);
+        assertEquals(1, taskList.countDoneTasks());
+
+        taskList.deleteTask(1);
+        taskList.markTaskAsDone(1);
+        taskList.markTaskAsNotDone(1);
+        taskList.addTaskToList(new DeadlineTask("late", LocalDateTime.of(2025, 3, 1, 23, 59)));
+
+        String done = new ListCommand("--done").execute(ui, taskList, true);
+        assertTrue(done.contains("69. [T][X] task 69"), done);
+        assertEquals(1, taskList.countDoneTasks());
+        assertEquals(99, taskList.countTasks(TaskType.TODO));
+        assertEquals(1, taskList.countTasks(TaskType.DEADLINE));
+        assertEquals(0, taskList.countTasks(TaskType.EVENT));
+    }
+
+    @Test
+    public void listCommand_page_showsOnlyThatPage() throws MayoBotException {
+        for (int i = 1; i <= 25; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+        }
+
+        String page = new ListCommand("--page 2 --size 10").execute(ui, taskList, true);
+        String last = new ListCommand("--page 3 --size 10").execute(ui, taskList, true);
+
+        assertTrue(page.contains("tasks 11-20 of 25"), page);
+        assertTrue(page.contains("11. [T][ ] task 11") && page.contains("20. [T][ ] task 20"), page);
+        assertFalse(page.contains("task 10 ") || page.contains("task 21"), page);
+        assertTrue(page.contains("list --next"));
+        assertTrue(last.contains("tasks 21-25 of 25"), last);
+        assertFalse(last.contains("list --next"));
+        assertTrue(new ListCommand("--page 4 --size 10").execute(ui, taskList, true).contains("empty"));
+    }
+
+    @Test
+    public void listCommand_next_resumesAfterEarlierTasksAreDeleted() throws MayoBotException {
+        for (int i = 1; i <= 25; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+        }
+
+        new ListCommand("--size 10").execute(ui, taskList, true);
+        taskList.deleteTask(1);
+        taskList.deleteTask(1);
+        String second = new ListCommand("--next").execute(ui, taskList, true);
+        taskList.deleteTask(9);
+        String third = new ListCommand("--next").execute(ui, taskList, false);
+        String restart = new ListCommand("--next").execute(ui, taskList, true);
+
+        assertTrue(second.contains("tasks 9-18 of 23"), second);
+        assertTrue(second.contains("9. [T][ ] task 11") && second.contains("18. [T][ ] task 20"), second);
+        assertTrue(third.contains("tasks 18-22 of 22"), third);
+        assertTrue(third.contains("18. [T][ ] task 21") && third.contains("22. [T][ ] task 25"), third);
+        assertTrue(restart.contains("tasks 1-22 of 22"), restart);
+    }
+
+    @Test
+    public void listCommand_next_movesForwardWhenIdsAreOutOfOrder() throws IOException, MayoBotException {
+        Path file = Paths.get("./test_data/" + getTestFileName());
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "T | 0 | a\nT | 0 | b | @5\nT | 0 | c\n");
+        Storage storage = new Storage(file.toString());
+        TaskList legacyList = storage.loadTasksLazily();
+
+        String first = new ListCommand("--page 1 --size 1").execute(ui, legacyList, true);
+        String second = new ListCommand("--next").execute(ui, legacyList, true);
+        String third = new ListCommand("--next").execute(ui, legacyList, true);
+        storage.close();
+
+        assertTrue(first.contains("1. [T][ ] a (#6)"), first);
+        assertTrue(second.contains("2. [T][ ] b (#5)"), second);
+        assertTrue(third.contains("3. [T][ ] c (#7)"), third);
+
+        for (int i = 1; i <= 3; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+        }
+        taskList.replaceTasksInList(1, 1, List.of(new TodoTask("edited")));
+        new ListCommand("--size 1").execute(ui, taskList, true);
+        String edited = new ListCommand("--next").execute(ui, taskList, true);
+        String last = new ListCommand("--next").execute(ui, taskList, true);
+
+        assertTrue(edited.contains("2. [T][ ] edited (#4)"), edited);
+        assertTrue(last.contains("3. [T][ ] task 3 (#3)"), last);
+    }
+
+    @Test
+    public void listCommand_longList_showsFirstPage() throws MayoBotException {
+        for (int i = 1; i <= ListCommand.MAX_UNPAGED_TASKS + 1; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+        }
+
+        String result = new ListCommand("").execute(ui, taskList, true);
+
+        assertTrue(result.contains("tasks 1-" + ListCommand.DEFAULT_PAGE_SIZE + " of "), result);
+        assertFalse(result.contains("task " + (ListCommand.DEFAULT_PAGE_SIZE + 1)));
+    }
+
+    @Test
+    public void listCommand_invalidPaging_throwsException() {
+        taskList.addTaskToList(new TodoTask("task"));
+
+        assertThrows(MayoBotException.class, () -> new ListCommand("--page 0").execute(ui, taskList, true));
+        assertThrows(MayoBotException.class, () -> new ListCommand("--size x").execute(ui, taskList, true));
+        assertThrows(MayoBotException.class, () -> new ListCommand("--size 1001").execute(ui, taskList, true));
+        assertThrows(MayoBotException.class, () -> new ListCommand("--page").execute(ui, taskList, true));
+        assertThrows(MayoBotException.class, () -> new ListCommand("--done --page 1").execute(ui, taskList, true));
+        assertThrows(MayoBotException.class, () -> new ListCommand("--next --page 2").execute(ui, taskList, true));
+    }
 }
@@ -1,5 +1,6 @@
 package mayobot.commands;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -29,6 +30,44 @@ public class MarkCommandTest extends BaseCommandTest {
         assertFalse(command.isExit());
     }
 
+    @Test
+    public void markCommand_taskId_marksTaskWithThatId() throws MayoBotException {
+        taskList.addTaskToList(new TodoTask("first"));
+        taskList.addTaskToList(new TodoTask("second"));
+
+        new MarkCommand("#" + taskList.getTask(1).getId()).execute(ui, taskList, false);
+
+        assertFalse(taskList.getTask(0).isDone());
+        assertTrue(taskList.getTask(1).isDone());
+        assertThrows(MarkException.class, () -> new MarkCommand("#999").execute(ui, taskList, false));
+    }
+
+    @Test
+    public void markCommand_rangeAndList_marksSelectedTasks() throws MayoBotException {
+        for (int i = 1; i <= 6; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+        }
+
+        String result = new MarkCommand("1-3,5").execute(ui, taskList, false);
+
+        assertEquals(4, taskList.countDoneTasks());
+        assertFalse(taskList.getTask(3).isDone());
+        assertFalse(taskList.getTask(5).isDone());
+        assertTrue(result.contains("4 tasks"));
+        assertThrows(MarkException.class, () -> new MarkCommand("5-9").execute(ui, taskList, false));
+        assertThrows(MarkException.class, () -> new MarkCommand("3-1").execute(ui, taskList, false));
+    }
+
+    @Test
+    public void markCommand_rangeOutsideList_rejectedBeforeExpanding() {
+        taskList.addTaskToList(new TodoTask("task"));
+
+        assertThrows(MarkException.class, () -> new MarkCommand("1,-2000000000-5").execute(ui, taskList, false));
+        assertThrows(MarkException.class, () -> new MarkCommand("0-1").execute(ui, taskList, false));
+        assertThrows(MarkException.class, () -> new MarkCommand("2-2000000000").execute(ui, taskList, false));
+        assertFalse(taskList.getTask(0).isDone());
+    }
+
     @Test
     public void markCommand_invalidIndex_throwsMarkException() {
         MarkCommand command = new MarkCommand("999");
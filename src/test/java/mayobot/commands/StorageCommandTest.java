@@ -0,0 +1,64 @@
+package mayobot.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import mayobot.exceptions.MayoBotException;
+import mayobot.exceptions.StorageException;
+import mayobot.task.Task;
+import mayobot.task.TodoTask;
+import mayobot.util.StringPool;
+
+public class StorageCommandTest extends BaseCommandTest {
+
+    @Override
+    protected String getTestFileName() {
+        return "storage_command_test.txt";
+    }
+
+    @Test
+    public void storageCommand_stats_showsAppends() throws MayoBotException {
+        taskList.addTask(new TodoTask("buy milk"), ui, true);
+        taskList.addTask(new TodoTask("read book"), ui, true);
+
+        StorageCommand command = new StorageCommand("stats");
+        String result = command.execute(ui, taskList, false);
+
+        assertTrue(result.contains("Appends: 2"));
+        assertTrue(result.contains("Full rewrites: 0"));
+    }
+
+    @Test
+    public void storageCommand_stats_showsDescriptionPoolSavings() throws MayoBotException {
+        taskList.setDescriptionPool(new StringPool());
+        Task first = new TodoTask("daily standup");
+        Task second = new TodoTask(new String("daily standup"));
+        taskList.addTask(first, ui, true);
+        taskList.addTask(second, ui, true);
+
+        String result = new StorageCommand("stats").execute(ui, taskList, true);
+
+        assertSame(first.getDescription(), second.getDescription());
+        assertTrue(result.contains("Description pool: 1 of 2 lookup(s) shared"));
+    }
+
+    @Test
+    public void storageCommand_statsReset_clearsCounters() throws MayoBotException {
+        taskList.addTask(new TodoTask("buy milk"), ui, true);
+
+        new StorageCommand("stats reset").execute(ui, taskList, true);
+
+        assertEquals(0, taskList.getStorageStats().getAppendCount());
+        assertEquals(0, taskList.getStorageStats().getBytesWritten());
+    }
+
+    @Test
+    public void storageCommand_unknownSubcommand_throwsStorageException() {
+        StorageCommand command = new StorageCommand("defrag");
+        assertThrows(StorageException.class, () -> command.execute(ui, taskList, false));
+    }
+}
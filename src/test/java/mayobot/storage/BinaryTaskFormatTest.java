@@ -0,0 +1,94 @@
+package mayobot.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import mayobot.task.DeadlineTask;
+import mayobot.task.EventTask;
+import mayobot.task.Task;
+import mayobot.task.TodoTask;
+
+public class BinaryTaskFormatTest {
+    private static final Path TEST_DIR = Paths.get("./test_data");
+    private static final Path TEXT_FILE = TEST_DIR.resolve("binary_format_test.txt");
+    private static final Path BINARY_FILE = TEST_DIR.resolve("binary_format_test.bin");
+
+    private List<Task> tasks;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.createDirectories(TEST_DIR);
+        Task done = new TodoTask("read book ✓");
+        done.markAsDone();
+        done.setId(1L << 40);
+        tasks = List.of(done,
+                new DeadlineTask("submit report", LocalDateTime.of(2025, 3, 1, 23, 59)),
+                new EventTask("conference", LocalDateTime.of(2025, 4, 2, 9, 0), LocalDateTime.of(2025, 4, 3, 17, 30)));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(TEXT_FILE);
+        Files.deleteIfExists(BINARY_FILE);
+        Files.deleteIfExists(TEST_DIR);
+    }
+
+    @Test
+    public void binaryTaskFormat_writeThenRead_roundTrips() throws IOException {
+        BinaryTaskFormat.write(tasks, BINARY_FILE);
+
+        List<Task> result = BinaryTaskFormat.read(BINARY_FILE);
+
+        assertEquals(tasks.size(), result.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).changeToFileFormat(), result.get(i).changeToFileFormat());
+        }
+    }
+
+    @Test
+    public void binaryTaskFormat_isBinary_detectsFormat() throws IOException {
+        BinaryTaskFormat.write(tasks, BINARY_FILE);
+        Files.writeString(TEXT_FILE, "T | 0 | plain text\n");
+
+        assertTrue(BinaryTaskFormat.isBinary(BINARY_FILE));
+        assertFalse(BinaryTaskFormat.isBinary(TEXT_FILE));
+    }
+
+    @Test
+    public void binaryTaskFormat_convertBothWays_preservesTasks() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (Task task : tasks) {
+            text.append(task.changeToFileFormat()).append("\n");
+        }
+        Files.writeString(TEXT_FILE, text.toString());
+
+        assertEquals(3, BinaryTaskFormat.convertTextToBinary(TEXT_FILE, BINARY_FILE));
+        Files.delete(TEXT_FILE);
+        assertEquals(3, BinaryTaskFormat.convertBinaryToText(BINARY_FILE, TEXT_FILE));
+
+        assertEquals(text.toString(), Files.readString(TEXT_FILE));
+        assertTrue(Files.size(BINARY_FILE) < Files.size(TEXT_FILE));
+    }
+
+    @Test
+    public void binaryTaskFormat_truncatedRecord_keepsEarlierTasks() throws IOException {
+        BinaryTaskFormat.write(tasks, BINARY_FILE);
+        byte[] bytes = Files.readAllBytes(BINARY_FILE);
+        Files.write(BINARY_FILE, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertEquals(2, BinaryTaskFormat.read(BINARY_FILE).size());
+    }
+}
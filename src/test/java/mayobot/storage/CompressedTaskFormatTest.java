@@ -0,0 +1,103 @@
+package mayobot.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import mayobot.task.DeadlineTask;
+import mayobot.task.Task;
+import mayobot.task.TodoTask;
+
+public class CompressedTaskFormatTest {
+    private static final Path TEST_DIR = Paths.get("./test_data");
+    private static final Path COMPRESSED_FILE = TEST_DIR.resolve("compressed_format_test.mayz");
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(COMPRESSED_FILE);
+        Files.deleteIfExists(TEST_DIR);
+    }
+
+    @Test
+    public void compressedTaskFormat_writeThenRead_roundTripsAcrossBlocks() throws IOException {
+        List<Task> tasks = repetitiveTasks(CompressedTaskFormat.RECORDS_PER_BLOCK * 2 + 10);
+        Files.createDirectories(TEST_DIR);
+
+        CompressedTaskFormat.write(tasks, COMPRESSED_FILE);
+        List<Task> read = CompressedTaskFormat.read(COMPRESSED_FILE);
+
+        assertTrue(CompressedTaskFormat.isCompressed(COMPRESSED_FILE));
+        assertEquals(tasks.size(), read.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).changeToFileFormat(), read.get(i).changeToFileFormat());
+        }
+        long textBytes = tasks.stream().mapToLong(task -> task.changeToFileFormat().length() + 1).sum();
+        assertTrue(Files.size(COMPRESSED_FILE) * 5 < textBytes);
+    }
+
+    @Test
+    public void compressedTaskFormat_append_recompressesOnlyTailBlock() throws IOException {
+        List<Task> tasks = repetitiveTasks(CompressedTaskFormat.RECORDS_PER_BLOCK + 5);
+        Files.createDirectories(TEST_DIR);
+        CompressedTaskFormat.write(tasks, COMPRESSED_FILE);
+        byte[] before = Files.readAllBytes(COMPRESSED_FILE);
+
+        CompressedTaskFormat.append(COMPRESSED_FILE, List.of(new TodoTask("appended")));
+
+        byte[] after = Files.readAllBytes(COMPRESSED_FILE);
+        int firstBlockEnd = before.length - tailBlockLength(before.length);
+        for (int i = 0; i < firstBlockEnd; i++) {
+            assertEquals(before[i], after[i]);
+        }
+        List<Task> read = CompressedTaskFormat.read(COMPRESSED_FILE);
+        assertEquals(tasks.size() + 1, read.size());
+        assertEquals("appended", read.get(read.size() - 1).getDescription());
+    }
+
+    @Test
+    public void compressedTaskFormat_truncatedTail_keepsCompleteBlocks() throws IOException {
+        Files.createDirectories(TEST_DIR);
+        CompressedTaskFormat.write(repetitiveTasks(CompressedTaskFormat.RECORDS_PER_BLOCK + 5), COMPRESSED_FILE);
+        try (RandomAccessFile file = new RandomAccessFile(COMPRESSED_FILE.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        assertEquals(CompressedTaskFormat.RECORDS_PER_BLOCK, CompressedTaskFormat.read(COMPRESSED_FILE).size());
+    }
+
+    private int tailBlockLength(long fileLength) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(COMPRESSED_FILE.toFile(), "r")) {
+            long offset = 5;
+            long last = offset;
+            while (offset < fileLength) {
+                file.seek(offset + 8);
+                last = offset;
+                offset += 12 + file.readInt();
+            }
+            return (int) (fileLength - last);
+        }
+    }
+
+    private static List<Task> repetitiveTasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (i % 3 == 0) {
+                tasks.add(new DeadlineTask("submit report", LocalDateTime.of(2025, 3, 1 + i % 28, 23, 59)));
+            } else {
+                tasks.add(new TodoTask(i % 3 == 1 ? "standup" : "review pull requests"));
+            }
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,178 @@
+package mayobot.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import mayobot.Storage;
+import mayobot.task.Task;
+import mayobot.task.TaskList;
+import mayobot.task.TodoTask;
+import mayobot.util.LongArrayList;
+
+public class LazyTaskListTest {
+    private static final String TEST_DIR = "./test_data";
+    private static final String TEST_FILE = TEST_DIR + "/lazy_list_test.txt";
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(Paths.get(TEST_FILE));
+        Files.deleteIfExists(LineOffsetIndex.getCachePath(Paths.get(TEST_FILE)));
+        Files.deleteIfExists(Paths.get(TEST_DIR));
+    }
+
+    @Test
+    public void lineOffsetIndex_scan_skipsBlankAndMalformedLines() throws IOException {
+        Path path = writeTestFile("T | 0 | first\ngarbage\n\nTX | 0 | bad\r\nD | 1 | second | 2025-01-01T10:00");
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            LongArrayList offsets = LineOffsetIndex.scan(channel, channel.size()).getOffsets();
+            assertEquals(2, offsets.size());
+            assertEquals(0, offsets.get(0));
+            assertEquals(37, offsets.get(1));
+        }
+    }
+
+    @Test
+    public void lineOffsetIndex_scan_readsIds() throws IOException {
+        Path path = writeTestFile("T | 0 | a | @7\nT | 0 | b @9\n"
+                + RecordChecksum.seal("D | 0 | c | 2025-01-01T10:00 | @12") + "\r\nT | 0 | d | @3x");
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            LineOffsetIndex index = LineOffsetIndex.scan(channel, channel.size());
+            assertEquals(4, index.getOffsets().size());
+            assertEquals(12, index.getMaxId());
+            assertEquals(2, index.getMissingIdCount());
+        }
+    }
+
+    @Test
+    public void lineOffsetIndex_scan_quarantinesLinesTheLoadersReject() throws IOException {
+        Path path = writeTestFile("T | 0 | a\nD | 0 | bad date | someday\nT | 0 | b | #0123abcd\n"
+                + RecordChecksum.seal("T | 0 | c") + "\n");
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            LineOffsetIndex index = LineOffsetIndex.scan(channel, channel.size());
+            assertEquals(2, index.getOffsets().size());
+            assertEquals(2, index.getQuarantinedCount());
+        }
+        try (LazyTaskList tasks = LazyTaskList.open(path, 16)) {
+            assertEquals("c", tasks.get(1).getDescription());
+        }
+    }
+
+    @Test
+    public void lazyTaskList_inTaskList_looksUpIdsWithoutDecodingEveryTask() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 1000; i++) {
+            content.append("T | 0 | task ").append(i).append(" | @").append(i).append("\n");
+        }
+        Path path = writeTestFile(content.toString());
+        Storage storage = new Storage(TEST_DIR + "/lazy_list_test_storage.txt");
+
+        try (LazyTaskList tasks = LazyTaskList.open(path, 16)) {
+            TaskList taskList = new TaskList(storage, tasks);
+            Task added = new TodoTask("new");
+            taskList.addTaskToList(added);
+            assertEquals(1001, added.getId());
+            assertEquals(0, tasks.getDecodeCount());
+
+            assertEquals("task 500", taskList.getTaskById(500).getDescription());
+            assertEquals(1001, taskList.getPositionOfId(1001));
+            assertEquals(1, tasks.getDecodeCount());
+
+            tasks.removeAll(BitSet.valueOf(new long[] {0b110}));
+            assertEquals(999, taskList.getPositionOfId(1001));
+            assertEquals(-1, taskList.getPositionOfId(2));
+            assertNull(taskList.getTaskById(5000));
+            assertEquals(1, tasks.getDecodeCount());
+        } finally {
+            storage.close();
+            Files.deleteIfExists(Paths.get(TEST_DIR + "/lazy_list_test_storage.txt"));
+            Files.deleteIfExists(Paths.get(TEST_DIR + "/lazy_list_test_storage.txt.journal"));
+        }
+    }
+
+    @Test
+    public void lazyTaskList_indexOfId_findsIdsOutOfOrder() throws IOException {
+        Path path = writeTestFile("T | 0 | a | @1\nT | 0 | b | @2\nT | 0 | c | @3\n");
+
+        try (LazyTaskList tasks = LazyTaskList.open(path, 4)) {
+            Task moved = new TodoTask("d");
+            moved.setId(9);
+            tasks.add(0, moved);
+            assertEquals(0, tasks.indexOfId(9));
+            assertEquals(3, tasks.indexOfId(3));
+            assertEquals(-1, tasks.indexOfId(5));
+
+            tasks.remove(0);
+            assertEquals(-1, tasks.indexOfId(9));
+            assertEquals(1, tasks.indexOfId(2));
+            assertEquals(0, tasks.getDecodeCount());
+        }
+    }
+
+    @Test
+    public void lazyTaskList_get_decodesOnlyAccessedTasks() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            content.append("T | 0 | task ").append(i).append("\r\n");
+        }
+        Path path = writeTestFile(content.toString());
+
+        try (LazyTaskList tasks = LazyTaskList.open(path, 4)) {
+            assertEquals(100, tasks.size());
+            assertEquals(0, tasks.getDecodeCount());
+
+            assertEquals("task 42", tasks.get(42).getDescription());
+            assertEquals("task 99", tasks.get(99).getDescription());
+            assertEquals(2, tasks.getDecodeCount());
+
+            for (int i = 0; i < 10; i++) {
+                tasks.get(i);
+            }
+            assertEquals(4, tasks.getResidentCount());
+        }
+    }
+
+    @Test
+    public void lazyTaskList_setAndRemove_keepChangesAfterEviction() throws IOException {
+        Path path = writeTestFile("T | 0 | a\nT | 0 | b\nT | 0 | c\nT | 0 | d\n");
+
+        try (LazyTaskList tasks = LazyTaskList.open(path, 1)) {
+            Task task = tasks.get(1);
+            task.markAsDone();
+            tasks.set(1, task);
+            tasks.add(new TodoTask("e"));
+            BitSet removed = new BitSet();
+            removed.set(0);
+            removed.set(2);
+            tasks.removeAll(removed);
+            tasks.get(1);
+
+            assertEquals(3, tasks.size());
+            assertTrue(tasks.get(0).isDone());
+            assertEquals("d", tasks.get(1).getDescription());
+            assertEquals("e", tasks.remove(2).getDescription());
+            assertEquals(2, tasks.size());
+        }
+    }
+
+    private Path writeTestFile(String content) throws IOException {
+        Files.createDirectories(Paths.get(TEST_DIR));
+        Path path = Paths.get(TEST_FILE);
+        Files.writeString(path, content);
+        return path;
+    }
+}
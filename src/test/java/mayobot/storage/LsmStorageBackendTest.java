@@ -0,0 +1,159 @@
+package mayobot.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import mayobot.task.Task;
+import mayobot.task.TaskList;
+import mayobot.task.TodoTask;
+
+public class LsmStorageBackendTest {
+    private static final Path TEST_DIR = Paths.get("./test_data");
+    private static final String TEST_STORE = "./test_data/lsm_backend_test";
+    private static final int SMALL_MEMTABLE_BYTES = 4096;
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (Files.exists(TEST_DIR)) {
+            try (Stream<Path> files = Files.walk(TEST_DIR)) {
+                for (Path file : files.sorted((a, b) -> b.compareTo(a)).toArray(Path[]::new)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void lsmStorageBackend_changes_surviveReopenInOrder() throws IOException {
+        LsmStorageBackend backend = new LsmStorageBackend(TEST_STORE);
+        TaskList taskList = backend.load();
+        for (int i = 0; i < 5; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+            backend.append(taskList.getTask(i));
+        }
+        taskList.markTaskAsDone(2);
+        taskList.deleteTask(1);
+        backend.close();
+
+        LsmStorageBackend reopened = new LsmStorageBackend(TEST_STORE);
+        TaskList reloaded = reopened.load();
+        add(reopened, reloaded, new TodoTask("task 5"));
+        reopened.close();
+
+        reloaded = reopened.load();
+        reopened.close();
+        assertEquals(5, reloaded.getSize());
+        assertEquals("task 1", reloaded.getTask(0).getDescription());
+        assertTrue(reloaded.getTask(0).isDone());
+        assertEquals("task 5", reloaded.getTask(4).getDescription());
+    }
+
+    @Test
+    public void lsmStorageBackend_tombstones_hideTasksInOlderSegments() throws IOException {
+        LsmStorageBackend backend = new LsmStorageBackend(TEST_STORE, Durability.FLUSH, SMALL_MEMTABLE_BYTES);
+        TaskList taskList = backend.load();
+        for (int i = 0; i < 300; i++) {
+            add(backend, taskList, new TodoTask("history entry " + i));
+        }
+        assertTrue(backend.getSegmentCount() > 0);
+
+        taskList.deleteTask(1);
+        taskList.markTaskAsDone(100);
+        assertEquals("history entry 100", backend.lookup(100).getDescription());
+        assertTrue(backend.lookup(100).isDone());
+        backend.close();
+
+        TaskList reloaded = backend.load();
+        backend.close();
+        assertEquals(299, reloaded.getSize());
+        assertEquals("history entry 1", reloaded.getTask(0).getDescription());
+        assertTrue(reloaded.getTask(99).isDone());
+    }
+
+    @Test
+    public void lsmStorageBackend_compaction_boundsSegmentsAndWriteAmplification() throws IOException {
+        LsmStorageBackend backend = new LsmStorageBackend(TEST_STORE, Durability.FLUSH, SMALL_MEMTABLE_BYTES);
+        TaskList taskList = backend.load();
+        for (int i = 0; i < 5000; i++) {
+            add(backend, taskList, new TodoTask("review pull request number " + i));
+            if (i % 7 == 0) {
+                taskList.markTaskAsDone(i / 2 + 1);
+            }
+        }
+        backend.awaitCompaction();
+
+        assertTrue(backend.getCompactionCount() > 0);
+        assertTrue(backend.getSegmentCount() < 3 * LsmStorageBackend.TIER_MIN_SEGMENTS);
+        assertTrue(backend.getWriteAmplification() < 8, "Amplification: " + backend.getWriteAmplification());
+        assertEquals("review pull request number 4321", backend.lookup(4322).getDescription());
+        backend.close();
+
+        LsmStorageBackend reopened = new LsmStorageBackend(TEST_STORE);
+        TaskList reloaded = reopened.load();
+        reopened.close();
+        assertEquals(5000, reloaded.getSize());
+        assertTrue(reloaded.getTask(0).isDone());
+        assertEquals("review pull request number 4999", reloaded.getTask(4999).getDescription());
+    }
+
+    @Test
+    public void lsmStorageBackend_tornLogTail_isIgnored() throws IOException {
+        LsmStorageBackend backend = new LsmStorageBackend(TEST_STORE);
+        TaskList taskList = backend.load();
+        add(backend, taskList, new TodoTask("kept task"));
+        add(backend, taskList, new TodoTask("torn task"));
+
+        // Simulate a crash in the middle of writing the last log record
+        Path log = Paths.get(TEST_STORE, "memtable.log");
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        LsmStorageBackend reopened = new LsmStorageBackend(TEST_STORE);
+        TaskList reloaded = reopened.load();
+        reopened.close();
+        assertEquals(1, reloaded.getSize());
+        assertEquals("kept task", reloaded.getTask(0).getDescription());
+    }
+
+    @Test
+    public void lsmStorageBackend_interruptedMerge_leftoverSegmentsAreDeleted() throws IOException {
+        LsmStorageBackend backend = new LsmStorageBackend(TEST_STORE, Durability.FLUSH, SMALL_MEMTABLE_BYTES);
+        TaskList taskList = backend.load();
+        for (int i = 0; i < 200; i++) {
+            add(backend, taskList, new TodoTask("entry " + i));
+        }
+        backend.close();
+
+        // A merged segment covering every flush, next to its inputs that were never deleted
+        Path directory = Paths.get(TEST_STORE);
+        Path merged = directory.resolve("segment-0000000000-0000099999.sst");
+        try (Stream<Path> files = Files.list(directory)) {
+            Path newest = files.filter(SortedSegment::isSegmentFile).max(Path::compareTo).orElseThrow();
+            Files.copy(newest, merged);
+        }
+        Files.write(directory.resolve("segment-0000100000-0000100000.sst.tmp"), new byte[] {1, 2, 3});
+
+        LsmStorageBackend reopened = new LsmStorageBackend(TEST_STORE);
+        reopened.load();
+        assertEquals(1, reopened.getSegmentCount());
+        reopened.close();
+        assertFalse(Files.exists(directory.resolve("segment-0000100000-0000100000.sst.tmp")));
+    }
+
+    private static void add(LsmStorageBackend backend, TaskList taskList, Task task) {
+        taskList.addTaskToList(task);
+        backend.append(task);
+    }
+}
@@ -0,0 +1,71 @@
+package mayobot.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import mayobot.task.Task;
+
+public class MappedTaskLoaderTest {
+    private static final String TEST_DIR = "./test_data";
+    private static final String TEST_FILE = TEST_DIR + "/mapped_loader_test.txt";
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        // Mapped buffers are only released on garbage collection, which Windows needs before deleting the file
+        System.gc();
+        Files.deleteIfExists(Paths.get(TEST_FILE));
+        Files.deleteIfExists(Paths.get(TEST_DIR));
+    }
+
+    @Test
+    public void mappedTaskLoader_manyChunks_keepsFileOrder() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append("T | ").append(i % 2).append(" | task ").append(i).append("\n");
+        }
+        Path path = writeTestFile(content.toString());
+
+        MappedTaskLoader loader = new MappedTaskLoader(new ForkJoinPool(4), 64);
+        List<Task> tasks = loader.load(path);
+
+        assertEquals(1000, tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals("task " + i, tasks.get(i).getDescription());
+            assertEquals(i % 2 == 1, tasks.get(i).isDone());
+        }
+        assertTrue(loader.getLastReport().getChunkCount() > 1);
+        assertEquals(1000, loader.getLastReport().getTaskCount());
+    }
+
+    @Test
+    public void mappedTaskLoader_malformedLinesAndNoTrailingNewline_skipsInvalid() throws IOException {
+        Path path = writeTestFile("T | 0 | first\ngarbage\n\nD | 1 | second | 2025-01-01T10:00");
+
+        List<Task> tasks = new MappedTaskLoader(new ForkJoinPool(2), 4).load(path);
+
+        assertEquals(2, tasks.size());
+        assertEquals("first", tasks.get(0).getDescription());
+        assertEquals("second", tasks.get(1).getDescription());
+    }
+
+    @Test
+    public void mappedTaskLoader_emptyFile_returnsEmptyList() throws IOException {
+        Path path = writeTestFile("");
+        assertTrue(new MappedTaskLoader().load(path).isEmpty());
+    }
+
+    private Path writeTestFile(String content) throws IOException {
+        Files.createDirectories(Paths.get(TEST_DIR));
+        return Files.writeString(Paths.get(TEST_FILE), content);
+    }
+}
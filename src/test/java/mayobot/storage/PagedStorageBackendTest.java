@@ -0,0 +1,118 @@
+package mayobot.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import mayobot.task.Task;
+import mayobot.task.TaskList;
+import mayobot.task.TodoTask;
+
+public class PagedStorageBackendTest {
+    private static final Path TEST_DIR = Paths.get("./test_data");
+    private static final String TEST_FILE = "./test_data/paged_backend_test.db";
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (Files.exists(TEST_DIR)) {
+            try (Stream<Path> files = Files.list(TEST_DIR)) {
+                for (Path file : files.toArray(Path[]::new)) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(TEST_DIR);
+        }
+    }
+
+    @Test
+    public void pagedStorageBackend_changes_surviveReopenInOrder() throws IOException {
+        PagedStorageBackend backend = new PagedStorageBackend(TEST_FILE);
+        TaskList taskList = backend.load();
+        for (int i = 0; i < 5; i++) {
+            add(backend, taskList, new TodoTask("task " + i));
+        }
+        taskList.markTaskAsDone(2);
+        taskList.deleteTask(1);
+        add(backend, taskList, new TodoTask("task 5"));
+        backend.close();
+
+        TaskList reloaded = new PagedStorageBackend(TEST_FILE).load();
+        assertEquals(5, reloaded.getSize());
+        assertEquals("task 1", reloaded.getTask(0).getDescription());
+        assertTrue(reloaded.getTask(0).isDone());
+        assertEquals("task 5", reloaded.getTask(4).getDescription());
+    }
+
+    @Test
+    public void pagedStorageBackend_markAndDelete_writeSinglePage() throws IOException {
+        PagedStorageBackend backend = new PagedStorageBackend(TEST_FILE);
+        TaskList taskList = backend.load();
+        for (int i = 0; i < 2000; i++) {
+            add(backend, taskList, new TodoTask("review pull request number " + i));
+        }
+        assertTrue(backend.getPageCount() > 5);
+
+        taskList.markTaskAsDone(1000);
+        assertEquals(1, backend.getLastCommitPageCount());
+        taskList.deleteTask(10);
+        assertEquals(1, backend.getLastCommitPageCount());
+        backend.close();
+
+        TaskList reloaded = new PagedStorageBackend(TEST_FILE).load();
+        assertEquals(1999, reloaded.getSize());
+        assertTrue(reloaded.getTask(998).isDone());
+        assertEquals("review pull request number 10", reloaded.getTask(9).getDescription());
+    }
+
+    @Test
+    public void pagedStorageBackend_committedLog_isReplayedOnLoad() throws IOException {
+        PagedStorageBackend backend = new PagedStorageBackend(TEST_FILE);
+        TaskList taskList = backend.load();
+        add(backend, taskList, new TodoTask("logged task"));
+        taskList.markTaskAsDone(1);
+
+        // Simulate a crash after the log was written but before the page reached the file
+        try (RandomAccessFile file = new RandomAccessFile(TEST_FILE, "rw")) {
+            file.seek(PagedStorageBackend.PAGE_SIZE);
+            file.write(new byte[PagedStorageBackend.PAGE_SIZE]);
+        }
+
+        TaskList reloaded = new PagedStorageBackend(TEST_FILE).load();
+        assertEquals(1, reloaded.getSize());
+        assertTrue(reloaded.getTask(0).isDone());
+    }
+
+    @Test
+    public void pagedStorageBackend_tornLog_isIgnored() throws IOException {
+        PagedStorageBackend backend = new PagedStorageBackend(TEST_FILE);
+        TaskList taskList = backend.load();
+        add(backend, taskList, new TodoTask("kept task"));
+        taskList.markTaskAsDone(1);
+
+        Path log = Paths.get(TEST_FILE + ".wal");
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            file.seek(PagedStorageBackend.PAGE_SIZE);
+            file.write(0x5A);
+        }
+
+        TaskList reloaded = new PagedStorageBackend(TEST_FILE).load();
+        assertEquals(1, reloaded.getSize());
+        assertTrue(reloaded.getTask(0).isDone());
+        assertFalse(Files.size(log) > 0);
+    }
+
+    private static void add(PagedStorageBackend backend, TaskList taskList, Task task) {
+        taskList.addTaskToList(task);
+        backend.append(task);
+    }
+}
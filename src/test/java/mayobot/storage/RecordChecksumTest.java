@@ -0,0 +1,95 @@
+package mayobot.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import mayobot.Parser;
+import mayobot.task.Task;
+
+public class RecordChecksumTest {
+    private static final Path TEST_DIR = Paths.get("./test_data");
+    private static final Path SNAPSHOT = TEST_DIR.resolve("record_checksum_test.txt");
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.createDirectories(TEST_DIR);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (Files.exists(TEST_DIR)) {
+            try (Stream<Path> files = Files.list(TEST_DIR)) {
+                for (Path file : files.toArray(Path[]::new)) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(TEST_DIR);
+        }
+    }
+
+    @Test
+    public void recordChecksum_seal_staysReadableByParser() {
+        String sealed = RecordChecksum.seal("D | 1 | return book | 2025-03-01T23:59");
+
+        assertTrue(RecordChecksum.isSealed(sealed));
+        assertEquals("return book", RecordChecksum.decode(sealed).getDescription());
+        assertEquals("return book", Parser.parseTaskFromFile(sealed).getDescription());
+    }
+
+    @Test
+    public void recordChecksum_damagedRecord_returnsNull() {
+        String sealed = RecordChecksum.seal("T | 0 | read book");
+        String damaged = sealed.replace("read", "raed");
+
+        assertNull(RecordChecksum.unseal(damaged));
+        assertNull(RecordChecksum.decode(damaged));
+        assertEquals("T | 0 | plain", RecordChecksum.unseal("T | 0 | plain"));
+    }
+
+    @Test
+    public void textSnapshotScan_read_quarantinesDamagedLines() throws IOException {
+        String damaged = RecordChecksum.seal("T | 0 | second").replace("second", "sec0nd");
+        Files.writeString(SNAPSHOT, RecordChecksum.seal("T | 0 | first") + "\n" + damaged + "\n\n"
+                + "X | broken\n" + "T | 1 | unsealed\n");
+
+        TextSnapshotScan scan = TextSnapshotScan.read(SNAPSHOT);
+
+        assertEquals(2, scan.getTasks().size());
+        assertEquals("unsealed", scan.getTasks().get(1).getDescription());
+        assertEquals(2, scan.getQuarantinedCount());
+    }
+
+    @Test
+    public void textSnapshotScan_truncateTornTail_movesTailToQuarantine() throws IOException {
+        String first = RecordChecksum.seal("T | 0 | first") + "\n";
+        String torn = RecordChecksum.seal("T | 0 | second").substring(0, 18);
+        Files.writeString(SNAPSHOT, first + torn);
+
+        assertEquals(torn.length(), TextSnapshotScan.truncateTornTail(SNAPSHOT));
+        assertEquals(first, Files.readString(SNAPSHOT));
+        assertEquals(torn + "\n", Files.readString(TextSnapshotScan.getQuarantinePath(SNAPSHOT)));
+        assertEquals(0, TextSnapshotScan.truncateTornTail(SNAPSHOT));
+    }
+
+    @Test
+    public void textSnapshotScan_truncateTornTail_keepsValidUnterminatedLine() throws IOException {
+        Files.writeString(SNAPSHOT, "T | 0 | first\nT | 0 | edited by hand");
+
+        assertEquals(0, TextSnapshotScan.truncateTornTail(SNAPSHOT));
+        assertFalse(Files.exists(TextSnapshotScan.getQuarantinePath(SNAPSHOT)));
+        Task task = TextSnapshotScan.read(SNAPSHOT).getTasks().get(1);
+        assertEquals("edited by hand", task.getDescription());
+    }
+}
@@ -0,0 +1,111 @@
+package mayobot.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import mayobot.task.DeadlineTask;
+import mayobot.task.EventTask;
+import mayobot.task.Task;
+import mayobot.task.TodoTask;
+
+public class ShardedTaskFormatTest {
+    private static final Path TEST_DIR = Paths.get("./test_data");
+    private static final Path SNAPSHOT = TEST_DIR.resolve("sharded_format_test.txt");
+    private static final Path MANIFEST = TEST_DIR.resolve("sharded_format_test.txt.tmp");
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (Files.exists(TEST_DIR)) {
+            try (Stream<Path> files = Files.list(TEST_DIR)) {
+                for (Path file : files.toArray(Path[]::new)) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(TEST_DIR);
+        }
+    }
+
+    @Test
+    public void shardedTaskFormat_writeThenRead_restoresListOrder() throws IOException {
+        List<Task> tasks = mixedTasks(50);
+        Files.createDirectories(TEST_DIR);
+
+        assertEquals(3, install(tasks));
+        List<Task> read = ShardedTaskFormat.read(SNAPSHOT);
+
+        assertTrue(ShardedTaskFormat.isSharded(SNAPSHOT));
+        assertEquals(tasks.size(), read.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).changeToFileFormat(), read.get(i).changeToFileFormat());
+        }
+    }
+
+    @Test
+    public void shardedTaskFormat_changedDeadline_rewritesOnlyDeadlineShard() throws IOException {
+        List<Task> tasks = mixedTasks(30);
+        Files.createDirectories(TEST_DIR);
+        install(tasks);
+        List<Path> before = ShardedTaskFormat.getShardPaths(SNAPSHOT);
+
+        tasks.get(1).markAsDone();
+        assertEquals(1, install(tasks));
+        ShardedTaskFormat.deleteUnreferencedShards(SNAPSHOT);
+
+        List<Path> after = ShardedTaskFormat.getShardPaths(SNAPSHOT);
+        assertEquals(before.get(0), after.get(0));
+        assertFalse(before.get(1).equals(after.get(1)));
+        assertFalse(Files.exists(before.get(1)));
+        assertEquals(before.get(2), after.get(2));
+        assertTrue(ShardedTaskFormat.read(SNAPSHOT).get(1).isDone());
+    }
+
+    @Test
+    public void shardedTaskFormat_notSharded_deletesAllShards() throws IOException {
+        Files.createDirectories(TEST_DIR);
+        install(mixedTasks(10));
+        List<Path> shards = ShardedTaskFormat.getShardPaths(SNAPSHOT);
+
+        Files.writeString(SNAPSHOT, "T | 0 | plain\n");
+        ShardedTaskFormat.deleteUnreferencedShards(SNAPSHOT);
+
+        assertFalse(ShardedTaskFormat.isSharded(SNAPSHOT));
+        for (Path shard : shards) {
+            assertFalse(Files.exists(shard));
+        }
+    }
+
+    private static int install(List<Task> tasks) throws IOException {
+        int written = ShardedTaskFormat.write(tasks, SNAPSHOT, MANIFEST);
+        Files.move(MANIFEST, SNAPSHOT, StandardCopyOption.REPLACE_EXISTING);
+        return written;
+    }
+
+    private static List<Task> mixedTasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        LocalDateTime start = LocalDateTime.of(2025, 3, 1, 9, 0);
+        for (int i = 0; i < count; i++) {
+            if (i % 3 == 0) {
+                tasks.add(new TodoTask("todo " + i));
+            } else if (i % 3 == 1) {
+                tasks.add(new DeadlineTask("deadline " + i, start.plusDays(i)));
+            } else {
+                tasks.add(new EventTask("event " + i, start.plusDays(i), start.plusDays(i).plusHours(1)));
+            }
+        }
+        return tasks;
+    }
+}
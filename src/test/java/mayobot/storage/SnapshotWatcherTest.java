@@ -0,0 +1,125 @@
+package mayobot.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class SnapshotWatcherTest {
+    private static final Path TEST_DIR = Paths.get("./test_data");
+    private static final Path SNAPSHOT = TEST_DIR.resolve("watched_tasks.txt");
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (Files.exists(TEST_DIR)) {
+            try (Stream<Path> files = Files.list(TEST_DIR)) {
+                for (Path file : files.toArray(Path[]::new)) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(TEST_DIR);
+        }
+    }
+
+    @Test
+    public void snapshotWatcher_poll_reportsSeparateEdits() throws IOException {
+        Files.createDirectories(TEST_DIR);
+        Files.writeString(SNAPSHOT, "T | 0 | a\nT | 0 | b\n\nT | 0 | c\nT | 0 | d\n");
+        SnapshotWatcher watcher = new SnapshotWatcher(SNAPSHOT, diff -> {});
+        watcher.acknowledge();
+
+        Files.writeString(SNAPSHOT, "T | 0 | a\nT | 1 | b\nT | 0 | c\nT | 0 | d\nT | 0 | e\n");
+        SnapshotDiff diff = watcher.poll();
+
+        assertNotNull(diff);
+        assertEquals(5, diff.getTaskCount());
+        assertEquals(2, diff.getEdits().size());
+        SnapshotDiff.Edit changed = diff.getEdits().get(0);
+        assertEquals(1, changed.getStart());
+        assertEquals(1, changed.getRemovedCount());
+        assertEquals("b", changed.getAddedTasks().get(0).getDescription());
+        SnapshotDiff.Edit appended = diff.getEdits().get(1);
+        assertEquals(4, appended.getStart());
+        assertEquals(0, appended.getRemovedCount());
+        assertEquals("e", appended.getAddedTasks().get(0).getDescription());
+    }
+
+    @Test
+    public void snapshotWatcher_poll_unchangedContentReturnsNull() throws IOException {
+        Files.createDirectories(TEST_DIR);
+        Files.writeString(SNAPSHOT, "T | 0 | a\n");
+        SnapshotWatcher watcher = new SnapshotWatcher(SNAPSHOT, diff -> {});
+        watcher.acknowledge();
+
+        Files.writeString(SNAPSHOT, "T | 0 | a\n");
+        assertNull(watcher.poll());
+    }
+
+    @Test
+    public void snapshotWatcher_poll_skipsLinesTheLoadersReject() throws IOException {
+        Files.createDirectories(TEST_DIR);
+        Files.writeString(SNAPSHOT, "T | 0 | a\nT | 0 | b\n");
+        SnapshotWatcher watcher = new SnapshotWatcher(SNAPSHOT, diff -> {});
+        watcher.acknowledge();
+
+        Files.writeString(SNAPSHOT, "T | 0 | a\nD | 0 | bad date | someday\nT | 0 | b | #0123abcd\nT | 0 | b\n"
+                + RecordChecksum.seal("T | 0 | c") + "\n");
+        SnapshotDiff diff = watcher.poll();
+
+        assertNotNull(diff);
+        assertEquals(3, diff.getTaskCount());
+        assertEquals(1, diff.getEdits().size());
+        SnapshotDiff.Edit appended = diff.getEdits().get(0);
+        assertEquals(2, appended.getStart());
+        assertEquals(0, appended.getRemovedCount());
+        assertEquals("c", appended.getAddedTasks().get(0).getDescription());
+    }
+
+    @Test
+    public void snapshotWatcher_poll_ignoresEditsToIdsOnly() throws IOException {
+        Files.createDirectories(TEST_DIR);
+        Files.writeString(SNAPSHOT, "T | 0 | a | @1\nT | 0 | b | @2\n");
+        SnapshotWatcher watcher = new SnapshotWatcher(SNAPSHOT, diff -> {});
+        watcher.acknowledge();
+
+        Files.writeString(SNAPSHOT, "T | 0 | a | @7\nT | 0 | b\n");
+        SnapshotDiff diff = watcher.poll();
+
+        assertNotNull(diff);
+        assertEquals(2, diff.getTaskCount());
+        assertTrue(diff.getEdits().isEmpty());
+    }
+
+    @Test
+    public void snapshotWatcher_start_reportsReplacedFile() throws IOException, InterruptedException {
+        Files.createDirectories(TEST_DIR);
+        Files.writeString(SNAPSHOT, "T | 0 | a\n");
+        BlockingQueue<SnapshotDiff> diffs = new LinkedBlockingQueue<>();
+        SnapshotWatcher watcher = new SnapshotWatcher(SNAPSHOT, diffs::add);
+        watcher.start();
+        try {
+            Path temp = TEST_DIR.resolve("watched_tasks.txt.sync");
+            Files.writeString(temp, "T | 0 | a\nT | 0 | synced\n");
+            Files.move(temp, SNAPSHOT, StandardCopyOption.REPLACE_EXISTING);
+
+            SnapshotDiff diff = diffs.poll(10, TimeUnit.SECONDS);
+            assertNotNull(diff);
+            assertEquals("synced", diff.getEdits().get(0).getAddedTasks().get(0).getDescription());
+        } finally {
+            watcher.close();
+        }
+    }
+}
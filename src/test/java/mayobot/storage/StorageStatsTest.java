@@ -0,0 +1,73 @@
+package mayobot.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+import mayobot.util.LatencyHistogram;
+
+public class StorageStatsTest {
+
+    @Test
+    public void latencyHistogram_percentiles_boundedByBucketAndMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(5_000_000);
+
+        assertEquals(100, histogram.getCount());
+        // 1000 ns falls in the bucket [512, 1023]
+        assertEquals(1023, histogram.getPercentileNanos(50));
+        assertEquals(1023, histogram.getPercentileNanos(99));
+        assertEquals(5_000_000, histogram.getPercentileNanos(100));
+        assertEquals(5_000_000, histogram.getMaxNanos());
+    }
+
+    @Test
+    public void latencyHistogram_empty_returnsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileNanos(99));
+        assertEquals(0, histogram.getMeanNanos());
+    }
+
+    @Test
+    public void storageStats_fullRewriteByteShare_comparesWithAppends() {
+        StorageStats stats = new StorageStats();
+        stats.recordAppend(1, 100, 1000);
+        stats.recordFullRewrite(10, 300, 100_000);
+
+        assertEquals(11, stats.getRecordsWritten());
+        assertEquals(400, stats.getBytesWritten());
+        assertEquals(0.75, stats.getFullRewriteByteShare(), 1e-9);
+
+        stats.reset();
+        assertEquals(0, stats.getAppendCount());
+        assertEquals(0, stats.getFullRewriteByteShare(), 1e-9);
+    }
+
+    @Test
+    public void storageStats_registerMBean_exposesAttributes() throws Exception {
+        StorageStats stats = new StorageStats();
+        stats.recordAppend(3, 42, 1000);
+        stats.registerMBean("storage-stats-test");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("mayobot:type=StorageStats,name=\"storage-stats-test\"");
+        try {
+            assertTrue(server.isRegistered(name));
+            assertEquals(42L, server.getAttribute(name, "BytesWritten"));
+
+            // Registering again under the same name replaces the old statistics
+            new StorageStats().registerMBean("storage-stats-test");
+            assertEquals(0L, server.getAttribute(name, "BytesWritten"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package mayobot.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import mayobot.task.DeadlineTask;
+import mayobot.task.EventTask;
+import mayobot.task.Task;
+import mayobot.task.TodoTask;
+
+public class TaskLineEncoderTest {
+    private static final Path TEST_DIR = Paths.get("./test_data");
+    private static final Path SNAPSHOT = TEST_DIR.resolve("task_line_encoder_test.txt");
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.createDirectories(TEST_DIR);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (Files.exists(TEST_DIR)) {
+            try (Stream<Path> files = Files.list(TEST_DIR)) {
+                for (Path file : files.toArray(Path[]::new)) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(TEST_DIR);
+        }
+    }
+
+    @Test
+    public void taskLineEncoder_write_matchesChangeToFileFormat() throws IOException {
+        List<Task> tasks = variedTasks();
+
+        long bytes = TaskLineEncoder.write(tasks, SNAPSHOT, false);
+
+        StringBuilder expected = new StringBuilder();
+        for (Task task : tasks) {
+            expected.append(task.changeToFileFormat()).append('\n');
+        }
+        assertEquals(expected.toString(), Files.readString(SNAPSHOT));
+        assertEquals(Files.size(SNAPSHOT), bytes);
+    }
+
+    @Test
+    public void taskLineEncoder_sealingWithSmallBlocks_matchesRecordChecksum() throws IOException {
+        List<Task> tasks = variedTasks();
+
+        try (FileChannel channel = FileChannel.open(SNAPSHOT, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Blocks far smaller than a line split every line and multi-byte character across writes
+            TaskLineEncoder encoder = new TaskLineEncoder(channel, true, 16);
+            for (Task task : tasks) {
+                encoder.encode(task);
+            }
+            encoder.flush();
+        }
+
+        List<String> lines = Files.readAllLines(SNAPSHOT);
+        assertEquals(tasks.size(), lines.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(RecordChecksum.seal(tasks.get(i).changeToFileFormat()), lines.get(i));
+        }
+    }
+
+    private static List<Task> variedTasks() {
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new TodoTask("buy milk"));
+        Task done = new DeadlineTask("return book", LocalDateTime.of(2025, 3, 1, 23, 59));
+        done.markAsDone();
+        tasks.add(done);
+        tasks.add(new DeadlineTask("precise", LocalDateTime.of(2025, 3, 1, 8, 5, 7, 120_000_000)));
+        tasks.add(new DeadlineTask("micros", LocalDateTime.of(825, 1, 2, 3, 4, 5, 123_456_000)));
+        tasks.add(new DeadlineTask("far future", LocalDateTime.of(12345, 6, 7, 8, 9)));
+        tasks.add(new EventTask("café ☕ meetup 🎉", LocalDateTime.of(2025, 5, 1, 18, 0, 30, 7),
+                LocalDateTime.of(2025, 5, 1, 21, 0)));
+        tasks.add(new TodoTask("long ".repeat(500)));
+        tasks.get(0).setId(1);
+        tasks.get(5).setId(Long.MAX_VALUE);
+        return tasks;
+    }
+}
@@ -0,0 +1,134 @@
+package mayobot.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class CompactTaskListTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 9, 30);
+
+    @Test
+    public void compactTaskList_randomEdits_matchArrayList() {
+        Random random = new Random(42);
+        List<Task> expected = new ArrayList<>();
+        CompactTaskList compact = new CompactTaskList();
+        for (int step = 0; step < 20_000; step++) {
+            int choice = random.nextInt(10);
+            if (choice < 5 || expected.isEmpty()) {
+                int index = random.nextInt(expected.size() + 1);
+                Task task = randomTask(random, step);
+                expected.add(index, task);
+                compact.add(index, task);
+            } else if (choice < 8) {
+                int index = random.nextInt(expected.size());
+                assertEquals(format(expected.remove(index)), format(compact.remove(index)));
+            } else {
+                int index = random.nextInt(expected.size());
+                Task task = randomTask(random, step);
+                assertEquals(format(expected.set(index, task)), format(compact.set(index, task)));
+            }
+        }
+
+        assertEquals(expected.size(), compact.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(format(expected.get(i)), format(compact.get(i)));
+        }
+        compact.subList(10, 200).clear();
+        expected.subList(10, 200).clear();
+        assertEquals(format(expected.get(10)), format(compact.get(10)));
+    }
+
+    @Test
+    public void compactTaskList_taskListOperations_useStoredIds() {
+        CompactTaskList compact = new CompactTaskList();
+        TaskList taskList = new TaskList(null, compact);
+        taskList.addTaskToList(new TodoTask("first"));
+        taskList.addTaskToList(new DeadlineTask("second", START));
+        taskList.addTaskToList(new EventTask("third", START, START.plusHours(2)));
+        long thirdId = taskList.getTask(2).getId();
+
+        taskList.replaceTasksInList(0, 1, List.of());
+        assertEquals(2, taskList.getPositionOfId(thirdId));
+        assertEquals("third", taskList.getTaskById(thirdId).getDescription());
+        assertNull(taskList.getTaskById(thirdId + 1));
+        assertEquals(-1, taskList.getPositionOfId(thirdId + 1));
+
+        taskList.replaceTasksInList(2, 0, List.of(new TodoTask("fourth")));
+        assertEquals(thirdId + 1, compact.getId(2));
+        assertEquals(1, taskList.countTasks(TaskType.EVENT));
+        assertEquals(1, taskList.findDeadlinesBefore(START.plusDays(1)).size());
+    }
+
+    @Test
+    public void compactTaskList_unicodeLongAndDoneTasks_roundTrip() {
+        CompactTaskList compact = new CompactTaskList(1);
+        Task task = new TodoTask("ʕ•ᴥ•ʔ read 本 ✧");
+        task.markAsDone();
+        task.setId(7);
+        compact.add(task);
+        compact.add(new TodoTask("plain"));
+        Task longTask = new DeadlineTask("long ".repeat(100), START);
+        compact.add(longTask);
+
+        assertEquals(format(task), format(compact.get(0)));
+        assertTrue(compact.get(0).isDone());
+        assertFalse(compact.get(1).isDone());
+        assertEquals(format(longTask), format(compact.get(2)));
+        assertEquals(0, compact.indexOfId(7));
+        assertEquals(7, compact.getMaxId());
+    }
+
+    @Test
+    public void compactTaskList_indexOfId_findsIdsOutOfOrder() {
+        CompactTaskList compact = new CompactTaskList();
+        for (int id = 1; id <= 3; id++) {
+            Task task = new TodoTask("task " + id);
+            task.setId(id);
+            compact.add(task);
+        }
+        assertEquals(-1, compact.indexOfId(5));
+
+        Task moved = new TodoTask("moved");
+        moved.setId(9);
+        compact.add(0, moved);
+        assertEquals(0, compact.indexOfId(9));
+        assertEquals(3, compact.indexOfId(3));
+        assertEquals(-1, compact.indexOfId(5));
+
+        compact.remove(0);
+        assertEquals(-1, compact.indexOfId(9));
+        assertEquals(1, compact.indexOfId(2));
+    }
+
+    private static Task randomTask(Random random, int step) {
+        Task task;
+        switch (random.nextInt(3)) {
+        case 0:
+            task = new TodoTask("todo " + step);
+            break;
+        case 1:
+            task = new DeadlineTask("deadline " + step, START.plusMinutes(step));
+            break;
+        default:
+            task = new EventTask("event " + step, START.plusHours(step), START.plusHours(step + 1));
+            break;
+        }
+        if (random.nextBoolean()) {
+            task.markAsDone();
+        }
+        task.setId(step + 1);
+        return task;
+    }
+
+    private static String format(Task task) {
+        return task.changeToFileFormat();
+    }
+}
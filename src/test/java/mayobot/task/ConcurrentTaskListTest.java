@@ -0,0 +1,154 @@
+package mayobot.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import mayobot.Storage;
+import mayobot.ui.Ui;
+
+public class ConcurrentTaskListTest {
+    private static final String TEST_DIR = "./test_data";
+    private static final String TEST_FILE = TEST_DIR + "/concurrent_task_list_test.txt";
+
+    private Storage storage;
+
+    @BeforeEach
+    public void setUp() {
+        storage = new Storage(TEST_FILE);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        storage.close();
+        Files.deleteIfExists(Paths.get(TEST_FILE));
+        Files.deleteIfExists(Paths.get(TEST_FILE + ".journal"));
+        Files.deleteIfExists(Paths.get(TEST_DIR));
+    }
+
+    @Test
+    public void concurrentTaskList_snapshot_sharedUntilOrderChanges() {
+        ConcurrentTaskList taskList = new ConcurrentTaskList(storage, List.of(new TodoTask("first"),
+                new TodoTask("second")));
+
+        List<Task> snapshot = taskList.tasksForReading();
+        assertSame(snapshot, taskList.tasksForReading());
+
+        taskList.markTaskAsDone(2);
+        assertSame(snapshot, taskList.tasksForReading());
+        assertTrue(snapshot.get(1).isDone());
+
+        taskList.addTaskToList(new TodoTask("third"));
+        List<Task> next = taskList.tasksForReading();
+        assertNotSame(snapshot, next);
+        assertEquals(2, snapshot.size());
+        assertEquals(3, next.size());
+        assertEquals(1, taskList.countDoneTasks());
+    }
+
+    @Test
+    public void concurrentTaskList_snapshot_followsBulkChangesWithoutChangingEarlierOnes() {
+        ConcurrentTaskList taskList = new ConcurrentTaskList(storage);
+        for (int i = 0; i < 1_000; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+        }
+        List<Task> before = taskList.tasksForReading();
+        List<Task> expectedBefore = new ArrayList<>(before);
+
+        taskList.deleteTasks(new int[] {1, 500, 1_000});
+        taskList.replaceTasksInList(10, 300, List.of(new TodoTask("replacement")));
+        taskList.addTaskToList(new TodoTask("last"));
+
+        List<Task> expected = new ArrayList<>();
+        for (int i = 0; i < taskList.getSize(); i++) {
+            expected.add(taskList.getTask(i));
+        }
+        assertEquals(expected, taskList.tasksForReading());
+        assertEquals(expectedBefore, before);
+    }
+
+    @Test
+    public void concurrentTaskList_readsDuringWrites_seeConsistentLists() throws InterruptedException {
+        ConcurrentTaskList taskList = new ConcurrentTaskList(storage);
+        for (int i = 0; i < 500; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+        }
+
+        Ui ui = new Ui();
+        AtomicBoolean isWriting = new AtomicBoolean(true);
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        Thread writer = new Thread(() -> {
+            Random random = new Random(42);
+            try {
+                for (int i = 0; i < 2_000; i++) {
+                    taskList.addTask(new TodoTask("task " + (500 + i)), ui, true);
+                    taskList.deleteTask(1 + random.nextInt(taskList.getSize()));
+                    taskList.markTaskAsDone(1 + random.nextInt(taskList.getSize()));
+                }
+            } catch (Throwable e) {
+                failures.add(e);
+            } finally {
+                isWriting.set(false);
+            }
+        });
+        Thread[] readers = new Thread[3];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                try {
+                    while (isWriting.get()) {
+                        checkRender(taskList.getTasksForGui());
+                        int found = taskList.findTasks("task").size();
+                        assertTrue(found == 500 || found == 501, "Found " + found);
+                        assertTrue(taskList.countDoneTasks() <= taskList.getSize());
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+
+        writer.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        ui.close();
+        assertTrue(failures.isEmpty(), () -> "Failed with " + failures.peek());
+        assertEquals(500, taskList.getSize());
+    }
+
+    /**
+     * Checks that a render lists the 500 tasks, or 501 between an add and a delete,
+     * numbered in order and with ids ascending.
+     */
+    private static void checkRender(String render) {
+        String[] lines = render.split("\n");
+        assertTrue(lines.length == 500 || lines.length == 501, "Rendered " + lines.length);
+        long previousId = Task.NO_ID;
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(lines[i].startsWith((i + 1) + ". "), lines[i]);
+            long id = Long.parseLong(lines[i].substring(lines[i].lastIndexOf('#') + 1, lines[i].length() - 1));
+            assertTrue(id > previousId, lines[i]);
+            previousId = id;
+        }
+    }
+}
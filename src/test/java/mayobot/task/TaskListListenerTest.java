@@ -0,0 +1,147 @@
+package mayobot.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import mayobot.Storage;
+import mayobot.ui.Ui;
+
+public class TaskListListenerTest {
+    private static final String TEST_DIR = "./test_data";
+    private static final String TEST_FILE = TEST_DIR + "/task_list_listener_test.txt";
+
+    private Storage storage;
+
+    /**
+     * Keeps a copy of the list and its done count by applying every event it receives.
+     */
+    private static class MirrorListener implements TaskListListener {
+        private final List<Task> tasks = new ArrayList<>();
+        private final List<String> events = new ArrayList<>();
+        private int doneCount;
+        private int batchDepth;
+
+        @Override
+        public void onAdd(int index, Task task) {
+            tasks.add(index - 1, task);
+            doneCount += task.isDone() ? 1 : 0;
+            events.add("add " + index);
+        }
+
+        @Override
+        public void onRemove(int index, Task task) {
+            assertEquals(task, tasks.remove(index - 1));
+            doneCount -= task.isDone() ? 1 : 0;
+            events.add("remove " + index);
+        }
+
+        @Override
+        public void onStatusChange(int index, Task task) {
+            assertEquals(task, tasks.get(index - 1));
+            doneCount += task.isDone() ? 1 : -1;
+            events.add("status " + index);
+        }
+
+        @Override
+        public void onBatchStart() {
+            assertEquals(0, batchDepth);
+            batchDepth++;
+            events.add("start");
+        }
+
+        @Override
+        public void onBatchEnd() {
+            assertEquals(1, batchDepth);
+            batchDepth--;
+            events.add("end");
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        storage = new Storage(TEST_FILE);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        storage.close();
+        Files.deleteIfExists(Paths.get(TEST_FILE));
+        Files.deleteIfExists(Paths.get(TEST_FILE + ".journal"));
+        Files.deleteIfExists(Paths.get(TEST_DIR));
+    }
+
+    @Test
+    public void taskListListener_bulkOperations_reportedAsBatches() {
+        TaskList taskList = new TaskList(storage);
+        MirrorListener listener = new MirrorListener();
+        taskList.addListener(listener);
+        for (int i = 1; i <= 5; i++) {
+            taskList.addTaskToList(new TodoTask("task " + i));
+        }
+        listener.events.clear();
+
+        taskList.markTaskAsDone(2);
+        taskList.markTaskAsDone(2);
+        taskList.markTasks(new int[] {1, 2, 3}, true);
+        taskList.deleteTasks(new int[] {2, 4});
+        taskList.replaceTasksInList(0, 2, List.of(new TodoTask("new")));
+        taskList.removeListener(listener);
+        taskList.deleteTask(1);
+
+        assertEquals(List.of("status 2", "start", "status 1", "status 3", "end",
+                "start", "remove 4", "remove 2", "end",
+                "start", "remove 1", "remove 1", "add 1", "end"), listener.events);
+    }
+
+    @Test
+    public void taskListListener_randomChanges_keepMirrorEqual() {
+        Random random = new Random(7);
+        for (TaskList taskList : List.of(new TaskList(storage), new ConcurrentTaskList(storage))) {
+            MirrorListener listener = new MirrorListener();
+            taskList.addListener(listener);
+            Ui ui = new Ui();
+            for (int i = 0; i < 1_000; i++) {
+                int size = taskList.getSize();
+                switch (size < 5 ? 0 : random.nextInt(6)) {
+                case 0:
+                    taskList.addTask(new TodoTask("task " + i), ui, true);
+                    break;
+                case 1:
+                    taskList.deleteTask(1 + random.nextInt(size));
+                    break;
+                case 2:
+                    taskList.deleteTasks(new int[] {1, 2 + random.nextInt(size - 1)});
+                    break;
+                case 3:
+                    taskList.markTaskAsDone(1 + random.nextInt(size));
+                    break;
+                case 4:
+                    taskList.markTasks(new int[] {1 + random.nextInt(size)}, random.nextBoolean());
+                    break;
+                default:
+                    int start = random.nextInt(size);
+                    taskList.replaceTasksInList(start, random.nextInt(size - start + 1),
+                            List.of(new TodoTask("replacement " + i), new TodoTask("another " + i)));
+                    break;
+                }
+            }
+
+            List<Task> expected = new ArrayList<>();
+            taskList.spliterator().forEachRemaining(expected::add);
+            assertEquals(expected, listener.tasks);
+            assertEquals(taskList.countDoneTasks(), listener.doneCount);
+            assertTrue(listener.events.size() >= 1_000);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package mayobot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class ChunkedListTest {
+    @Test
+    public void chunkedList_randomEdits_matchArrayListAndKeepEarlierVersions() {
+        Random random = new Random(42);
+        List<Integer> expected = new ArrayList<>();
+        ChunkedList<Integer> list = ChunkedList.of(expected);
+        List<List<Integer>> earlierExpected = new ArrayList<>();
+        List<ChunkedList<Integer>> earlierLists = new ArrayList<>();
+        for (int version = 0; version < 500; version++) {
+            ChunkedList.Editor<Integer> editor = list.edit();
+            for (int step = 0; step < 1 + random.nextInt(200); step++) {
+                if (random.nextInt(10) < 6 || expected.isEmpty()) {
+                    int index = random.nextInt(expected.size() + 1);
+                    expected.add(index, step);
+                    editor.add(index, step);
+                } else {
+                    int index = random.nextInt(expected.size());
+                    assertEquals(expected.remove(index), editor.remove(index));
+                }
+            }
+            list = editor.build();
+            assertEquals(expected.size(), list.size());
+            if (version % 50 == 0) {
+                earlierExpected.add(new ArrayList<>(expected));
+                earlierLists.add(list);
+            }
+        }
+
+        assertEquals(expected, list);
+        for (int i = 0; i < expected.size(); i += 97) {
+            assertEquals(expected.get(i), list.get(i));
+        }
+        assertEquals(earlierExpected, earlierLists);
+    }
+
+    @Test
+    public void chunkedList_removeEverything_leavesEmptyList() {
+        List<Integer> elements = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            elements.add(i);
+        }
+        ChunkedList<Integer> full = ChunkedList.of(elements);
+        ChunkedList.Editor<Integer> editor = full.edit();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), editor.remove(0));
+        }
+        ChunkedList<Integer> empty = editor.build();
+
+        assertEquals(0, empty.size());
+        assertEquals(elements, full);
+        assertThrows(UnsupportedOperationException.class, () -> full.add(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> empty.get(0));
+    }
+}
@@ -0,0 +1,57 @@
+package mayobot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class IntervalTreeTest {
+    @Test
+    public void intervalTree_randomEditsAndQueries_matchScan() {
+        Random random = new Random(42);
+        IntervalTree<long[]> tree = new IntervalTree<>();
+        List<long[]> expected = new ArrayList<>();
+        for (long key = 1; key <= 5_000; key++) {
+            long start = random.nextInt(100_000);
+            long[] interval = {start, start + random.nextInt(2_000), key};
+            tree.insert(interval[0], interval[1], interval[2], interval);
+            expected.add(interval);
+            if (random.nextInt(4) == 0) {
+                long[] removed = expected.remove(random.nextInt(expected.size()));
+                assertTrue(tree.remove(removed[0], removed[2]));
+            }
+        }
+        assertEquals(expected.size(), tree.size());
+
+        for (int query = 0; query < 200; query++) {
+            long from = random.nextInt(100_000);
+            long to = from + random.nextInt(5_000);
+            List<long[]> found = new ArrayList<>();
+            tree.findOverlapping(from, to, found::add);
+
+            long overlapping = expected.stream().filter(each -> each[0] <= to && each[1] >= from).count();
+            assertEquals(overlapping, found.size());
+            for (int i = 1; i < found.size(); i++) {
+                assertTrue(found.get(i - 1)[0] <= found.get(i)[0]);
+            }
+        }
+    }
+
+    @Test
+    public void intervalTree_remove_onlyRemovesMatchingKey() {
+        IntervalTree<String> tree = new IntervalTree<>();
+        tree.insert(10, 20, 1, "first");
+        tree.insert(10, 30, 2, "second");
+
+        assertFalse(tree.remove(10, 3));
+        assertTrue(tree.remove(10, 1));
+        List<String> found = new ArrayList<>();
+        tree.findOverlapping(25, 40, found::add);
+        assertEquals(List.of("second"), found);
+    }
+}
@@ -0,0 +1,48 @@
+package mayobot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class LongObjectMapTest {
+    @Test
+    public void longObjectMap_randomEdits_matchHashMap() {
+        Random random = new Random(42);
+        Map<Long, Integer> expected = new HashMap<>();
+        LongObjectMap<Integer> map = new LongObjectMap<>();
+        for (int step = 0; step < 100_000; step++) {
+            // A small key range, so that removals often hit keys in the middle of a probe sequence
+            long key = 1 + random.nextInt(2_000);
+            int choice = random.nextInt(10);
+            if (choice < 5) {
+                assertEquals(expected.put(key, step), map.put(key, step));
+            } else if (choice < 8) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (long key = 1; key <= 2_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    public void longObjectMap_clear_removesEveryMapping() {
+        LongObjectMap<String> map = new LongObjectMap<>(4);
+        for (long key = 1; key <= 100; key++) {
+            map.put(key << 32, "value " + key);
+        }
+        assertEquals("value 7", map.get(7L << 32));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(7L << 32));
+    }
+}
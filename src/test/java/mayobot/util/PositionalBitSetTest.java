@@ -0,0 +1,61 @@
+package mayobot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class PositionalBitSetTest {
+    @Test
+    public void positionalBitSet_randomEdits_matchBooleanList() {
+        Random random = new Random(42);
+        List<Boolean> expected = new ArrayList<>();
+        PositionalBitSet bits = new PositionalBitSet();
+        for (int step = 0; step < 20_000; step++) {
+            int choice = random.nextInt(10);
+            if (choice < 5 || expected.isEmpty()) {
+                int position = random.nextInt(expected.size() + 1);
+                boolean value = random.nextBoolean();
+                expected.add(position, value);
+                bits.insert(position, value);
+            } else if (choice < 8) {
+                int position = random.nextInt(expected.size());
+                assertEquals(expected.remove(position), bits.remove(position));
+            } else {
+                int position = random.nextInt(expected.size());
+                boolean value = random.nextBoolean();
+                expected.set(position, value);
+                bits.set(position, value);
+            }
+        }
+
+        assertEquals(expected.size(), bits.size());
+        assertEquals(expected.stream().filter(value -> value).count(), bits.cardinality());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), bits.get(i));
+        }
+        assertEquals(expected.indexOf(true), bits.nextSetBit(0));
+        assertEquals(expected.indexOf(false), bits.nextClearBit(0));
+    }
+
+    @Test
+    public void positionalBitSet_nextBits_skipWholeWords() {
+        PositionalBitSet bits = new PositionalBitSet();
+        for (int i = 0; i < 300; i++) {
+            bits.add(i == 5 || i == 200);
+        }
+
+        assertEquals(5, bits.nextSetBit(0));
+        assertEquals(200, bits.nextSetBit(6));
+        assertEquals(-1, bits.nextSetBit(201));
+        assertEquals(6, bits.nextClearBit(5));
+
+        bits.remove(0);
+        assertEquals(4, bits.nextSetBit(0));
+        assertEquals(199, bits.nextSetBit(5));
+        assertEquals(-1, bits.nextClearBit(299));
+    }
+}
@@ -0,0 +1,81 @@
+package mayobot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class RopeListTest {
+    @Test
+    public void ropeList_randomEdits_matchArrayList() {
+        Random random = new Random(42);
+        List<Integer> expected = new ArrayList<>();
+        RopeList<Integer> rope = new RopeList<>();
+        for (int step = 0; step < 50_000; step++) {
+            int choice = random.nextInt(10);
+            if (choice < 5 || expected.isEmpty()) {
+                int index = random.nextInt(expected.size() + 1);
+                expected.add(index, step);
+                rope.add(index, step);
+            } else if (choice < 8) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), rope.remove(index));
+            } else {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.set(index, -step), rope.set(index, -step));
+            }
+        }
+        assertEquals(expected, rope);
+        assertEquals(expected.size(), rope.size());
+        for (int i = 0; i < expected.size(); i += 97) {
+            assertEquals(expected.get(i), rope.get(i));
+        }
+    }
+
+    @Test
+    public void ropeList_iterationAndForEach_visitInOrder() {
+        RopeList<Integer> rope = new RopeList<>();
+        for (int i = 0; i < 10_000; i++) {
+            rope.add(i);
+        }
+        int next = 0;
+        for (int value : rope) {
+            assertEquals(next++, value);
+        }
+        assertEquals(10_000, next);
+
+        List<Integer> visited = new ArrayList<>();
+        rope.forEach(visited::add);
+        assertEquals(rope, visited);
+    }
+
+    @Test
+    public void ropeList_bulkRemoval_keepsListConsistent() {
+        RopeList<Integer> rope = new RopeList<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            rope.add(i);
+            expected.add(i);
+        }
+
+        rope.removeIf(value -> value % 3 == 0);
+        expected.removeIf(value -> value % 3 == 0);
+        rope.subList(100, 2_000).clear();
+        expected.subList(100, 2_000).clear();
+        assertEquals(expected, rope);
+
+        Iterator<Integer> iterator = rope.iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        assertTrue(rope.isEmpty());
+        rope.add(7);
+        assertEquals(List.of(7), rope);
+    }
+}
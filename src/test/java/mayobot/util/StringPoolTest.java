@@ -0,0 +1,48 @@
+package mayobot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class StringPoolTest {
+    @Test
+    public void stringPool_equalStrings_shareFirstInstance() {
+        StringPool pool = new StringPool();
+        String first = new String("review PR");
+        String second = new String("review PR");
+
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(second));
+        assertSame(first, pool.intern(first));
+
+        assertEquals(3, pool.getLookupCount());
+        assertEquals(1, pool.getSharedCount());
+        // A String object plus a 16-byte header and 9 bytes of text, aligned to 8
+        assertEquals(24 + 32, pool.getBytesSaved());
+    }
+
+    @Test
+    public void stringPool_manyDistinctStrings_staysWithinCapacity() {
+        StringPool pool = new StringPool(64);
+        for (int i = 0; i < 10_000; i++) {
+            pool.intern("task " + i);
+        }
+
+        assertEquals(64, pool.getCapacity());
+        assertTrue(pool.size() <= 64);
+        assertEquals(0, pool.getSharedCount());
+    }
+
+    @Test
+    public void stringPool_frequentString_survivesEvictions() {
+        StringPool pool = new StringPool(4);
+        String standup = new String("daily standup");
+        pool.intern(standup);
+        for (int i = 0; i < 1_000; i++) {
+            pool.intern("one-off " + i);
+            assertSame(standup, pool.intern(new String("daily standup")));
+        }
+    }
+}